@@ -1,14 +1,19 @@
 package br.edu.unifei;
 
 import br.edu.unifei.barramento.Barramento;
+import br.edu.unifei.barramento.ConfiguracaoDoControlador;
 import br.edu.unifei.barramento.ControladorDoBarramento;
+import br.edu.unifei.barramento.gerenciamento.DiarioDeServicos;
 import br.edu.unifei.barramento.gerenciamento.GerenciadorDeServicos;
 import br.edu.unifei.coap.ControladorDoProtocoloCoAP;
 import br.edu.unifei.mqtt.BrokerMQTT;
+import br.edu.unifei.mqtt.ConfiguracaoDoProtocoloMQTT;
 import br.edu.unifei.mqtt.ControladorDoProtocoloMQTT;
+import br.edu.unifei.mqtt.ExtensaoDoBarramento;
 import br.edu.unifei.utils.LogUtils;
 
 import java.io.IOException;
+import java.nio.file.Paths;
 
 /**
  * Classe principal do Barramento de Serviços, responsável por inicializar o loop principal da aplicação e gerenciar a
@@ -22,9 +27,62 @@ import java.io.IOException;
  * Ao iniciar, a aplicação cria instâncias dos controladores de protocolo e inicia seus loops. Quando a aplicação é
  * encerrada, seja por uma interrupção externa ou por um hook de encerramento do Java, os controladores de protocolo
  * são finalizados corretamente.
+ *
+ * <p>
+ *     Para executar várias instâncias em cluster, cada instância recebe o grupo de assinatura compartilhada pela
+ *     propriedade de sistema {@value #PROPRIEDADE_GRUPO_MQTT}, e apenas uma delas inicia o broker embarcado; as demais
+ *     são iniciadas com {@code -D}{@value #PROPRIEDADE_BROKER_MQTT}{@code =false} e se conectam ao broker pela URL
+ *     informada em {@value #PROPRIEDADE_URL_MQTT}. Como o servidor CoAP ocupa uma porta UDP fixa, as instâncias
+ *     executadas na mesma máquina que outra instância são iniciadas com
+ *     {@code -D}{@value #PROPRIEDADE_COAP}{@code =false}.
+ * </p>
+ *
+ * <p>
+ *     Com {@code -D}{@value #PROPRIEDADE_MQTT_EMBARCADO}{@code =true}, uma instância fora do modo cluster que inicia o
+ *     broker embarcado troca as mensagens MQTT diretamente com ele, pela {@link ExtensaoDoBarramento}, sem a conexão
+ *     TCP de loopback.
+ * </p>
+ *
+ * <p>
+ *     Com {@code -D}{@value #PROPRIEDADE_DIRETORIO_DE_SERVICOS}{@code =<diretório>}, os serviços registrados são
+ *     persistidos em um {@link DiarioDeServicos} no diretório informado e recuperados na inicialização.
+ * </p>
  */
 public class App {
 
+    /**
+     * Propriedade de sistema com o grupo de assinatura compartilhada do modo cluster do MQTT.
+     */
+    public static final String PROPRIEDADE_GRUPO_MQTT = "barramento.mqtt.grupo";
+
+    /**
+     * Propriedade de sistema que define se o broker MQTT embarcado é iniciado pela instância. Habilitada por padrão.
+     */
+    public static final String PROPRIEDADE_BROKER_MQTT = "barramento.mqtt.broker";
+
+    /**
+     * Propriedade de sistema com a URL do broker MQTT (Ex.: {@code tcp://broker:1883}). Se ausente, a instância se
+     * conecta ao broker na mesma máquina.
+     */
+    public static final String PROPRIEDADE_URL_MQTT = "barramento.mqtt.url";
+
+    /**
+     * Propriedade de sistema que define se o servidor CoAP é iniciado pela instância. Habilitada por padrão.
+     */
+    public static final String PROPRIEDADE_COAP = "barramento.coap";
+
+    /**
+     * Propriedade de sistema que habilita a troca de mensagens diretamente com o broker MQTT embarcado. Desabilitada
+     * por padrão.
+     */
+    public static final String PROPRIEDADE_MQTT_EMBARCADO = "barramento.mqtt.embarcado";
+
+    /**
+     * Propriedade de sistema com o diretório onde os serviços registrados são persistidos. Se ausente, os serviços são
+     * mantidos apenas em memória.
+     */
+    public static final String PROPRIEDADE_DIRETORIO_DE_SERVICOS = "barramento.servicos.diretorio";
+
     /**
      * Método principal que inicia a aplicação do Barramento de Serviços.
      * Inicializa os controladores de protocolo MQTT e CoAP, e configura um hook de encerramento para garantir que os
@@ -35,24 +93,54 @@ public class App {
      */
     public static void main(String[] args) throws IOException {
         LogUtils.logInfo("Iniciando aplicação...");
-        Barramento barramento = new Barramento(new GerenciadorDeServicos());
+        String diretorioDeServicos = System.getProperty(PROPRIEDADE_DIRETORIO_DE_SERVICOS);
+        GerenciadorDeServicos gerenciadorDeServicos = diretorioDeServicos == null
+                ? new GerenciadorDeServicos()
+                : new GerenciadorDeServicos(new DiarioDeServicos(Paths.get(diretorioDeServicos)));
+        Barramento barramento = new Barramento(gerenciadorDeServicos);
 
-        BrokerMQTT brokerMQTT = new BrokerMQTT();
-        brokerMQTT.startBroker();
+        ConfiguracaoDoProtocoloMQTT configuracaoMQTT = ConfiguracaoDoProtocoloMQTT.padrao()
+                .grupoCompartilhado(System.getProperty(PROPRIEDADE_GRUPO_MQTT))
+                .urlDoBroker(System.getProperty(PROPRIEDADE_URL_MQTT));
+        boolean iniciarBroker = Boolean.parseBoolean(System.getProperty(PROPRIEDADE_BROKER_MQTT, "true"));
+        ExtensaoDoBarramento extensaoMQTT = iniciarBroker && !configuracaoMQTT.isModoCluster()
+                && Boolean.getBoolean(PROPRIEDADE_MQTT_EMBARCADO)
+                ? new ExtensaoDoBarramento()
+                : null;
 
-        ControladorDoBarramento controladorMQTT = new ControladorDoProtocoloMQTT(barramento);
+        BrokerMQTT brokerMQTT = iniciarBroker ? new BrokerMQTT(extensaoMQTT) : null;
+        if (brokerMQTT != null) {
+            brokerMQTT.startBroker();
+        }
+        configuracaoMQTT.extensaoEmbarcada(extensaoMQTT);
+        ControladorDoBarramento controladorMQTT = new ControladorDoProtocoloMQTT(barramento,
+                ConfiguracaoDoControlador.padrao(), configuracaoMQTT);
         controladorMQTT.iniciar();
 
-        ControladorDoBarramento controladorCoAP = new ControladorDoProtocoloCoAP(barramento);
-        controladorCoAP.iniciar();
+        ControladorDoBarramento controladorCoAP = null;
+        if (Boolean.parseBoolean(System.getProperty(PROPRIEDADE_COAP, "true"))) {
+            controladorCoAP = new ControladorDoProtocoloCoAP(barramento);
+            controladorCoAP.iniciar();
+        } else {
+            LogUtils.logInfo("Servidor CoAP desabilitado nesta instância.");
+        }
+        ControladorDoBarramento coap = controladorCoAP;
 
         LogUtils.logInfo("Aplicação iniciada.");
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             LogUtils.logInfo("Encerrando aplicação...");
             controladorMQTT.parar();
-            controladorCoAP.parar();
-            brokerMQTT.stopBroker();
+            if (coap != null) {
+                coap.parar();
+            }
+            if (brokerMQTT != null) {
+                brokerMQTT.stopBroker();
+            }
+            gerenciadorDeServicos.fechar();
+            for (String linha : barramento.getMetricasDeLatencia().getResumo()) {
+                LogUtils.logInfo("Latência %s", linha);
+            }
             LogUtils.logInfo("Aplicação encerrada.");
         }));
     }
@@ -1,23 +1,56 @@
 package br.edu.unifei.barramento;
 
+import br.edu.unifei.barramento.comandos.Comando;
+import br.edu.unifei.barramento.comandos.RegistroDeComandos;
+import br.edu.unifei.barramento.envio.AgrupadorDeEnvios;
+import br.edu.unifei.barramento.envio.ConfiguracaoDoAgrupamento;
 import br.edu.unifei.barramento.gerenciamento.GerenciadorDeServicos;
+import br.edu.unifei.barramento.metricas.EstagioDeLatencia;
+import br.edu.unifei.barramento.metricas.MetricasDeLatencia;
+import br.edu.unifei.modelos.mensagem.EnvelopeDeMensagens;
+import br.edu.unifei.modelos.mensagem.FormatoDeMensagem;
 import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.modelos.mensagem.ModoDeEntrega;
 import br.edu.unifei.modelos.protocolo.Protocolo;
 import br.edu.unifei.utils.LogUtils;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Classe responsável por gerenciar a comunicação entre diferentes endpoints via protocolos de transporte variados.
  * O barramento mantém um {@link GerenciadorDeServicos} e mantém um mapeamento com os protocolos de preferência
- * associado a cada endpoint.
+ * e os formatos de mensagem associados a cada endpoint.
+ *
+ * <p>
+ *     As latências de cada estágio do caminho das mensagens são registradas nas {@link MetricasDeLatencia} do
+ *     barramento. Os timestamps no campo {@code metadata} das mensagens ({@code timestamp_bus_*}) são mantidos apenas
+ *     como modo de compatibilidade, habilitado por {@link #setTimestampsNaMensagem(boolean)} ou pela propriedade de
+ *     sistema {@value #PROPRIEDADE_TIMESTAMPS_NA_MENSAGEM}.
+ * </p>
+ *
+ * <p>
+ *     As mensagens destinadas aos endpoints com agrupamento habilitado ({@link #definirAgrupamento(String, boolean)})
+ *     passam pelo {@link AgrupadorDeEnvios} do barramento e são enviadas em envelopes ({@link EnvelopeDeMensagens}).
+ * </p>
  */
 public class Barramento {
 
+    /**
+     * Propriedade de sistema que habilita os timestamps no campo {@code metadata} das mensagens.
+     */
+    public static final String PROPRIEDADE_TIMESTAMPS_NA_MENSAGEM = "barramento.timestamps";
+
     private final String id = UUID.randomUUID().toString();
+    private final MetricasDeLatencia metricasDeLatencia = new MetricasDeLatencia();
+    private volatile boolean timestampsNaMensagem = Boolean.getBoolean(PROPRIEDADE_TIMESTAMPS_NA_MENSAGEM);
     private final GerenciadorDeServicos gerenciadorDeServicos;
+    private final RegistroDeComandos registroDeComandos;
 
     /**
      * Mapeamento responsável por armazenar a relação entre o endpoint e o protocolo de preferência
@@ -25,6 +58,31 @@ public class Barramento {
      */
     protected final Map<String, Protocolo> preferenciasDeProtocolo;
 
+    /**
+     * Mapeamento responsável por armazenar o {@link FormatoDeMensagem} de cada endpoint. Endpoints ausentes utilizam
+     * o formato {@link FormatoDeMensagem#JSON}.
+     */
+    protected final Map<String, FormatoDeMensagem> formatosDeMensagem;
+
+    /**
+     * Mapeamento responsável por armazenar o {@link ModoDeEntrega} de cada endpoint. Endpoints ausentes utilizam o
+     * modo {@link ModoDeEntrega#CONFIRMAVEL}.
+     */
+    protected final Map<String, ModoDeEntrega> modosDeEntrega;
+
+    /**
+     * Mapeamento responsável por armazenar o nível de QoS MQTT das mensagens enviadas a cada endpoint. Endpoints
+     * ausentes utilizam o nível correspondente ao seu {@link ModoDeEntrega}.
+     */
+    protected final Map<String, Integer> niveisDeQos;
+
+    /**
+     * Endpoints que recebem as suas mensagens agrupadas em envelopes.
+     */
+    protected final Set<String> endpointsComAgrupamento;
+
+    private volatile AgrupadorDeEnvios agrupadorDeEnvios;
+
     /**
      * Constrói um novo Barramento com o gerenciador de serviços especificado.
      *
@@ -33,6 +91,12 @@ public class Barramento {
     public Barramento(GerenciadorDeServicos gerenciadorDeServicos) {
         this.gerenciadorDeServicos = gerenciadorDeServicos;
         this.preferenciasDeProtocolo = new ConcurrentHashMap<>();
+        this.formatosDeMensagem = new ConcurrentHashMap<>();
+        this.modosDeEntrega = new ConcurrentHashMap<>();
+        this.niveisDeQos = new ConcurrentHashMap<>();
+        this.endpointsComAgrupamento = ConcurrentHashMap.newKeySet();
+        this.agrupadorDeEnvios = new AgrupadorDeEnvios(ConfiguracaoDoAgrupamento.padrao(), this::enviarAoProtocolo);
+        this.registroDeComandos = RegistroDeComandos.padrao();
         LogUtils.logDebug("Instância do Barramento criada com ID: %s", id);
     }
 
@@ -43,6 +107,40 @@ public class Barramento {
         return gerenciadorDeServicos;
     }
 
+    /**
+     * @return O {@link RegistroDeComandos} com os {@link Comando}s executados pelo barramento. Novas ações podem ser
+     * registradas antes de iniciar os controladores.
+     */
+    public RegistroDeComandos getRegistroDeComandos() {
+        return registroDeComandos;
+    }
+
+    /**
+     * @return As {@link MetricasDeLatencia} dos estágios de recepção, espera na fila, execução e envio.
+     */
+    public MetricasDeLatencia getMetricasDeLatencia() {
+        return metricasDeLatencia;
+    }
+
+    /**
+     * @return {@code true} se os timestamps {@code timestamp_bus_*} são adicionados ao campo {@code metadata} das
+     * mensagens.
+     */
+    public boolean isTimestampsNaMensagem() {
+        return timestampsNaMensagem;
+    }
+
+    /**
+     * Habilita ou desabilita o modo de compatibilidade em que os timestamps {@code timestamp_bus_*}, em
+     * milissegundos, são adicionados ao campo {@code metadata} das mensagens para que os clientes calculem as
+     * latências. Desabilitado por padrão.
+     *
+     * @param timestampsNaMensagem {@code true} para adicionar os timestamps às mensagens.
+     */
+    public void setTimestampsNaMensagem(boolean timestampsNaMensagem) {
+        this.timestampsNaMensagem = timestampsNaMensagem;
+    }
+
     /**
      * Obtém o protocolo de preferência para o endpoint especificado.
      *
@@ -55,19 +153,156 @@ public class Barramento {
     }
 
     /**
-     * Registra um novo endpoint com o protocolo especificado.
+     * Obtém o formato de mensagem do endpoint especificado.
+     *
+     * @param endpoint O nome do endpoint.
+     * @return O {@link FormatoDeMensagem} registrado para o endpoint, ou {@link FormatoDeMensagem#JSON} se o endpoint
+     * não estiver registrado.
+     */
+    public FormatoDeMensagem getFormatoDeMensagem(String endpoint) {
+        FormatoDeMensagem formato = endpoint == null ? null : formatosDeMensagem.get(endpoint);
+        return formato != null ? formato : FormatoDeMensagem.JSON;
+    }
+
+    /**
+     * Obtém o modo de entrega do endpoint especificado.
+     *
+     * @param endpoint O nome do endpoint.
+     * @return O {@link ModoDeEntrega} registrado para o endpoint, ou {@link ModoDeEntrega#CONFIRMAVEL} se nenhum modo
+     * estiver registrado.
+     */
+    public ModoDeEntrega getModoDeEntrega(String endpoint) {
+        ModoDeEntrega modo = endpoint == null ? null : modosDeEntrega.get(endpoint);
+        return modo != null ? modo : ModoDeEntrega.CONFIRMAVEL;
+    }
+
+    /**
+     * Define o modo de entrega das mensagens enviadas ao endpoint especificado.
+     *
+     * @param endpoint O nome do endpoint.
+     * @param modo     O {@link ModoDeEntrega} do endpoint, ou {@code null} para voltar ao modo
+     *                 {@link ModoDeEntrega#CONFIRMAVEL}.
+     */
+    public void definirModoDeEntrega(String endpoint, ModoDeEntrega modo) {
+        if (modo == null || modo == ModoDeEntrega.CONFIRMAVEL) {
+            modosDeEntrega.remove(endpoint);
+        } else {
+            modosDeEntrega.put(endpoint, modo);
+        }
+        LogUtils.logDebug("Modo de entrega do endpoint '%s' definido como '%s'.", endpoint,
+                getModoDeEntrega(endpoint).getNome());
+    }
+
+    /**
+     * Obtém o nível de QoS MQTT das mensagens enviadas ao endpoint especificado.
+     *
+     * @param endpoint O nome do endpoint.
+     * @return O nível de QoS registrado para o endpoint ou, se nenhum nível estiver registrado, {@code 0} para
+     * endpoints no modo {@link ModoDeEntrega#NAO_CONFIRMAVEL} e {@code 1} para os demais.
+     */
+    public int getNivelDeQos(String endpoint) {
+        Integer nivel = endpoint == null ? null : niveisDeQos.get(endpoint);
+        if (nivel != null) {
+            return nivel;
+        }
+        return getModoDeEntrega(endpoint) == ModoDeEntrega.NAO_CONFIRMAVEL ? 0 : 1;
+    }
+
+    /**
+     * Define o nível de QoS MQTT das mensagens enviadas ao endpoint especificado.
+     *
+     * @param endpoint O nome do endpoint.
+     * @param nivel    O nível de QoS (0, 1 ou 2), ou {@code null} para voltar ao nível correspondente ao
+     *                 {@link ModoDeEntrega} do endpoint.
+     * @throws IllegalArgumentException Se o nível não for 0, 1 ou 2.
+     */
+    public void definirNivelDeQos(String endpoint, Integer nivel) {
+        if (nivel == null) {
+            niveisDeQos.remove(endpoint);
+        } else if (nivel < 0 || nivel > 2) {
+            throw new IllegalArgumentException(String.format("Nível de QoS inválido: %d.", nivel));
+        } else {
+            niveisDeQos.put(endpoint, nivel);
+        }
+        LogUtils.logDebug("Nível de QoS do endpoint '%s' definido como %d.", endpoint, getNivelDeQos(endpoint));
+    }
+
+    /**
+     * @param endpoint O nome do endpoint.
+     * @return {@code true} se as mensagens destinadas ao endpoint forem agrupadas em envelopes.
+     */
+    public boolean isAgrupamento(String endpoint) {
+        return endpoint != null && endpointsComAgrupamento.contains(endpoint);
+    }
+
+    /**
+     * Habilita ou desabilita o agrupamento em envelopes das mensagens destinadas ao endpoint especificado. O endpoint
+     * deve desempacotar os envelopes recebidos com {@link EnvelopeDeMensagens#desempacotar(Mensagem)}.
+     *
+     * @param endpoint    O nome do endpoint.
+     * @param agrupamento {@code true} para agrupar as mensagens destinadas ao endpoint.
+     */
+    public void definirAgrupamento(String endpoint, boolean agrupamento) {
+        if (agrupamento) {
+            endpointsComAgrupamento.add(endpoint);
+        } else if (endpointsComAgrupamento.remove(endpoint)) {
+            agrupadorDeEnvios.enviarPendentes();
+        }
+        LogUtils.logDebug("Agrupamento de mensagens do endpoint '%s' %s.", endpoint,
+                agrupamento ? "habilitado" : "desabilitado");
+    }
+
+    /**
+     * Substitui a configuração do agrupamento de mensagens, enviando os grupos pendentes do agrupador anterior.
+     *
+     * @param configuracao A {@link ConfiguracaoDoAgrupamento} com o tempo de espera e o tamanho máximo dos envelopes.
+     */
+    public void configurarAgrupamento(ConfiguracaoDoAgrupamento configuracao) {
+        AgrupadorDeEnvios anterior = agrupadorDeEnvios;
+        agrupadorDeEnvios = new AgrupadorDeEnvios(configuracao, this::enviarAoProtocolo);
+        anterior.encerrar();
+    }
+
+    /**
+     * Envia imediatamente as mensagens que aguardam em grupos, como no encerramento do barramento.
+     */
+    public void enviarMensagensAgrupadas() {
+        agrupadorDeEnvios.enviarPendentes();
+    }
+
+    /**
+     * Registra um novo endpoint com o protocolo especificado e o formato de mensagem {@link FormatoDeMensagem#JSON}.
      *
      * @param endpoint  O nome do endpoint.
      * @param protocolo O {@link Protocolo} a ser associado ao endpoint.
      */
     public void cadastrarEndpoint(String endpoint, Protocolo protocolo) {
+        cadastrarEndpoint(endpoint, protocolo, FormatoDeMensagem.JSON);
+    }
+
+    /**
+     * Registra um novo endpoint com o protocolo e o formato de mensagem especificados.
+     *
+     * @param endpoint  O nome do endpoint.
+     * @param protocolo O {@link Protocolo} a ser associado ao endpoint.
+     * @param formato   O {@link FormatoDeMensagem} em que as mensagens são enviadas ao endpoint.
+     */
+    public void cadastrarEndpoint(String endpoint, Protocolo protocolo, FormatoDeMensagem formato) {
         if (protocolo == null) {
             LogUtils.logError("Tentativa de registrar o endpoint '%s' com um protocolo nulo.", endpoint);
             return;
         }
         preferenciasDeProtocolo.put(endpoint, protocolo);
-        LogUtils.logInfo("Endpoint '%s' registrado com o protocolo '%s'.", endpoint, protocolo.getNomeProtocolo());
+        formatosDeMensagem.put(endpoint, formato != null ? formato : FormatoDeMensagem.JSON);
+        LogUtils.logInfo("Endpoint '%s' registrado com o protocolo '%s' e o formato '%s'.", endpoint,
+                protocolo.getNomeProtocolo(), formatosDeMensagem.get(endpoint).getNome());
         LogUtils.logDebug("Instância '%s' - Conteúdo atual do mapa de preferências de protocolo: %s", id, preferenciasDeProtocolo);
+        try {
+            protocolo.endpointCadastrado(endpoint);
+        } catch (Exception e) {
+            LogUtils.logError("Erro ao preparar o endpoint '%s' no protocolo '%s': %s", endpoint,
+                    protocolo.getNomeProtocolo(), e.getMessage());
+        }
     }
 
     /**
@@ -79,6 +314,96 @@ public class Barramento {
      *                        endpoint de destino.
      */
     public void enviarMensagem(Mensagem mensagem, Protocolo protocoloOrigem) {
+        Protocolo protocoloEnvio = prepararEnvio(mensagem, protocoloOrigem);
+        if (!agrupar(mensagem, protocoloEnvio)) {
+            enviarAoProtocolo(mensagem, protocoloEnvio);
+        }
+    }
+
+    /**
+     * Envia um lote de mensagens, agrupando-as pelo protocolo de envio de cada destino para que cada protocolo receba
+     * as suas mensagens em uma única chamada de {@link Protocolo#enviarMensagens(List)}. A ordem das mensagens é
+     * mantida dentro de cada protocolo.
+     *
+     * @param mensagens       As {@link Mensagem}s a serem enviadas.
+     * @param protocoloOrigem O {@link Protocolo} utilizado para os destinos sem protocolo registrado.
+     */
+    public void enviarMensagens(List<Mensagem> mensagens, Protocolo protocoloOrigem) {
+        if (mensagens.size() == 1) {
+            enviarMensagem(mensagens.get(0), protocoloOrigem);
+            return;
+        }
+
+        Map<Protocolo, List<Mensagem>> mensagensPorProtocolo = new LinkedHashMap<>();
+        for (Mensagem mensagem : mensagens) {
+            Protocolo protocoloEnvio = prepararEnvio(mensagem, protocoloOrigem);
+            if (!agrupar(mensagem, protocoloEnvio)) {
+                mensagensPorProtocolo.computeIfAbsent(protocoloEnvio, p -> new ArrayList<>()).add(mensagem);
+            }
+        }
+
+        for (Map.Entry<Protocolo, List<Mensagem>> lote : mensagensPorProtocolo.entrySet()) {
+            Protocolo protocoloEnvio = lote.getKey();
+            try {
+                long inicio = System.nanoTime();
+                protocoloEnvio.enviarMensagens(lote.getValue());
+                long duracaoPorMensagem = (System.nanoTime() - inicio) / lote.getValue().size();
+                for (Mensagem mensagem : lote.getValue()) {
+                    metricasDeLatencia.registrar(EstagioDeLatencia.ENVIO, protocoloEnvio.getNomeProtocolo(),
+                            mensagem.getAcao(), duracaoPorMensagem);
+                }
+                LogUtils.logInfo("Lote de %d mensagem(ns) enviado via '%s'.", lote.getValue().size(),
+                        protocoloEnvio.getNomeProtocolo());
+            } catch (Exception e) {
+                LogUtils.logError("Falha ao enviar lote de %d mensagem(ns) via '%s': '%s'.", lote.getValue().size(),
+                        protocoloEnvio.getNomeProtocolo(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Entrega a mensagem ao agrupador de envios, se o destino tiver o agrupamento habilitado.
+     *
+     * @return {@code true} se a mensagem foi agrupada e não deve ser enviada diretamente.
+     */
+    private boolean agrupar(Mensagem mensagem, Protocolo protocoloEnvio) {
+        if (endpointsComAgrupamento.isEmpty() || !endpointsComAgrupamento.contains(mensagem.getDestino())
+                || EnvelopeDeMensagens.isEnvelope(mensagem)) {
+            return false;
+        }
+        agrupadorDeEnvios.adicionar(mensagem, protocoloEnvio, getFormatoDeMensagem(mensagem.getDestino()));
+        return true;
+    }
+
+    /**
+     * Envia uma mensagem, individual ou envelope, pelo protocolo já resolvido, registrando a latência do envio.
+     */
+    private void enviarAoProtocolo(Mensagem mensagem, Protocolo protocoloEnvio) {
+        String destino = mensagem.getDestino();
+        try {
+            long inicio = System.nanoTime();
+            protocoloEnvio.enviarMensagem(mensagem);
+            metricasDeLatencia.registrar(EstagioDeLatencia.ENVIO, protocoloEnvio.getNomeProtocolo(),
+                    mensagem.getAcao(), System.nanoTime() - inicio);
+            LogUtils.logInfo("Mensagem enviada para '%s' via '%s'.", destino, protocoloEnvio.getNomeProtocolo());
+        } catch (Exception e) {
+            LogUtils.logError("Falha ao enviar mensagem para '%s' via '%s': '%s'.", destino,
+                    protocoloEnvio.getNomeProtocolo(), e.getMessage());
+        }
+    }
+
+    /**
+     * Prepara a mensagem para envio: registra a origem como novo endpoint caso ainda não seja conhecida, com o
+     * formato em que a mensagem foi recebida, adiciona o timestamp de envio, se habilitado, e resolve o protocolo pelo
+     * qual a mensagem deve ser enviada.
+     *
+     * @param mensagem        A {@link Mensagem} a ser enviada.
+     * @param protocoloOrigem O {@link Protocolo} utilizado caso não encontre um protocolo registrado para o
+     *                        endpoint de destino.
+     * @return O {@link Protocolo} de preferência do destino, ou o protocolo de origem se o destino não estiver
+     * cadastrado.
+     */
+    private Protocolo prepararEnvio(Mensagem mensagem, Protocolo protocoloOrigem) {
         String origem = mensagem.getOrigem();
         String destino = mensagem.getDestino();
 
@@ -86,40 +411,26 @@ public class Barramento {
             LogUtils.logInfo("Novo endpoint conectado: '%s'. Registrando o protocolo '%s' como preferência " +
                             "padrão para comunicações futuras.",
                     origem, protocoloOrigem.getNomeProtocolo());
-            cadastrarEndpoint(origem, protocoloOrigem);
+            cadastrarEndpoint(origem, protocoloOrigem, mensagem.getFormato());
         }
 
         Protocolo protocoloDestino = getProtocoloPreferencia(destino);
-        String sufixo_timestamp = "";
-        if (destino.contains("cliente")) {
-            sufixo_timestamp += "_cliente";
-        } else if (destino.contains("servidor")) {
-            sufixo_timestamp += "_servidor";
-        } else if (destino.contains("embarcado")) {
-            sufixo_timestamp += "_embarcado";
+        if (timestampsNaMensagem) {
+            String sufixo_timestamp = "";
+            if (destino.contains("cliente")) {
+                sufixo_timestamp += "_cliente";
+            } else if (destino.contains("servidor")) {
+                sufixo_timestamp += "_servidor";
+            } else if (destino.contains("embarcado")) {
+                sufixo_timestamp += "_embarcado";
+            }
+            mensagem.adicionarTimestampAoMetadata(String.format("timestamp_bus_msg_enviada%s", sufixo_timestamp));
         }
-        mensagem.adicionarTimestampAoMetadata(String.format("timestamp_bus_msg_enviada%s", sufixo_timestamp));
         if (protocoloDestino == null) {
             LogUtils.logWarn("Protocolo de destino não encontrado para o endpoint '%s'. " +
                     "Enviando via protocolo de origem '%s'.", destino, protocoloOrigem.getNomeProtocolo());
-            try {
-                protocoloOrigem.enviarMensagem(mensagem);
-                LogUtils.logInfo("Mensagem enviada para '%s' via '%s'.", destino,
-                        protocoloOrigem.getNomeProtocolo());
-            } catch (Exception e) {
-                LogUtils.logError("Falha ao enviar mensagem para '%s' via '%s': '%s'.", destino,
-                        protocoloOrigem.getNomeProtocolo(), e.getMessage());
-            }
-        } else {
-            try {
-                protocoloDestino.enviarMensagem(mensagem);
-                LogUtils.logInfo("Mensagem enviada para '%s' via '%s'.", destino,
-                        protocoloDestino.getNomeProtocolo());
-            } catch (Exception e) {
-                LogUtils.logError("Falha ao enviar mensagem para '%s' via '%s': '%s'.", destino,
-                        protocoloOrigem.getNomeProtocolo(), e.getMessage());
-            }
-
+            return protocoloOrigem;
         }
+        return protocoloDestino;
     }
 }
@@ -0,0 +1,212 @@
+package br.edu.unifei.barramento;
+
+import br.edu.unifei.barramento.fila.EstrategiaDeEspera;
+import br.edu.unifei.barramento.fila.PoliticaDeFilaCheia;
+import br.edu.unifei.barramento.workers.ChaveDeAfinidade;
+import br.edu.unifei.barramento.workers.FabricaDeThreads;
+import br.edu.unifei.barramento.workers.ModoDeExecucao;
+import br.edu.unifei.barramento.workers.WorkerDeProcessamento;
+import br.edu.unifei.barramento.workers.WorkerDeRecepcao;
+import br.edu.unifei.utils.LogUtils;
+
+/**
+ * Agrupa as configurações de execução de um {@link ControladorDoBarramento}: as filas de mensagens, o estágio de
+ * recepção e o pool de processamento. Os métodos de configuração retornam a própria instância para permitir o
+ * encadeamento das chamadas.
+ *
+ * <pre>{@code
+ * ConfiguracaoDoControlador configuracao = ConfiguracaoDoControlador.padrao()
+ *         .numeroDeWorkers(4)
+ *         .capacidadeDaFila(8192);
+ * }</pre>
+ */
+public class ConfiguracaoDoControlador {
+
+    /**
+     * Número máximo padrão de grupos de mensagens em processamento simultâneo por protocolo no
+     * {@link ModoDeExecucao#VIRTUAL}.
+     */
+    public static final int LIMITE_DE_CONCORRENCIA_PADRAO = 256;
+
+    private int capacidadeDaFila = FilaDeMensagens.CAPACIDADE_PADRAO;
+    private EstrategiaDeEspera estrategiaDeEspera = EstrategiaDeEspera.SPIN_PARK;
+    private PoliticaDeFilaCheia politicaDeFilaCheia = PoliticaDeFilaCheia.BLOQUEAR;
+    private int tamanhoMaximoDoLoteDeRecepcao = WorkerDeRecepcao.TAMANHO_MAXIMO_DO_LOTE_PADRAO;
+    private int tamanhoMaximoDoLoteDeProcessamento = WorkerDeProcessamento.TAMANHO_MAXIMO_DO_LOTE_PADRAO;
+    private int numeroDeWorkers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private ChaveDeAfinidade chaveDeAfinidade = ChaveDeAfinidade.DESTINO;
+    private ModoDeExecucao modoDeExecucao = ModoDeExecucao.PLATAFORMA;
+    private int limiteDeConcorrencia = LIMITE_DE_CONCORRENCIA_PADRAO;
+
+    /**
+     * @return Uma nova configuração com os valores padrão.
+     */
+    public static ConfiguracaoDoControlador padrao() {
+        return new ConfiguracaoDoControlador();
+    }
+
+    /**
+     * @param capacidadeDaFila Capacidade de cada fila de processamento, arredondada para potência de dois.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoControlador capacidadeDaFila(int capacidadeDaFila) {
+        this.capacidadeDaFila = capacidadeDaFila;
+        return this;
+    }
+
+    /**
+     * @param estrategiaDeEspera A {@link EstrategiaDeEspera} das filas de processamento.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoControlador estrategiaDeEspera(EstrategiaDeEspera estrategiaDeEspera) {
+        this.estrategiaDeEspera = estrategiaDeEspera;
+        return this;
+    }
+
+    /**
+     * @param politicaDeFilaCheia A {@link PoliticaDeFilaCheia} das filas de processamento.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoControlador politicaDeFilaCheia(PoliticaDeFilaCheia politicaDeFilaCheia) {
+        this.politicaDeFilaCheia = politicaDeFilaCheia;
+        return this;
+    }
+
+    /**
+     * @param tamanhoMaximoDoLoteDeRecepcao Quantidade máxima de mensagens transferidas pelo worker de recepção a cada
+     *                                      vez que é acordado.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoControlador tamanhoMaximoDoLoteDeRecepcao(int tamanhoMaximoDoLoteDeRecepcao) {
+        this.tamanhoMaximoDoLoteDeRecepcao = tamanhoMaximoDoLoteDeRecepcao;
+        return this;
+    }
+
+    /**
+     * @param tamanhoMaximoDoLoteDeProcessamento Quantidade máxima de mensagens retiradas da fila por cada worker de
+     *                                           processamento a cada vez que é acordado.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoControlador tamanhoMaximoDoLoteDeProcessamento(int tamanhoMaximoDoLoteDeProcessamento) {
+        this.tamanhoMaximoDoLoteDeProcessamento = tamanhoMaximoDoLoteDeProcessamento;
+        return this;
+    }
+
+    /**
+     * @param numeroDeWorkers Quantidade de workers de processamento do protocolo.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoControlador numeroDeWorkers(int numeroDeWorkers) {
+        this.numeroDeWorkers = numeroDeWorkers;
+        return this;
+    }
+
+    /**
+     * @param chaveDeAfinidade A {@link ChaveDeAfinidade} usada para distribuir as mensagens entre os workers.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoControlador chaveDeAfinidade(ChaveDeAfinidade chaveDeAfinidade) {
+        this.chaveDeAfinidade = chaveDeAfinidade;
+        return this;
+    }
+
+    /**
+     * @param modoDeExecucao O {@link ModoDeExecucao} dos workers de recepção e processamento. Se a JVM atual não
+     *                       suportar threads virtuais, o {@link ModoDeExecucao#VIRTUAL} é substituído pelo
+     *                       {@link ModoDeExecucao#PLATAFORMA}.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoControlador modoDeExecucao(ModoDeExecucao modoDeExecucao) {
+        if (modoDeExecucao == ModoDeExecucao.VIRTUAL && !FabricaDeThreads.suportaThreadsVirtuais()) {
+            LogUtils.logWarn("Threads virtuais não suportadas pela JVM atual. Usando o modo de execução %s.",
+                    ModoDeExecucao.PLATAFORMA);
+            modoDeExecucao = ModoDeExecucao.PLATAFORMA;
+        }
+        this.modoDeExecucao = modoDeExecucao;
+        return this;
+    }
+
+    /**
+     * @param limiteDeConcorrencia Número máximo de grupos de mensagens em processamento simultâneo por protocolo no
+     *                             {@link ModoDeExecucao#VIRTUAL}.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoControlador limiteDeConcorrencia(int limiteDeConcorrencia) {
+        this.limiteDeConcorrencia = limiteDeConcorrencia;
+        return this;
+    }
+
+    /**
+     * Cria uma nova {@link FilaDeMensagens} com a capacidade, a estratégia de espera e a política de fila cheia
+     * configuradas.
+     *
+     * @return A fila criada.
+     */
+    public FilaDeMensagens criarFila() {
+        return new FilaDeMensagens(capacidadeDaFila, estrategiaDeEspera, politicaDeFilaCheia);
+    }
+
+    /**
+     * @return A capacidade configurada para cada fila de processamento.
+     */
+    public int getCapacidadeDaFila() {
+        return capacidadeDaFila;
+    }
+
+    /**
+     * @return A {@link EstrategiaDeEspera} das filas de processamento.
+     */
+    public EstrategiaDeEspera getEstrategiaDeEspera() {
+        return estrategiaDeEspera;
+    }
+
+    /**
+     * @return A {@link PoliticaDeFilaCheia} das filas de processamento.
+     */
+    public PoliticaDeFilaCheia getPoliticaDeFilaCheia() {
+        return politicaDeFilaCheia;
+    }
+
+    /**
+     * @return A quantidade máxima de mensagens transferidas pelo worker de recepção por vez.
+     */
+    public int getTamanhoMaximoDoLoteDeRecepcao() {
+        return tamanhoMaximoDoLoteDeRecepcao;
+    }
+
+    /**
+     * @return A quantidade máxima de mensagens retiradas da fila por cada worker de processamento por vez.
+     */
+    public int getTamanhoMaximoDoLoteDeProcessamento() {
+        return tamanhoMaximoDoLoteDeProcessamento;
+    }
+
+    /**
+     * @return A quantidade de workers de processamento do protocolo.
+     */
+    public int getNumeroDeWorkers() {
+        return numeroDeWorkers;
+    }
+
+    /**
+     * @return A {@link ChaveDeAfinidade} usada para distribuir as mensagens entre os workers.
+     */
+    public ChaveDeAfinidade getChaveDeAfinidade() {
+        return chaveDeAfinidade;
+    }
+
+    /**
+     * @return O {@link ModoDeExecucao} dos workers de recepção e processamento.
+     */
+    public ModoDeExecucao getModoDeExecucao() {
+        return modoDeExecucao;
+    }
+
+    /**
+     * @return O número máximo de grupos de mensagens em processamento simultâneo por protocolo no
+     * {@link ModoDeExecucao#VIRTUAL}.
+     */
+    public int getLimiteDeConcorrencia() {
+        return limiteDeConcorrencia;
+    }
+}
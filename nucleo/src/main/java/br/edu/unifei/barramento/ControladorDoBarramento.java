@@ -1,40 +1,127 @@
 package br.edu.unifei.barramento;
 
-import br.edu.unifei.barramento.workers.WorkerDeProcessamento;
+import br.edu.unifei.barramento.metricas.MetricasDeRecepcao;
+import br.edu.unifei.barramento.workers.FabricaDeThreads;
+import br.edu.unifei.barramento.workers.PoolDeProcessamento;
 import br.edu.unifei.barramento.workers.WorkerDeRecepcao;
 import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.modelos.protocolo.Protocolo;
 
 /**
  * Classe abstrata responsável por controlar o barramento, gerenciando workers de recepção e processamento.
  * Implementações concretas dessa classe devem inicializar e parar os workers conforme necessário.
+ *
+ * <p>
+ *     O processamento é feito por um {@link PoolDeProcessamento} com a quantidade de workers definida na
+ *     {@link ConfiguracaoDoControlador}.
+ * </p>
  */
 public abstract class ControladorDoBarramento {
 
-    protected WorkerDeProcessamento workerDeProcessamento;
+    /**
+     * Tempo máximo de espera, ao parar os workers, pela transferência das mensagens restantes da fila de recepção.
+     */
+    private static final long ESPERA_DO_ENCERRAMENTO_DA_RECEPCAO_MS = 1000;
+
+    protected PoolDeProcessamento poolDeProcessamento;
     protected WorkerDeRecepcao workerDeRecepcao;
-    protected final FilaDeMensagens filaDeMensagens;
+    protected final ConfiguracaoDoControlador configuracao;
     protected final Barramento barramento;
     @SuppressWarnings("unused")
     protected boolean ativo;
 
     /**
-     * Construtor que inicializa a fila de mensagens e define o estado do controlador como ativo.
+     * Construtor que utiliza a configuração padrão e define o estado do controlador como ativo.
      */
     public ControladorDoBarramento(Barramento barramento) {
+        this(barramento, ConfiguracaoDoControlador.padrao());
+    }
+
+    /**
+     * Construtor que utiliza a configuração informada e define o estado do controlador como ativo.
+     *
+     * @param barramento   O {@link Barramento} associado ao controlador.
+     * @param configuracao A {@link ConfiguracaoDoControlador} com as configurações das filas, da recepção e do pool
+     *                     de processamento.
+     */
+    public ControladorDoBarramento(Barramento barramento, ConfiguracaoDoControlador configuracao) {
         this.barramento = barramento;
-        this.filaDeMensagens = new FilaDeMensagens();
+        this.configuracao = configuracao;
         this.ativo = true;
     }
 
     /**
-     * Adiciona uma mensagem à fila de recepção para ser processada posteriormente.
+     * @return O {@link Barramento} associado ao controlador.
+     */
+    public Barramento getBarramento() {
+        return barramento;
+    }
+
+    /**
+     * Adiciona uma mensagem à fila de recepção para ser processada posteriormente. O instante de entrada é registrado
+     * na mensagem para a medição da espera na fila.
      *
      * @param mensagem A {@link Mensagem} a ser adicionada à fila.
      */
     public void adicionarMensagemAFila(Mensagem mensagem) {
+        mensagem.setInstanteDeEnfileiramentoNanos(System.nanoTime());
         workerDeRecepcao.adicionarMensagemAFila(mensagem);
     }
 
+    /**
+     * Adiciona uma mensagem à fila de recepção, aguardando no máximo o tempo informado por espaço livre. Usado pelos
+     * protocolos cuja thread de recepção não pode ficar bloqueada por tempo indeterminado.
+     *
+     * @param mensagem            A {@link Mensagem} a ser adicionada à fila.
+     * @param tempoMaximoEmMillis O tempo máximo de espera por espaço livre na fila de recepção.
+     * @return {@code true} se a mensagem foi adicionada, ou {@code false} se a fila continuou cheia.
+     */
+    public boolean adicionarMensagemAFila(Mensagem mensagem, long tempoMaximoEmMillis) {
+        mensagem.setInstanteDeEnfileiramentoNanos(System.nanoTime());
+        return workerDeRecepcao.adicionarMensagemAFila(mensagem, tempoMaximoEmMillis);
+    }
+
+    /**
+     * @return As {@link MetricasDeRecepcao} do worker de recepção, ou {@code null} se os workers ainda não foram
+     * iniciados.
+     */
+    public MetricasDeRecepcao getMetricasDeRecepcao() {
+        return workerDeRecepcao == null ? null : workerDeRecepcao.getMetricas();
+    }
+
+    /**
+     * Cria o {@link PoolDeProcessamento} e o {@link WorkerDeRecepcao} do protocolo de acordo com a configuração do
+     * controlador e os inicia. Utilizado pelas implementações de {@link #iniciarWorkers()}.
+     *
+     * @param protocolo O {@link Protocolo} vinculado aos workers.
+     */
+    protected void iniciarWorkersPadrao(Protocolo protocolo) {
+        poolDeProcessamento = new PoolDeProcessamento(protocolo, barramento, configuracao);
+        workerDeRecepcao = new WorkerDeRecepcao(poolDeProcessamento, configuracao.getTamanhoMaximoDoLoteDeRecepcao());
+
+        FabricaDeThreads.criar(String.format("recepcao-%s", protocolo.getNomeProtocolo()),
+                configuracao.getModoDeExecucao()).newThread(workerDeRecepcao).start();
+        poolDeProcessamento.iniciar();
+    }
+
+    /**
+     * Interrompe o {@link WorkerDeRecepcao} e o {@link PoolDeProcessamento} criados por
+     * {@link #iniciarWorkersPadrao(Protocolo)}. O pool é interrompido depois que o worker de recepção transfere as
+     * mensagens restantes da sua fila de entrada, ou após o tempo máximo de espera.
+     */
+    protected void pararWorkersPadrao() {
+        if (workerDeRecepcao != null) {
+            workerDeRecepcao.parar();
+            if (!workerDeRecepcao.aguardarEncerramento(ESPERA_DO_ENCERRAMENTO_DA_RECEPCAO_MS)) {
+                // Uma nova interrupção faz a fila de processamento cheia recusar as mensagens restantes
+                workerDeRecepcao.parar();
+            }
+        }
+        if (poolDeProcessamento != null) {
+            poolDeProcessamento.parar();
+        }
+    }
+
     /**
      * Inicia os workers de recepção e processamento.
      */
@@ -43,10 +130,12 @@ public abstract class ControladorDoBarramento {
     }
 
     /**
-     * Interrompe os workers de recepção e processamento, definindo o controlador como inativo.
+     * Interrompe os workers de recepção e processamento, definindo o controlador como inativo. As mensagens que
+     * aguardam em grupos são enviadas antes da interrupção.
      */
     public void parar() {
         this.ativo = false;
+        barramento.enviarMensagensAgrupadas();
         pararWorkers();
     }
 
@@ -1,46 +1,391 @@
 package br.edu.unifei.barramento;
 
+import br.edu.unifei.barramento.fila.EstrategiaDeEspera;
+import br.edu.unifei.barramento.fila.PoliticaDeFilaCheia;
 import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.utils.LogUtils;
 
-import java.util.LinkedList;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
 
 /**
- * Classe responsável por armazenar e gerenciar uma fila de mensagens para processamento. A fila utiliza um mecanismo
- * de espera ativa para sincronizar a adição e remoção de mensagens.
+ * Classe responsável por armazenar e gerenciar uma fila de mensagens para processamento. A fila é um buffer circular
+ * limitado e pré-alocado, com capacidade potência de dois, que aceita múltiplos produtores e múltiplos consumidores
+ * sem o uso de monitores: cada posição do buffer possui um número de sequência que indica se ela está livre para
+ * escrita ou pronta para leitura, e produtores e consumidores disputam apenas as posições de escrita e de leitura
+ * através de operações atômicas.
+ *
+ * <p>
+ *     Quando a operação não pode ser atendida de imediato, a thread aguarda de acordo com a
+ *     {@link EstrategiaDeEspera} configurada. Quando a fila está cheia, o comportamento é definido pela
+ *     {@link PoliticaDeFilaCheia}.
+ * </p>
  */
 public class FilaDeMensagens {
 
     /**
-     * Fila de mensagens a serem processadas pelo barramento. Ela armazena objetos {@link Mensagem} e é utilizado
-     * para organizar o fluxo de mensagens recebidas antes de seu processamento.
+     * Capacidade utilizada quando nenhuma é informada.
      */
-    private final Queue<Mensagem> fila = new LinkedList<>();
+    public static final int CAPACIDADE_PADRAO = 4096;
 
     /**
-     * Adiciona uma nova mensagem à fila de forma sincronizada e notifica todas as threads em espera.
+     * Número de iterações de espera ativa da estratégia {@link EstrategiaDeEspera#SPIN_PARK} antes de ceder o
+     * processador.
+     */
+    private static final int LIMITE_SPIN = 100;
+
+    /**
+     * Número de vezes que a estratégia {@link EstrategiaDeEspera#SPIN_PARK} cede o processador antes de estacionar a
+     * thread.
+     */
+    private static final int LIMITE_YIELD = 10;
+
+    /**
+     * {@code Thread.onSpinWait()}, obtido por reflexão, pois o projeto é compilado para versões do Java que ainda não
+     * possuem esse método, ou {@code null} se a JVM atual não o oferecer.
+     */
+    private static final MethodHandle ON_SPIN_WAIT = buscarOnSpinWait();
+
+    /**
+     * Buffer circular onde as mensagens são armazenadas. Todas as posições são alocadas na criação da fila.
+     */
+    private final Mensagem[] buffer;
+
+    /**
+     * Número de sequência de cada posição do buffer. Uma posição está livre para escrita quando a sua sequência é
+     * igual à posição de escrita e pronta para leitura quando é igual à posição de leitura mais um.
+     */
+    private final AtomicLongArray sequencias;
+
+    private final int mascara;
+    private final AtomicLong posicaoDeEscrita = new AtomicLong();
+    private final AtomicLong posicaoDeLeitura = new AtomicLong();
+
+    private final EstrategiaDeEspera estrategiaDeEspera;
+    private final PoliticaDeFilaCheia politicaDeFilaCheia;
+
+    /**
+     * Threads estacionadas aguardando mensagens ou espaço livre na fila.
+     */
+    private final Queue<Thread> consumidoresEmEspera = new ConcurrentLinkedQueue<>();
+    private final Queue<Thread> produtoresEmEspera = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder mensagensDescartadas = new LongAdder();
+    private final LongAdder mensagensRejeitadas = new LongAdder();
+
+    /**
+     * Construtor que inicializa a fila com a capacidade padrão, a estratégia de espera
+     * {@link EstrategiaDeEspera#SPIN_PARK} e a política {@link PoliticaDeFilaCheia#BLOQUEAR}.
+     */
+    public FilaDeMensagens() {
+        this(CAPACIDADE_PADRAO, EstrategiaDeEspera.SPIN_PARK, PoliticaDeFilaCheia.BLOQUEAR);
+    }
+
+    /**
+     * Construtor que inicializa a fila com as configurações informadas.
+     *
+     * @param capacidade          Capacidade mínima da fila. É arredondada para a próxima potência de dois, com no
+     *                            mínimo duas posições, já que com uma única posição os números de sequência de
+     *                            "livre" e "pronta" coincidiriam.
+     * @param estrategiaDeEspera  A {@link EstrategiaDeEspera} usada quando a fila está vazia ou cheia.
+     * @param politicaDeFilaCheia A {@link PoliticaDeFilaCheia} aplicada quando a fila está cheia.
+     * @throws IllegalArgumentException Se a capacidade não for positiva ou exceder o limite suportado.
+     */
+    public FilaDeMensagens(int capacidade, EstrategiaDeEspera estrategiaDeEspera,
+                           PoliticaDeFilaCheia politicaDeFilaCheia) {
+        if (capacidade <= 0 || capacidade > (1 << 30)) {
+            throw new IllegalArgumentException("Capacidade inválida para a fila de mensagens: " + capacidade);
+        }
+        int capacidadeReal = capacidade <= 2 ? 2 : Integer.highestOneBit(capacidade - 1) << 1;
+
+        this.buffer = new Mensagem[capacidadeReal];
+        this.sequencias = new AtomicLongArray(capacidadeReal);
+        for (int i = 0; i < capacidadeReal; i++) {
+            sequencias.set(i, i);
+        }
+        this.mascara = capacidadeReal - 1;
+        this.estrategiaDeEspera = estrategiaDeEspera;
+        this.politicaDeFilaCheia = politicaDeFilaCheia;
+    }
+
+    /**
+     * Adiciona uma nova mensagem à fila e acorda os consumidores em espera. Se a fila estiver cheia, aplica a
+     * {@link PoliticaDeFilaCheia} configurada.
      *
      * @param mensagem A {@link Mensagem} a ser adicionada à fila.
+     * @return {@code true} se a mensagem foi adicionada, ou {@code false} se foi rejeitada ou se a thread foi
+     * interrompida enquanto aguardava espaço.
+     */
+    public boolean adicionar(Mensagem mensagem) {
+        int tentativas = 0;
+        while (!tentarAdicionar(mensagem)) {
+            switch (politicaDeFilaCheia) {
+                case REJEITAR:
+                    mensagensRejeitadas.increment();
+                    LogUtils.logWarn("Fila de mensagens cheia (capacidade %d). Mensagem de '%s' rejeitada.",
+                            getCapacidade(), mensagem.getOrigem());
+                    return false;
+                case DESCARTAR_MAIS_ANTIGA:
+                    Mensagem descartada = tentarRemover();
+                    if (descartada != null) {
+                        mensagensDescartadas.increment();
+                        LogUtils.logWarn("Fila de mensagens cheia (capacidade %d). Mensagem mais antiga de '%s' " +
+                                "descartada.", getCapacidade(), descartada.getOrigem());
+                    }
+                    break;
+                case BLOQUEAR:
+                default:
+                    if (Thread.currentThread().isInterrupted()) {
+                        return false;
+                    }
+                    tentativas = aguardar(produtoresEmEspera, this::possuiEspacoLivre, tentativas);
+                    break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adiciona uma nova mensagem à fila, aguardando no máximo o tempo informado por espaço livre, independentemente da
+     * {@link PoliticaDeFilaCheia} configurada. Usado por produtores que não podem ficar bloqueados por tempo
+     * indeterminado, como as threads de callback dos clientes dos protocolos.
+     *
+     * @param mensagem   A {@link Mensagem} a ser adicionada à fila.
+     * @param tempoMaximo O tempo máximo de espera por espaço livre.
+     * @param unidade    A unidade de {@code tempoMaximo}.
+     * @return {@code true} se a mensagem foi adicionada, ou {@code false} se a fila continuou cheia durante o tempo
+     * máximo de espera ou se a thread foi interrompida; nesse caso, a mensagem é contada como rejeitada.
+     */
+    public boolean adicionar(Mensagem mensagem, long tempoMaximo, TimeUnit unidade) {
+        long limite = System.nanoTime() + unidade.toNanos(tempoMaximo);
+        int tentativas = 0;
+        while (!tentarAdicionar(mensagem)) {
+            long restante = limite - System.nanoTime();
+            if (restante <= 0 || Thread.currentThread().isInterrupted()) {
+                mensagensRejeitadas.increment();
+                return false;
+            }
+            tentativas = aguardar(produtoresEmEspera, this::possuiEspacoLivre, tentativas, restante);
+        }
+        return true;
+    }
+
+    /**
+     * Remove e retorna a primeira mensagem da fila. Caso a fila esteja vazia, a thread aguarda, de acordo com a
+     * {@link EstrategiaDeEspera} configurada, até que uma nova mensagem seja adicionada.
+     *
+     * @return A {@link Mensagem} removida da fila, ou {@code null} se a thread for interrompida enquanto aguarda.
+     */
+    public Mensagem remover() {
+        int tentativas = 0;
+        Mensagem mensagem;
+        while ((mensagem = tentarRemover()) == null) {
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            tentativas = aguardar(consumidoresEmEspera, this::possuiMensagens, tentativas);
+        }
+        return mensagem;
+    }
+
+    /**
+     * Tenta adicionar uma mensagem sem aguardar e sem aplicar a política de fila cheia.
+     *
+     * @param mensagem A {@link Mensagem} a ser adicionada.
+     * @return {@code true} se a mensagem foi adicionada, ou {@code false} se a fila estiver cheia.
      */
-    public synchronized void adicionar(Mensagem mensagem) {
-        fila.add(mensagem);
-        notifyAll();
+    public boolean tentarAdicionar(Mensagem mensagem) {
+        long posicao = posicaoDeEscrita.get();
+        int indice;
+        while (true) {
+            indice = (int) (posicao & mascara);
+            long diferenca = sequencias.get(indice) - posicao;
+            if (diferenca == 0) {
+                if (posicaoDeEscrita.compareAndSet(posicao, posicao + 1)) {
+                    break;
+                }
+                posicao = posicaoDeEscrita.get();
+            } else if (diferenca < 0) {
+                return false;
+            } else {
+                posicao = posicaoDeEscrita.get();
+            }
+        }
+
+        buffer[indice] = mensagem;
+        sequencias.lazySet(indice, posicao + 1);
+
+        if (!consumidoresEmEspera.isEmpty()) {
+            acordar(consumidoresEmEspera);
+        }
+        return true;
     }
 
     /**
-     * Remove e retorna a primeira mensagem da fila de forma sincronizada. Caso a fila esteja vazia, a thread entra em
-     * modo de espera até que uma nova mensagem seja adicionada.
+     * Remove e retorna a primeira mensagem da fila sem aguardar.
      *
-     * @return A {@link Mensagem} removida da fila.
+     * @return A {@link Mensagem} removida, ou {@code null} se a fila estiver vazia.
+     */
+    public Mensagem tentarRemover() {
+        long posicao = posicaoDeLeitura.get();
+        int indice;
+        while (true) {
+            indice = (int) (posicao & mascara);
+            long diferenca = sequencias.get(indice) - (posicao + 1);
+            if (diferenca == 0) {
+                if (posicaoDeLeitura.compareAndSet(posicao, posicao + 1)) {
+                    break;
+                }
+                posicao = posicaoDeLeitura.get();
+            } else if (diferenca < 0) {
+                return null;
+            } else {
+                posicao = posicaoDeLeitura.get();
+            }
+        }
+
+        Mensagem mensagem = buffer[indice];
+        buffer[indice] = null;
+        sequencias.lazySet(indice, posicao + mascara + 1);
+
+        if (!produtoresEmEspera.isEmpty()) {
+            acordar(produtoresEmEspera);
+        }
+        return mensagem;
+    }
+
+    /**
+     * @return O número aproximado de mensagens na fila.
+     */
+    public int tamanho() {
+        long tamanho = posicaoDeEscrita.get() - posicaoDeLeitura.get();
+        return (int) Math.max(0, Math.min(tamanho, buffer.length));
+    }
+
+    /**
+     * @return A capacidade da fila, já arredondada para potência de dois.
+     */
+    public int getCapacidade() {
+        return buffer.length;
+    }
+
+    /**
+     * @return O total de mensagens descartadas pela política {@link PoliticaDeFilaCheia#DESCARTAR_MAIS_ANTIGA}.
+     */
+    public long getMensagensDescartadas() {
+        return mensagensDescartadas.sum();
+    }
+
+    /**
+     * @return O total de mensagens rejeitadas pela política {@link PoliticaDeFilaCheia#REJEITAR} ou por esgotar o
+     * tempo máximo de espera de {@link #adicionar(Mensagem, long, TimeUnit)}.
+     */
+    public long getMensagensRejeitadas() {
+        return mensagensRejeitadas.sum();
+    }
+
+    private boolean possuiMensagens() {
+        return posicaoDeEscrita.get() != posicaoDeLeitura.get();
+    }
+
+    /**
+     * Indica ao processador uma rodada de espera ativa com {@code Thread.onSpinWait()}, quando disponível. Sem esse
+     * método, a rodada é uma iteração vazia.
      */
-    public synchronized Mensagem remover() {
-        while (fila.isEmpty()) {
+    private static void esperarAtivamente() {
+        if (ON_SPIN_WAIT != null) {
             try {
-                wait();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+                ON_SPIN_WAIT.invokeExact();
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
             }
         }
-        return fila.poll();
+    }
+
+    private static MethodHandle buscarOnSpinWait() {
+        try {
+            return MethodHandles.lookup().findStatic(Thread.class, "onSpinWait", MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private boolean possuiEspacoLivre() {
+        return posicaoDeEscrita.get() - posicaoDeLeitura.get() < buffer.length;
+    }
+
+    /**
+     * Aguarda uma rodada de acordo com a {@link EstrategiaDeEspera} configurada. Antes de estacionar, a thread se
+     * registra na fila de espera e verifica a condição novamente, garantindo que um produtor ou consumidor que altere
+     * a fila logo em seguida a encontre registrada e a acorde.
+     *
+     * @param espera            A fila de threads em espera onde a thread atual será registrada.
+     * @param condicaoAtendida  A condição que dispensa a espera.
+     * @param tentativas        O número de rodadas de espera já realizadas.
+     * @return O número atualizado de rodadas de espera.
+     */
+    private int aguardar(Queue<Thread> espera, BooleanSupplier condicaoAtendida, int tentativas) {
+        return aguardar(espera, condicaoAtendida, tentativas, 0);
+    }
+
+    /**
+     * Aguarda uma rodada, como {@link #aguardar(Queue, BooleanSupplier, int)}, estacionando a thread por no máximo o
+     * tempo informado.
+     *
+     * @param tempoMaximoEmNanos O tempo máximo de estacionamento, ou {@code 0} para estacionar sem limite.
+     */
+    private int aguardar(Queue<Thread> espera, BooleanSupplier condicaoAtendida, int tentativas,
+                         long tempoMaximoEmNanos) {
+        if (estrategiaDeEspera == EstrategiaDeEspera.YIELD) {
+            Thread.yield();
+            return tentativas + 1;
+        }
+        if (estrategiaDeEspera == EstrategiaDeEspera.SPIN_PARK) {
+            if (tentativas < LIMITE_SPIN) {
+                esperarAtivamente();
+                return tentativas + 1;
+            }
+            if (tentativas < LIMITE_SPIN + LIMITE_YIELD) {
+                Thread.yield();
+                return tentativas + 1;
+            }
+        }
+
+        Thread atual = Thread.currentThread();
+        espera.add(atual);
+        try {
+            if (!condicaoAtendida.getAsBoolean()) {
+                if (tempoMaximoEmNanos > 0) {
+                    LockSupport.parkNanos(this, tempoMaximoEmNanos);
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+        } finally {
+            espera.remove(atual);
+        }
+        return tentativas;
+    }
+
+    /**
+     * Retira todas as threads da fila de espera e as acorda. Como cada thread é retirada ao ser acordada, operações
+     * seguintes não repetem o sinal enquanto ela não se registrar novamente.
+     *
+     * @param espera A fila de threads em espera.
+     */
+    private static void acordar(Queue<Thread> espera) {
+        Thread thread;
+        while ((thread = espera.poll()) != null) {
+            LockSupport.unpark(thread);
+        }
     }
 }
@@ -2,9 +2,21 @@ package br.edu.unifei.barramento.comandos;
 
 import br.edu.unifei.barramento.Barramento;
 import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.modelos.protocolo.Protocolo;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Interface que define o contrato para execução de comandos no barramento.
+ *
+ * <p>
+ *     Os comandos são registrados uma única vez no {@link RegistroDeComandos} e a mesma instância atende todas as
+ *     mensagens da ação correspondente, inclusive em workers diferentes ao mesmo tempo. Por isso, as implementações
+ *     não devem guardar estado: os parâmetros são lidos da própria mensagem durante a execução.
+ * </p>
  */
 public interface Comando {
 
@@ -13,7 +25,60 @@ public interface Comando {
      *
      * @param mensagem   A {@link Mensagem} recebida que contém os parâmetros necessários para a execução.
      * @param barramento O {@link Barramento} onde os serviços e endpoints estão registrados.
+     * @param protocolo  O {@link Protocolo} pelo qual a mensagem foi recebida.
      * @return Uma {@link Mensagem} de resposta com o resultado da operação.
      */
-    Mensagem executar(Mensagem mensagem, Barramento barramento);
+    Mensagem executar(Mensagem mensagem, Barramento barramento, Protocolo protocolo);
+
+    /**
+     * Executa a operação para um lote de mensagens da mesma ação, recebidas pelo mesmo protocolo. Por padrão, executa
+     * cada mensagem individualmente através de {@link #executar(Mensagem, Barramento, Protocolo)}; comandos que
+     * possam atender várias mensagens com menos trabalho (por exemplo, consultando o inventário uma única vez) podem
+     * sobrescrever este método.
+     *
+     * @param mensagens  As {@link Mensagem}s recebidas, na ordem de chegada.
+     * @param barramento O {@link Barramento} onde os serviços e endpoints estão registrados.
+     * @param protocolo  O {@link Protocolo} pelo qual as mensagens foram recebidas.
+     * @return As {@link Mensagem}s de resposta, que serão enviadas em conjunto.
+     */
+    default List<Mensagem> executarLote(List<Mensagem> mensagens, Barramento barramento, Protocolo protocolo) {
+        List<Mensagem> respostas = new ArrayList<>(mensagens.size());
+        for (Mensagem mensagem : mensagens) {
+            respostas.add(executar(mensagem, barramento, protocolo));
+        }
+        return respostas;
+    }
+
+    /**
+     * Lê um parâmetro textual do conteúdo da mensagem.
+     *
+     * @param mensagem A {@link Mensagem} que contém o parâmetro.
+     * @param nome     O nome do parâmetro no conteúdo da mensagem.
+     * @return O valor do parâmetro, ou {@code null} se ele não existir ou não for um valor simples.
+     */
+    static String lerParametro(Mensagem mensagem, String nome) {
+        JsonObject conteudo = mensagem.getConteudo();
+        JsonElement valor = conteudo == null ? null : conteudo.get(nome);
+        return valor == null || !valor.isJsonPrimitive() ? null : valor.getAsString();
+    }
+
+    /**
+     * Gera a resposta de erro para uma mensagem que não informou um parâmetro obrigatório do comando.
+     *
+     * @param mensagem A {@link Mensagem} recebida.
+     * @param nome     O nome do parâmetro ausente.
+     * @return Uma {@link Mensagem} de erro endereçada à origem da mensagem recebida.
+     */
+    static Mensagem erroDeParametro(Mensagem mensagem, String nome) {
+        JsonObject resultado = new JsonObject();
+        resultado.addProperty("erro", String.format("Parâmetro '%s' não informado para a ação %s.",
+                nome, mensagem.getAcao()));
+
+        // Mantém os metadados da mensagem original se houver
+        if (mensagem.getConteudo() != null && mensagem.getConteudo().has("metadata")) {
+            resultado.add("metadata", mensagem.getConteudo().getAsJsonObject("metadata"));
+        }
+
+        return new Mensagem("ERRO_PARAMETRO", "barramento", mensagem.getOrigem(), resultado);
+    }
 }
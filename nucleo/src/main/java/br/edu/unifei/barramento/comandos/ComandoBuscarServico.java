@@ -1,51 +1,325 @@
 package br.edu.unifei.barramento.comandos;
 
 import br.edu.unifei.barramento.Barramento;
+import br.edu.unifei.barramento.gerenciamento.Bytecode;
+import br.edu.unifei.barramento.gerenciamento.InventarioDeServicos;
+import br.edu.unifei.barramento.gerenciamento.ServicoRegistrado;
 import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.modelos.protocolo.Protocolo;
+import br.edu.unifei.utils.LogUtils;
 import com.google.gson.JsonObject;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
 /**
  * Comando para buscar um serviço registrado no barramento.
+ *
+ * <p>
+ *     Por padrão, o bytecode é devolvido inteiro em uma única mensagem {@code RESULTADO_BUSCA}. Com o parâmetro
+ *     {@code fragmentado}, o bytecode é enviado em uma sequência de mensagens {@code FRAGMENTO_DE_SERVICO} numeradas,
+ *     cada uma com no máximo {@code tamanho_do_fragmento} bytes do conteúdo decodificado, lidos diretamente do
+ *     armazém sem montar o bytecode inteiro. O dispositivo pode retomar a transferência a partir de uma posição com o
+ *     parâmetro {@code inicio}, escolher a quantidade de fragmentos de cada requisição com {@code quantidade} e
+ *     informar a {@code versao} recebida nos fragmentos anteriores, para que a transferência não misture duas versões
+ *     do serviço.
+ * </p>
+ *
+ * <p>
+ *     Cada requisição envia no máximo {@link #QUANTIDADE_PADRAO_DE_FRAGMENTOS} fragmentos, ou a {@code quantidade}
+ *     pedida, limitada a {@link #QUANTIDADE_MAXIMA_DE_FRAGMENTOS}. O dispositivo busca os fragmentos seguintes com
+ *     novas requisições a partir da posição {@code proximo} do último fragmento recebido, no seu próprio ritmo, sem
+ *     que uma única requisição ocupe o barramento com o bytecode inteiro.
+ * </p>
+ *
+ * <p>
+ *     Os fragmentos são numerados em sequência pelo campo {@code indice}. Na retomada, o dispositivo informa em
+ *     {@code indice} o índice do próximo fragmento, de modo que a numeração continua mesmo que o tamanho do fragmento
+ *     mude entre as requisições. Sem esse parâmetro, o índice é derivado da posição, que então deve ser múltipla do
+ *     tamanho do fragmento.
+ * </p>
+ *
+ * <p>
+ *     As respostas informam no campo {@code hash} um identificador opaco do bytecode, que não deve ser comparado com
+ *     um hash calculado pelo dispositivo, mas apenas devolvido como recebido. O dispositivo que já possui um bytecode
+ *     pode enviar esse identificador no parâmetro {@code if-none-match}: se o bytecode registrado for o mesmo, a
+ *     resposta {@code RESULTADO_BUSCA} contém apenas o nome, a versão, o hash e {@code modificado} igual a
+ *     {@code false}, sem o bytecode.
+ * </p>
  */
 public class ComandoBuscarServico implements Comando {
 
-    private final String servico;
+    /**
+     * Tamanho padrão de cada fragmento, em bytes do conteúdo decodificado.
+     */
+    public static final int TAMANHO_PADRAO_DO_FRAGMENTO = 512;
 
     /**
-     * Construtor que inicializa o comando com o nome do serviço a ser buscado.
-     *
-     * @param servico O nome do serviço a ser buscado no barramento.
+     * Menor tamanho de fragmento aceito, em bytes do conteúdo decodificado.
      */
-    public ComandoBuscarServico(String servico) {
-        this.servico = servico;
-    }
+    public static final int TAMANHO_MINIMO_DO_FRAGMENTO = 64;
 
     /**
-     * Executa a busca do serviço no barramento e retorna o bytecode do serviço, se encontrado.
+     * Maior tamanho de fragmento aceito, em bytes do conteúdo decodificado. Codificado em Base64, o fragmento ocupa
+     * menos de 11 KB e cabe com folga no limite de 16 KB das transferências em blocos do CoAP.
+     */
+    public static final int TAMANHO_MAXIMO_DO_FRAGMENTO = 8192;
+
+    /**
+     * Quantidade de fragmentos enviados por requisição quando o parâmetro {@code quantidade} não é informado.
+     */
+    public static final int QUANTIDADE_PADRAO_DE_FRAGMENTOS = 4;
+
+    /**
+     * Maior quantidade de fragmentos enviados por requisição.
+     */
+    public static final int QUANTIDADE_MAXIMA_DE_FRAGMENTOS = 64;
+
+    /**
+     * Executa a busca do serviço no barramento e retorna o bytecode e a versão do serviço, se encontrado.
      *
      * @param mensagem   A {@link Mensagem} contendo a requisição de busca.
      * @param barramento O {@link Barramento} que gerencia o inventário de serviços.
+     * @param protocolo  O {@link Protocolo} pelo qual a mensagem foi recebida.
      * @return Uma {@link Mensagem} de resultado contendo o bytecode do serviço buscado ou um erro, se não encontrado.
+     * Se o bytecode não foi modificado desde o hash informado em {@code if-none-match}, o resultado não contém o
+     * bytecode. Na busca fragmentada, retorna o último fragmento enviado; os anteriores são enviados durante a
+     * execução.
      */
     @Override
-    public Mensagem executar(Mensagem mensagem, Barramento barramento) {
-        String bytecode = barramento.getGerenciadorDeServicos().buscarServico(this.servico);
+    public Mensagem executar(Mensagem mensagem, Barramento barramento, Protocolo protocolo) {
+        return buscar(mensagem, barramento.getGerenciadorDeServicos().getInventario(), barramento, protocolo);
+    }
+
+    /**
+     * Executa a busca de um lote de mensagens sobre uma única leitura do inventário de serviços, de modo que todas as
+     * respostas do lote correspondem à mesma versão do inventário.
+     *
+     * @param mensagens  As {@link Mensagem}s contendo as requisições de busca.
+     * @param barramento O {@link Barramento} que gerencia o inventário de serviços.
+     * @param protocolo  O {@link Protocolo} pelo qual as mensagens foram recebidas.
+     * @return As {@link Mensagem}s de resultado, na ordem das requisições.
+     */
+    @Override
+    public List<Mensagem> executarLote(List<Mensagem> mensagens, Barramento barramento, Protocolo protocolo) {
+        InventarioDeServicos inventario = barramento.getGerenciadorDeServicos().getInventario();
+        List<Mensagem> respostas = new ArrayList<>(mensagens.size());
+        for (Mensagem mensagem : mensagens) {
+            respostas.add(buscar(mensagem, inventario, barramento, protocolo));
+        }
+        return respostas;
+    }
+
+    /**
+     * Busca o serviço da requisição no inventário informado.
+     */
+    private Mensagem buscar(Mensagem mensagem, InventarioDeServicos inventario, Barramento barramento,
+                            Protocolo protocolo) {
+        String servico = Comando.lerParametro(mensagem, "servico");
+        if (servico == null) {
+            return Comando.erroDeParametro(mensagem, "servico");
+        }
+
+        ServicoRegistrado registro = inventario.buscar(servico);
+
+        if (registro != null && isNaoModificado(mensagem, registro)) {
+            JsonObject resultado = new JsonObject();
+            resultado.addProperty("nome", servico);
+            resultado.addProperty("versao", registro.getVersao());
+            resultado.addProperty("hash", registro.getConteudo().getHash());
+            resultado.addProperty("modificado", false);
+            return responder(mensagem, "RESULTADO_BUSCA", resultado);
+        }
+
+        if (registro != null && isFragmentado(mensagem)) {
+            return enviarFragmentos(mensagem, registro, barramento, protocolo);
+        }
 
         JsonObject resultado = new JsonObject();
 
-        if (bytecode == null) {
-            resultado.addProperty("erro", String.format("Serviço %s não encontrado.", this.servico));
+        if (registro == null) {
+            resultado.addProperty("erro", String.format("Serviço %s não encontrado.", servico));
         } else {
-            resultado.addProperty("nome", this.servico);
-            resultado.addProperty("bytecode", bytecode);
+            resultado.addProperty("nome", servico);
+            resultado.addProperty("bytecode", registro.getBytecode());
+            resultado.addProperty("versao", registro.getVersao());
+            resultado.addProperty("hash", registro.getConteudo().getHash());
+        }
 
+        return responder(mensagem, "RESULTADO_BUSCA", resultado);
+    }
+
+    /**
+     * Envia o bytecode do serviço em fragmentos, a partir da posição {@code inicio} e do índice {@code indice}. Cada
+     * fragmento é lido do armazém,
+     * enviado e descartado antes da leitura do próximo, de modo que apenas um fragmento fica em memória por vez.
+     *
+     * <p>
+     *     Cada fragmento contém o nome, a versão e o hash do serviço, o tamanho total do conteúdo decodificado, o
+     *     índice e a posição do fragmento, o conteúdo do fragmento em Base64 e, se houver, a posição do próximo
+     *     fragmento; o último fragmento do serviço é marcado com {@code final}. O campo {@code base64} indica se o
+     *     conteúdo montado é o bytecode decodificado de um registro em Base64 ou o texto registrado, em UTF-8.
+     * </p>
+     *
+     * @param mensagem   A {@link Mensagem} contendo a requisição de busca.
+     * @param registro   O {@link ServicoRegistrado} buscado.
+     * @param barramento O {@link Barramento} pelo qual os fragmentos são enviados.
+     * @param protocolo  O {@link Protocolo} pelo qual a mensagem foi recebida.
+     * @return O último fragmento da requisição, que é enviado como resposta, ou um erro.
+     */
+    private Mensagem enviarFragmentos(Mensagem mensagem, ServicoRegistrado registro, Barramento barramento,
+                                      Protocolo protocolo) {
+        Bytecode bytecode = registro.getConteudo();
+        int tamanhoDoFragmento;
+        int inicio;
+        int quantidade;
+        Integer indiceInicial;
+        try {
+            tamanhoDoFragmento = Math.max(TAMANHO_MINIMO_DO_FRAGMENTO, Math.min(TAMANHO_MAXIMO_DO_FRAGMENTO,
+                    lerInteiro(mensagem, "tamanho_do_fragmento", TAMANHO_PADRAO_DO_FRAGMENTO)));
+            inicio = lerInteiro(mensagem, "inicio", 0);
+            quantidade = Math.min(QUANTIDADE_MAXIMA_DE_FRAGMENTOS,
+                    lerInteiro(mensagem, "quantidade", QUANTIDADE_PADRAO_DE_FRAGMENTOS));
+            indiceInicial = Comando.lerParametro(mensagem, "indice") == null ? null : lerInteiro(mensagem, "indice", 0);
+        } catch (NumberFormatException e) {
+            return responderErro(mensagem, registro, String.format("Parâmetro numérico inválido: %s.", e.getMessage()));
+        }
+
+        String versao = Comando.lerParametro(mensagem, "versao");
+        if (versao != null && !versao.equals(String.valueOf(registro.getVersao()))) {
+            return responderErro(mensagem, registro, String.format(
+                    "O serviço %s foi alterado para a versão %d; reinicie a transferência.",
+                    registro.getNome(), registro.getVersao()));
+        }
+        if (inicio < 0 || inicio > bytecode.getTamanho() || quantidade <= 0) {
+            return responderErro(mensagem, registro, String.format(
+                    "Intervalo inválido: início %d e quantidade %d para %d bytes.",
+                    inicio, quantidade, bytecode.getTamanho()));
+        }
+        if (indiceInicial == null && inicio % tamanhoDoFragmento != 0) {
+            return responderErro(mensagem, registro, String.format(
+                    "O início %d não é múltiplo do tamanho do fragmento %d; informe o índice do próximo fragmento.",
+                    inicio, tamanhoDoFragmento));
+        }
+        if (indiceInicial != null && indiceInicial < 0) {
+            return responderErro(mensagem, registro, String.format("Índice inválido: %d.", indiceInicial));
+        }
+        int indice = indiceInicial == null ? inicio / tamanhoDoFragmento : indiceInicial;
+
+        byte[] buffer = new byte[tamanhoDoFragmento];
+        try (InputStream entrada = bytecode.abrirLeitura(inicio)) {
+            int posicao = inicio;
+            for (int enviados = 1; ; enviados++, indice++) {
+                int lidos = ler(entrada, buffer);
+                boolean isFinal = posicao + lidos >= bytecode.getTamanho();
+                Mensagem fragmento = criarFragmento(mensagem, registro, buffer, lidos, posicao, indice, isFinal);
+                posicao += lidos;
+
+                if (isFinal || enviados >= quantidade) {
+                    return fragmento;
+                }
+                barramento.enviarMensagem(fragmento, protocolo);
+            }
+        } catch (IOException e) {
+            LogUtils.logError("Erro ao ler o bytecode do serviço '%s': %s", registro.getNome(), e.getMessage());
+            return responderErro(mensagem, registro, String.format("Erro ao ler o bytecode do serviço %s.",
+                    registro.getNome()));
+        }
+    }
+
+    private static Mensagem criarFragmento(Mensagem mensagem, ServicoRegistrado registro, byte[] buffer, int lidos,
+                                           int posicao, int indice, boolean isFinal) {
+        Bytecode bytecode = registro.getConteudo();
+        JsonObject resultado = new JsonObject();
+        resultado.addProperty("nome", registro.getNome());
+        resultado.addProperty("versao", registro.getVersao());
+        resultado.addProperty("hash", bytecode.getHash());
+        resultado.addProperty("base64", bytecode.isBase64());
+        resultado.addProperty("tamanho", bytecode.getTamanho());
+        resultado.addProperty("indice", indice);
+        resultado.addProperty("inicio", posicao);
+        resultado.addProperty("fragmento", Base64.getEncoder().encodeToString(
+                lidos == buffer.length ? buffer : Arrays.copyOf(buffer, lidos)));
+        resultado.addProperty("final", isFinal);
+        if (!isFinal) {
+            resultado.addProperty("proximo", posicao + lidos);
+        }
+        return responder(mensagem, "FRAGMENTO_DE_SERVICO", resultado);
+    }
+
+    /**
+     * Lê até encher o buffer ou até o fim do conteúdo.
+     */
+    private static int ler(InputStream entrada, byte[] buffer) throws IOException {
+        int lidos = 0;
+        while (lidos < buffer.length) {
+            int n = entrada.read(buffer, lidos, buffer.length - lidos);
+            if (n < 0) {
+                break;
+            }
+            lidos += n;
+        }
+        return lidos;
+    }
+
+    /**
+     * Verifica se o dispositivo já possui o bytecode do serviço: o parâmetro {@code if-none-match} contém o hash do
+     * bytecode atual, sozinho ou em uma lista separada por vírgulas, com ou sem aspas.
+     */
+    private static boolean isNaoModificado(Mensagem mensagem, ServicoRegistrado registro) {
+        String etiquetas = Comando.lerParametro(mensagem, "if-none-match");
+        if (etiquetas == null) {
+            return false;
+        }
+        String hash = registro.getConteudo().getHash();
+        for (String etiqueta : etiquetas.split(",")) {
+            etiqueta = etiqueta.trim();
+            if (etiqueta.length() >= 2 && etiqueta.startsWith("\"") && etiqueta.endsWith("\"")) {
+                etiqueta = etiqueta.substring(1, etiqueta.length() - 1);
+            }
+            if (etiqueta.equalsIgnoreCase(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isFragmentado(Mensagem mensagem) {
+        return Boolean.parseBoolean(Comando.lerParametro(mensagem, "fragmentado"))
+                || Comando.lerParametro(mensagem, "inicio") != null;
+    }
+
+    private static int lerInteiro(Mensagem mensagem, String nome, int padrao) {
+        String valor = Comando.lerParametro(mensagem, nome);
+        if (valor == null) {
+            return padrao;
+        }
+        try {
+            return Integer.parseInt(valor.trim());
+        } catch (NumberFormatException e) {
+            throw new NumberFormatException(nome);
         }
+    }
+
+    private static Mensagem responderErro(Mensagem mensagem, ServicoRegistrado registro, String erro) {
+        JsonObject resultado = new JsonObject();
+        resultado.addProperty("erro", erro);
+        resultado.addProperty("nome", registro.getNome());
+        resultado.addProperty("versao", registro.getVersao());
+        return responder(mensagem, "FRAGMENTO_DE_SERVICO", resultado);
+    }
 
-        // Mantém os metadados da mensagem original se houver
+    private static Mensagem responder(Mensagem mensagem, String acao, JsonObject resultado) {
+        // Mantém os metadados da mensagem original se houver, em uma cópia por resposta, já que cada fragmento é
+        // enviado e alterado separadamente
         if (mensagem.getConteudo().has("metadata")) {
-            resultado.add("metadata", mensagem.getConteudo().getAsJsonObject("metadata"));
+            resultado.add("metadata", mensagem.getConteudo().getAsJsonObject("metadata").deepCopy());
         }
 
-        return new Mensagem("RESULTADO_BUSCA", "barramento", mensagem.getOrigem(), resultado);
+        return new Mensagem(acao, "barramento", mensagem.getOrigem(), resultado);
     }
 }
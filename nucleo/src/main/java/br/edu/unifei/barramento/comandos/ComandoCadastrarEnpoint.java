@@ -1,7 +1,9 @@
 package br.edu.unifei.barramento.comandos;
 
 import br.edu.unifei.barramento.Barramento;
+import br.edu.unifei.modelos.mensagem.FormatoDeMensagem;
 import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.modelos.mensagem.ModoDeEntrega;
 import br.edu.unifei.modelos.protocolo.Protocolo;
 import com.google.gson.JsonObject;
 
@@ -10,29 +12,30 @@ import com.google.gson.JsonObject;
  */
 public class ComandoCadastrarEnpoint implements Comando {
 
-    private final String endpoint;
-    private final Protocolo protocolo;
-
-    /**
-     * Construtor que inicializa o comando com o endpoint e o protocolo.
-     * @param endpoint  O endpoint a ser registrado.
-     * @param protocolo O {@link Protocolo} a ser associado ao endpoint.
-     */
-    public ComandoCadastrarEnpoint(String endpoint, Protocolo protocolo) {
-        this.endpoint = endpoint;
-        this.protocolo = protocolo;
-    }
-
     /**
-     * Executa o registro de endpoint no barramento. Se o endpoint já estiver cadastrado, sobrescreve os dados.
+     * Executa o registro da origem da mensagem como endpoint no barramento, associado ao protocolo pelo qual a
+     * mensagem foi recebida. O formato de mensagem do endpoint é o informado no parâmetro opcional {@code formato}
+     * (Ex.: "cbor") ou, na sua ausência, o formato em que a requisição foi recebida. O modo de entrega é o informado
+     * no parâmetro opcional {@code entrega} (Ex.: "nao_confirmavel") ou, na sua ausência, o modo confirmável. O nível
+     * de QoS MQTT é o informado no parâmetro opcional {@code qos} (0, 1 ou 2) ou, na sua ausência ou se for inválido,
+     * o nível correspondente ao modo de entrega. As mensagens destinadas ao endpoint são agrupadas em envelopes se o
+     * parâmetro opcional {@code agrupamento} for "true". Se o endpoint já estiver cadastrado, sobrescreve os dados.
      *
      * @param mensagem   A {@link Mensagem} contendo a requisição de cadastro.
      * @param barramento O {@link Barramento} onde o endpoint será registrado.
+     * @param protocolo  O {@link Protocolo} a ser associado ao endpoint.
      * @return Uma mensagem de confirmação de registro.
      */
     @Override
-    public Mensagem executar(Mensagem mensagem, Barramento barramento) {
-        barramento.cadastrarEndpoint(endpoint, this.protocolo);
+    public Mensagem executar(Mensagem mensagem, Barramento barramento, Protocolo protocolo) {
+        FormatoDeMensagem formato = FormatoDeMensagem.deNome(Comando.lerParametro(mensagem, "formato"));
+        barramento.cadastrarEndpoint(mensagem.getOrigem(), protocolo,
+                formato != null ? formato : mensagem.getFormato());
+        barramento.definirModoDeEntrega(mensagem.getOrigem(),
+                ModoDeEntrega.deNome(Comando.lerParametro(mensagem, "entrega")));
+        barramento.definirNivelDeQos(mensagem.getOrigem(), lerNivelDeQos(Comando.lerParametro(mensagem, "qos")));
+        barramento.definirAgrupamento(mensagem.getOrigem(),
+                Boolean.parseBoolean(Comando.lerParametro(mensagem, "agrupamento")));
 
         JsonObject resultado = new JsonObject();
         resultado.addProperty("resultado", "Endpoint registrado com sucesso.");
@@ -44,4 +47,23 @@ public class ComandoCadastrarEnpoint implements Comando {
 
         return new Mensagem("CONFIRMACAO_CADASTRO", "barramento", mensagem.getOrigem(), resultado);
     }
+
+    /**
+     * @return O nível de QoS informado, ou {@code null} se o valor estiver ausente ou não for 0, 1 ou 2.
+     */
+    private static Integer lerNivelDeQos(String valor) {
+        if (valor == null) {
+            return null;
+        }
+        switch (valor.trim()) {
+            case "0":
+                return 0;
+            case "1":
+                return 1;
+            case "2":
+                return 2;
+            default:
+                return null;
+        }
+    }
 }
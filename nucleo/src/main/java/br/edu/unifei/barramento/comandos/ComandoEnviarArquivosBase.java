@@ -2,6 +2,7 @@ package br.edu.unifei.barramento.comandos;
 
 import br.edu.unifei.barramento.Barramento;
 import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.modelos.protocolo.Protocolo;
 import br.edu.unifei.utils.FileUtils;
 import br.edu.unifei.utils.LogUtils;
 import com.google.gson.JsonObject;
@@ -14,15 +15,34 @@ import java.io.IOException;
  */
 public class ComandoEnviarArquivosBase implements Comando {
 
+    /**
+     * Arquivos enviados aos dispositivos, relativos ao pacote {@code br.edu.unifei}. Inclui todas as classes das quais
+     * {@code Mensagem} e {@code Servico} dependem, para que os arquivos compilem no dispositivo apenas com o Gson.
+     */
+    static final String[] ARQUIVOS_BASE = {
+            "modelos/mensagem/Mensagem.java",
+            "modelos/mensagem/LeitorDeMensagem.java",
+            "modelos/mensagem/CodificadorDeMensagem.java",
+            "modelos/mensagem/BufferDeSaida.java",
+            "modelos/mensagem/EscritorUtf8.java",
+            "modelos/mensagem/LeitorCbor.java",
+            "modelos/mensagem/EscritorCbor.java",
+            "modelos/mensagem/FormatoDeMensagem.java",
+            "modelos/mensagem/ModoDeEntrega.java",
+            "modelos/mensagem/EnvelopeDeMensagens.java",
+            "modelos/servico/Servico.java"
+    };
+
     /**
      * Executa a busca, compactação e envio dos arquivos base necessários.
      *
      * @param mensagem   A {@link Mensagem} solicitando o envio dos arquivos.
      * @param barramento O {@link Barramento} responsável pelo gerenciamento do inventário de serviços.
+     * @param protocolo  O {@link Protocolo} pelo qual a mensagem foi recebida.
      * @return Uma {@link Mensagem} contendo o bytecode dos arquivos base compactados ou um erro caso ocorra falha.
      */
     @Override
-    public Mensagem executar(Mensagem mensagem, Barramento barramento) {
+    public Mensagem executar(Mensagem mensagem, Barramento barramento, Protocolo protocolo) {
         JsonObject resultado = new JsonObject();
 
         // Mantém os metadados da mensagem original se houver
@@ -30,10 +50,7 @@ public class ComandoEnviarArquivosBase implements Comando {
             resultado.add("metadata", mensagem.getConteudo().getAsJsonObject("metadata"));
         }
 
-        File[] files = FileUtils.getFiles(
-                "modelos/mensagem/Mensagem.java",
-                "modelos/servico/Servico.java"
-        );
+        File[] files = FileUtils.getFiles(ARQUIVOS_BASE);
 
         if (files == null) {
             LogUtils.logError("Nenhum arquivo foi encontrado. Abortando envio.");
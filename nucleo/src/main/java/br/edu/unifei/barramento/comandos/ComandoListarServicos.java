@@ -2,6 +2,7 @@ package br.edu.unifei.barramento.comandos;
 
 import br.edu.unifei.barramento.Barramento;
 import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.modelos.protocolo.Protocolo;
 import com.google.gson.JsonObject;
 
 /**
@@ -14,10 +15,11 @@ public class ComandoListarServicos implements Comando {
      *
      * @param mensagem   A {@link Mensagem} solicitando a listagem de serviços.
      * @param barramento O {@link Barramento} que gerencia o banco de serviços.
+     * @param protocolo  O {@link Protocolo} pelo qual a mensagem foi recebida.
      * @return Uma {@link Mensagem} contendo uma lista com o nome de todos os serviços registrados.
      */
     @Override
-    public Mensagem executar(Mensagem mensagem, Barramento barramento) {
+    public Mensagem executar(Mensagem mensagem, Barramento barramento, Protocolo protocolo) {
         String listaDeServicos = barramento.getGerenciadorDeServicos().listarServicos();
 
         JsonObject resultado = new JsonObject();
@@ -2,46 +2,51 @@ package br.edu.unifei.barramento.comandos;
 
 import br.edu.unifei.barramento.Barramento;
 import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.modelos.protocolo.Protocolo;
 import com.google.gson.JsonObject;
 
+import java.io.UncheckedIOException;
+
 /**
  * Comando para remover um serviço registrado no banco de serviços do barramento.
  */
 public class ComandoRemoverServico implements Comando {
 
-    private final String servico;
-
-    /**
-     * Construtor que inicializa o comando com o nome do serviço a ser removido.
-     *
-     * @param servico O nome do serviço a ser removido.
-     */
-    public ComandoRemoverServico(String servico) {
-        this.servico = servico;
-    }
-
     /**
      * Executa a remoção do serviço do banco de serviços. Retorna a confirmação mesmo que o serviço não esteja
      * previamente cadastrado.
      *
      * @param mensagem   A {@link Mensagem} recebida que contém os parâmetros necessários para a execução.
      * @param barramento O {@link Barramento} onde os serviços e endpoints estão registrados.
-     * @return Uma {@link Mensagem} de confirmação da remoção.
+     * @param protocolo  O {@link Protocolo} pelo qual a mensagem foi recebida.
+     * @return Uma {@link Mensagem} de confirmação da remoção, ou de erro se a remoção não puder ser persistida.
      */
     @Override
-    public Mensagem executar(Mensagem mensagem, Barramento barramento) {
-        barramento.getGerenciadorDeServicos().removerServico(this.servico);
+    public Mensagem executar(Mensagem mensagem, Barramento barramento, Protocolo protocolo) {
+        String servico = Comando.lerParametro(mensagem, "servico");
+        if (servico == null) {
+            return Comando.erroDeParametro(mensagem, "servico");
+        }
 
         JsonObject resultado = new JsonObject();
-        resultado.addProperty(
-                "resultado", String.format("Serviço '%s' removido com sucesso.", this.servico)
-        );
 
         // Mantém os metadados da mensagem original se houver
         if (mensagem.getConteudo().has("metadata")) {
             resultado.add("metadata", mensagem.getConteudo().getAsJsonObject("metadata"));
         }
 
+        try {
+            barramento.getGerenciadorDeServicos().removerServico(servico);
+        } catch (UncheckedIOException e) {
+            resultado.addProperty("erro", String.format("Não foi possível persistir a remoção do serviço '%s'.",
+                    servico));
+            return new Mensagem("ERRO_REMOCAO", "barramento", mensagem.getOrigem(), resultado);
+        }
+
+        resultado.addProperty(
+                "resultado", String.format("Serviço '%s' removido com sucesso.", servico)
+        );
+
         return new Mensagem("CONFIRMACAO_REMOCAO", "barramento", mensagem.getOrigem(), resultado);
     }
 }
@@ -0,0 +1,74 @@
+package br.edu.unifei.barramento.comandos;
+
+import br.edu.unifei.utils.LogUtils;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tabela de despacho que associa cada ação de mensagem ao {@link Comando} responsável por executá-la.
+ *
+ * <p>
+ *     A tabela é montada uma única vez, normalmente na inicialização do barramento, e consultada a cada mensagem
+ *     processada. Cada registro publica uma nova cópia imutável da tabela, de modo que a consulta não usa
+ *     sincronização nem aloca objetos. Módulos externos podem registrar as suas próprias ações através de
+ *     {@link #registrar(String, Comando)} antes de iniciar os controladores.
+ * </p>
+ */
+public class RegistroDeComandos {
+
+    private volatile Map<String, Comando> comandos = Collections.emptyMap();
+
+    /**
+     * Cria um registro com os comandos nativos do barramento: {@code CADASTRAR_ENDPOINT}, {@code REGISTRAR_SERVICO},
+     * {@code REMOVER_SERVICO}, {@code BUSCAR_SERVICO}, {@code LISTAR_SERVICOS} e {@code ENVIAR_ARQUIVOS_BASE}.
+     *
+     * @return O registro com os comandos nativos.
+     */
+    public static RegistroDeComandos padrao() {
+        RegistroDeComandos registro = new RegistroDeComandos();
+        registro.registrar("CADASTRAR_ENDPOINT", new ComandoCadastrarEnpoint());
+        registro.registrar("REGISTRAR_SERVICO", new ComandoRegistrarServico());
+        registro.registrar("REMOVER_SERVICO", new ComandoRemoverServico());
+        registro.registrar("BUSCAR_SERVICO", new ComandoBuscarServico());
+        registro.registrar("LISTAR_SERVICOS", new ComandoListarServicos());
+        registro.registrar("ENVIAR_ARQUIVOS_BASE", new ComandoEnviarArquivosBase());
+        return registro;
+    }
+
+    /**
+     * Registra o comando responsável pela ação informada. Se a ação já possuir um comando, ele é substituído.
+     *
+     * @param acao    O nome da ação das mensagens atendidas pelo comando.
+     * @param comando O {@link Comando} sem estado que executará a ação.
+     */
+    public synchronized void registrar(String acao, Comando comando) {
+        if (acao == null || comando == null) {
+            throw new IllegalArgumentException("Ação e comando são obrigatórios para o registro.");
+        }
+        Map<String, Comando> novosComandos = new HashMap<>(comandos);
+        if (novosComandos.put(acao, comando) != null) {
+            LogUtils.logWarn("Comando da ação '%s' substituído por %s.", acao, comando.getClass().getSimpleName());
+        }
+        this.comandos = Collections.unmodifiableMap(novosComandos);
+    }
+
+    /**
+     * Busca o comando responsável pela ação informada.
+     *
+     * @param acao O nome da ação da mensagem.
+     * @return O {@link Comando} registrado, ou {@code null} se a ação não for um comando do barramento.
+     */
+    public Comando buscar(String acao) {
+        return acao == null ? null : comandos.get(acao);
+    }
+
+    /**
+     * @return O conjunto de ações registradas.
+     */
+    public Set<String> getAcoes() {
+        return comandos.keySet();
+    }
+}
@@ -0,0 +1,411 @@
+package br.edu.unifei.barramento.envio;
+
+import br.edu.unifei.modelos.mensagem.EnvelopeDeMensagens;
+import br.edu.unifei.modelos.mensagem.FormatoDeMensagem;
+import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.modelos.mensagem.ModoDeEntrega;
+import br.edu.unifei.modelos.protocolo.Protocolo;
+import br.edu.unifei.utils.LogUtils;
+import com.google.gson.JsonElement;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estágio de envio que agrupa as mensagens destinadas a um mesmo endpoint em um {@link EnvelopeDeMensagens}, reduzindo
+ * a quantidade de datagramas ou publicações, cada um com o seu próprio cabeçalho, enviados a destinos que recebem
+ * muitas mensagens pequenas.
+ *
+ * <p>
+ *     As mensagens de cada destino são mantidas em um grupo até que o tempo de espera da primeira mensagem termine ou
+ *     até que a próxima mensagem não caiba no tamanho máximo do envelope, o que ocorrer primeiro. Um grupo com uma
+ *     única mensagem é enviado sem o envelope, e mensagens maiores que o envelope são enviadas individualmente, após
+ *     o grupo pendente. A ordem das mensagens de cada destino é mantida.
+ * </p>
+ *
+ * <p>
+ *     Apenas mensagens com o mesmo {@link ModoDeEntrega} e o mesmo QoS de recepção são agrupadas, e o envelope
+ *     recebe essas configurações, de modo que o protocolo entrega o envelope como entregaria cada mensagem. Mensagens
+ *     com o campo {@value #CAMPO_QOS} no {@code metadata}, que o envelope não carrega, são enviadas individualmente.
+ * </p>
+ *
+ * <p>
+ *     Os grupos fechados entram na fila de envio do destino, que é esvaziada fora do monitor do grupo por uma única
+ *     thread de cada vez, de modo que um protocolo lento não bloqueia quem adiciona mensagens ao mesmo destino. O
+ *     tempo de espera dos grupos é controlado por uma única thread agendadora, criada no primeiro agrupamento, que
+ *     apenas fecha os grupos e repassa o envio a threads de envio. Os grupos sem mensagens pendentes são removidos.
+ *     Após {@link #encerrar()}, as mensagens adicionadas são enviadas sem agrupamento, e os agendamentos restantes
+ *     enviam os seus grupos na própria thread agendadora, sem recriar as threads.
+ * </p>
+ */
+public class AgrupadorDeEnvios {
+
+    /**
+     * Campo do {@code metadata} com o nível de QoS de uma mensagem, que impede o agrupamento.
+     */
+    static final String CAMPO_QOS = "qos";
+
+    /**
+     * Envia uma mensagem, individual ou envelope, pelo protocolo informado.
+     */
+    @FunctionalInterface
+    public interface Envio {
+
+        /**
+         * @param mensagem  A {@link Mensagem} ou o envelope a ser enviado.
+         * @param protocolo O {@link Protocolo} de envio.
+         */
+        void enviar(Mensagem mensagem, Protocolo protocolo);
+    }
+
+    /**
+     * Mensagem, individual ou envelope, pronta para ser entregue ao protocolo.
+     */
+    private static final class EnvioPendente {
+        private final Mensagem mensagem;
+        private final Protocolo protocolo;
+
+        private EnvioPendente(Mensagem mensagem, Protocolo protocolo) {
+            this.mensagem = mensagem;
+            this.protocolo = protocolo;
+        }
+    }
+
+    /**
+     * Mensagens pendentes de um destino. Todas as operações são feitas com o monitor do grupo, exceto a entrega das
+     * mensagens prontas ao protocolo.
+     */
+    private static final class Grupo {
+        private final String destino;
+        private final List<Mensagem> mensagens = new ArrayList<>();
+        private final List<byte[]> itens = new ArrayList<>();
+        private final Deque<EnvioPendente> prontos = new ArrayDeque<>();
+        private EnvelopeDeMensagens envelope;
+        private Protocolo protocolo;
+        private ModoDeEntrega modoDeEntrega;
+        private int qosDeRecepcao;
+        private int bytesDosItens;
+
+        /**
+         * Incrementada a cada fechamento, permitindo que o agendamento de um grupo já fechado seja ignorado.
+         */
+        private long geracao;
+
+        /**
+         * Indica que uma thread está entregando as mensagens prontas do grupo.
+         */
+        private boolean enviando;
+
+        /**
+         * Indica que o grupo foi removido do mapa de grupos e não deve receber novas mensagens.
+         */
+        private boolean removido;
+
+        private Grupo(String destino) {
+            this.destino = destino;
+        }
+    }
+
+    private final ConfiguracaoDoAgrupamento configuracao;
+    private final Envio envio;
+    private final ConcurrentHashMap<String, Grupo> grupos = new ConcurrentHashMap<>();
+    private volatile ScheduledExecutorService agendador;
+    private volatile ExecutorService executorDeEnvio;
+
+    /**
+     * Indica que o agrupador foi encerrado e que as threads agendadora e de envio não devem ser recriadas.
+     */
+    private volatile boolean encerrado;
+
+    /**
+     * @param configuracao A {@link ConfiguracaoDoAgrupamento} com o tempo de espera e o tamanho máximo do envelope.
+     * @param envio        O {@link Envio} que entrega as mensagens e os envelopes aos protocolos.
+     */
+    public AgrupadorDeEnvios(ConfiguracaoDoAgrupamento configuracao, Envio envio) {
+        this.configuracao = configuracao;
+        this.envio = envio;
+    }
+
+    /**
+     * Adiciona uma mensagem ao grupo do seu destino, enviando o grupo pendente quando necessário.
+     *
+     * @param mensagem  A {@link Mensagem} a ser enviada.
+     * @param protocolo O {@link Protocolo} de envio do destino.
+     * @param formato   O {@link FormatoDeMensagem} do destino.
+     */
+    public void adicionar(Mensagem mensagem, Protocolo protocolo, FormatoDeMensagem formato) {
+        Grupo grupo;
+        do {
+            grupo = grupos.computeIfAbsent(mensagem.getDestino(), Grupo::new);
+        } while (!adicionar(grupo, mensagem, protocolo, formato));
+        esvaziar(grupo);
+    }
+
+    /**
+     * Envia imediatamente os grupos pendentes de todos os destinos.
+     */
+    public void enviarPendentes() {
+        for (Grupo grupo : grupos.values()) {
+            synchronized (grupo) {
+                fecharGrupo(grupo);
+            }
+            esvaziar(grupo);
+        }
+    }
+
+    /**
+     * Envia os grupos pendentes e encerra as threads agendadora e de envio.
+     */
+    public void encerrar() {
+        encerrado = true;
+        enviarPendentes();
+        ScheduledExecutorService atual;
+        ExecutorService envios;
+        synchronized (this) {
+            atual = agendador;
+            envios = executorDeEnvio;
+            agendador = null;
+            executorDeEnvio = null;
+        }
+        if (atual != null) {
+            atual.shutdown();
+        }
+        if (envios != null) {
+            envios.shutdown();
+        }
+    }
+
+    /**
+     * @return A quantidade de mensagens aguardando em grupos.
+     */
+    public int getMensagensPendentes() {
+        int pendentes = 0;
+        for (Grupo grupo : grupos.values()) {
+            synchronized (grupo) {
+                pendentes += grupo.mensagens.size();
+            }
+        }
+        return pendentes;
+    }
+
+    /**
+     * @return A quantidade de destinos com um grupo ativo.
+     */
+    int getQuantidadeDeGrupos() {
+        return grupos.size();
+    }
+
+    /**
+     * Adiciona a mensagem ao grupo, fechando o grupo pendente quando necessário.
+     *
+     * @return {@code false} se o grupo foi removido e a mensagem deve ser adicionada a um novo grupo.
+     */
+    private boolean adicionar(Grupo grupo, Mensagem mensagem, Protocolo protocolo, FormatoDeMensagem formato) {
+        synchronized (grupo) {
+            if (grupo.removido) {
+                return false;
+            }
+            if (possuiQosNoMetadata(mensagem)) {
+                fecharGrupo(grupo);
+                grupo.prontos.add(new EnvioPendente(mensagem, protocolo));
+                return true;
+            }
+            if (grupo.envelope == null || grupo.envelope.getFormato() != formato || grupo.protocolo != protocolo
+                    || grupo.modoDeEntrega != mensagem.getModoDeEntrega()
+                    || grupo.qosDeRecepcao != mensagem.getQosDeRecepcao()) {
+                fecharGrupo(grupo);
+                grupo.envelope = new EnvelopeDeMensagens(grupo.destino, formato);
+                grupo.protocolo = protocolo;
+                grupo.modoDeEntrega = mensagem.getModoDeEntrega();
+                grupo.qosDeRecepcao = mensagem.getQosDeRecepcao();
+            }
+
+            byte[] bytes = mensagem.toBytes(formato);
+            int limite = configuracao.getTamanhoMaximoDoEnvelope();
+            if (grupo.envelope.tamanho(1, bytes.length) > limite) {
+                fecharGrupo(grupo);
+                grupo.prontos.add(new EnvioPendente(mensagem, protocolo));
+                return true;
+            }
+            if (grupo.envelope.tamanho(grupo.itens.size() + 1, grupo.bytesDosItens + bytes.length) > limite) {
+                fecharGrupo(grupo);
+            }
+
+            grupo.mensagens.add(mensagem);
+            grupo.itens.add(bytes);
+            grupo.bytesDosItens += bytes.length;
+            if (grupo.itens.size() == 1) {
+                agendarExpiracao(grupo);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Agenda o fechamento do grupo ao fim do tempo de espera. Com o agrupador encerrado, o grupo é fechado
+     * imediatamente e enviado por quem adicionou a mensagem. Deve ser chamado com o monitor do grupo.
+     */
+    private void agendarExpiracao(Grupo grupo) {
+        ScheduledExecutorService atual = getAgendador();
+        if (atual != null) {
+            long geracao = grupo.geracao;
+            try {
+                atual.schedule(() -> expirar(grupo, geracao), configuracao.getTempoDeEsperaEmMillis(),
+                        TimeUnit.MILLISECONDS);
+                return;
+            } catch (RejectedExecutionException e) {
+                // Encerrado entre a obtenção e o agendamento
+            }
+        }
+        fecharGrupo(grupo);
+    }
+
+    /**
+     * Fecha o grupo quando o tempo de espera termina, caso ele ainda não tenha sido fechado por outro motivo, e repassa
+     * o envio a uma thread de envio para não atrasar os demais agendamentos. Com o agrupador encerrado, o envio é
+     * feito na própria thread agendadora.
+     */
+    private void expirar(Grupo grupo, long geracao) {
+        synchronized (grupo) {
+            if (grupo.geracao != geracao) {
+                return;
+            }
+            fecharGrupo(grupo);
+        }
+        ExecutorService envios = encerrado ? null : getExecutorDeEnvio();
+        if (envios == null) {
+            esvaziar(grupo);
+            return;
+        }
+        try {
+            envios.execute(() -> esvaziar(grupo));
+        } catch (RejectedExecutionException e) {
+            esvaziar(grupo);
+        }
+    }
+
+    /**
+     * Move as mensagens pendentes do grupo para a fila de envio: a própria mensagem, se houver apenas uma, ou um
+     * envelope. Deve ser chamado com o monitor do grupo.
+     */
+    private void fecharGrupo(Grupo grupo) {
+        if (grupo.mensagens.isEmpty()) {
+            return;
+        }
+        grupo.geracao++;
+        Mensagem mensagem;
+        if (grupo.mensagens.size() == 1) {
+            mensagem = grupo.mensagens.get(0);
+        } else {
+            mensagem = grupo.envelope.criar(grupo.itens);
+            mensagem.setModoDeEntrega(grupo.modoDeEntrega);
+            mensagem.setQosDeRecepcao(grupo.qosDeRecepcao);
+        }
+        LogUtils.logDebug("Enviando %d mensagem(ns) agrupada(s) para '%s' (%d bytes).", grupo.mensagens.size(),
+                grupo.destino, grupo.bytesDosItens);
+        grupo.mensagens.clear();
+        grupo.itens.clear();
+        grupo.bytesDosItens = 0;
+        grupo.prontos.add(new EnvioPendente(mensagem, grupo.protocolo));
+    }
+
+    /**
+     * Entrega as mensagens prontas do grupo ao protocolo, fora do monitor do grupo. Apenas uma thread esvazia o grupo
+     * de cada vez, mantendo a ordem de envio; as demais retornam imediatamente. Ao terminar, o grupo é removido se não
+     * houver mensagens pendentes.
+     */
+    private void esvaziar(Grupo grupo) {
+        synchronized (grupo) {
+            if (grupo.enviando) {
+                return;
+            }
+            grupo.enviando = true;
+        }
+        while (true) {
+            EnvioPendente proximo;
+            synchronized (grupo) {
+                proximo = grupo.prontos.poll();
+                if (proximo == null) {
+                    grupo.enviando = false;
+                    if (grupo.mensagens.isEmpty()) {
+                        grupo.removido = true;
+                        grupos.remove(grupo.destino, grupo);
+                    }
+                    return;
+                }
+            }
+            enviar(proximo.mensagem, proximo.protocolo);
+        }
+    }
+
+    private void enviar(Mensagem mensagem, Protocolo protocolo) {
+        try {
+            envio.enviar(mensagem, protocolo);
+        } catch (Exception e) {
+            LogUtils.logError("Falha ao enviar mensagem agrupada para '%s': %s", mensagem.getDestino(),
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * @return {@code true} se a mensagem define o nível de QoS no {@code metadata}.
+     */
+    private static boolean possuiQosNoMetadata(Mensagem mensagem) {
+        try {
+            JsonElement qos = mensagem.getCampoDoMetadata(CAMPO_QOS);
+            return qos != null && !qos.isJsonNull();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return A thread agendadora, criada no primeiro uso, ou {@code null} se o agrupador foi encerrado.
+     */
+    private ScheduledExecutorService getAgendador() {
+        ScheduledExecutorService atual = agendador;
+        if (atual == null) {
+            synchronized (this) {
+                atual = agendador;
+                if (atual == null && !encerrado) {
+                    atual = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+                        Thread thread = new Thread(tarefa, "agrupador-de-envios");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    agendador = atual;
+                }
+            }
+        }
+        return atual;
+    }
+
+    /**
+     * @return As threads de envio, criadas no primeiro uso, ou {@code null} se o agrupador foi encerrado.
+     */
+    private ExecutorService getExecutorDeEnvio() {
+        ExecutorService atual = executorDeEnvio;
+        if (atual == null) {
+            synchronized (this) {
+                atual = executorDeEnvio;
+                if (atual == null && !encerrado) {
+                    atual = Executors.newCachedThreadPool(tarefa -> {
+                        Thread thread = new Thread(tarefa, "agrupador-de-envios-envio");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executorDeEnvio = atual;
+                }
+            }
+        }
+        return atual;
+    }
+}
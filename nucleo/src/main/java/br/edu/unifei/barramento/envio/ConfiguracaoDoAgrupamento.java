@@ -0,0 +1,72 @@
+package br.edu.unifei.barramento.envio;
+
+/**
+ * Agrupa as configurações do {@link AgrupadorDeEnvios}. Os métodos de configuração retornam a própria instância para
+ * permitir o encadeamento das chamadas.
+ *
+ * <pre>{@code
+ * ConfiguracaoDoAgrupamento configuracao = ConfiguracaoDoAgrupamento.padrao()
+ *         .tempoDeEsperaEmMillis(10)
+ *         .tamanhoMaximoDoEnvelope(4096);
+ * }</pre>
+ */
+public class ConfiguracaoDoAgrupamento {
+
+    /**
+     * Tempo padrão, em milissegundos, que a primeira mensagem de um grupo aguarda por outras mensagens ao mesmo
+     * destino.
+     */
+    public static final long TEMPO_DE_ESPERA_PADRAO_EM_MILLIS = 5;
+
+    /**
+     * Tamanho máximo padrão do envelope, em bytes: o tamanho de um bloco CoAP, de modo que o envelope é enviado em um
+     * único datagrama, sem a transferência em blocos.
+     */
+    public static final int TAMANHO_MAXIMO_DO_ENVELOPE_PADRAO = 1024;
+
+    private long tempoDeEsperaEmMillis = TEMPO_DE_ESPERA_PADRAO_EM_MILLIS;
+    private int tamanhoMaximoDoEnvelope = TAMANHO_MAXIMO_DO_ENVELOPE_PADRAO;
+
+    /**
+     * @return Uma nova configuração com os valores padrão.
+     */
+    public static ConfiguracaoDoAgrupamento padrao() {
+        return new ConfiguracaoDoAgrupamento();
+    }
+
+    /**
+     * @param tempoDeEsperaEmMillis Tempo, em milissegundos, que a primeira mensagem de um grupo aguarda por outras
+     *                              mensagens ao mesmo destino antes do envio.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoAgrupamento tempoDeEsperaEmMillis(long tempoDeEsperaEmMillis) {
+        this.tempoDeEsperaEmMillis = tempoDeEsperaEmMillis;
+        return this;
+    }
+
+    /**
+     * @param tamanhoMaximoDoEnvelope Tamanho máximo, em bytes, do envelope enviado. Um grupo é enviado assim que a
+     *                                próxima mensagem não couber no envelope, e mensagens maiores que o limite são
+     *                                enviadas individualmente. Para destinos CoAP, não deve exceder o limite da
+     *                                transferência em blocos.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoAgrupamento tamanhoMaximoDoEnvelope(int tamanhoMaximoDoEnvelope) {
+        this.tamanhoMaximoDoEnvelope = tamanhoMaximoDoEnvelope;
+        return this;
+    }
+
+    /**
+     * @return O tempo de espera de um grupo, em milissegundos, no mínimo 0.
+     */
+    public long getTempoDeEsperaEmMillis() {
+        return Math.max(0, tempoDeEsperaEmMillis);
+    }
+
+    /**
+     * @return O tamanho máximo do envelope, em bytes.
+     */
+    public int getTamanhoMaximoDoEnvelope() {
+        return tamanhoMaximoDoEnvelope;
+    }
+}
@@ -0,0 +1,26 @@
+package br.edu.unifei.barramento.fila;
+
+/**
+ * Define como uma thread aguarda quando a {@link br.edu.unifei.barramento.FilaDeMensagens} não pode atender a operação
+ * imediatamente, seja por estar vazia (consumidor) ou cheia (produtor com política de bloqueio).
+ */
+public enum EstrategiaDeEspera {
+
+    /**
+     * Estaciona a thread imediatamente até ser acordada por outra operação na fila. Não consome CPU enquanto aguarda,
+     * ao custo de uma latência maior para acordar.
+     */
+    PARK,
+
+    /**
+     * Cede o processador repetidamente até a operação ser possível. Oferece baixa latência, mas mantém o núcleo
+     * ocupado enquanto a fila estiver ociosa.
+     */
+    YIELD,
+
+    /**
+     * Executa uma espera ativa curta, cede o processador algumas vezes e, se a fila continuar indisponível, estaciona a
+     * thread. É o meio-termo entre latência e consumo de CPU e, por isso, a estratégia padrão.
+     */
+    SPIN_PARK
+}
@@ -0,0 +1,23 @@
+package br.edu.unifei.barramento.fila;
+
+/**
+ * Define o comportamento da {@link br.edu.unifei.barramento.FilaDeMensagens} quando uma nova mensagem chega e a
+ * capacidade máxima já foi atingida.
+ */
+public enum PoliticaDeFilaCheia {
+
+    /**
+     * O produtor aguarda, de acordo com a {@link EstrategiaDeEspera} configurada, até que haja espaço na fila.
+     */
+    BLOQUEAR,
+
+    /**
+     * A mensagem mais antiga da fila é descartada para abrir espaço para a nova.
+     */
+    DESCARTAR_MAIS_ANTIGA,
+
+    /**
+     * A nova mensagem é rejeitada e o produtor é informado imediatamente.
+     */
+    REJEITAR
+}
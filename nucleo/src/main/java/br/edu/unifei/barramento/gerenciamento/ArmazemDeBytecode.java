@@ -0,0 +1,215 @@
+package br.edu.unifei.barramento.gerenciamento;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Armazém endereçado por conteúdo dos bytecodes dos serviços registrados no {@link GerenciadorDeServicos}.
+ *
+ * <p>
+ *     O bytecode recebido em Base64 é decodificado uma única vez, no registro, e guardado em um buffer direto, fora do
+ *     heap, identificado por um hash SHA-256 do conteúdo e da sua representação. Serviços registrados com o mesmo
+ *     bytecode, ainda que com nomes diferentes, compartilham o mesmo {@link Bytecode}, mantido enquanto houver
+ *     serviços que o referenciem. Opcionalmente, o conteúdo é comprimido, quando a compressão reduz o seu tamanho.
+ * </p>
+ *
+ * <p>
+ *     A memória fora do heap é liberada pela coleta de lixo quando o {@link Bytecode} deixa de ser referenciado pelo
+ *     armazém e pelos inventários ainda em uso, e é limitada por {@code -XX:MaxDirectMemorySize}.
+ * </p>
+ */
+public class ArmazemDeBytecode {
+
+    private static final char[] HEXADECIMAL = "0123456789abcdef".toCharArray();
+
+    private final boolean compressao;
+    private final Map<String, Entrada> bytecodes = new HashMap<>();
+    private long bytesArmazenados;
+
+    /**
+     * Bytecode guardado e a quantidade de serviços que o referenciam.
+     */
+    private static final class Entrada {
+        private final Bytecode bytecode;
+        private int referencias;
+
+        private Entrada(Bytecode bytecode) {
+            this.bytecode = bytecode;
+        }
+    }
+
+    /**
+     * Constrói um armazém sem compressão.
+     */
+    public ArmazemDeBytecode() {
+        this(false);
+    }
+
+    /**
+     * @param compressao Se {@code true}, os bytecodes são guardados comprimidos quando a compressão reduzir o seu
+     *                   tamanho.
+     */
+    public ArmazemDeBytecode(boolean compressao) {
+        this.compressao = compressao;
+    }
+
+    /**
+     * Guarda o bytecode recebido no registro de um serviço, decodificando-o se estiver em Base64.
+     *
+     * @param texto O bytecode recebido.
+     * @return O {@link Bytecode} guardado, compartilhado com os demais serviços de mesmo conteúdo.
+     */
+    public Bytecode armazenar(String texto) {
+        byte[] decodificado = decodificarBase64(texto);
+        return decodificado != null
+                ? armazenar(decodificado, true)
+                : armazenar(texto.getBytes(StandardCharsets.UTF_8), false);
+    }
+
+    /**
+     * Guarda um bytecode já decodificado, como o recuperado do {@link DiarioDeServicos}.
+     *
+     * @param conteudo O conteúdo do bytecode.
+     * @param base64   {@code true} se o bytecode é representado em Base64 nas mensagens.
+     * @return O {@link Bytecode} guardado, compartilhado com os demais serviços de mesmo conteúdo.
+     */
+    public synchronized Bytecode armazenar(byte[] conteudo, boolean base64) {
+        String hash = calcularHash(conteudo, base64);
+        Entrada entrada = bytecodes.get(hash);
+        if (entrada == null) {
+            entrada = new Entrada(criar(hash, conteudo, base64));
+            bytecodes.put(hash, entrada);
+            bytesArmazenados += entrada.bytecode.getTamanhoArmazenado();
+        }
+        entrada.referencias++;
+        return entrada.bytecode;
+    }
+
+    /**
+     * Libera uma referência ao bytecode, descartando-o do armazém quando nenhum serviço o referenciar.
+     *
+     * @param bytecode O {@link Bytecode} de um serviço substituído ou removido.
+     */
+    public synchronized void liberar(Bytecode bytecode) {
+        Entrada entrada = bytecodes.get(bytecode.getHash());
+        if (entrada == null || entrada.bytecode != bytecode) {
+            return;
+        }
+        if (--entrada.referencias <= 0) {
+            bytecodes.remove(bytecode.getHash());
+            bytesArmazenados -= bytecode.getTamanhoArmazenado();
+        }
+    }
+
+    /**
+     * @return A quantidade de bytecodes distintos guardados.
+     */
+    public synchronized int getQuantidade() {
+        return bytecodes.size();
+    }
+
+    /**
+     * @return A quantidade de bytes ocupados fora do heap pelos bytecodes guardados.
+     */
+    public synchronized long getBytesArmazenados() {
+        return bytesArmazenados;
+    }
+
+    private Bytecode criar(String hash, byte[] conteudo, boolean base64) {
+        byte[] armazenado = conteudo;
+        boolean comprimido = false;
+        int[] pontosDeReinicio = new int[0];
+        if (compressao && conteudo.length > 0) {
+            int[] pontos = new int[(conteudo.length - 1) / Bytecode.INTERVALO_DE_REINICIO];
+            byte[] resultado = comprimir(conteudo, pontos);
+            if (resultado.length < conteudo.length) {
+                armazenado = resultado;
+                comprimido = true;
+                pontosDeReinicio = pontos;
+            }
+        }
+
+        ByteBuffer dados = ByteBuffer.allocateDirect(armazenado.length);
+        dados.put(armazenado).flip();
+        return new Bytecode(hash, base64, conteudo.length, comprimido, dados, pontosDeReinicio);
+    }
+
+    /**
+     * @return O conteúdo decodificado, ou {@code null} se o texto não estiver em Base64 canônico, isto é, se a sua
+     * codificação novamente em Base64 não reproduzir o texto recebido.
+     */
+    private static byte[] decodificarBase64(String texto) {
+        if (texto.isEmpty() || texto.length() % 4 != 0) {
+            return null;
+        }
+        try {
+            byte[] decodificado = Base64.getDecoder().decode(texto);
+            return Base64.getEncoder().encodeToString(decodificado).equals(texto) ? decodificado : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Comprime o conteúdo, descartando o dicionário do compressor a cada {@link Bytecode#INTERVALO_DE_REINICIO}
+     * bytes e anotando em {@code pontosDeReinicio} a posição comprimida de cada intervalo após o primeiro.
+     */
+    private static byte[] comprimir(byte[] conteudo, int[] pontosDeReinicio) {
+        Deflater compressor = new Deflater();
+        try {
+            byte[] buffer = new byte[conteudo.length + 64];
+            int tamanho = 0;
+            for (int inicio = 0, ponto = 0; inicio < conteudo.length; inicio += Bytecode.INTERVALO_DE_REINICIO) {
+                int fim = Math.min(conteudo.length, inicio + Bytecode.INTERVALO_DE_REINICIO);
+                boolean ultimo = fim == conteudo.length;
+                compressor.setInput(conteudo, inicio, fim - inicio);
+                if (ultimo) {
+                    compressor.finish();
+                }
+                while (true) {
+                    if (tamanho == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    }
+                    int espaco = buffer.length - tamanho;
+                    int escritos = compressor.deflate(buffer, tamanho, espaco,
+                            ultimo ? Deflater.NO_FLUSH : Deflater.FULL_FLUSH);
+                    tamanho += escritos;
+                    if (ultimo ? compressor.finished() : escritos < espaco) {
+                        break;
+                    }
+                }
+                if (!ultimo) {
+                    pontosDeReinicio[ponto++] = tamanho;
+                }
+            }
+            return Arrays.copyOf(buffer, tamanho);
+        } finally {
+            compressor.end();
+        }
+    }
+
+    private static String calcularHash(byte[] conteudo, boolean base64) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível.", e);
+        }
+        // A representação faz parte da identidade, para que o texto devolvido seja o registrado
+        digest.update(base64 ? (byte) 1 : (byte) 0);
+        byte[] resumo = digest.digest(conteudo);
+        char[] hash = new char[resumo.length * 2];
+        for (int i = 0; i < resumo.length; i++) {
+            hash[i * 2] = HEXADECIMAL[(resumo[i] >> 4) & 0xF];
+            hash[i * 2 + 1] = HEXADECIMAL[resumo[i] & 0xF];
+        }
+        return new String(hash);
+    }
+}
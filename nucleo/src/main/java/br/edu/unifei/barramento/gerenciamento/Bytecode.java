@@ -0,0 +1,216 @@
+package br.edu.unifei.barramento.gerenciamento;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Bytecode de um serviço guardado pelo {@link ArmazemDeBytecode}: o conteúdo decodificado, fora do heap, identificado
+ * por um hash SHA-256 do conteúdo e da sua representação.
+ *
+ * <p>
+ *     O bytecode recebido em Base64 é guardado decodificado, e a representação em Base64 é produzida novamente apenas
+ *     por {@link #paraTexto()}, ao montar uma resposta. Um bytecode que não esteja em Base64 canônico é guardado como
+ *     o texto recebido, em UTF-8, de modo que {@link #paraTexto()} sempre devolve exatamente o texto registrado.
+ * </p>
+ *
+ * <p>
+ *     O conteúdo comprimido guarda pontos de reinício a cada {@link #INTERVALO_DE_REINICIO} bytes do conteúdo
+ *     decodificado, nos quais o dicionário do compressor é descartado. Assim, {@link #abrirLeitura(int)} começa a
+ *     descompressão no ponto anterior à posição pedida, e a retomada de uma transferência descomprime no máximo um
+ *     intervalo a mais, em vez de todo o conteúdo desde o início.
+ * </p>
+ */
+public final class Bytecode {
+
+    /**
+     * Distância, em bytes do conteúdo decodificado, entre os pontos de reinício da descompressão.
+     */
+    static final int INTERVALO_DE_REINICIO = 16 * 1024;
+
+    private final String hash;
+    private final boolean base64;
+    private final int tamanho;
+    private final boolean comprimido;
+
+    /**
+     * Conteúdo guardado, possivelmente comprimido, em um buffer direto somente leitura.
+     */
+    private final ByteBuffer dados;
+
+    /**
+     * Posição em {@link #dados} de cada ponto de reinício, a partir do segundo intervalo: o elemento {@code i}
+     * corresponde à posição {@code (i + 1) * INTERVALO_DE_REINICIO} do conteúdo decodificado.
+     */
+    private final int[] pontosDeReinicio;
+
+    Bytecode(String hash, boolean base64, int tamanho, boolean comprimido, ByteBuffer dados,
+             int[] pontosDeReinicio) {
+        this.hash = hash;
+        this.base64 = base64;
+        this.tamanho = tamanho;
+        this.comprimido = comprimido;
+        this.dados = dados.asReadOnlyBuffer();
+        this.pontosDeReinicio = pontosDeReinicio;
+    }
+
+    /**
+     * @return O identificador do bytecode, em hexadecimal: o SHA-256 de um byte que indica a representação em Base64
+     * seguido do conteúdo decodificado. Não coincide com o SHA-256 do conteúdo e deve ser tratado como opaco.
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * @return {@code true} se o bytecode foi recebido em Base64 e é guardado decodificado.
+     */
+    public boolean isBase64() {
+        return base64;
+    }
+
+    /**
+     * @return O tamanho do conteúdo decodificado, em bytes.
+     */
+    public int getTamanho() {
+        return tamanho;
+    }
+
+    /**
+     * @return O tamanho ocupado fora do heap, em bytes.
+     */
+    public int getTamanhoArmazenado() {
+        return dados.capacity();
+    }
+
+    /**
+     * @return {@code true} se o conteúdo é guardado comprimido.
+     */
+    public boolean isComprimido() {
+        return comprimido;
+    }
+
+    /**
+     * @return Uma cópia do conteúdo decodificado e descomprimido.
+     */
+    public byte[] getBytes() {
+        byte[] armazenados = new byte[dados.capacity()];
+        dados.duplicate().get(armazenados);
+        if (!comprimido) {
+            return armazenados;
+        }
+
+        Inflater descompressor = new Inflater();
+        try {
+            descompressor.setInput(armazenados);
+            byte[] conteudo = new byte[tamanho];
+            int lidos = 0;
+            while (lidos < tamanho && !descompressor.finished()) {
+                lidos += descompressor.inflate(conteudo, lidos, tamanho - lidos);
+            }
+            return conteudo;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Bytecode comprimido inválido: " + hash, e);
+        } finally {
+            descompressor.end();
+        }
+    }
+
+    /**
+     * Abre a leitura sequencial do conteúdo decodificado a partir de uma posição, sem copiar o conteúdo inteiro para o
+     * heap. Conteúdos comprimidos são descomprimidos durante a leitura, a partir do ponto de reinício anterior à
+     * posição.
+     *
+     * @param inicio A posição, em bytes do conteúdo decodificado, a partir da qual a leitura começa.
+     * @return Um {@link InputStream} com o conteúdo a partir da posição informada.
+     * @throws IOException Se o conteúdo comprimido for inválido.
+     */
+    public InputStream abrirLeitura(int inicio) throws IOException {
+        ByteBuffer leitura = dados.duplicate();
+        if (!comprimido) {
+            leitura.position(Math.min(Math.max(0, inicio), leitura.limit()));
+            return new LeitorDeBuffer(leitura);
+        }
+
+        int intervalo = Math.min(Math.max(0, inicio) / INTERVALO_DE_REINICIO, pontosDeReinicio.length);
+        InputStream entrada;
+        if (intervalo == 0) {
+            entrada = new InflaterInputStream(new LeitorDeBuffer(leitura));
+        } else {
+            // Após o cabeçalho do início, os dados a partir de um ponto de reinício são um fluxo deflate sem envelope
+            Inflater descompressor = new Inflater(true);
+            leitura.position(pontosDeReinicio[intervalo - 1]);
+            entrada = new InflaterInputStream(new LeitorDeBuffer(leitura), descompressor) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        descompressor.end();
+                    }
+                }
+            };
+        }
+        long restante = inicio - (long) intervalo * INTERVALO_DE_REINICIO;
+        while (restante > 0) {
+            long ignorados = entrada.skip(restante);
+            if (ignorados <= 0) {
+                break;
+            }
+            restante -= ignorados;
+        }
+        return entrada;
+    }
+
+    /**
+     * @return O bytecode no texto em que foi registrado: codificado novamente em Base64 ou, se não foi recebido em
+     * Base64, o próprio texto.
+     */
+    public String paraTexto() {
+        byte[] conteudo = getBytes();
+        return base64
+                ? Base64.getEncoder().encodeToString(conteudo)
+                : new String(conteudo, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%d bytes%s)", hash, tamanho, comprimido ? ", comprimido" : "");
+    }
+
+    /**
+     * Leitura sequencial de um buffer, sem cópia.
+     */
+    private static final class LeitorDeBuffer extends InputStream {
+        private final ByteBuffer buffer;
+
+        private LeitorDeBuffer(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] destino, int deslocamento, int tamanho) {
+            if (!buffer.hasRemaining()) {
+                return tamanho == 0 ? 0 : -1;
+            }
+            int lidos = Math.min(tamanho, buffer.remaining());
+            buffer.get(destino, deslocamento, lidos);
+            return lidos;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
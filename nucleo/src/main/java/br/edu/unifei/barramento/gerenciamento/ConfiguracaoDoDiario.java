@@ -0,0 +1,120 @@
+package br.edu.unifei.barramento.gerenciamento;
+
+/**
+ * Agrupa as configurações do {@link DiarioDeServicos}. Os métodos de configuração retornam a própria instância para
+ * permitir o encadeamento das chamadas.
+ *
+ * <pre>{@code
+ * ConfiguracaoDoDiario configuracao = ConfiguracaoDoDiario.padrao()
+ *         .alteracoesParaCompactacao(50_000)
+ *         .sincronizarACadaEscrita(true);
+ * }</pre>
+ */
+public class ConfiguracaoDoDiario {
+
+    /**
+     * Tamanho padrão, em bytes, de cada região do arquivo do diário mapeada em memória.
+     */
+    public static final int TAMANHO_DA_REGIAO_PADRAO = 4 * 1024 * 1024;
+
+    /**
+     * Quantidade padrão de alterações anotadas no diário que dispara a compactação em um snapshot.
+     */
+    public static final int ALTERACOES_PARA_COMPACTACAO_PADRAO = 10_000;
+
+    /**
+     * Tamanho padrão, em bytes, do arquivo do diário que dispara a compactação em um snapshot.
+     */
+    public static final int TAMANHO_PARA_COMPACTACAO_PADRAO = 256 * 1024 * 1024;
+
+    /**
+     * Maior tamanho, em bytes, de uma região mapeada e do diário antes da compactação, de modo que o arquivo do
+     * diário nunca ultrapasse o tamanho suportado pela recuperação.
+     */
+    public static final int TAMANHO_MAXIMO = 512 * 1024 * 1024;
+
+    private int tamanhoDaRegiao = TAMANHO_DA_REGIAO_PADRAO;
+    private int alteracoesParaCompactacao = ALTERACOES_PARA_COMPACTACAO_PADRAO;
+    private int tamanhoParaCompactacao = TAMANHO_PARA_COMPACTACAO_PADRAO;
+    private boolean sincronizarACadaEscrita = false;
+
+    /**
+     * @return Uma nova configuração com os valores padrão.
+     */
+    public static ConfiguracaoDoDiario padrao() {
+        return new ConfiguracaoDoDiario();
+    }
+
+    /**
+     * @param tamanhoDaRegiao Tamanho, em bytes, de cada região do arquivo do diário mapeada em memória. O arquivo
+     *                        cresce uma região por vez.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoDiario tamanhoDaRegiao(int tamanhoDaRegiao) {
+        this.tamanhoDaRegiao = tamanhoDaRegiao;
+        return this;
+    }
+
+    /**
+     * @param alteracoesParaCompactacao Quantidade de alterações anotadas no diário após a qual o inventário é
+     *                                  gravado em um snapshot e o diário é reiniciado. Valores menores ou iguais a 0
+     *                                  desabilitam a compactação por quantidade, mas não a compactação por
+     *                                  tamanho.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoDiario alteracoesParaCompactacao(int alteracoesParaCompactacao) {
+        this.alteracoesParaCompactacao = alteracoesParaCompactacao;
+        return this;
+    }
+
+    /**
+     * @param tamanhoParaCompactacao Tamanho, em bytes, das anotações do diário após o qual o inventário é gravado em
+     *                               um snapshot e o diário é reiniciado, independentemente da quantidade de
+     *                               alterações. Limitado a {@link #TAMANHO_MAXIMO}.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoDiario tamanhoParaCompactacao(int tamanhoParaCompactacao) {
+        this.tamanhoParaCompactacao = tamanhoParaCompactacao;
+        return this;
+    }
+
+    /**
+     * @param sincronizarACadaEscrita Se {@code true}, cada alteração é forçada ao disco antes de o registro ou a
+     *                                remoção retornar. Caso contrário, as páginas mapeadas são gravadas pelo sistema
+     *                                operacional, o que preserva as alterações se o processo for encerrado, mas não
+     *                                se o sistema falhar.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoDiario sincronizarACadaEscrita(boolean sincronizarACadaEscrita) {
+        this.sincronizarACadaEscrita = sincronizarACadaEscrita;
+        return this;
+    }
+
+    /**
+     * @return O tamanho de cada região mapeada, em bytes, entre 4 KiB e {@link #TAMANHO_MAXIMO}.
+     */
+    public int getTamanhoDaRegiao() {
+        return Math.min(TAMANHO_MAXIMO, Math.max(4096, tamanhoDaRegiao));
+    }
+
+    /**
+     * @return A quantidade de alterações que dispara a compactação, ou um valor menor ou igual a 0 se desabilitada.
+     */
+    public int getAlteracoesParaCompactacao() {
+        return alteracoesParaCompactacao;
+    }
+
+    /**
+     * @return O tamanho do diário que dispara a compactação, em bytes, entre 4 KiB e {@link #TAMANHO_MAXIMO}.
+     */
+    public int getTamanhoParaCompactacao() {
+        return Math.min(TAMANHO_MAXIMO, Math.max(4096, tamanhoParaCompactacao));
+    }
+
+    /**
+     * @return {@code true} se cada alteração é forçada ao disco.
+     */
+    public boolean isSincronizarACadaEscrita() {
+        return sincronizarACadaEscrita;
+    }
+}
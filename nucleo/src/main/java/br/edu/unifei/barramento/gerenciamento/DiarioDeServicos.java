@@ -0,0 +1,457 @@
+package br.edu.unifei.barramento.gerenciamento;
+
+import br.edu.unifei.utils.LogUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Persistência opcional do inventário do {@link GerenciadorDeServicos}, para que os serviços registrados sobrevivam
+ * ao reinício do barramento sem que os produtores precisem registrá-los novamente.
+ *
+ * <p>
+ *     Cada registro e remoção é anotado ao final de um diário ({@value #ARQUIVO_DO_DIARIO}), escrito por regiões do
+ *     arquivo mapeadas em memória. Cada anotação tem o formato
+ *     {@code [tamanho][crc32][tipo][versão][nome][base64][bytecode]}, com o bytecode decodificado, como guardado no
+ *     {@link ArmazemDeBytecode}, e a leitura do diário termina na primeira anotação incompleta ou com o checksum
+ *     inválido, descartando a escrita interrompida por uma falha. Após uma quantidade configurável de alterações, ou
+ *     quando o diário atinge um tamanho configurável, o inventário é gravado em um snapshot
+ *     ({@value #ARQUIVO_DO_SNAPSHOT}), substituído atomicamente, e o diário volta a ser escrito do início.
+ * </p>
+ *
+ * <p>
+ *     Na recuperação, o snapshot é carregado e as anotações do diário com versão maior que a do snapshot são
+ *     aplicadas em ordem. Como as versões do inventário são crescentes, uma anotação com versão menor ou igual à
+ *     anterior é um resto de um ciclo anterior do diário e encerra a leitura.
+ * </p>
+ *
+ * <p>
+ *     As anotações são feitas pelo {@link GerenciadorDeServicos} dentro da alteração do inventário, na mesma ordem
+ *     das versões. {@link #recuperar(ArmazemDeBytecode)} deve ser chamado antes da primeira anotação.
+ * </p>
+ */
+public class DiarioDeServicos implements Closeable {
+
+    /**
+     * Nome do arquivo do diário no diretório de persistência.
+     */
+    public static final String ARQUIVO_DO_DIARIO = "servicos.diario";
+
+    /**
+     * Nome do arquivo do snapshot no diretório de persistência.
+     */
+    public static final String ARQUIVO_DO_SNAPSHOT = "servicos.snapshot";
+
+    private static final int ASSINATURA_DO_DIARIO = 0x42534432; // "BSD2"
+    private static final int ASSINATURA_DO_SNAPSHOT = 0x42535332; // "BSS2"
+    private static final int CABECALHO_DO_DIARIO = 8;
+    private static final int CABECALHO_DO_SNAPSHOT = 16;
+    private static final int CABECALHO_DA_ANOTACAO = 8;
+    private static final byte TIPO_REGISTRO = 1;
+    private static final byte TIPO_REMOCAO = 2;
+
+    /**
+     * Tamanho do corpo de uma anotação sem o nome e o bytecode: tipo, versão, tamanho do nome, indicador de Base64 e
+     * tamanho do bytecode.
+     */
+    private static final int CORPO_MINIMO = 1 + 8 + 4 + 1 + 4;
+    private static final byte[] VAZIO = new byte[0];
+
+    private final Path diretorio;
+    private final ConfiguracaoDoDiario configuracao;
+    private final FileChannel canal;
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * Região do arquivo do diário mapeada para escrita, iniciada em {@link #inicioDaRegiao}.
+     */
+    private MappedByteBuffer regiao;
+    private long inicioDaRegiao;
+
+    /**
+     * Posição, no arquivo do diário, da próxima anotação.
+     */
+    private long posicao = CABECALHO_DO_DIARIO;
+
+    private int alteracoesDesdeACompactacao;
+    private boolean recuperado;
+
+    /**
+     * Abre o diário no diretório informado, com a configuração padrão.
+     *
+     * @param diretorio O diretório de persistência, criado se não existir.
+     * @throws IOException Se o diretório ou o arquivo do diário não puderem ser abertos.
+     */
+    public DiarioDeServicos(Path diretorio) throws IOException {
+        this(diretorio, ConfiguracaoDoDiario.padrao());
+    }
+
+    /**
+     * Abre o diário no diretório informado.
+     *
+     * @param diretorio    O diretório de persistência, criado se não existir.
+     * @param configuracao A {@link ConfiguracaoDoDiario} com o tamanho das regiões mapeadas e a compactação.
+     * @throws IOException Se o diretório ou o arquivo do diário não puderem ser abertos.
+     */
+    public DiarioDeServicos(Path diretorio, ConfiguracaoDoDiario configuracao) throws IOException {
+        this.diretorio = Files.createDirectories(diretorio);
+        this.configuracao = configuracao;
+        this.canal = FileChannel.open(diretorio.resolve(ARQUIVO_DO_DIARIO),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Carrega o snapshot e aplica as anotações do diário, posicionando o diário para as próximas anotações.
+     *
+     * @param armazem O {@link ArmazemDeBytecode} onde os bytecodes recuperados são guardados.
+     * @return O {@link InventarioDeServicos} recuperado, na versão da última alteração persistida.
+     * @throws IOException Se os arquivos não puderem ser lidos ou se o arquivo do diário não for um diário de
+     *                     serviços.
+     */
+    public synchronized InventarioDeServicos recuperar(ArmazemDeBytecode armazem) throws IOException {
+        Map<String, ServicoRegistrado> servicos = new HashMap<>();
+        long versao = lerSnapshot(servicos, armazem);
+        long versaoDoSnapshot = versao;
+
+        long tamanho = canal.size();
+        posicao = CABECALHO_DO_DIARIO;
+        alteracoesDesdeACompactacao = 0;
+        if (tamanho < CABECALHO_DO_DIARIO) {
+            ByteBuffer cabecalho = ByteBuffer.allocate(CABECALHO_DO_DIARIO);
+            cabecalho.putInt(ASSINATURA_DO_DIARIO).putInt(0).flip();
+            canal.write(cabecalho, 0);
+        } else {
+            if (tamanho > Integer.MAX_VALUE) {
+                throw new IOException("Diário de serviços maior que o suportado: " + tamanho + " bytes.");
+            }
+            MappedByteBuffer leitura = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+            if (leitura.getInt(0) != ASSINATURA_DO_DIARIO) {
+                throw new IOException("O arquivo " + diretorio.resolve(ARQUIVO_DO_DIARIO)
+                        + " não é um diário de serviços.");
+            }
+
+            int atual = CABECALHO_DO_DIARIO;
+            while (true) {
+                Anotacao anotacao = lerAnotacao(leitura, atual);
+                if (anotacao == null || anotacao.versao <= versao) {
+                    break;
+                }
+                ServicoRegistrado anterior = anotacao.tipo == TIPO_REGISTRO
+                        ? servicos.put(anotacao.nome, anotacao.criarServico(armazem))
+                        : servicos.remove(anotacao.nome);
+                if (anterior != null) {
+                    armazem.liberar(anterior.getConteudo());
+                }
+                versao = anotacao.versao;
+                atual = anotacao.fim;
+                alteracoesDesdeACompactacao++;
+            }
+            posicao = atual;
+        }
+
+        regiao = null;
+        garantirEspaco(CABECALHO_DA_ANOTACAO);
+        recuperado = true;
+        LogUtils.logInfo("Diário de serviços recuperado: %d serviço(s) na versão %d (snapshot na versão %d e %d " +
+                "alteração(ões) no diário).", servicos.size(), versao, versaoDoSnapshot, alteracoesDesdeACompactacao);
+        return InventarioDeServicos.de(servicos, versao);
+    }
+
+    /**
+     * Anota o registro de um serviço, compactando o diário se a quantidade de alterações ou o tamanho for atingido.
+     *
+     * @param servico    O {@link ServicoRegistrado}.
+     * @param inventario O {@link InventarioDeServicos} resultante do registro.
+     * @throws IOException Se a anotação falhar. Uma falha na compactação é apenas registrada no log.
+     */
+    public synchronized void anotarRegistro(ServicoRegistrado servico, InventarioDeServicos inventario)
+            throws IOException {
+        anotar(TIPO_REGISTRO, servico.getVersao(), servico.getNome(), servico.getConteudo(), inventario);
+    }
+
+    /**
+     * Anota a remoção de um serviço, compactando o diário se a quantidade de alterações ou o tamanho for atingido.
+     *
+     * @param nome       O nome do serviço removido.
+     * @param inventario O {@link InventarioDeServicos} resultante da remoção.
+     * @throws IOException Se a anotação falhar. Uma falha na compactação é apenas registrada no log.
+     */
+    public synchronized void anotarRemocao(String nome, InventarioDeServicos inventario) throws IOException {
+        anotar(TIPO_REMOCAO, inventario.getVersao(), nome, null, inventario);
+    }
+
+    /**
+     * Grava o inventário em um novo snapshot, substituindo o anterior, e reinicia o diário.
+     *
+     * @param inventario O {@link InventarioDeServicos} atual.
+     * @throws IOException Se o snapshot não puder ser gravado.
+     */
+    public synchronized void compactar(InventarioDeServicos inventario) throws IOException {
+        verificarRecuperado();
+        long inicio = System.nanoTime();
+        Path snapshot = diretorio.resolve(ARQUIVO_DO_SNAPSHOT);
+        Path temporario = diretorio.resolve(ARQUIVO_DO_SNAPSHOT + ".tmp");
+        try (FileChannel saida = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            buffer.putInt(ASSINATURA_DO_SNAPSHOT).putLong(inventario.getVersao()).putInt(inventario.getQuantidade());
+            for (ServicoRegistrado servico : inventario.getServicos()) {
+                byte[] nome = servico.getNome().getBytes(StandardCharsets.UTF_8);
+                byte[] bytecode = servico.getConteudo().getBytes();
+                int tamanho = CABECALHO_DA_ANOTACAO + tamanhoDoCorpo(nome, bytecode);
+                if (buffer.remaining() < tamanho) {
+                    escrever(saida, buffer);
+                    if (buffer.capacity() < tamanho) {
+                        buffer = ByteBuffer.allocate(tamanho);
+                    }
+                }
+                escreverAnotacao(buffer, buffer.position(), TIPO_REGISTRO, servico.getVersao(), nome,
+                        servico.getConteudo().isBase64(), bytecode);
+                buffer.position(buffer.position() + tamanho);
+            }
+            escrever(saida, buffer);
+            saida.force(true);
+        }
+        Files.move(temporario, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // As anotações anteriores têm versões menores ou iguais à do snapshot e são ignoradas na recuperação
+        posicao = CABECALHO_DO_DIARIO;
+        regiao = null;
+        garantirEspaco(CABECALHO_DA_ANOTACAO);
+        alteracoesDesdeACompactacao = 0;
+        LogUtils.logInfo("Diário de serviços compactado em um snapshot com %d serviço(s) na versão %d em %d ms.",
+                inventario.getQuantidade(), inventario.getVersao(), (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * @return A quantidade de alterações anotadas no diário desde a última compactação.
+     */
+    public synchronized int getAlteracoesDesdeACompactacao() {
+        return alteracoesDesdeACompactacao;
+    }
+
+    /**
+     * Força as anotações ao disco e fecha o arquivo do diário.
+     *
+     * @throws IOException Se o arquivo não puder ser fechado.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (regiao != null) {
+            regiao.force();
+            regiao = null;
+        }
+        canal.close();
+    }
+
+    private void anotar(byte tipo, long versao, String nome, Bytecode bytecode, InventarioDeServicos inventario)
+            throws IOException {
+        verificarRecuperado();
+        byte[] bytesDoNome = nome.getBytes(StandardCharsets.UTF_8);
+        byte[] bytesDoBytecode = bytecode == null ? VAZIO : bytecode.getBytes();
+        int tamanho = CABECALHO_DA_ANOTACAO + tamanhoDoCorpo(bytesDoNome, bytesDoBytecode);
+
+        garantirEspaco(tamanho);
+        escreverAnotacao(regiao, (int) (posicao - inicioDaRegiao), tipo, versao, bytesDoNome,
+                bytecode != null && bytecode.isBase64(), bytesDoBytecode);
+        if (configuracao.isSincronizarACadaEscrita()) {
+            regiao.force();
+        }
+        posicao += tamanho;
+
+        alteracoesDesdeACompactacao++;
+        int limite = configuracao.getAlteracoesParaCompactacao();
+        if ((limite > 0 && alteracoesDesdeACompactacao >= limite)
+                || posicao >= configuracao.getTamanhoParaCompactacao()) {
+            // A anotação já foi escrita, de modo que uma falha na compactação não desfaz a alteração
+            try {
+                compactar(inventario);
+            } catch (IOException e) {
+                LogUtils.logError("Falha ao compactar o diário de serviços, repetida na próxima alteração: %s",
+                        e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Mapeia uma nova região do diário a partir da posição atual, caso a região atual não comporte a anotação.
+     */
+    private void garantirEspaco(int tamanho) throws IOException {
+        if (regiao != null && posicao + tamanho <= inicioDaRegiao + regiao.capacity()) {
+            return;
+        }
+        int tamanhoDaRegiao = Math.max(configuracao.getTamanhoDaRegiao(), tamanho);
+        if (posicao + tamanhoDaRegiao > Integer.MAX_VALUE) {
+            throw new IOException("Diário de serviços cheio: a anotação de " + tamanho + " bytes na posição "
+                    + posicao + " não poderia ser recuperada.");
+        }
+        regiao = canal.map(FileChannel.MapMode.READ_WRITE, posicao, tamanhoDaRegiao);
+        inicioDaRegiao = posicao;
+    }
+
+    /**
+     * Escreve a anotação a partir do índice informado. O tamanho é escrito por último, para que uma anotação
+     * interrompida não seja considerada completa.
+     */
+    private void escreverAnotacao(ByteBuffer destino, int indice, byte tipo, long versao, byte[] nome,
+                                  boolean base64, byte[] bytecode) {
+        int corpo = indice + CABECALHO_DA_ANOTACAO;
+        destino.put(corpo, tipo);
+        destino.putLong(corpo + 1, versao);
+        destino.putInt(corpo + 9, nome.length);
+        colocar(destino, corpo + 13, nome);
+        destino.put(corpo + 13 + nome.length, base64 ? (byte) 1 : (byte) 0);
+        destino.putInt(corpo + 14 + nome.length, bytecode.length);
+        colocar(destino, corpo + CORPO_MINIMO + nome.length, bytecode);
+
+        int tamanhoDoCorpo = tamanhoDoCorpo(nome, bytecode);
+        destino.putInt(indice + 4, calcularCrc(destino, corpo, tamanhoDoCorpo));
+        destino.putInt(indice, tamanhoDoCorpo);
+    }
+
+    /**
+     * Lê a anotação no índice informado.
+     *
+     * @return A {@link Anotacao}, ou {@code null} se a anotação estiver incompleta, vazia ou com o checksum
+     * inválido.
+     */
+    private Anotacao lerAnotacao(ByteBuffer origem, int indice) {
+        if (indice + CABECALHO_DA_ANOTACAO > origem.limit()) {
+            return null;
+        }
+        int tamanho = origem.getInt(indice);
+        int corpo = indice + CABECALHO_DA_ANOTACAO;
+        if (tamanho < CORPO_MINIMO || tamanho > origem.limit() - corpo
+                || calcularCrc(origem, corpo, tamanho) != origem.getInt(indice + 4)) {
+            return null;
+        }
+
+        byte tipo = origem.get(corpo);
+        int tamanhoDoNome = origem.getInt(corpo + 9);
+        if ((tipo != TIPO_REGISTRO && tipo != TIPO_REMOCAO) || tamanhoDoNome < 0
+                || tamanhoDoNome > tamanho - CORPO_MINIMO) {
+            return null;
+        }
+        int tamanhoDoBytecode = origem.getInt(corpo + 14 + tamanhoDoNome);
+        if (tamanhoDoBytecode != tamanho - CORPO_MINIMO - tamanhoDoNome) {
+            return null;
+        }
+        return new Anotacao(tipo, origem.getLong(corpo + 1),
+                new String(ler(origem, corpo + 13, tamanhoDoNome), StandardCharsets.UTF_8),
+                origem.get(corpo + 13 + tamanhoDoNome) == 1,
+                ler(origem, corpo + CORPO_MINIMO + tamanhoDoNome, tamanhoDoBytecode), corpo + tamanho);
+    }
+
+    /**
+     * Carrega os serviços do snapshot, se existir.
+     *
+     * @return A versão do snapshot, ou 0 se não houver snapshot.
+     */
+    private long lerSnapshot(Map<String, ServicoRegistrado> servicos, ArmazemDeBytecode armazem) throws IOException {
+        Path snapshot = diretorio.resolve(ARQUIVO_DO_SNAPSHOT);
+        if (!Files.exists(snapshot)) {
+            return 0;
+        }
+        try (FileChannel entrada = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            long tamanho = entrada.size();
+            if (tamanho < CABECALHO_DO_SNAPSHOT || tamanho > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot de serviços com tamanho inválido: " + tamanho + " bytes.");
+            }
+            MappedByteBuffer leitura = entrada.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+            if (leitura.getInt(0) != ASSINATURA_DO_SNAPSHOT) {
+                throw new IOException("O arquivo " + snapshot + " não é um snapshot de serviços.");
+            }
+            long versao = leitura.getLong(4);
+            int quantidade = leitura.getInt(12);
+
+            int atual = CABECALHO_DO_SNAPSHOT;
+            for (int i = 0; i < quantidade; i++) {
+                Anotacao anotacao = lerAnotacao(leitura, atual);
+                if (anotacao == null) {
+                    LogUtils.logError("Snapshot de serviços corrompido: %d de %d serviço(s) recuperado(s).", i,
+                            quantidade);
+                    break;
+                }
+                servicos.put(anotacao.nome, anotacao.criarServico(armazem));
+                atual = anotacao.fim;
+            }
+            return versao;
+        }
+    }
+
+    private void verificarRecuperado() {
+        if (!recuperado) {
+            throw new IllegalStateException("O diário de serviços deve ser recuperado antes das anotações.");
+        }
+    }
+
+    private int calcularCrc(ByteBuffer origem, int indice, int tamanho) {
+        ByteBuffer trecho = origem.duplicate();
+        trecho.limit(indice + tamanho).position(indice);
+        crc.reset();
+        crc.update(trecho);
+        return (int) crc.getValue();
+    }
+
+    private static int tamanhoDoCorpo(byte[] nome, byte[] bytecode) {
+        return CORPO_MINIMO + nome.length + bytecode.length;
+    }
+
+    private static void colocar(ByteBuffer destino, int indice, byte[] dados) {
+        ByteBuffer trecho = destino.duplicate();
+        trecho.position(indice);
+        trecho.put(dados);
+    }
+
+    private static byte[] ler(ByteBuffer origem, int indice, int tamanho) {
+        byte[] dados = new byte[tamanho];
+        ByteBuffer trecho = origem.duplicate();
+        trecho.position(indice);
+        trecho.get(dados);
+        return dados;
+    }
+
+    private static void escrever(FileChannel saida, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            saida.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Anotação lida do diário ou do snapshot, com a posição do seu fim.
+     */
+    private static final class Anotacao {
+        private final byte tipo;
+        private final long versao;
+        private final String nome;
+        private final boolean base64;
+        private final byte[] bytecode;
+        private final int fim;
+
+        private Anotacao(byte tipo, long versao, String nome, boolean base64, byte[] bytecode, int fim) {
+            this.tipo = tipo;
+            this.versao = versao;
+            this.nome = nome;
+            this.base64 = base64;
+            this.bytecode = bytecode;
+            this.fim = fim;
+        }
+
+        private ServicoRegistrado criarServico(ArmazemDeBytecode armazem) {
+            return new ServicoRegistrado(nome, armazem.armazenar(bytecode, base64), versao);
+        }
+    }
+}
@@ -2,64 +2,248 @@ package br.edu.unifei.barramento.gerenciamento;
 
 import br.edu.unifei.utils.LogUtils;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
  * Classe responsável por gerenciar o registro, remoção, busca e listagem de serviços.
- * Mantém um mapeamento de serviços onde cada serviço é armazenado com o seu nome e bytecode associado.
+ * Mantém um inventário de serviços onde cada serviço é armazenado com o seu nome, bytecode e versão associados. Os
+ * bytecodes são guardados decodificados e sem duplicatas, fora do heap, em um {@link ArmazemDeBytecode}.
+ *
+ * <p>
+ *     O inventário é um {@link InventarioDeServicos} imutável, substituído a cada alteração. As buscas e listagens,
+ *     executadas concorrentemente pelos workers de todos os protocolos, apenas leem o inventário atual, sem bloqueio,
+ *     e nunca aguardam os registros e remoções, que são serializados entre si. Cada alteração incrementa a versão do
+ *     inventário, e cada registro recebe a versão da alteração que o criou.
+ * </p>
+ *
+ * <p>
+ *     O inventário pertence à instância, de modo que cada {@link br.edu.unifei.barramento.Barramento} da JVM mantém os
+ *     seus próprios serviços.
+ * </p>
+ *
+ * <p>
+ *     Com um {@link DiarioDeServicos}, o inventário é recuperado do disco na construção e cada alteração é anotada no
+ *     diário, de modo que os serviços registrados sobrevivem ao reinício do barramento. A alteração só é publicada
+ *     no inventário depois de anotada; se a anotação falhar, o inventário não é alterado e a falha é propagada ao
+ *     chamador.
+ * </p>
  */
 public class GerenciadorDeServicos {
     /**
-     * Mapa que representa o inventário de serviços, responsável por armazenar os serviços registrados usando nome do
-     * serviço como chave e o seu bytecode como o valor.
+     * Inventário atual de serviços, responsável por armazenar os serviços registrados usando nome do serviço como
+     * chave.
      */
-    private static final Map<String, String> servicos = new HashMap<>();
+    private volatile InventarioDeServicos inventario;
 
     /**
-     * Registra um novo serviço no mapeamento de serviços. Sobrescreve o dado se o serviço já existir.
+     * Diário onde as alterações do inventário são persistidas, ou {@code null} se o inventário for mantido apenas em
+     * memória.
+     */
+    private final DiarioDeServicos diario;
+
+    /**
+     * Indica se o diário foi fechado por {@link #fechar()}, após o que as alterações são mantidas apenas em memória.
+     */
+    private boolean diarioFechado;
+
+    /**
+     * Armazém onde são guardados os bytecodes dos serviços do inventário.
+     */
+    private final ArmazemDeBytecode armazem;
+
+    /**
+     * Constrói um gerenciador com o inventário mantido apenas em memória.
+     */
+    public GerenciadorDeServicos() {
+        this.inventario = InventarioDeServicos.VAZIO;
+        this.diario = null;
+        this.armazem = new ArmazemDeBytecode();
+    }
+
+    /**
+     * Constrói um gerenciador com o inventário persistido no diário informado, recuperando os serviços já
+     * registrados.
+     *
+     * @param diario O {@link DiarioDeServicos} onde o inventário é persistido.
+     * @throws IOException Se o inventário não puder ser recuperado do diário.
+     */
+    public GerenciadorDeServicos(DiarioDeServicos diario) throws IOException {
+        this(new ArmazemDeBytecode(), diario);
+    }
+
+    /**
+     * Constrói um gerenciador com o armazém de bytecode informado e, opcionalmente, com o inventário persistido no
+     * diário informado.
+     *
+     * @param armazem O {@link ArmazemDeBytecode} onde os bytecodes são guardados, como um armazém com compressão.
+     * @param diario  O {@link DiarioDeServicos} onde o inventário é persistido, ou {@code null} para manter o
+     *                inventário apenas em memória.
+     * @throws IOException Se o inventário não puder ser recuperado do diário.
+     */
+    public GerenciadorDeServicos(ArmazemDeBytecode armazem, DiarioDeServicos diario) throws IOException {
+        this.armazem = armazem;
+        this.inventario = diario == null ? InventarioDeServicos.VAZIO : diario.recuperar(armazem);
+        this.diario = diario;
+    }
+
+    /**
+     * Registra um novo serviço no inventário de serviços. Sobrescreve o dado se o serviço já existir.
      *
      * @param servico  O nome do serviço a ser registrado.
      * @param bytecode O bytecode associado ao serviço.
+     * @return O {@link ServicoRegistrado}, com a nova versão do serviço.
+     * @throws UncheckedIOException Se o registro não puder ser anotado no diário. O inventário não é alterado.
      */
-    public void registrarServico(String servico, String bytecode) {
-        servicos.put(servico, bytecode);
-        LogUtils.logInfo("Serviço '%s' registrado", servico);
+    public ServicoRegistrado registrarServico(String servico, String bytecode) {
+        Bytecode conteudo = armazem.armazenar(bytecode);
+        ServicoRegistrado registro;
+        synchronized (this) {
+            registro = new ServicoRegistrado(servico, conteudo, inventario.getVersao() + 1);
+            ServicoRegistrado anterior = inventario.buscar(servico);
+            InventarioDeServicos novo = inventario.comServico(registro);
+            if (isPersistente()) {
+                try {
+                    diario.anotarRegistro(registro, novo);
+                } catch (IOException e) {
+                    armazem.liberar(conteudo);
+                    LogUtils.logError("Falha ao persistir o registro do serviço '%s': %s", servico, e.getMessage());
+                    throw new UncheckedIOException("Falha ao persistir o registro do serviço '" + servico + "'.", e);
+                }
+            }
+            inventario = novo;
+            if (anterior != null) {
+                armazem.liberar(anterior.getConteudo());
+            }
+        }
+        LogUtils.logInfo("Serviço '%s' registrado na versão %d.", servico, registro.getVersao());
+        return registro;
     }
 
     /**
-     * Remove o serviço do mapeamento de serviços.
+     * Remove o serviço do inventário de serviços.
      *
      * @param servico O nome do serviço a ser removido.
+     * @return {@code true} se o serviço estava registrado.
+     * @throws UncheckedIOException Se a remoção não puder ser anotada no diário. O inventário não é alterado.
      */
-    public void removerServico(String servico) {
-        servicos.remove(servico);
-        LogUtils.logInfo("Servico '%s' removido.", servico);
+    public boolean removerServico(String servico) {
+        synchronized (this) {
+            ServicoRegistrado anterior = inventario.buscar(servico);
+            if (anterior == null) {
+                return false;
+            }
+            InventarioDeServicos novo = inventario.semServico(servico);
+            if (isPersistente()) {
+                try {
+                    diario.anotarRemocao(servico, novo);
+                } catch (IOException e) {
+                    LogUtils.logError("Falha ao persistir a remoção do serviço '%s': %s", servico, e.getMessage());
+                    throw new UncheckedIOException("Falha ao persistir a remoção do serviço '" + servico + "'.", e);
+                }
+            }
+            inventario = novo;
+            armazem.liberar(anterior.getConteudo());
+        }
+        LogUtils.logInfo("Serviço '%s' removido.", servico);
+        return true;
     }
 
     /**
-     * Busca um serviço no mapeamento de serviços.
+     * Busca um serviço no inventário de serviços.
      *
      * @param servico O nome do serviço a ser buscado.
      * @return O bytecode do serviço se encontrado, ou {@code null} se o serviço não estiver registrado.
      */
     public String buscarServico(String servico) {
-        return servicos.get(servico);
+        ServicoRegistrado registro = inventario.buscar(servico);
+        return registro == null ? null : registro.getBytecode();
+    }
+
+    /**
+     * Busca o registro de um serviço no inventário de serviços.
+     *
+     * @param servico O nome do serviço a ser buscado.
+     * @return O {@link ServicoRegistrado}, com o bytecode e a versão, ou {@code null} se o serviço não estiver
+     * registrado.
+     */
+    public ServicoRegistrado buscarRegistro(String servico) {
+        return inventario.buscar(servico);
+    }
+
+    /**
+     * @return O {@link ArmazemDeBytecode} onde os bytecodes dos serviços são guardados.
+     */
+    public ArmazemDeBytecode getArmazem() {
+        return armazem;
+    }
+
+    /**
+     * @return O {@link InventarioDeServicos} atual, que não é afetado pelas alterações seguintes.
+     */
+    public InventarioDeServicos getInventario() {
+        return inventario;
+    }
+
+    /**
+     * @return A versão atual do inventário de serviços, incrementada a cada registro ou remoção.
+     */
+    public long getVersao() {
+        return inventario.getVersao();
     }
 
     /**
-     * Lista de todos os serviços registrados no mapeamento de serviços.
+     * Lista de todos os serviços registrados no inventário de serviços.
      *
      * @return Uma string contendo a lista dos nomes de todos os serviços disponíveis, ou uma mensagem indicando que não
      * há serviços registrados.
      */
     public String listarServicos() {
-        Set<String> servicosCadastrados = servicos.keySet();
+        Set<String> servicosCadastrados = inventario.getNomes();
         return servicosCadastrados.isEmpty() ? "Nenhum serviço disponível."
                 : "Serviços disponíveis: \n" + servicosCadastrados.stream()
                 .map(key -> "    - " + key)
                 .collect(Collectors.joining("\n"));
     }
+
+    /**
+     * Grava o inventário atual em um snapshot do diário, se houver e não estiver fechado, reiniciando o diário.
+     *
+     * @throws IOException Se o snapshot não puder ser gravado.
+     */
+    public synchronized void compactar() throws IOException {
+        if (isPersistente()) {
+            diario.compactar(inventario);
+        }
+    }
+
+    /**
+     * Fecha o diário do inventário, se houver. As alterações seguintes são mantidas apenas em memória.
+     */
+    public void fechar() {
+        if (diario == null) {
+            return;
+        }
+        synchronized (this) {
+            if (diarioFechado) {
+                return;
+            }
+            diarioFechado = true;
+            try {
+                diario.close();
+            } catch (IOException e) {
+                LogUtils.logError("Falha ao fechar o diário de serviços: %s", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} se as alterações são anotadas em um diário ainda aberto. Chamado com o monitor da
+     * instância.
+     */
+    private boolean isPersistente() {
+        return diario != null && !diarioFechado;
+    }
 }
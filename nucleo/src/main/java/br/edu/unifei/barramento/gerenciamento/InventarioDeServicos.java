@@ -0,0 +1,278 @@
+package br.edu.unifei.barramento.gerenciamento;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Estado imutável do inventário de serviços do {@link GerenciadorDeServicos} em uma versão. Cada alteração do
+ * inventário produz uma nova instância, de modo que uma instância obtida pode ser lida e percorrida livremente, sem
+ * sincronização, enquanto o inventário é alterado.
+ *
+ * <p>
+ *     Os serviços são mantidos em uma árvore AVL persistente, ordenada pelo nome. Uma alteração copia apenas os nós do
+ *     caminho até o serviço alterado e compartilha o restante da árvore com a instância anterior, de modo que cada
+ *     registro ou remoção custa O(log n), em vez de copiar todo o inventário.
+ * </p>
+ */
+public final class InventarioDeServicos {
+
+    /**
+     * Nó imutável da árvore de serviços.
+     */
+    private static final class No {
+        private final ServicoRegistrado servico;
+        private final No esquerda;
+        private final No direita;
+        private final int altura;
+
+        private No(ServicoRegistrado servico, No esquerda, No direita) {
+            this.servico = servico;
+            this.esquerda = esquerda;
+            this.direita = direita;
+            this.altura = Math.max(altura(esquerda), altura(direita)) + 1;
+        }
+
+        private String getNome() {
+            return servico.getNome();
+        }
+    }
+
+    /**
+     * Inventário sem serviços, na versão 0.
+     */
+    static final InventarioDeServicos VAZIO = new InventarioDeServicos(null, 0, 0);
+
+    private final No raiz;
+    private final int quantidade;
+    private final long versao;
+
+    private InventarioDeServicos(No raiz, int quantidade, long versao) {
+        this.raiz = raiz;
+        this.quantidade = quantidade;
+        this.versao = versao;
+    }
+
+    /**
+     * @param servicos Os serviços, indexados pelo nome.
+     * @param versao   A versão do inventário.
+     * @return Um inventário com os serviços informados, como os recuperados do {@link DiarioDeServicos}.
+     */
+    static InventarioDeServicos de(Map<String, ServicoRegistrado> servicos, long versao) {
+        List<ServicoRegistrado> ordenados = new ArrayList<>(new TreeMap<>(servicos).values());
+        return new InventarioDeServicos(construir(ordenados, 0, ordenados.size()), ordenados.size(), versao);
+    }
+
+    /**
+     * @param servico O serviço registrado.
+     * @return Um novo inventário, na versão seguinte, com o serviço adicionado ou substituído.
+     */
+    InventarioDeServicos comServico(ServicoRegistrado servico) {
+        boolean existente = buscar(servico.getNome()) != null;
+        return new InventarioDeServicos(inserir(raiz, servico), existente ? quantidade : quantidade + 1,
+                servico.getVersao());
+    }
+
+    /**
+     * @param nome O nome do serviço removido.
+     * @return Um novo inventário, na versão seguinte, sem o serviço.
+     */
+    InventarioDeServicos semServico(String nome) {
+        boolean existente = buscar(nome) != null;
+        return new InventarioDeServicos(existente ? remover(raiz, nome) : raiz,
+                existente ? quantidade - 1 : quantidade, versao + 1);
+    }
+
+    /**
+     * @param nome O nome do serviço.
+     * @return O {@link ServicoRegistrado}, ou {@code null} se o serviço não estiver no inventário.
+     */
+    public ServicoRegistrado buscar(String nome) {
+        if (nome == null) {
+            return null;
+        }
+        No atual = raiz;
+        while (atual != null) {
+            int comparacao = nome.compareTo(atual.getNome());
+            if (comparacao == 0) {
+                return atual.servico;
+            }
+            atual = comparacao < 0 ? atual.esquerda : atual.direita;
+        }
+        return null;
+    }
+
+    /**
+     * @return Os nomes dos serviços do inventário, em ordem alfabética.
+     */
+    public Set<String> getNomes() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return percorrer(ServicoRegistrado::getNome);
+            }
+
+            @Override
+            public boolean contains(Object nome) {
+                return nome instanceof String && buscar((String) nome) != null;
+            }
+
+            @Override
+            public int size() {
+                return quantidade;
+            }
+        };
+    }
+
+    /**
+     * @return Os serviços do inventário, em ordem alfabética dos nomes.
+     */
+    public Collection<ServicoRegistrado> getServicos() {
+        return new AbstractCollection<ServicoRegistrado>() {
+            @Override
+            public Iterator<ServicoRegistrado> iterator() {
+                return percorrer(Function.identity());
+            }
+
+            @Override
+            public int size() {
+                return quantidade;
+            }
+        };
+    }
+
+    /**
+     * @return A quantidade de serviços do inventário.
+     */
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    /**
+     * @return A versão do inventário, incrementada a cada alteração.
+     */
+    public long getVersao() {
+        return versao;
+    }
+
+    /**
+     * Percorre a árvore em ordem, sem recursão.
+     */
+    private <T> Iterator<T> percorrer(Function<ServicoRegistrado, T> extrator) {
+        return new Iterator<T>() {
+            private final Deque<No> pilha = new ArrayDeque<>();
+
+            {
+                empilharEsquerda(raiz);
+            }
+
+            private void empilharEsquerda(No no) {
+                for (No atual = no; atual != null; atual = atual.esquerda) {
+                    pilha.push(atual);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !pilha.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (pilha.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                No no = pilha.pop();
+                empilharEsquerda(no.direita);
+                return extrator.apply(no.servico);
+            }
+        };
+    }
+
+    /**
+     * Constrói uma árvore balanceada com os serviços já ordenados pelo nome, em O(n).
+     */
+    private static No construir(List<ServicoRegistrado> ordenados, int inicio, int fim) {
+        if (inicio >= fim) {
+            return null;
+        }
+        int meio = (inicio + fim) >>> 1;
+        return new No(ordenados.get(meio), construir(ordenados, inicio, meio), construir(ordenados, meio + 1, fim));
+    }
+
+    private static No inserir(No no, ServicoRegistrado servico) {
+        if (no == null) {
+            return new No(servico, null, null);
+        }
+        int comparacao = servico.getNome().compareTo(no.getNome());
+        if (comparacao == 0) {
+            return new No(servico, no.esquerda, no.direita);
+        }
+        return comparacao < 0
+                ? balancear(no.servico, inserir(no.esquerda, servico), no.direita)
+                : balancear(no.servico, no.esquerda, inserir(no.direita, servico));
+    }
+
+    private static No remover(No no, String nome) {
+        if (no == null) {
+            return null;
+        }
+        int comparacao = nome.compareTo(no.getNome());
+        if (comparacao < 0) {
+            return balancear(no.servico, remover(no.esquerda, nome), no.direita);
+        }
+        if (comparacao > 0) {
+            return balancear(no.servico, no.esquerda, remover(no.direita, nome));
+        }
+        if (no.esquerda == null) {
+            return no.direita;
+        }
+        if (no.direita == null) {
+            return no.esquerda;
+        }
+        No sucessor = no.direita;
+        while (sucessor.esquerda != null) {
+            sucessor = sucessor.esquerda;
+        }
+        return balancear(sucessor.servico, no.esquerda, remover(no.direita, sucessor.getNome()));
+    }
+
+    /**
+     * Cria o nó com os filhos informados, aplicando as rotações necessárias para manter a diferença de altura entre
+     * os filhos em no máximo 1.
+     */
+    private static No balancear(ServicoRegistrado servico, No esquerda, No direita) {
+        int diferenca = altura(esquerda) - altura(direita);
+        if (diferenca > 1) {
+            if (altura(esquerda.esquerda) < altura(esquerda.direita)) {
+                No pivo = esquerda.direita;
+                return new No(pivo.servico, new No(esquerda.servico, esquerda.esquerda, pivo.esquerda),
+                        new No(servico, pivo.direita, direita));
+            }
+            return new No(esquerda.servico, esquerda.esquerda, new No(servico, esquerda.direita, direita));
+        }
+        if (diferenca < -1) {
+            if (altura(direita.direita) < altura(direita.esquerda)) {
+                No pivo = direita.esquerda;
+                return new No(pivo.servico, new No(servico, esquerda, pivo.esquerda),
+                        new No(direita.servico, pivo.direita, direita.direita));
+            }
+            return new No(direita.servico, new No(servico, esquerda, direita.esquerda), direita.direita);
+        }
+        return new No(servico, esquerda, direita);
+    }
+
+    private static int altura(No no) {
+        return no == null ? 0 : no.altura;
+    }
+}
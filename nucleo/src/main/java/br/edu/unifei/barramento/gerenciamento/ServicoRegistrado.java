@@ -0,0 +1,57 @@
+package br.edu.unifei.barramento.gerenciamento;
+
+/**
+ * Registro imutável de um serviço no inventário do {@link GerenciadorDeServicos}: o nome, o {@link Bytecode} guardado
+ * no {@link ArmazemDeBytecode} e a versão do registro.
+ *
+ * <p>
+ *     A versão de um serviço é a versão do inventário na alteração que o registrou. Assim, cada novo registro de um
+ *     mesmo serviço recebe uma versão maior que a anterior, mesmo que o serviço tenha sido removido entre os
+ *     registros.
+ * </p>
+ */
+public final class ServicoRegistrado {
+
+    private final String nome;
+    private final Bytecode bytecode;
+    private final long versao;
+
+    ServicoRegistrado(String nome, Bytecode bytecode, long versao) {
+        this.nome = nome;
+        this.bytecode = bytecode;
+        this.versao = versao;
+    }
+
+    /**
+     * @return O nome do serviço.
+     */
+    public String getNome() {
+        return nome;
+    }
+
+    /**
+     * @return O bytecode do serviço no texto em que foi registrado, codificado novamente em Base64 a cada chamada.
+     */
+    public String getBytecode() {
+        return bytecode.paraTexto();
+    }
+
+    /**
+     * @return O {@link Bytecode} do serviço, compartilhado com os serviços de mesmo conteúdo.
+     */
+    public Bytecode getConteudo() {
+        return bytecode;
+    }
+
+    /**
+     * @return A versão do registro do serviço.
+     */
+    public long getVersao() {
+        return versao;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (versão %d)", nome, versao);
+    }
+}
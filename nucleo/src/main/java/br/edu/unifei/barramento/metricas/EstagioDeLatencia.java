@@ -0,0 +1,27 @@
+package br.edu.unifei.barramento.metricas;
+
+/**
+ * Estágios do caminho de uma mensagem no barramento cujas latências são registradas nas {@link MetricasDeLatencia}.
+ */
+public enum EstagioDeLatencia {
+
+    /**
+     * Leitura do cabeçalho da mensagem recebida pelo protocolo.
+     */
+    RECEPCAO,
+
+    /**
+     * Tempo entre a entrada da mensagem na fila de recepção e o início do seu processamento.
+     */
+    ESPERA_NA_FILA,
+
+    /**
+     * Execução do comando associado à ação da mensagem.
+     */
+    EXECUCAO,
+
+    /**
+     * Envio da mensagem pelo protocolo de destino.
+     */
+    ENVIO
+}
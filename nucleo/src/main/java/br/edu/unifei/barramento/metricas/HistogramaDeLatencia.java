@@ -0,0 +1,152 @@
+package br.edu.unifei.barramento.metricas;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latências em nanossegundos com faixas logarítmicas de largura fixa relativa, no estilo do
+ * HdrHistogram. Valores até {@code 63} ns ocupam uma faixa cada; acima disso, cada potência de dois é dividida em
+ * {@value #SUBFAIXAS} faixas, o que limita o erro relativo dos percentis a cerca de 3%.
+ *
+ * <p>
+ *     O registro é seguro para várias threads, não aloca memória e custa poucas operações atômicas, sem bloqueios. As
+ *     leituras não bloqueiam os registros e podem refletir registros concorrentes apenas parcialmente.
+ * </p>
+ */
+public class HistogramaDeLatencia {
+
+    /**
+     * Quantidade de faixas por potência de dois.
+     */
+    static final int SUBFAIXAS = 32;
+
+    private static final int BITS_DAS_SUBFAIXAS = 5;
+    private static final int QUANTIDADE_DE_FAIXAS = (64 - BITS_DAS_SUBFAIXAS) * SUBFAIXAS;
+
+    private final AtomicLongArray contagens = new AtomicLongArray(QUANTIDADE_DE_FAIXAS);
+    private final LongAdder contagem = new LongAdder();
+    private final LongAdder soma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /**
+     * Registra uma latência. Valores negativos são registrados como zero.
+     *
+     * @param nanos A latência em nanossegundos.
+     */
+    public void registrar(long nanos) {
+        long valor = Math.max(0, nanos);
+        contagens.incrementAndGet(indice(valor));
+        contagem.increment();
+        soma.add(valor);
+
+        long atual = maximo.get();
+        while (valor > atual && !maximo.compareAndSet(atual, valor)) {
+            atual = maximo.get();
+        }
+    }
+
+    /**
+     * @return A quantidade de latências registradas.
+     */
+    public long getContagem() {
+        return contagem.sum();
+    }
+
+    /**
+     * @return A maior latência registrada, em nanossegundos.
+     */
+    public long getMaximo() {
+        return maximo.get();
+    }
+
+    /**
+     * @return A latência média, em nanossegundos, ou {@code 0} se nenhuma latência foi registrada.
+     */
+    public double getMedia() {
+        long total = contagem.sum();
+        return total == 0 ? 0 : (double) soma.sum() / total;
+    }
+
+    /**
+     * Obtém o percentil informado das latências registradas.
+     *
+     * @param percentil O percentil desejado, entre {@code 0} e {@code 100} (Ex.: {@code 99.9}).
+     * @return O limite superior da faixa que contém o percentil, em nanossegundos, limitado à maior latência
+     * registrada, ou {@code 0} se nenhuma latência foi registrada.
+     */
+    public long getPercentil(double percentil) {
+        long[] copia = new long[QUANTIDADE_DE_FAIXAS];
+        long total = 0;
+        for (int i = 0; i < copia.length; i++) {
+            copia[i] = contagens.get(i);
+            total += copia[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long posicao = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentil)) / 100 * total));
+        long acumulado = 0;
+        for (int i = 0; i < copia.length; i++) {
+            acumulado += copia[i];
+            if (acumulado >= posicao) {
+                return Math.min(limiteSuperior(i), getMaximo());
+            }
+        }
+        return getMaximo();
+    }
+
+    /**
+     * @return A mediana das latências, em nanossegundos.
+     */
+    public long getP50() {
+        return getPercentil(50);
+    }
+
+    /**
+     * @return O percentil 99 das latências, em nanossegundos.
+     */
+    public long getP99() {
+        return getPercentil(99);
+    }
+
+    /**
+     * @return O percentil 99,9 das latências, em nanossegundos.
+     */
+    public long getP999() {
+        return getPercentil(99.9);
+    }
+
+    /**
+     * Calcula a faixa de um valor. Valores menores que {@code 2 * SUBFAIXAS} ocupam a faixa de mesmo número; os
+     * demais são agrupados pelos {@link #BITS_DAS_SUBFAIXAS} bits mais significativos.
+     */
+    static int indice(long valor) {
+        if (valor < 2 * SUBFAIXAS) {
+            return (int) valor;
+        }
+        int deslocamento = 63 - Long.numberOfLeadingZeros(valor) - BITS_DAS_SUBFAIXAS;
+        return deslocamento * SUBFAIXAS + (int) (valor >>> deslocamento);
+    }
+
+    /**
+     * @return O maior valor contido na faixa informada.
+     */
+    static long limiteSuperior(int indice) {
+        if (indice < 2 * SUBFAIXAS) {
+            return indice;
+        }
+        int deslocamento = indice / SUBFAIXAS - 1;
+        long mantissa = indice % SUBFAIXAS + SUBFAIXAS;
+        long limite = ((mantissa + 1) << deslocamento) - 1;
+        return limite < 0 ? Long.MAX_VALUE : limite;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d, media=%.1fus, p50=%.1fus, p99=%.1fus, p999=%.1fus, max=%.1fus",
+                getContagem(), getMedia() / 1000, getP50() / 1000.0, getP99() / 1000.0, getP999() / 1000.0,
+                getMaximo() / 1000.0);
+    }
+}
@@ -0,0 +1,129 @@
+package br.edu.unifei.barramento.metricas;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Métricas de latência do barramento, medidas com {@link System#nanoTime()} e mantidas em memória. Cada
+ * {@link EstagioDeLatencia} possui um {@link HistogramaDeLatencia} por protocolo e por ação, criado no primeiro
+ * registro da combinação.
+ *
+ * <p>
+ *     Como a ação vem da mensagem recebida, o número de ações distintas por estágio e protocolo é limitado a
+ *     {@link #LIMITE_DE_ACOES}. Depois do limite, as ações ainda não vistas são agrupadas no histograma
+ *     {@link #OUTRAS_ACOES}, evitando que mensagens com ações arbitrárias criem histogramas sem limite.
+ * </p>
+ *
+ * <p>
+ *     Nos estágios de recepção, espera na fila e execução o protocolo é o de recepção da mensagem; no envio, é o
+ *     protocolo pelo qual a mensagem foi enviada. Quando várias mensagens são executadas ou enviadas em lote, cada
+ *     uma registra a duração média do lote.
+ * </p>
+ */
+public class MetricasDeLatencia {
+
+    /**
+     * Chave usada para as mensagens sem ação.
+     */
+    public static final String SEM_ACAO = "-";
+
+    /**
+     * Chave usada para as ações registradas depois de atingido o {@link #LIMITE_DE_ACOES}.
+     */
+    public static final String OUTRAS_ACOES = "outras";
+
+    /**
+     * Quantidade máxima de ações distintas com histograma próprio, por estágio e protocolo.
+     */
+    public static final int LIMITE_DE_ACOES = 64;
+
+    private final Map<EstagioDeLatencia, ConcurrentHashMap<String, ConcurrentHashMap<String, HistogramaDeLatencia>>>
+            histogramas = new EnumMap<>(EstagioDeLatencia.class);
+
+    /**
+     * Construtor que inicializa as métricas sem nenhum registro.
+     */
+    public MetricasDeLatencia() {
+        for (EstagioDeLatencia estagio : EstagioDeLatencia.values()) {
+            histogramas.put(estagio, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Registra a latência de um estágio.
+     *
+     * @param estagio   O {@link EstagioDeLatencia} medido.
+     * @param protocolo O nome do protocolo associado à mensagem.
+     * @param acao      A ação da mensagem, ou {@code null} se a mensagem não possuir ação.
+     * @param nanos     A latência em nanossegundos.
+     */
+    public void registrar(EstagioDeLatencia estagio, String protocolo, String acao, long nanos) {
+        obterHistograma(estagio, protocolo, acao).registrar(nanos);
+    }
+
+    /**
+     * Obtém o histograma de um estágio, protocolo e ação.
+     *
+     * @param estagio   O {@link EstagioDeLatencia} desejado.
+     * @param protocolo O nome do protocolo.
+     * @param acao      A ação, {@link #OUTRAS_ACOES} para as ações agrupadas, ou {@code null} para as mensagens sem
+     *                  ação.
+     * @return O {@link HistogramaDeLatencia} correspondente, ou {@code null} se nenhuma latência foi registrada para a
+     * combinação.
+     */
+    public HistogramaDeLatencia getHistograma(EstagioDeLatencia estagio, String protocolo, String acao) {
+        Map<String, HistogramaDeLatencia> porAcao = histogramas.get(estagio).get(protocolo);
+        return porAcao == null ? null : porAcao.get(acao == null ? SEM_ACAO : acao);
+    }
+
+    /**
+     * @return Um resumo de todos os histogramas, com uma linha por estágio, protocolo e ação, ordenado pelo estágio.
+     */
+    public List<String> getResumo() {
+        List<String> linhas = new ArrayList<>();
+        for (Map.Entry<EstagioDeLatencia, ConcurrentHashMap<String, ConcurrentHashMap<String, HistogramaDeLatencia>>>
+                estagio : histogramas.entrySet()) {
+            List<String> linhasDoEstagio = new ArrayList<>();
+            for (Map.Entry<String, ConcurrentHashMap<String, HistogramaDeLatencia>> protocolo
+                    : estagio.getValue().entrySet()) {
+                for (Map.Entry<String, HistogramaDeLatencia> acao : protocolo.getValue().entrySet()) {
+                    linhasDoEstagio.add(String.format("%s %s %s: %s", estagio.getKey(), protocolo.getKey(),
+                            acao.getKey(), acao.getValue()));
+                }
+            }
+            Collections.sort(linhasDoEstagio);
+            linhas.addAll(linhasDoEstagio);
+        }
+        return linhas;
+    }
+
+    private HistogramaDeLatencia obterHistograma(EstagioDeLatencia estagio, String protocolo, String acao) {
+        String chave = acao == null ? SEM_ACAO : acao;
+        ConcurrentHashMap<String, ConcurrentHashMap<String, HistogramaDeLatencia>> porProtocolo =
+                histogramas.get(estagio);
+
+        // A consulta sem computeIfAbsent evita o bloqueio do mapa no caminho comum, em que o histograma já existe
+        ConcurrentHashMap<String, HistogramaDeLatencia> porAcao = porProtocolo.get(protocolo);
+        if (porAcao == null) {
+            porAcao = porProtocolo.computeIfAbsent(protocolo, p -> new ConcurrentHashMap<>());
+        }
+        HistogramaDeLatencia histograma = porAcao.get(chave);
+        if (histograma == null) {
+            // O limite é verificado sem bloqueio, então pode ser excedido por poucas ações em registros concorrentes
+            if (porAcao.size() >= LIMITE_DE_ACOES) {
+                chave = OUTRAS_ACOES;
+            }
+            histograma = porAcao.computeIfAbsent(chave, a -> new HistogramaDeLatencia());
+        }
+        return histograma;
+    }
+
+    @Override
+    public String toString() {
+        return String.join(System.lineSeparator(), getResumo());
+    }
+}
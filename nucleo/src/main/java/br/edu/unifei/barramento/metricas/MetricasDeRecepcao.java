@@ -0,0 +1,120 @@
+package br.edu.unifei.barramento.metricas;
+
+/**
+ * Métricas do estágio de recepção de um protocolo: quantos lotes foram transferidos para a fila de processamento, o
+ * tamanho desses lotes, quantas mensagens a fila de processamento recusou e quanto tempo o worker passou ocioso
+ * (aguardando mensagens) e ocupado (transferindo-as).
+ *
+ * <p>
+ *     Os valores são atualizados apenas pela thread do {@link br.edu.unifei.barramento.workers.WorkerDeRecepcao} e
+ *     podem ser lidos por qualquer thread, por isso os campos são voláteis mas não atômicos.
+ * </p>
+ */
+public class MetricasDeRecepcao {
+
+    private volatile long lotes;
+    private volatile long mensagens;
+    private volatile long mensagensRejeitadas;
+    private volatile long maiorLote;
+    private volatile long ultimoLote;
+    private volatile long tempoOciosoNanos;
+    private volatile long tempoOcupadoNanos;
+
+    /**
+     * Registra um lote transferido para a fila de processamento. Deve ser chamado apenas pela thread do worker.
+     *
+     * @param tamanho            Quantidade de mensagens do lote.
+     * @param tempoOciosoNanos   Tempo, em nanossegundos, que o worker aguardou antes de receber o lote.
+     * @param tempoOcupadoNanos  Tempo, em nanossegundos, gasto para transferir o lote.
+     */
+    public void registrarLote(int tamanho, long tempoOciosoNanos, long tempoOcupadoNanos) {
+        this.lotes++;
+        this.mensagens += tamanho;
+        this.ultimoLote = tamanho;
+        if (tamanho > this.maiorLote) {
+            this.maiorLote = tamanho;
+        }
+        this.tempoOciosoNanos += tempoOciosoNanos;
+        this.tempoOcupadoNanos += tempoOcupadoNanos;
+    }
+
+    /**
+     * Registra uma mensagem recusada pela fila de processamento. Deve ser chamado apenas pela thread do worker.
+     */
+    public void registrarRejeicao() {
+        this.mensagensRejeitadas++;
+    }
+
+    /**
+     * @return O número de lotes transferidos.
+     */
+    public long getLotes() {
+        return lotes;
+    }
+
+    /**
+     * @return O número de mensagens transferidas.
+     */
+    public long getMensagens() {
+        return mensagens;
+    }
+
+    /**
+     * @return O número de mensagens recusadas pela fila de processamento.
+     */
+    public long getMensagensRejeitadas() {
+        return mensagensRejeitadas;
+    }
+
+    /**
+     * @return O tamanho do maior lote transferido.
+     */
+    public long getMaiorLote() {
+        return maiorLote;
+    }
+
+    /**
+     * @return O tamanho do último lote transferido.
+     */
+    public long getUltimoLote() {
+        return ultimoLote;
+    }
+
+    /**
+     * @return O tamanho médio dos lotes transferidos, ou {@code 0} se nenhum lote foi registrado.
+     */
+    public double getTamanhoMedioDoLote() {
+        long totalDeLotes = lotes;
+        return totalDeLotes == 0 ? 0 : (double) mensagens / totalDeLotes;
+    }
+
+    /**
+     * @return O tempo total, em nanossegundos, que o worker passou aguardando mensagens.
+     */
+    public long getTempoOciosoNanos() {
+        return tempoOciosoNanos;
+    }
+
+    /**
+     * @return O tempo total, em nanossegundos, que o worker passou transferindo mensagens.
+     */
+    public long getTempoOcupadoNanos() {
+        return tempoOcupadoNanos;
+    }
+
+    /**
+     * @return A fração do tempo em que o worker esteve ocioso, entre {@code 0} e {@code 1}.
+     */
+    public double getRazaoDeOciosidade() {
+        long ocioso = tempoOciosoNanos;
+        long total = ocioso + tempoOcupadoNanos;
+        return total == 0 ? 1 : (double) ocioso / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("lotes=%d, mensagens=%d, rejeitadas=%d, tamanhoMedioDoLote=%.2f, maiorLote=%d, " +
+                        "ociosidade=%.2f%%", getLotes(), getMensagens(), getMensagensRejeitadas(),
+                getTamanhoMedioDoLote(), getMaiorLote(), getRazaoDeOciosidade() * 100);
+    }
+}
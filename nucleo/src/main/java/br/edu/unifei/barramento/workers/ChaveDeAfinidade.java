@@ -0,0 +1,31 @@
+package br.edu.unifei.barramento.workers;
+
+import br.edu.unifei.modelos.mensagem.Mensagem;
+
+/**
+ * Define qual campo da {@link Mensagem} é usado pelo {@link PoolDeProcessamento} para escolher o worker responsável
+ * por ela. Mensagens com a mesma chave são sempre processadas pelo mesmo worker, na ordem em que foram recebidas.
+ */
+public enum ChaveDeAfinidade {
+
+    /**
+     * Distribui pelo destino da mensagem, preservando a ordem das mensagens entregues a cada endpoint. As mensagens
+     * de comando, endereçadas ao próprio barramento, são distribuídas pela origem.
+     */
+    DESTINO,
+
+    /**
+     * Distribui pela origem da mensagem, preservando a ordem das mensagens enviadas por cada endpoint.
+     */
+    ORIGEM;
+
+    /**
+     * Extrai a chave de afinidade da mensagem.
+     *
+     * @param mensagem A {@link Mensagem} a ser distribuída.
+     * @return O valor do campo correspondente, que pode ser {@code null}.
+     */
+    public String extrair(Mensagem mensagem) {
+        return this == ORIGEM ? mensagem.getOrigem() : mensagem.getDestino();
+    }
+}
@@ -0,0 +1,64 @@
+package br.edu.unifei.barramento.workers;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Classe utilitária para criar as threads dos workers de acordo com o {@link ModoDeExecucao}.
+ *
+ * <p>
+ *     As threads virtuais são obtidas por reflexão ({@code Thread.ofVirtual()}), pois o projeto é compilado para
+ *     versões do Java que ainda não possuem essa API. Quando a JVM não oferece suporte, a
+ *     {@link br.edu.unifei.barramento.ConfiguracaoDoControlador} utiliza o {@link ModoDeExecucao#PLATAFORMA}.
+ * </p>
+ */
+public class FabricaDeThreads {
+
+    /**
+     * Cria uma {@link ThreadFactory} que nomeia as threads com o prefixo informado seguido de um contador.
+     *
+     * @param prefixo O prefixo do nome das threads.
+     * @param modo    O {@link ModoDeExecucao} que define se as threads serão virtuais ou de plataforma.
+     * @return A {@link ThreadFactory} criada.
+     * @throws IllegalStateException Se o modo for {@link ModoDeExecucao#VIRTUAL} e a JVM atual não suportar threads
+     *                               virtuais.
+     */
+    public static ThreadFactory criar(String prefixo, ModoDeExecucao modo) {
+        if (modo == ModoDeExecucao.VIRTUAL) {
+            ThreadFactory fabricaVirtual = criarFabricaVirtual(prefixo);
+            if (fabricaVirtual != null) {
+                return fabricaVirtual;
+            }
+            throw new IllegalStateException(
+                    String.format("Threads virtuais não suportadas pela JVM atual para '%s'.", prefixo));
+        }
+
+        AtomicInteger contador = new AtomicInteger();
+        return runnable -> new Thread(runnable, prefixo + "-" + contador.getAndIncrement());
+    }
+
+    /**
+     * @return {@code true} se a JVM atual permite criar threads virtuais.
+     */
+    public static boolean suportaThreadsVirtuais() {
+        return criarFabricaVirtual("verificacao") != null;
+    }
+
+    /**
+     * Obtém, por reflexão, a fábrica de threads virtuais equivalente a
+     * {@code Thread.ofVirtual().name(prefixo + "-", 0).factory()}.
+     *
+     * @param prefixo O prefixo do nome das threads.
+     * @return A {@link ThreadFactory} de threads virtuais, ou {@code null} se a JVM não oferecer suporte.
+     */
+    private static ThreadFactory criarFabricaVirtual(String prefixo) {
+        try {
+            Class<?> tipoDoBuilder = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = tipoDoBuilder.getMethod("name", String.class, long.class).invoke(builder, prefixo + "-", 0L);
+            return (ThreadFactory) tipoDoBuilder.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
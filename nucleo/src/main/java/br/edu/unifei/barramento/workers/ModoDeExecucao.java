@@ -0,0 +1,23 @@
+package br.edu.unifei.barramento.workers;
+
+/**
+ * Define como as mensagens retiradas das filas são executadas pelos workers de processamento.
+ */
+public enum ModoDeExecucao {
+
+    /**
+     * Cada worker é uma thread de plataforma que processa as suas mensagens uma a uma. Mantém a ordem das mensagens de
+     * mesma {@link ChaveDeAfinidade}, mas um envio bloqueante impede o worker de avançar na fila.
+     */
+    PLATAFORMA,
+
+    /**
+     * Cada grupo de mensagens consecutivas com a mesma ação é processado na sua própria thread virtual, limitadas a um
+     * número máximo de grupos em processamento simultâneo por protocolo, definido em
+     * {@link br.edu.unifei.barramento.ConfiguracaoDoControlador#limiteDeConcorrencia(int)}. Envios bloqueantes não
+     * impedem o avanço da fila, mas a ordem entre mensagens de mesma chave deixa de ser garantida. Requer Java 21 ou
+     * superior; em versões anteriores, a {@link br.edu.unifei.barramento.ConfiguracaoDoControlador} utiliza o
+     * {@link #PLATAFORMA}.
+     */
+    VIRTUAL
+}
@@ -0,0 +1,152 @@
+package br.edu.unifei.barramento.workers;
+
+import br.edu.unifei.barramento.Barramento;
+import br.edu.unifei.barramento.ConfiguracaoDoControlador;
+import br.edu.unifei.barramento.FilaDeMensagens;
+import br.edu.unifei.barramento.comandos.RegistroDeComandos;
+import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.modelos.protocolo.Protocolo;
+import br.edu.unifei.utils.LogUtils;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Conjunto de {@link WorkerDeProcessamento} de um protocolo. Cada worker possui a sua própria
+ * {@link FilaDeMensagens} e as mensagens são distribuídas entre eles pelo hash da {@link ChaveDeAfinidade}
+ * configurada. Assim, mensagens com a mesma chave (por exemplo, o mesmo destino) são processadas sempre pelo mesmo
+ * worker e na ordem de chegada, enquanto mensagens de endpoints diferentes são processadas em paralelo.
+ *
+ * <p>
+ *     No {@link ModoDeExecucao#VIRTUAL}, os workers apenas retiram as mensagens das filas e cada grupo de mensagens
+ *     com a mesma ação é processado na sua própria thread virtual. Um {@link Semaphore} compartilhado pelos workers
+ *     limita quantos grupos do protocolo podem estar em processamento ao mesmo tempo; ao atingir o limite, os workers
+ *     param de retirar mensagens e as filas passam a aplicar a sua
+ *     {@link br.edu.unifei.barramento.fila.PoliticaDeFilaCheia}.
+ * </p>
+ */
+public class PoolDeProcessamento {
+
+    private final Protocolo protocolo;
+    private final FilaDeMensagens[] filas;
+    private final WorkerDeProcessamento[] workers;
+    private final ChaveDeAfinidade chaveDeAfinidade;
+    private final RegistroDeComandos registroDeComandos;
+    private final ModoDeExecucao modoDeExecucao;
+
+    /**
+     * Construtor que cria as filas e os workers do pool de acordo com a configuração informada.
+     *
+     * @param protocolo     O {@link Protocolo} de comunicação vinculado aos workers.
+     * @param barramento    O {@link Barramento} responsável por gerenciar as mensagens e serviços.
+     * @param configuracao  A {@link ConfiguracaoDoControlador} com o número de workers, a chave de afinidade, o
+     *                      tamanho dos lotes e as configurações das filas.
+     */
+    public PoolDeProcessamento(Protocolo protocolo, Barramento barramento, ConfiguracaoDoControlador configuracao) {
+        int numeroDeWorkers = configuracao.getNumeroDeWorkers();
+        if (numeroDeWorkers <= 0) {
+            throw new IllegalArgumentException("Número de workers inválido: " + numeroDeWorkers);
+        }
+
+        this.protocolo = protocolo;
+        this.chaveDeAfinidade = configuracao.getChaveDeAfinidade();
+        this.registroDeComandos = barramento.getRegistroDeComandos();
+        this.modoDeExecucao = configuracao.getModoDeExecucao();
+
+        ThreadFactory fabricaPorGrupo = null;
+        Semaphore limiteDeConcorrencia = null;
+        if (modoDeExecucao == ModoDeExecucao.VIRTUAL) {
+            if (configuracao.getLimiteDeConcorrencia() <= 0) {
+                throw new IllegalArgumentException(
+                        "Limite de concorrência inválido: " + configuracao.getLimiteDeConcorrencia());
+            }
+            fabricaPorGrupo = FabricaDeThreads.criar(
+                    String.format("grupo-%s", protocolo.getNomeProtocolo()), modoDeExecucao);
+            limiteDeConcorrencia = new Semaphore(configuracao.getLimiteDeConcorrencia());
+        }
+
+        this.filas = new FilaDeMensagens[numeroDeWorkers];
+        this.workers = new WorkerDeProcessamento[numeroDeWorkers];
+        for (int i = 0; i < numeroDeWorkers; i++) {
+            filas[i] = configuracao.criarFila();
+            workers[i] = new WorkerDeProcessamento(
+                    protocolo, barramento, filas[i], configuracao.getTamanhoMaximoDoLoteDeProcessamento(),
+                    fabricaPorGrupo, limiteDeConcorrencia);
+        }
+    }
+
+    /**
+     * Adiciona a mensagem à fila do worker responsável pela sua chave de afinidade.
+     *
+     * @param mensagem A {@link Mensagem} a ser processada.
+     * @return {@code true} se a mensagem foi aceita pela fila do worker.
+     */
+    public boolean adicionar(Mensagem mensagem) {
+        return filas[indiceDoWorker(mensagem)].adicionar(mensagem);
+    }
+
+    /**
+     * Calcula o índice do worker responsável pela mensagem. Chaves nulas são direcionadas ao primeiro worker.
+     * Com a {@link ChaveDeAfinidade#DESTINO}, as mensagens de comando, cujo destino é o próprio barramento, são
+     * distribuídas pela origem, para que os comandos de endpoints diferentes não se concentrem em um único worker.
+     *
+     * @param mensagem A {@link Mensagem} a ser distribuída.
+     * @return O índice do worker, entre {@code 0} e o número de workers menos um.
+     */
+    int indiceDoWorker(Mensagem mensagem) {
+        if (filas.length == 1) {
+            return 0;
+        }
+        String chave = chaveDeAfinidade == ChaveDeAfinidade.DESTINO
+                && registroDeComandos.buscar(mensagem.getAcao()) != null
+                ? mensagem.getOrigem()
+                : chaveDeAfinidade.extrair(mensagem);
+        if (chave == null) {
+            return 0;
+        }
+        int hash = chave.hashCode();
+        hash ^= hash >>> 16;
+        return Math.floorMod(hash, filas.length);
+    }
+
+    /**
+     * Inicia cada worker do pool em uma thread separada, virtual ou de plataforma conforme o
+     * {@link ModoDeExecucao}.
+     */
+    public void iniciar() {
+        ThreadFactory fabrica = FabricaDeThreads.criar(
+                String.format("processamento-%s", protocolo.getNomeProtocolo()), modoDeExecucao);
+        for (WorkerDeProcessamento worker : workers) {
+            fabrica.newThread(worker).start();
+        }
+        LogUtils.logInfo("Pool de processamento do protocolo '%s' iniciado com %d worker(s) no modo %s.",
+                protocolo.getNomeProtocolo(), workers.length, modoDeExecucao);
+    }
+
+    /**
+     * Sinaliza a todos os workers do pool que devem ser encerrados.
+     */
+    public void parar() {
+        for (WorkerDeProcessamento worker : workers) {
+            worker.parar();
+        }
+    }
+
+    /**
+     * @return A quantidade de workers do pool.
+     */
+    public int getNumeroDeWorkers() {
+        return workers.length;
+    }
+
+    /**
+     * @return A quantidade aproximada de mensagens aguardando processamento em todas as filas do pool.
+     */
+    public int getMensagensPendentes() {
+        int total = 0;
+        for (FilaDeMensagens fila : filas) {
+            total += fila.tamanho();
+        }
+        return total;
+    }
+}
@@ -2,11 +2,19 @@ package br.edu.unifei.barramento.workers;
 
 import br.edu.unifei.barramento.Barramento;
 import br.edu.unifei.barramento.FilaDeMensagens;
-import br.edu.unifei.barramento.comandos.*;
+import br.edu.unifei.barramento.comandos.Comando;
+import br.edu.unifei.barramento.metricas.EstagioDeLatencia;
+import br.edu.unifei.barramento.metricas.MetricasDeLatencia;
 import br.edu.unifei.modelos.mensagem.Mensagem;
 import br.edu.unifei.modelos.protocolo.Protocolo;
 import br.edu.unifei.utils.LogUtils;
-import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Worker responsável por processar as mensagens recebidas, executando os comandos apropriados. Cada implementação de
@@ -16,9 +24,21 @@ import com.google.gson.JsonObject;
  *     Este worker funciona de forma independente da recepção de mensagens, permitindo que o processamento ocorra
  *     em paralelo.
  * </p>
+ *
+ * <p>
+ *     A cada vez que é acordado, o worker retira da fila todas as mensagens disponíveis, até o tamanho máximo do lote.
+ *     Mensagens consecutivas com a mesma ação são entregues juntas a {@link Comando#executarLote} e as respostas são
+ *     enviadas em conjunto por {@link Barramento#enviarMensagens}. Como apenas mensagens consecutivas são agrupadas,
+ *     a ordem de chegada é preservada.
+ * </p>
  */
 public class WorkerDeProcessamento implements Runnable {
 
+    /**
+     * Quantidade máxima de mensagens retiradas da fila a cada vez que o worker é acordado.
+     */
+    public static final int TAMANHO_MAXIMO_DO_LOTE_PADRAO = 32;
+
     /**
      * O {@link Protocolo} associado ao processamento das mensagens.
      */
@@ -34,10 +54,32 @@ public class WorkerDeProcessamento implements Runnable {
      */
     private final FilaDeMensagens fila;
 
+    /**
+     * Lote reutilizado a cada rodada para armazenar as mensagens retiradas da fila.
+     */
+    private final Mensagem[] lote;
+
     /**
      * Indica se o worker está ativo. Responsável por manter o loop de execução do worker.
      */
-    private boolean ativo;
+    private volatile boolean ativo;
+
+    /**
+     * Thread que executa o worker, usada para acordá-lo ao ser interrompido.
+     */
+    private volatile Thread thread;
+
+    /**
+     * Fábrica das threads onde cada grupo de mensagens é processado no {@link ModoDeExecucao#VIRTUAL}, ou
+     * {@code null} quando as mensagens são processadas na própria thread do worker.
+     */
+    private final ThreadFactory fabricaPorGrupo;
+
+    /**
+     * Limita o número de grupos de mensagens em processamento simultâneo no {@link ModoDeExecucao#VIRTUAL}. É
+     * compartilhado entre todos os workers do mesmo protocolo.
+     */
+    private final Semaphore limiteDeConcorrencia;
 
     /**
      * Construtor do WorkerDeProcessamento.
@@ -47,81 +89,189 @@ public class WorkerDeProcessamento implements Runnable {
      * @param fila       A {@link FilaDeMensagens} a ser processada.
      */
     public WorkerDeProcessamento(Protocolo protocolo, Barramento barramento, FilaDeMensagens fila) {
-        this.protocolo = protocolo;
-        this.barramento = barramento;
-        this.fila = fila;
-        this.ativo = true;
+        this(protocolo, barramento, fila, TAMANHO_MAXIMO_DO_LOTE_PADRAO, null, null);
     }
 
     /**
-     * Instancia um {@link Comando} com base na mensagem recebida e o protocolo atual.
-     * @param mensagem       A {@link Mensagem} recebida.
-     * @param protocoloAtual O {@link Protocolo} vinculado ao worker.
-     * @return O {@link Comando} correspondente à ação da mensagem.
-     */
-    private Comando criarComando(Mensagem mensagem, Protocolo protocoloAtual) {
-        String acao = mensagem.getAcao();
-        JsonObject conteudo = mensagem.getConteudo();
-        switch (acao) {
-            case "CADASTRAR_ENDPOINT":
-                return new ComandoCadastrarEnpoint(mensagem.getOrigem(), protocoloAtual);
-            case "REGISTRAR_SERVICO":
-                return new ComandoRegistrarServico(
-                        conteudo.get("servico").getAsString(),
-                        conteudo.get("bytecode").getAsString()
-                );
-            case "REMOVER_SERVICO":
-                return new ComandoRemoverServico(
-                        conteudo.get("servico").getAsString()
-                );
-            case "BUSCAR_SERVICO":
-                return new ComandoBuscarServico(
-                        conteudo.get("servico").getAsString()
-                );
-            case "LISTAR_SERVICOS":
-                return new ComandoListarServicos();
-            case "ENVIAR_ARQUIVOS_BASE":
-                return new ComandoEnviarArquivosBase();
-            default:
-                return null;
+     * Construtor do WorkerDeProcessamento que processa cada grupo de mensagens em uma thread própria, criada pela
+     * fábrica informada, respeitando o limite de concorrência.
+     *
+     * @param protocolo            O {@link Protocolo} de comunicação vinculado ao worker.
+     * @param barramento           O {@link Barramento} responsável por gerenciar as mensagens serviços.
+     * @param fila                 A {@link FilaDeMensagens} a ser processada.
+     * @param tamanhoMaximoDoLote  Quantidade máxima de mensagens retiradas da fila a cada vez que o worker é acordado.
+     * @param fabricaPorGrupo      A {@link ThreadFactory} das threads de processamento de cada grupo de mensagens,
+     *                             ou {@code null} para processar na thread do worker.
+     * @param limiteDeConcorrencia O {@link Semaphore} que limita os grupos de mensagens em processamento simultâneo.
+     *                             Obrigatório quando a fábrica é informada.
+     */
+    public WorkerDeProcessamento(Protocolo protocolo, Barramento barramento, FilaDeMensagens fila,
+                                 int tamanhoMaximoDoLote, ThreadFactory fabricaPorGrupo,
+                                 Semaphore limiteDeConcorrencia) {
+        if (tamanhoMaximoDoLote <= 0) {
+            throw new IllegalArgumentException("Tamanho de lote inválido: " + tamanhoMaximoDoLote);
         }
+        this.lote = new Mensagem[tamanhoMaximoDoLote];
+        this.protocolo = protocolo;
+        this.barramento = barramento;
+        this.fila = fila;
+        this.fabricaPorGrupo = fabricaPorGrupo;
+        this.limiteDeConcorrencia = limiteDeConcorrencia;
+        this.ativo = true;
     }
 
     /**
-     * Método de execução do worker. Enquanto estiver ativo, ele processará as mensagens da fila.
+     * Método de execução do worker. Enquanto estiver ativo, ele retira as mensagens da fila em lotes e processa cada
+     * grupo de mensagens consecutivas com a mesma ação.
      */
     @Override
     public void run() {
+        this.thread = Thread.currentThread();
         while (ativo) {
             Mensagem mensagem = fila.remover();
-            if (mensagem != null) {
-                Comando comando = criarComando(mensagem, this.protocolo);
+            if (mensagem == null) {
+                // Interrompido enquanto aguardava; o loop verifica se o worker deve ser encerrado
+                Thread.interrupted();
+                continue;
+            }
 
-                if (comando != null) {
-                    mensagem.adicionarTimestampAoMetadata("timestamp_bus_processamento_inicio");
-                    Mensagem resposta = comando.executar(mensagem, barramento);
-                    if (resposta != null) {
-                        resposta.adicionarTimestampAoMetadata("timestamp_bus_processamento_fim");
-                        barramento.enviarMensagem(resposta, this.protocolo);
-                        LogUtils.logInfo("Mensagem processada e enviada.");
-                    } else {
-                        LogUtils.logError("Falha ao gerar mensagem de resposta.");
-                        throw new IllegalArgumentException();
-                    }
+            int tamanhoDoLote = 0;
+            do {
+                lote[tamanhoDoLote++] = mensagem;
+            } while (tamanhoDoLote < lote.length && (mensagem = fila.tentarRemover()) != null);
+
+            int inicio = 0;
+            while (inicio < tamanhoDoLote) {
+                String acao = lote[inicio].getAcao();
+                int fim = inicio + 1;
+                while (fim < tamanhoDoLote && Objects.equals(acao, lote[fim].getAcao())) {
+                    fim++;
+                }
+
+                List<Mensagem> grupo = new ArrayList<>(Arrays.asList(lote).subList(inicio, fim));
+                if (fabricaPorGrupo == null) {
+                    processarComTratamento(grupo);
                 } else {
-                    LogUtils.logInfo("Iniciando tentativa de envio da mensagem de %s para %s.",
-                            mensagem.getOrigem(), mensagem.getDestino());
-                    barramento.enviarMensagem(mensagem, this.protocolo);
+                    despachar(grupo);
                 }
+                inicio = fim;
             }
+            Arrays.fill(lote, 0, tamanhoDoLote, null);
         }
         LogUtils.logInfo("Worker de Processamento encerrado.");
     }
 
     /**
-     * Sinaliza que o loop de execução do worker deve ser interrompido.
+     * Processa o grupo de mensagens em uma nova thread, aguardando uma vaga no limite de concorrência do protocolo.
+     *
+     * @param grupo As {@link Mensagem}s consecutivas com a mesma ação a serem processadas.
+     */
+    private void despachar(List<Mensagem> grupo) {
+        try {
+            limiteDeConcorrencia.acquire();
+        } catch (InterruptedException e) {
+            LogUtils.logWarn("Worker interrompido antes de processar %d mensagem(ns) com a ação %s.",
+                    grupo.size(), grupo.get(0).getAcao());
+            return;
+        }
+
+        try {
+            fabricaPorGrupo.newThread(() -> {
+                try {
+                    processarComTratamento(grupo);
+                } finally {
+                    limiteDeConcorrencia.release();
+                }
+            }).start();
+        } catch (RuntimeException | Error e) {
+            limiteDeConcorrencia.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Processa o grupo de mensagens registrando no log os erros do processamento, para que uma falha em um comando
+     * não encerre a thread do worker e deixe de atender as demais mensagens da fila.
+     *
+     * @param grupo As {@link Mensagem}s consecutivas com a mesma ação a serem processadas.
+     */
+    private void processarComTratamento(List<Mensagem> grupo) {
+        try {
+            processar(grupo);
+        } catch (Exception e) {
+            LogUtils.logError("Erro ao processar %d mensagem(ns) com a ação %s: %s",
+                    grupo.size(), grupo.get(0).getAcao(), e.getMessage());
+        }
+    }
+
+    /**
+     * Executa o comando registrado para a ação do grupo e envia as respostas em conjunto, ou encaminha as mensagens
+     * aos seus destinos quando a ação não corresponde a um comando do barramento. Registra a espera de cada mensagem
+     * na fila e a duração da execução do comando nas {@link MetricasDeLatencia} do barramento.
+     *
+     * @param grupo As {@link Mensagem}s consecutivas com a mesma ação a serem processadas.
+     */
+    private void processar(List<Mensagem> grupo) {
+        String acao = grupo.get(0).getAcao();
+        String nomeProtocolo = this.protocolo.getNomeProtocolo();
+        MetricasDeLatencia metricas = barramento.getMetricasDeLatencia();
+        boolean timestampsNaMensagem = barramento.isTimestampsNaMensagem();
+
+        long inicio = System.nanoTime();
+        for (Mensagem mensagem : grupo) {
+            if (mensagem.getInstanteDeEnfileiramentoNanos() != 0) {
+                metricas.registrar(EstagioDeLatencia.ESPERA_NA_FILA, nomeProtocolo, acao,
+                        inicio - mensagem.getInstanteDeEnfileiramentoNanos());
+            }
+        }
+
+        Comando comando = barramento.getRegistroDeComandos().buscar(acao);
+
+        if (comando != null) {
+            if (timestampsNaMensagem) {
+                for (Mensagem mensagem : grupo) {
+                    mensagem.adicionarTimestampAoMetadata("timestamp_bus_processamento_inicio");
+                }
+            }
+            inicio = System.nanoTime();
+            List<Mensagem> respostas = comando.executarLote(grupo, barramento, this.protocolo);
+            long duracaoPorMensagem = (System.nanoTime() - inicio) / grupo.size();
+            for (int i = 0; i < grupo.size(); i++) {
+                metricas.registrar(EstagioDeLatencia.EXECUCAO, nomeProtocolo, acao, duracaoPorMensagem);
+            }
+
+            List<Mensagem> respostasValidas = new ArrayList<>(respostas.size());
+            for (Mensagem resposta : respostas) {
+                if (resposta == null) {
+                    LogUtils.logError("Falha ao gerar mensagem de resposta para a ação %s.", acao);
+                    continue;
+                }
+                if (timestampsNaMensagem) {
+                    resposta.adicionarTimestampAoMetadata("timestamp_bus_processamento_fim");
+                }
+                respostasValidas.add(resposta);
+            }
+            if (!respostasValidas.isEmpty()) {
+                barramento.enviarMensagens(respostasValidas, this.protocolo);
+                LogUtils.logInfo("%d mensagem(ns) processada(s) e enviada(s).", respostasValidas.size());
+            }
+        } else {
+            for (Mensagem mensagem : grupo) {
+                LogUtils.logInfo("Iniciando tentativa de envio da mensagem de %s para %s.",
+                        mensagem.getOrigem(), mensagem.getDestino());
+            }
+            barramento.enviarMensagens(grupo, this.protocolo);
+        }
+    }
+
+    /**
+     * Sinaliza que o loop de execução do worker deve ser interrompido e acorda o worker caso esteja aguardando.
      */
     public void parar() {
         this.ativo = false;
+        Thread atual = this.thread;
+        if (atual != null) {
+            atual.interrupt();
+        }
     }
 }
@@ -1,29 +1,62 @@
 package br.edu.unifei.barramento.workers;
 
 import br.edu.unifei.barramento.FilaDeMensagens;
+import br.edu.unifei.barramento.fila.EstrategiaDeEspera;
+import br.edu.unifei.barramento.fila.PoliticaDeFilaCheia;
+import br.edu.unifei.barramento.metricas.MetricasDeRecepcao;
 import br.edu.unifei.modelos.mensagem.Mensagem;
 import br.edu.unifei.utils.LogUtils;
 
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
 /**
  * Worker responsável por receber mensagens e adicioná-las à fila para processamento posterior. Cada implementação
  * de {@link br.edu.unifei.modelos.protocolo.Protocolo} pode ter uma variação específica desse worker.
  *
  * <p>
- *     Este worker funciona de forma independente, permitindo que a recepção de mensagens ocorra paralelamente ao
- *     processamento, sem interferência entre as operações.
+ *     Os callbacks dos protocolos apenas depositam as mensagens em uma fila de entrada. O worker permanece estacionado,
+ *     sem consumir CPU, enquanto não houver mensagens e, ao ser acordado, transfere em lote tudo o que estiver
+ *     disponível para a {@link FilaDeMensagens} ou o {@link PoolDeProcessamento} de processamento, registrando o
+ *     tamanho dos lotes e o tempo ocioso e ocupado em {@link MetricasDeRecepcao}.
+ * </p>
+ *
+ * <p>
+ *     As mensagens recusadas pelo destino, seja pela sua {@link PoliticaDeFilaCheia} ou por uma falha, são registradas
+ *     no log e contadas nas métricas. Ao ser parado, o worker transfere ao destino as mensagens que ainda estavam na
+ *     fila de entrada antes de encerrar.
  * </p>
  */
 public class WorkerDeRecepcao implements Runnable {
 
     /**
-     * A {@link FilaDeMensagens} que armazena as mensagens recebidas para serem processadas.
+     * Quantidade máxima de mensagens transferidas a cada vez que o worker é acordado.
+     */
+    public static final int TAMANHO_MAXIMO_DO_LOTE_PADRAO = 64;
+
+    /**
+     * Destino das mensagens recebidas: a {@link FilaDeMensagens} ou o {@link PoolDeProcessamento} onde serão
+     * processadas. Retorna {@code false} se a mensagem for recusada.
      */
-    private final FilaDeMensagens fila;
+    private final Predicate<Mensagem> destino;
+
+    /**
+     * Fila de entrada onde os callbacks dos protocolos depositam as mensagens recebidas.
+     */
+    private final FilaDeMensagens entrada;
+
+    private final int tamanhoMaximoDoLote;
+    private final MetricasDeRecepcao metricas = new MetricasDeRecepcao();
 
     /**
      * Indica se o worker está ativo. Responsável por manter o loop de execução do worker.
      */
-    private boolean ativo;
+    private volatile boolean ativo;
+
+    /**
+     * Thread que executa o worker, usada para acordá-lo ao ser interrompido.
+     */
+    private volatile Thread thread;
 
     /**
      * Construtor do WorkerDeRecepcao.
@@ -31,35 +64,159 @@ public class WorkerDeRecepcao implements Runnable {
      * @param fila A {@link FilaDeMensagens} onde as mensagens recebidas serão armazenadas.
      */
     public WorkerDeRecepcao(FilaDeMensagens fila) {
-        this.fila = fila;
+        this(fila, TAMANHO_MAXIMO_DO_LOTE_PADRAO);
+    }
+
+    /**
+     * Construtor do WorkerDeRecepcao com o tamanho máximo do lote informado.
+     *
+     * @param fila                A {@link FilaDeMensagens} onde as mensagens recebidas serão armazenadas.
+     * @param tamanhoMaximoDoLote Quantidade máxima de mensagens transferidas a cada vez que o worker é acordado.
+     */
+    public WorkerDeRecepcao(FilaDeMensagens fila, int tamanhoMaximoDoLote) {
+        this(fila::adicionar, tamanhoMaximoDoLote);
+    }
+
+    /**
+     * Construtor do WorkerDeRecepcao que distribui as mensagens recebidas entre os workers de um pool.
+     *
+     * @param pool                O {@link PoolDeProcessamento} onde as mensagens recebidas serão processadas.
+     * @param tamanhoMaximoDoLote Quantidade máxima de mensagens transferidas a cada vez que o worker é acordado.
+     */
+    public WorkerDeRecepcao(PoolDeProcessamento pool, int tamanhoMaximoDoLote) {
+        this(pool::adicionar, tamanhoMaximoDoLote);
+    }
+
+    private WorkerDeRecepcao(Predicate<Mensagem> destino, int tamanhoMaximoDoLote) {
+        if (tamanhoMaximoDoLote <= 0) {
+            throw new IllegalArgumentException("Tamanho de lote inválido: " + tamanhoMaximoDoLote);
+        }
+        this.destino = destino;
+        this.entrada = new FilaDeMensagens(
+                FilaDeMensagens.CAPACIDADE_PADRAO, EstrategiaDeEspera.PARK, PoliticaDeFilaCheia.BLOQUEAR);
+        this.tamanhoMaximoDoLote = tamanhoMaximoDoLote;
         this.ativo = true;
     }
 
     /**
-     * Adiciona a mensagem recebida à fila de mensagens para processamento.
+     * Adiciona a mensagem recebida à fila de entrada do worker, que a transferirá para a fila de processamento.
      *
      * @param mensagem A mensagem recebida a ser adicionada à {@link FilaDeMensagens}.
      */
     public void adicionarMensagemAFila(Mensagem mensagem) {
-        fila.adicionar(mensagem);
-        LogUtils.logInfo("Mensagem recebida e adicionada à fila.");
+        if (entrada.adicionar(mensagem)) {
+            LogUtils.logInfo("Mensagem recebida e adicionada à fila.");
+        } else {
+            LogUtils.logWarn("Mensagem de '%s' com a ação %s descartada: interrompido ao aguardar a fila de entrada.",
+                    mensagem.getOrigem(), mensagem.getAcao());
+        }
     }
 
     /**
-     * Método de execução do worker. Enquanto estiver ativo, o worker ficará em estado de espera.
+     * Adiciona a mensagem recebida à fila de entrada do worker, aguardando no máximo o tempo informado por espaço
+     * livre.
+     *
+     * @param mensagem            A mensagem recebida a ser adicionada à {@link FilaDeMensagens}.
+     * @param tempoMaximoEmMillis O tempo máximo de espera por espaço livre na fila de entrada.
+     * @return {@code true} se a mensagem foi adicionada, ou {@code false} se a fila de entrada continuou cheia.
+     */
+    public boolean adicionarMensagemAFila(Mensagem mensagem, long tempoMaximoEmMillis) {
+        return entrada.adicionar(mensagem, tempoMaximoEmMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return As {@link MetricasDeRecepcao} deste worker.
+     */
+    public MetricasDeRecepcao getMetricas() {
+        return metricas;
+    }
+
+    /**
+     * Método de execução do worker. Enquanto estiver ativo, aguarda mensagens na fila de entrada sem consumir CPU e
+     * as transfere em lotes para a fila de processamento. Ao ser parado, transfere as mensagens restantes da fila de
+     * entrada antes de encerrar.
      */
     @Override
     public void run() {
+        this.thread = Thread.currentThread();
         while (ativo) {
-            // Aguarda interrupção do worker
+            long inicioOcioso = System.nanoTime();
+            Mensagem mensagem = entrada.remover();
+            if (mensagem == null) {
+                // Interrompido enquanto aguardava; o loop verifica se o worker deve ser encerrado
+                Thread.interrupted();
+                continue;
+            }
+
+            long inicioOcupado = System.nanoTime();
+            int tamanhoDoLote = 0;
+            do {
+                transferir(mensagem);
+                tamanhoDoLote++;
+            } while (tamanhoDoLote < tamanhoMaximoDoLote && (mensagem = entrada.tentarRemover()) != null);
+
+            metricas.registrarLote(tamanhoDoLote, inicioOcupado - inicioOcioso, System.nanoTime() - inicioOcupado);
+        }
+
+        // Descarta a interrupção do parar(); uma nova interrupção faz o destino cheio recusar as mensagens restantes
+        Thread.interrupted();
+        int restantes = 0;
+        for (Mensagem mensagem; (mensagem = entrada.tentarRemover()) != null; restantes++) {
+            transferir(mensagem);
+        }
+        if (restantes > 0) {
+            LogUtils.logInfo("%d mensagem(ns) restante(s) da fila de entrada transferida(s) no encerramento.",
+                    restantes);
         }
-        LogUtils.logInfo("Worker de Recepção interrompido.");
+        LogUtils.logInfo("Worker de Recepção interrompido. Métricas: %s", metricas);
     }
 
     /**
-     * Sinaliza que o loop de execução do worker deve ser interrompido.
+     * Transfere a mensagem ao destino, registrando no log e nas métricas se ela for recusada.
+     */
+    private void transferir(Mensagem mensagem) {
+        boolean aceita;
+        try {
+            aceita = destino.test(mensagem);
+        } catch (RuntimeException e) {
+            LogUtils.logError("Erro ao transferir a mensagem de '%s' com a ação %s para o processamento: %s",
+                    mensagem.getOrigem(), mensagem.getAcao(), e.getMessage());
+            aceita = false;
+        }
+        if (!aceita) {
+            metricas.registrarRejeicao();
+            LogUtils.logWarn("Mensagem de '%s' com a ação %s recusada pela fila de processamento.",
+                    mensagem.getOrigem(), mensagem.getAcao());
+        }
+    }
+
+    /**
+     * Sinaliza que o loop de execução do worker deve ser interrompido e acorda o worker caso esteja aguardando.
      */
     public void parar() {
         this.ativo = false;
+        Thread atual = this.thread;
+        if (atual != null) {
+            atual.interrupt();
+        }
+    }
+
+    /**
+     * Aguarda o encerramento do worker, incluindo a transferência das mensagens restantes da fila de entrada.
+     *
+     * @param tempoMaximoEmMillis O tempo máximo de espera.
+     * @return {@code true} se o worker encerrou ou ainda não foi iniciado, ou {@code false} se continuou em execução.
+     */
+    public boolean aguardarEncerramento(long tempoMaximoEmMillis) {
+        Thread atual = this.thread;
+        if (atual == null || atual == Thread.currentThread()) {
+            return true;
+        }
+        try {
+            atual.join(tempoMaximoEmMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !atual.isAlive();
     }
 }
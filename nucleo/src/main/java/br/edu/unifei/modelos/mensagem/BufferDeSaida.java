@@ -0,0 +1,91 @@
+package br.edu.unifei.modelos.mensagem;
+
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Buffer de bytes reutilizável onde as mensagens são codificadas. Diferente do
+ * {@link java.io.ByteArrayOutputStream}, não é sincronizado e expõe o array interno, permitindo que o conteúdo seja
+ * copiado uma única vez para o array entregue ao transporte.
+ */
+final class BufferDeSaida extends OutputStream {
+
+    private byte[] dados;
+    private int tamanho;
+
+    /**
+     * @param capacidadeInicial A capacidade inicial do buffer, em bytes.
+     */
+    BufferDeSaida(int capacidadeInicial) {
+        this.dados = new byte[capacidadeInicial];
+    }
+
+    @Override
+    public void write(int b) {
+        garantirCapacidade(1);
+        dados[tamanho++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] origem, int inicio, int quantidade) {
+        garantirCapacidade(quantidade);
+        System.arraycopy(origem, inicio, dados, tamanho, quantidade);
+        tamanho += quantidade;
+    }
+
+    /**
+     * Garante espaço para mais {@code quantidade} bytes, dobrando a capacidade quando necessário.
+     *
+     * @param quantidade A quantidade de bytes que será escrita.
+     */
+    void garantirCapacidade(int quantidade) {
+        int necessario = tamanho + quantidade;
+        if (necessario > dados.length) {
+            dados = Arrays.copyOf(dados, Math.max(necessario, dados.length << 1));
+        }
+    }
+
+    /**
+     * Descarta o conteúdo do buffer, mantendo o array alocado para a próxima codificação.
+     */
+    void reiniciar() {
+        tamanho = 0;
+    }
+
+    /**
+     * @return O array interno do buffer. Apenas os primeiros {@link #getTamanho()} bytes são válidos.
+     */
+    byte[] getDados() {
+        return dados;
+    }
+
+    /**
+     * @return A quantidade de bytes escritos no buffer.
+     */
+    int getTamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Define a quantidade de bytes válidos após uma escrita direta no array retornado por {@link #getDados()}.
+     *
+     * @param tamanho A nova quantidade de bytes válidos, que não deve exceder a capacidade.
+     */
+    void definirTamanho(int tamanho) {
+        this.tamanho = tamanho;
+    }
+
+    /**
+     * @return A capacidade atual do buffer, em bytes.
+     */
+    int getCapacidade() {
+        return dados.length;
+    }
+
+    /**
+     * @return Uma cópia dos bytes escritos, com o tamanho exato.
+     */
+    byte[] toByteArray() {
+        return Arrays.copyOf(dados, tamanho);
+    }
+}
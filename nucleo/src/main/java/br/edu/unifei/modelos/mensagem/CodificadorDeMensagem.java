@@ -0,0 +1,331 @@
+package br.edu.unifei.modelos.mensagem;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonObject;
+import com.google.gson.Strictness;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Codificador compartilhado das {@link Mensagem}s. Usa um único {@link TypeAdapter} criado na inicialização da classe,
+ * sem a configuração por reflexão que o {@link Gson} realizava a cada chamada, e escreve o JSON diretamente em bytes
+ * UTF-8 sobre buffers reutilizáveis, sem montar uma {@link String} intermediária.
+ *
+ * <p>
+ *     Os buffers são mantidos em um pool limitado e compartilhado entre as threads. Como as bibliotecas de transporte
+ *     recebem o payload como um array de tamanho exato, {@link #codificar(Mensagem)} entrega uma única cópia dos bytes
+ *     codificados e devolve o buffer ao pool imediatamente; {@link #codificar(Mensagem, OutputStream)} escreve sem
+ *     nenhuma cópia adicional.
+ * </p>
+ *
+ * <p>
+ *     O formato gerado é o mesmo do {@link Gson} padrão: campos nulos são omitidos e os caracteres especiais de HTML
+ *     são escapados.
+ * </p>
+ *
+ * <p>
+ *     As mensagens também podem ser codificadas no {@link FormatoDeMensagem#BINARIO}, um mapa CBOR com os mesmos
+ *     campos. O conteúdo não decodificado de uma mensagem só é convertido quando o formato de envio é diferente do
+ *     formato em que a mensagem foi recebida.
+ * </p>
+ */
+public final class CodificadorDeMensagem {
+
+    /**
+     * Quantidade máxima de buffers mantidos no pool.
+     */
+    static final int TAMANHO_DO_POOL = 64;
+
+    /**
+     * Capacidade inicial de cada buffer, suficiente para a maioria das mensagens sem bytecode.
+     */
+    static final int CAPACIDADE_INICIAL_DO_BUFFER = 8 * 1024;
+
+    /**
+     * Buffers que cresceram além deste limite são descartados em vez de retornarem ao pool, evitando manter memória
+     * ocupada por mensagens excepcionalmente grandes.
+     */
+    static final int CAPACIDADE_MAXIMA_NO_POOL = 1024 * 1024;
+
+    private static final byte[] CAMPO_CONTEUDO = "\"conteudo\":".getBytes(StandardCharsets.US_ASCII);
+    private static final String CONTEUDO = "conteudo";
+
+    private static final TypeAdapter<JsonElement> ADAPTADOR_DE_ELEMENTO = new Gson().getAdapter(JsonElement.class);
+    private static final AdaptadorDeMensagem ADAPTADOR = new AdaptadorDeMensagem();
+    private static final BlockingQueue<BufferDeSaida> BUFFERS = new ArrayBlockingQueue<>(TAMANHO_DO_POOL);
+
+    private CodificadorDeMensagem() {
+    }
+
+    /**
+     * @return O {@link TypeAdapter} de {@link Mensagem}, que pode ser registrado em outras instâncias do
+     * {@link Gson}.
+     */
+    public static TypeAdapter<Mensagem> getAdaptador() {
+        return ADAPTADOR;
+    }
+
+    /**
+     * Codifica a mensagem em JSON.
+     *
+     * @param mensagem A {@link Mensagem} a ser codificada.
+     * @return Os bytes UTF-8 da representação JSON da mensagem, em um array de tamanho exato.
+     */
+    public static byte[] codificar(Mensagem mensagem) {
+        BufferDeSaida buffer = obterBuffer();
+        try {
+            escrever(mensagem, buffer);
+            return buffer.toByteArray();
+        } finally {
+            devolverBuffer(buffer);
+        }
+    }
+
+    /**
+     * Codifica a mensagem no formato informado.
+     *
+     * @param mensagem A {@link Mensagem} a ser codificada.
+     * @param formato  O {@link FormatoDeMensagem} de envio.
+     * @return Os bytes da representação da mensagem no formato informado, em um array de tamanho exato.
+     */
+    public static byte[] codificar(Mensagem mensagem, FormatoDeMensagem formato) {
+        if (formato != FormatoDeMensagem.BINARIO) {
+            return codificar(mensagem);
+        }
+        BufferDeSaida buffer = obterBuffer();
+        try {
+            escreverBinario(mensagem, buffer);
+            return buffer.toByteArray();
+        } finally {
+            devolverBuffer(buffer);
+        }
+    }
+
+    /**
+     * Codifica a mensagem em JSON e a retorna como texto.
+     *
+     * @param mensagem A {@link Mensagem} a ser codificada.
+     * @return A representação JSON da mensagem.
+     */
+    public static String codificarComoTexto(Mensagem mensagem) {
+        BufferDeSaida buffer = obterBuffer();
+        try {
+            escrever(mensagem, buffer);
+            return new String(buffer.getDados(), 0, buffer.getTamanho(), StandardCharsets.UTF_8);
+        } finally {
+            devolverBuffer(buffer);
+        }
+    }
+
+    /**
+     * Codifica a mensagem em JSON diretamente no fluxo informado.
+     *
+     * @param mensagem A {@link Mensagem} a ser codificada.
+     * @param saida    O {@link OutputStream} onde os bytes UTF-8 serão escritos.
+     * @throws IOException Se ocorrer um erro de escrita no fluxo.
+     */
+    public static void codificar(Mensagem mensagem, OutputStream saida) throws IOException {
+        BufferDeSaida buffer = obterBuffer();
+        try {
+            escrever(mensagem, buffer);
+            saida.write(buffer.getDados(), 0, buffer.getTamanho());
+        } finally {
+            devolverBuffer(buffer);
+        }
+    }
+
+    /**
+     * Decodifica uma mensagem JSON, lendo apenas o cabeçalho. Equivalente a {@link Mensagem#fromJson(byte[])}.
+     *
+     * @param json Os bytes UTF-8 do JSON da mensagem.
+     * @return A {@link Mensagem} decodificada.
+     */
+    public static Mensagem decodificar(byte[] json) {
+        return Mensagem.fromJson(json);
+    }
+
+    /**
+     * Decodifica uma mensagem no formato informado, lendo apenas o cabeçalho. Equivalente a
+     * {@link Mensagem#fromBytes(byte[], FormatoDeMensagem)}.
+     *
+     * @param dados   Os bytes da mensagem.
+     * @param formato O {@link FormatoDeMensagem} em que os bytes estão codificados.
+     * @return A {@link Mensagem} decodificada.
+     */
+    public static Mensagem decodificar(byte[] dados, FormatoDeMensagem formato) {
+        return Mensagem.fromBytes(dados, formato);
+    }
+
+    /**
+     * Escreve a mensagem no buffer em JSON. Conteúdos recebidos em JSON e ainda não decodificados são copiados
+     * diretamente dos bytes recebidos; os recebidos em outro formato são decodificados e convertidos.
+     */
+    private static void escrever(Mensagem mensagem, BufferDeSaida buffer) {
+        // O estado preguiçoso do conteúdo não pode mudar entre a verificação e a escrita
+        synchronized (mensagem) {
+            try {
+                JsonWriter escritor = criarEscritor(buffer);
+                if (!mensagem.isConteudoBrutoNoFormato(FormatoDeMensagem.JSON)) {
+                    ADAPTADOR.write(escritor, mensagem);
+                    escritor.flush();
+                    return;
+                }
+
+                ADAPTADOR.escreverCabecalho(escritor, mensagem);
+                escritor.flush();
+                // O JsonWriter é abandonado com o objeto aberto; o restante é escrito diretamente no buffer
+                if (mensagem.getAcao() != null || mensagem.getOrigem() != null || mensagem.getDestino() != null) {
+                    buffer.write(',');
+                }
+                buffer.write(CAMPO_CONTEUDO, 0, CAMPO_CONTEUDO.length);
+                mensagem.escreverConteudoBruto(buffer);
+                buffer.write('}');
+            } catch (IOException e) {
+                throw new JsonIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Escreve a mensagem no buffer como um mapa CBOR. Conteúdos recebidos em CBOR e ainda não decodificados são
+     * copiados diretamente dos bytes recebidos; os demais são convertidos a partir do {@link JsonObject}.
+     */
+    private static void escreverBinario(Mensagem mensagem, BufferDeSaida buffer) {
+        // O estado preguiçoso do conteúdo não pode mudar entre a verificação e a escrita
+        synchronized (mensagem) {
+            boolean conteudoBruto = mensagem.isConteudoBrutoNoFormato(FormatoDeMensagem.BINARIO);
+            JsonObject conteudo = conteudoBruto ? null : mensagem.getConteudoParaLeitura();
+
+            int campos = (mensagem.getAcao() != null ? 1 : 0) + (mensagem.getOrigem() != null ? 1 : 0)
+                    + (mensagem.getDestino() != null ? 1 : 0) + (conteudoBruto || conteudo != null ? 1 : 0);
+            EscritorCbor.escreverCabecalho(buffer, LeitorCbor.TIPO_MAPA, campos);
+            if (mensagem.getAcao() != null) {
+                EscritorCbor.escreverTexto(buffer, "acao");
+                EscritorCbor.escreverTexto(buffer, mensagem.getAcao());
+            }
+            if (mensagem.getOrigem() != null) {
+                EscritorCbor.escreverTexto(buffer, "origem");
+                EscritorCbor.escreverTexto(buffer, mensagem.getOrigem());
+            }
+            if (mensagem.getDestino() != null) {
+                EscritorCbor.escreverTexto(buffer, "destino");
+                EscritorCbor.escreverTexto(buffer, mensagem.getDestino());
+            }
+            if (conteudoBruto) {
+                EscritorCbor.escreverTexto(buffer, CONTEUDO);
+                mensagem.escreverConteudoBrutoBinario(buffer);
+            } else if (conteudo != null) {
+                EscritorCbor.escreverTexto(buffer, CONTEUDO);
+                EscritorCbor.escreverElemento(buffer, conteudo);
+            }
+        }
+    }
+
+    private static JsonWriter criarEscritor(BufferDeSaida buffer) {
+        JsonWriter escritor = new JsonWriter(new EscritorUtf8(buffer));
+        escritor.setHtmlSafe(true);
+        escritor.setSerializeNulls(false);
+        escritor.setStrictness(Strictness.LENIENT);
+        return escritor;
+    }
+
+    private static BufferDeSaida obterBuffer() {
+        BufferDeSaida buffer = BUFFERS.poll();
+        return buffer != null ? buffer : new BufferDeSaida(CAPACIDADE_INICIAL_DO_BUFFER);
+    }
+
+    private static void devolverBuffer(BufferDeSaida buffer) {
+        if (buffer.getCapacidade() <= CAPACIDADE_MAXIMA_NO_POOL) {
+            buffer.reiniciar();
+            BUFFERS.offer(buffer);
+        }
+    }
+
+    /**
+     * {@link TypeAdapter} de {@link Mensagem}. A escrita segue a ordem dos campos {@code acao}, {@code origem},
+     * {@code destino} e {@code conteudo}; a leitura decodifica a mensagem inteira, inclusive o conteúdo.
+     */
+    private static final class AdaptadorDeMensagem extends TypeAdapter<Mensagem> {
+
+        @Override
+        public void write(JsonWriter escritor, Mensagem mensagem) throws IOException {
+            if (mensagem == null) {
+                escritor.nullValue();
+                return;
+            }
+            escreverCabecalho(escritor, mensagem);
+            JsonObject conteudo = mensagem.getConteudoParaLeitura();
+            if (conteudo != null) {
+                escritor.name("conteudo");
+                ADAPTADOR_DE_ELEMENTO.write(escritor, conteudo);
+            }
+            escritor.endObject();
+        }
+
+        /**
+         * Escreve a abertura do objeto e os campos do cabeçalho não nulos.
+         */
+        void escreverCabecalho(JsonWriter escritor, Mensagem mensagem) throws IOException {
+            escritor.beginObject();
+            if (mensagem.getAcao() != null) {
+                escritor.name("acao").value(mensagem.getAcao());
+            }
+            if (mensagem.getOrigem() != null) {
+                escritor.name("origem").value(mensagem.getOrigem());
+            }
+            if (mensagem.getDestino() != null) {
+                escritor.name("destino").value(mensagem.getDestino());
+            }
+        }
+
+        @Override
+        public Mensagem read(JsonReader leitor) throws IOException {
+            if (leitor.peek() == JsonToken.NULL) {
+                leitor.nextNull();
+                return null;
+            }
+
+            String acao = null;
+            String origem = null;
+            String destino = null;
+            JsonObject conteudo = null;
+            leitor.beginObject();
+            while (leitor.hasNext()) {
+                String nome = leitor.nextName();
+                if (leitor.peek() == JsonToken.NULL) {
+                    leitor.nextNull();
+                    continue;
+                }
+                switch (nome) {
+                    case "acao":
+                        acao = leitor.nextString();
+                        break;
+                    case "origem":
+                        origem = leitor.nextString();
+                        break;
+                    case "destino":
+                        destino = leitor.nextString();
+                        break;
+                    case "conteudo":
+                        conteudo = ADAPTADOR_DE_ELEMENTO.read(leitor).getAsJsonObject();
+                        break;
+                    default:
+                        leitor.skipValue();
+                        break;
+                }
+            }
+            leitor.endObject();
+            return new Mensagem(acao, origem, destino, conteudo);
+        }
+    }
+}
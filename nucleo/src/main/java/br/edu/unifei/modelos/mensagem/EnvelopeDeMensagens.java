@@ -0,0 +1,182 @@
+package br.edu.unifei.modelos.mensagem;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Envelope que agrupa várias {@link Mensagem}s destinadas a um mesmo endpoint em uma única mensagem, com a ação
+ * {@value #ACAO} e o conteúdo {@code {"mensagens": [...]}}, cujos itens são as mensagens agrupadas completas.
+ *
+ * <p>
+ *     O envelope é montado diretamente a partir dos bytes já codificados de cada mensagem, no formato do destino,
+ *     sem decodificar os conteúdos: os bytes das mensagens são copiados para o array de mensagens do envelope, que é
+ *     lido de volta de forma preguiçosa e enviado com os próprios bytes montados. Os destinos que recebem envelopes
+ *     os desempacotam com {@link #desempacotar(Mensagem)}.
+ * </p>
+ */
+public final class EnvelopeDeMensagens {
+
+    /**
+     * Ação das mensagens que contêm um envelope.
+     */
+    public static final String ACAO = "LOTE_DE_MENSAGENS";
+
+    /**
+     * Campo do conteúdo com o array de mensagens agrupadas.
+     */
+    public static final String CAMPO_MENSAGENS = "mensagens";
+
+    private static final String ORIGEM = "barramento";
+    private static final byte[] CAMPO_MENSAGENS_JSON = ("\"" + CAMPO_MENSAGENS + "\":[")
+            .getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FIM_JSON = "]}}".getBytes(StandardCharsets.US_ASCII);
+
+    private final String destino;
+    private final FormatoDeMensagem formato;
+
+    /**
+     * Cabeçalho do envelope até a abertura do conteúdo, exclusive: os campos {@code acao}, {@code origem} e
+     * {@code destino} e o nome do campo {@code conteudo}.
+     */
+    private final byte[] cabecalho;
+
+    /**
+     * Prepara os envelopes para um destino.
+     *
+     * @param destino O endpoint de destino dos envelopes.
+     * @param formato O {@link FormatoDeMensagem} do destino, em que o envelope e as mensagens agrupadas são
+     *                codificados.
+     */
+    public EnvelopeDeMensagens(String destino, FormatoDeMensagem formato) {
+        this.destino = destino;
+        this.formato = formato;
+        // Codifica o envelope com um conteúdo vazio e remove o objeto vazio ("{}" e a chave final, ou o mapa vazio)
+        byte[] vazio = new Mensagem(ACAO, ORIGEM, destino, new JsonObject()).toBytes(formato);
+        int sufixo = formato == FormatoDeMensagem.BINARIO ? 1 : 3;
+        this.cabecalho = new byte[vazio.length - sufixo];
+        System.arraycopy(vazio, 0, cabecalho, 0, cabecalho.length);
+    }
+
+    /**
+     * Calcula o tamanho de um envelope sem montá-lo.
+     *
+     * @param quantidade     A quantidade de mensagens agrupadas.
+     * @param bytesDosItens  A soma dos tamanhos das mensagens codificadas.
+     * @return O tamanho, em bytes, do envelope com as mensagens.
+     */
+    public int tamanho(int quantidade, int bytesDosItens) {
+        if (formato == FormatoDeMensagem.BINARIO) {
+            // Mapa de um campo, texto "mensagens" e cabeçalho da lista
+            return cabecalho.length + 1 + 1 + CAMPO_MENSAGENS.length() + tamanhoDoCabecalhoCbor(quantidade)
+                    + bytesDosItens;
+        }
+        return cabecalho.length + 1 + CAMPO_MENSAGENS_JSON.length + bytesDosItens + Math.max(0, quantidade - 1)
+                + FIM_JSON.length;
+    }
+
+    /**
+     * Monta o envelope com as mensagens informadas.
+     *
+     * @param itens Os bytes das mensagens agrupadas, codificadas no formato do envelope.
+     * @return A {@link Mensagem} do envelope, cujos bytes já estão codificados no formato do destino.
+     */
+    public Mensagem criar(List<byte[]> itens) {
+        int bytesDosItens = 0;
+        for (byte[] item : itens) {
+            bytesDosItens += item.length;
+        }
+        BufferDeSaida saida = new BufferDeSaida(tamanho(itens.size(), bytesDosItens));
+        saida.write(cabecalho, 0, cabecalho.length);
+
+        if (formato == FormatoDeMensagem.BINARIO) {
+            EscritorCbor.escreverCabecalho(saida, LeitorCbor.TIPO_MAPA, 1);
+            EscritorCbor.escreverTexto(saida, CAMPO_MENSAGENS);
+            EscritorCbor.escreverCabecalho(saida, LeitorCbor.TIPO_LISTA, itens.size());
+            for (byte[] item : itens) {
+                saida.write(item, 0, item.length);
+            }
+        } else {
+            saida.write('{');
+            saida.write(CAMPO_MENSAGENS_JSON, 0, CAMPO_MENSAGENS_JSON.length);
+            for (int i = 0; i < itens.size(); i++) {
+                if (i > 0) {
+                    saida.write(',');
+                }
+                saida.write(itens.get(i), 0, itens.get(i).length);
+            }
+            saida.write(FIM_JSON, 0, FIM_JSON.length);
+        }
+        return Mensagem.fromBytes(saida.toByteArray(), formato);
+    }
+
+    /**
+     * @return O endpoint de destino dos envelopes.
+     */
+    public String getDestino() {
+        return destino;
+    }
+
+    /**
+     * @return O formato dos envelopes.
+     */
+    public FormatoDeMensagem getFormato() {
+        return formato;
+    }
+
+    /**
+     * @param mensagem A {@link Mensagem} recebida.
+     * @return {@code true} se a mensagem for um envelope de mensagens agrupadas.
+     */
+    public static boolean isEnvelope(Mensagem mensagem) {
+        return ACAO.equals(mensagem.getAcao());
+    }
+
+    /**
+     * Extrai as mensagens agrupadas em um envelope, na ordem em que foram agrupadas.
+     *
+     * @param envelope A {@link Mensagem} do envelope.
+     * @return As mensagens agrupadas, ou uma lista vazia se o envelope não contiver mensagens.
+     */
+    public static List<Mensagem> desempacotar(Mensagem envelope) {
+        JsonObject conteudo = envelope.getConteudo();
+        JsonElement itens = conteudo == null ? null : conteudo.get(CAMPO_MENSAGENS);
+        if (itens == null || !itens.isJsonArray()) {
+            return Collections.emptyList();
+        }
+
+        JsonArray array = itens.getAsJsonArray();
+        List<Mensagem> mensagens = new ArrayList<>(array.size());
+        for (JsonElement item : array) {
+            if (!item.isJsonObject()) {
+                continue;
+            }
+            JsonObject objeto = item.getAsJsonObject();
+            JsonElement conteudoDoItem = objeto.get("conteudo");
+            mensagens.add(new Mensagem(lerTexto(objeto, "acao"), lerTexto(objeto, "origem"),
+                    lerTexto(objeto, "destino"),
+                    conteudoDoItem != null && conteudoDoItem.isJsonObject() ? conteudoDoItem.getAsJsonObject() : null));
+        }
+        return mensagens;
+    }
+
+    private static String lerTexto(JsonObject objeto, String campo) {
+        JsonElement valor = objeto.get(campo);
+        return valor == null || !valor.isJsonPrimitive() ? null : valor.getAsString();
+    }
+
+    private static int tamanhoDoCabecalhoCbor(long argumento) {
+        if (argumento < 24) {
+            return 1;
+        }
+        if (argumento < 0x100) {
+            return 2;
+        }
+        return argumento < 0x10000 ? 3 : 5;
+    }
+}
@@ -0,0 +1,192 @@
+package br.edu.unifei.modelos.mensagem;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Escritor de itens no formato {@link FormatoDeMensagem#BINARIO} (CBOR) diretamente sobre um {@link BufferDeSaida}.
+ * Todos os itens são escritos com tamanho definido e com o menor cabeçalho possível; números inteiros são escritos
+ * como inteiros CBOR e os demais números como ponto flutuante de precisão simples, quando não há perda, ou dupla.
+ */
+final class EscritorCbor {
+
+    private static final int NULO = 0xf6;
+    private static final int FALSO = 0xf4;
+    private static final int VERDADEIRO = 0xf5;
+    private static final int PRECISAO_SIMPLES = 0xfa;
+    private static final int PRECISAO_DUPLA = 0xfb;
+
+    private static final BigInteger MAXIMO_SEM_SINAL = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+
+    private EscritorCbor() {
+    }
+
+    /**
+     * Escreve o cabeçalho de um item com o tipo principal e o argumento informados.
+     *
+     * @param saida     O buffer de destino.
+     * @param tipo      O tipo principal do item (Ex.: {@link LeitorCbor#TIPO_MAPA}).
+     * @param argumento O argumento do cabeçalho, interpretado como um inteiro sem sinal.
+     */
+    static void escreverCabecalho(BufferDeSaida saida, int tipo, long argumento) {
+        int inicial = tipo << 5;
+        if (argumento >= 0 && argumento < 24) {
+            saida.write(inicial | (int) argumento);
+        } else if (argumento >= 0 && argumento <= 0xff) {
+            saida.write(inicial | 24);
+            saida.write((int) argumento);
+        } else if (argumento >= 0 && argumento <= 0xffff) {
+            saida.write(inicial | 25);
+            escreverBytes(saida, argumento, 2);
+        } else if (argumento >= 0 && argumento <= 0xffffffffL) {
+            saida.write(inicial | 26);
+            escreverBytes(saida, argumento, 4);
+        } else {
+            saida.write(inicial | 27);
+            escreverBytes(saida, argumento, 8);
+        }
+    }
+
+    /**
+     * Escreve um texto codificado em UTF-8.
+     *
+     * @param saida O buffer de destino.
+     * @param texto O texto a ser escrito.
+     */
+    static void escreverTexto(BufferDeSaida saida, String texto) {
+        int tamanho = texto.length();
+        for (int i = 0; i < tamanho; i++) {
+            if (texto.charAt(i) >= 0x80) {
+                byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+                escreverCabecalho(saida, LeitorCbor.TIPO_TEXTO, bytes.length);
+                saida.write(bytes, 0, bytes.length);
+                return;
+            }
+        }
+
+        // Texto ASCII: o comprimento em bytes é conhecido e os caracteres são copiados diretamente
+        escreverCabecalho(saida, LeitorCbor.TIPO_TEXTO, tamanho);
+        saida.garantirCapacidade(tamanho);
+        byte[] dados = saida.getDados();
+        int posicao = saida.getTamanho();
+        for (int i = 0; i < tamanho; i++) {
+            dados[posicao++] = (byte) texto.charAt(i);
+        }
+        saida.definirTamanho(posicao);
+    }
+
+    /**
+     * Escreve um elemento JSON como o item CBOR equivalente.
+     *
+     * @param saida    O buffer de destino.
+     * @param elemento O elemento a ser escrito.
+     */
+    static void escreverElemento(BufferDeSaida saida, JsonElement elemento) {
+        if (elemento == null || elemento.isJsonNull()) {
+            saida.write(NULO);
+        } else if (elemento.isJsonObject()) {
+            JsonObject objeto = elemento.getAsJsonObject();
+            escreverCabecalho(saida, LeitorCbor.TIPO_MAPA, objeto.size());
+            escreverCampos(saida, objeto);
+        } else if (elemento.isJsonArray()) {
+            JsonArray lista = elemento.getAsJsonArray();
+            escreverCabecalho(saida, LeitorCbor.TIPO_LISTA, lista.size());
+            for (JsonElement item : lista) {
+                escreverElemento(saida, item);
+            }
+        } else {
+            escreverPrimitivo(saida, elemento.getAsJsonPrimitive());
+        }
+    }
+
+    /**
+     * Escreve os pares de chave e valor de um objeto, sem o cabeçalho do mapa.
+     *
+     * @param saida  O buffer de destino.
+     * @param objeto O objeto cujos campos serão escritos.
+     */
+    static void escreverCampos(BufferDeSaida saida, JsonObject objeto) {
+        for (Map.Entry<String, JsonElement> campo : objeto.entrySet()) {
+            escreverTexto(saida, campo.getKey());
+            escreverElemento(saida, campo.getValue());
+        }
+    }
+
+    private static void escreverPrimitivo(BufferDeSaida saida, JsonPrimitive primitivo) {
+        if (primitivo.isString()) {
+            escreverTexto(saida, primitivo.getAsString());
+        } else if (primitivo.isBoolean()) {
+            saida.write(primitivo.getAsBoolean() ? VERDADEIRO : FALSO);
+        } else {
+            escreverNumero(saida, primitivo.getAsNumber());
+        }
+    }
+
+    private static void escreverNumero(BufferDeSaida saida, Number numero) {
+        if (numero instanceof Long || numero instanceof Integer || numero instanceof Short || numero instanceof Byte) {
+            escreverInteiro(saida, numero.longValue());
+            return;
+        }
+
+        // Números lidos de um JSON chegam como texto; os inteiros são preservados como inteiros CBOR
+        String texto = numero.toString();
+        if (ehInteiro(texto)) {
+            BigInteger inteiro = new BigInteger(texto);
+            if (inteiro.bitLength() < 64) {
+                escreverInteiro(saida, inteiro.longValue());
+                return;
+            }
+            if (inteiro.signum() > 0 && inteiro.compareTo(MAXIMO_SEM_SINAL) <= 0) {
+                escreverCabecalho(saida, LeitorCbor.TIPO_INTEIRO, inteiro.longValue());
+                return;
+            }
+            if (inteiro.signum() < 0 && inteiro.not().compareTo(MAXIMO_SEM_SINAL) <= 0) {
+                escreverCabecalho(saida, LeitorCbor.TIPO_NEGATIVO, inteiro.not().longValue());
+                return;
+            }
+        }
+
+        double valor = numero.doubleValue();
+        if ((float) valor == valor || Double.isNaN(valor)) {
+            saida.write(PRECISAO_SIMPLES);
+            escreverBytes(saida, Float.floatToIntBits((float) valor), 4);
+        } else {
+            saida.write(PRECISAO_DUPLA);
+            escreverBytes(saida, Double.doubleToLongBits(valor), 8);
+        }
+    }
+
+    private static void escreverInteiro(BufferDeSaida saida, long valor) {
+        if (valor >= 0) {
+            escreverCabecalho(saida, LeitorCbor.TIPO_INTEIRO, valor);
+        } else {
+            escreverCabecalho(saida, LeitorCbor.TIPO_NEGATIVO, -1 - valor);
+        }
+    }
+
+    private static boolean ehInteiro(String texto) {
+        int inicio = texto.startsWith("-") ? 1 : 0;
+        if (inicio == texto.length()) {
+            return false;
+        }
+        for (int i = inicio; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void escreverBytes(BufferDeSaida saida, long valor, int bytes) {
+        for (int i = bytes - 1; i >= 0; i--) {
+            saida.write((int) (valor >>> (i * 8)) & 0xff);
+        }
+    }
+}
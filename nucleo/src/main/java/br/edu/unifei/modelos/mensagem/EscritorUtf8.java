@@ -0,0 +1,114 @@
+package br.edu.unifei.modelos.mensagem;
+
+import java.io.Writer;
+
+/**
+ * {@link Writer} que codifica os caracteres em UTF-8 diretamente em um {@link BufferDeSaida}, sem os buffers
+ * intermediários do {@link java.io.OutputStreamWriter}. Usado pelo {@link com.google.gson.stream.JsonWriter} durante a
+ * codificação das mensagens.
+ */
+final class EscritorUtf8 extends Writer {
+
+    /**
+     * Quantidade de caracteres codificados a cada reserva de espaço no buffer.
+     */
+    private static final int TAMANHO_DO_BLOCO = 1024;
+
+    private final BufferDeSaida saida;
+
+    /**
+     * Primeira metade de um par substituto recebida no fim da escrita anterior, ou {@code 0}.
+     */
+    private char substitutoPendente;
+
+    /**
+     * @param saida O {@link BufferDeSaida} onde os bytes serão escritos.
+     */
+    EscritorUtf8(BufferDeSaida saida) {
+        this.saida = saida;
+    }
+
+    @Override
+    public void write(int c) {
+        escrever((char) c);
+    }
+
+    @Override
+    public void write(char[] caracteres, int inicio, int quantidade) {
+        saida.garantirCapacidade(quantidade);
+        for (int i = inicio; i < inicio + quantidade; i++) {
+            escrever(caracteres[i]);
+        }
+    }
+
+    @Override
+    public void write(String texto, int inicio, int quantidade) {
+        int fim = inicio + quantidade;
+        while (inicio < fim) {
+            // Reserva o pior caso do bloco para escrever os caracteres ASCII diretamente no array do buffer
+            int fimDoBloco = Math.min(fim, inicio + TAMANHO_DO_BLOCO);
+            saida.garantirCapacidade((fimDoBloco - inicio) * 3 + 4);
+            byte[] dados = saida.getDados();
+            int posicao = saida.getTamanho();
+            boolean pendente = substitutoPendente != 0;
+            for (int i = inicio; i < fimDoBloco; i++) {
+                char c = texto.charAt(i);
+                if (c < 0x80 && !pendente) {
+                    dados[posicao++] = (byte) c;
+                } else {
+                    saida.definirTamanho(posicao);
+                    escrever(c);
+                    posicao = saida.getTamanho();
+                    pendente = substitutoPendente != 0;
+                }
+            }
+            saida.definirTamanho(posicao);
+            inicio = fimDoBloco;
+        }
+    }
+
+    private void escrever(char c) {
+        if (substitutoPendente != 0) {
+            char alto = substitutoPendente;
+            substitutoPendente = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codigo = Character.toCodePoint(alto, c);
+                saida.write(0xF0 | (codigo >> 18));
+                saida.write(0x80 | ((codigo >> 12) & 0x3F));
+                saida.write(0x80 | ((codigo >> 6) & 0x3F));
+                saida.write(0x80 | (codigo & 0x3F));
+                return;
+            }
+            saida.write('?');
+        }
+
+        if (c < 0x80) {
+            saida.write(c);
+        } else if (c < 0x800) {
+            saida.write(0xC0 | (c >> 6));
+            saida.write(0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            substitutoPendente = c;
+        } else if (Character.isLowSurrogate(c)) {
+            // Metade de par substituto sem a primeira metade, substituída como faz o codificador UTF-8 do Java
+            saida.write('?');
+        } else {
+            saida.write(0xE0 | (c >> 12));
+            saida.write(0x80 | ((c >> 6) & 0x3F));
+            saida.write(0x80 | (c & 0x3F));
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (substitutoPendente != 0) {
+            substitutoPendente = 0;
+            saida.write('?');
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+}
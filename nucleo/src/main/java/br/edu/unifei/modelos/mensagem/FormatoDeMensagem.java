@@ -0,0 +1,69 @@
+package br.edu.unifei.modelos.mensagem;
+
+/**
+ * Formatos de codificação de uma {@link Mensagem} no transporte. O JSON é o formato padrão; o formato binário segue a
+ * codificação CBOR (RFC 8949) e é indicado para endpoints embarcados, em que o tamanho do payload determina a
+ * quantidade de blocos e pacotes necessários para a entrega.
+ */
+public enum FormatoDeMensagem {
+
+    /**
+     * JSON em UTF-8 ({@code application/json}).
+     */
+    JSON("json", (short) 50),
+
+    /**
+     * CBOR ({@code application/cbor}), com a mesma estrutura de campos do JSON.
+     */
+    BINARIO("cbor", (short) 60);
+
+    private final String nome;
+    private final short formatoDeConteudoCoAP;
+
+    FormatoDeMensagem(String nome, short formatoDeConteudoCoAP) {
+        this.nome = nome;
+        this.formatoDeConteudoCoAP = formatoDeConteudoCoAP;
+    }
+
+    /**
+     * @return O nome curto do formato, usado nas convenções de tópico e nos parâmetros das mensagens.
+     */
+    public String getNome() {
+        return nome;
+    }
+
+    /**
+     * @return O número registrado do formato na opção Content-Format do CoAP.
+     */
+    public short getFormatoDeConteudoCoAP() {
+        return formatoDeConteudoCoAP;
+    }
+
+    /**
+     * Obtém o formato correspondente a uma opção Content-Format do CoAP.
+     *
+     * @param formatoDeConteudo O valor da opção Content-Format, ou {@code null} se a opção não foi informada.
+     * @return O formato correspondente, ou {@link #JSON} se a opção estiver ausente ou não for reconhecida.
+     */
+    public static FormatoDeMensagem deFormatoDeConteudoCoAP(Short formatoDeConteudo) {
+        if (formatoDeConteudo != null && formatoDeConteudo == BINARIO.formatoDeConteudoCoAP) {
+            return BINARIO;
+        }
+        return JSON;
+    }
+
+    /**
+     * Obtém o formato pelo nome curto.
+     *
+     * @param nome O nome do formato (Ex.: "cbor"), sem distinção entre maiúsculas e minúsculas.
+     * @return O formato correspondente, ou {@code null} se o nome não for reconhecido.
+     */
+    public static FormatoDeMensagem deNome(String nome) {
+        for (FormatoDeMensagem formato : values()) {
+            if (formato.nome.equalsIgnoreCase(nome)) {
+                return formato;
+            }
+        }
+        return null;
+    }
+}
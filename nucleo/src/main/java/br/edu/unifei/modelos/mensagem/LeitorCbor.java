@@ -0,0 +1,518 @@
+package br.edu.unifei.modelos.mensagem;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSyntaxException;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Leitor de mensagens no formato {@link FormatoDeMensagem#BINARIO} (CBOR). Assim como o {@link LeitorDeMensagem},
+ * decodifica apenas o cabeçalho da {@link Mensagem} e localiza os limites do {@code conteudo} e do seu campo
+ * {@code metadata}, para que a mensagem possa ser encaminhada a outro endpoint binário sem conversão. Também converte
+ * o conteúdo em {@link JsonElement} quando ele é acessado ou precisa ser enviado em JSON.
+ *
+ * <p>
+ *     Mapas e listas de tamanho indefinido são aceitos. Cadeias de bytes são convertidas em texto base64url, e as
+ *     etiquetas (tags) são ignoradas, conforme as recomendações de conversão para JSON da RFC 8949.
+ * </p>
+ */
+final class LeitorCbor {
+
+    static final int TIPO_INTEIRO = 0;
+    static final int TIPO_NEGATIVO = 1;
+    static final int TIPO_BYTES = 2;
+    static final int TIPO_TEXTO = 3;
+    static final int TIPO_LISTA = 4;
+    static final int TIPO_MAPA = 5;
+    static final int TIPO_ETIQUETA = 6;
+    static final int TIPO_SIMPLES = 7;
+
+    /**
+     * Informação adicional que indica um item de tamanho indefinido.
+     */
+    static final int INDEFINIDO = 31;
+
+    /**
+     * Byte que encerra um item de tamanho indefinido.
+     */
+    static final byte PARADA = (byte) 0xff;
+
+    private static final int PROFUNDIDADE_MAXIMA = 512;
+
+    private static final byte[] ACAO = "acao".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ORIGEM = "origem".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DESTINO = "destino".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONTEUDO = "conteudo".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] METADATA = "metadata".getBytes(StandardCharsets.US_ASCII);
+
+    private final byte[] dados;
+    private final int fim;
+    private int posicao;
+
+    /**
+     * Tipo principal, informação adicional e argumento do último cabeçalho lido.
+     */
+    private int tipo;
+    private int informacao;
+    private long argumento;
+
+    String acao;
+    String origem;
+    String destino;
+
+    /**
+     * Posição do cabeçalho do mapa do conteúdo, ou {@code -1} se a mensagem não possuir conteúdo.
+     */
+    int inicioConteudo = -1;
+
+    /**
+     * Posição seguinte ao último byte do conteúdo.
+     */
+    int fimConteudo = -1;
+
+    /**
+     * Indica se o mapa do conteúdo não possui nenhum campo.
+     */
+    boolean conteudoVazio;
+
+    /**
+     * Posição do cabeçalho do mapa do campo {@code metadata} do conteúdo, ou {@code -1} se o campo não existir.
+     */
+    int inicioMetadata = -1;
+
+    /**
+     * Posição em que novos campos podem ser inseridos no {@code metadata}: o fim do mapa ou, se o mapa tiver tamanho
+     * indefinido, o byte de parada.
+     */
+    int fimMetadata = -1;
+
+    /**
+     * Indica se o campo {@code metadata} do conteúdo não possui nenhum campo.
+     */
+    boolean metadataVazio;
+
+    /**
+     * Indica se o conteúdo possui um campo {@code metadata} que não é um mapa.
+     */
+    boolean metadataInvalido;
+
+    private LeitorCbor(byte[] dados, int inicio, int fim) {
+        this.dados = dados;
+        this.posicao = inicio;
+        this.fim = fim;
+    }
+
+    /**
+     * Lê o cabeçalho e localiza o conteúdo da mensagem.
+     *
+     * @param dados  O buffer com a mensagem em CBOR.
+     * @param inicio A posição inicial da mensagem no buffer.
+     * @param fim    A posição seguinte ao último byte da mensagem no buffer.
+     * @return O leitor com os campos do cabeçalho e os limites do conteúdo.
+     * @throws JsonSyntaxException Se a mensagem não for um mapa CBOR válido.
+     */
+    static LeitorCbor ler(byte[] dados, int inicio, int fim) {
+        LeitorCbor leitor = new LeitorCbor(dados, inicio, fim);
+        try {
+            leitor.lerMensagem();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new JsonSyntaxException("Mensagem CBOR incompleta.", e);
+        }
+        return leitor;
+    }
+
+    /**
+     * Converte um mapa CBOR em {@link JsonObject}.
+     *
+     * @param dados  O buffer com o mapa em CBOR.
+     * @param inicio A posição do cabeçalho do mapa.
+     * @param fim    A posição seguinte ao último byte do mapa.
+     * @return O objeto JSON equivalente.
+     * @throws JsonSyntaxException Se os bytes não formarem um mapa CBOR válido.
+     */
+    static JsonObject decodificarObjeto(byte[] dados, int inicio, int fim) {
+        LeitorCbor leitor = new LeitorCbor(dados, inicio, fim);
+        try {
+            JsonElement elemento = leitor.lerElemento(0);
+            if (!elemento.isJsonObject()) {
+                throw leitor.erro("Esperado um mapa");
+            }
+            return elemento.getAsJsonObject();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new JsonSyntaxException("Conteúdo CBOR incompleto.", e);
+        }
+    }
+
+    /**
+     * Lê a quantidade de itens declarada no cabeçalho de um mapa ou lista.
+     *
+     * @return A quantidade de itens, ou {@code -1} se o item tiver tamanho indefinido.
+     */
+    static long lerQuantidade(byte[] dados, int posicaoDoCabecalho) {
+        LeitorCbor leitor = new LeitorCbor(dados, posicaoDoCabecalho, dados.length);
+        leitor.lerCabecalho();
+        return leitor.argumento;
+    }
+
+    /**
+     * @return O tamanho em bytes do cabeçalho iniciado na posição informada.
+     */
+    static int tamanhoDoCabecalho(byte[] dados, int posicaoDoCabecalho) {
+        int informacao = dados[posicaoDoCabecalho] & 0x1f;
+        if (informacao < 24 || informacao == INDEFINIDO) {
+            return 1;
+        }
+        return 1 + (1 << (informacao - 24));
+    }
+
+    private void lerMensagem() {
+        lerCabecalho();
+        if (tipo != TIPO_MAPA) {
+            throw erro("Esperado um mapa");
+        }
+        long campos = argumento;
+        for (long i = 0; campos < 0 ? dados[posicao] != PARADA : i < campos; i++) {
+            int inicioChave = lerLimitesDeTexto();
+            int fimChave = posicao;
+
+            if (chaveIgual(inicioChave, fimChave, ACAO)) {
+                acao = lerValorSimples();
+            } else if (chaveIgual(inicioChave, fimChave, ORIGEM)) {
+                origem = lerValorSimples();
+            } else if (chaveIgual(inicioChave, fimChave, DESTINO)) {
+                destino = lerValorSimples();
+            } else if (chaveIgual(inicioChave, fimChave, CONTEUDO)) {
+                lerConteudo();
+            } else {
+                pularValor(0);
+            }
+        }
+        if (campos < 0) {
+            posicao++;
+        }
+    }
+
+    /**
+     * Localiza os limites do conteúdo e do seu campo {@code metadata}, sem decodificar os demais campos.
+     */
+    private void lerConteudo() {
+        if (ehNulo(dados[posicao])) {
+            posicao++;
+            inicioConteudo = -1;
+            return;
+        }
+
+        inicioConteudo = posicao;
+        inicioMetadata = -1;
+        metadataInvalido = false;
+        lerCabecalho();
+        if (tipo != TIPO_MAPA) {
+            throw erro("O conteúdo da mensagem deve ser um mapa");
+        }
+        long campos = argumento;
+        conteudoVazio = campos < 0 ? dados[posicao] == PARADA : campos == 0;
+
+        for (long i = 0; campos < 0 ? dados[posicao] != PARADA : i < campos; i++) {
+            int inicioChave = lerLimitesDeTexto();
+            if (chaveIgual(inicioChave, posicao, METADATA)) {
+                if ((dados[posicao] & 0xff) >>> 5 == TIPO_MAPA) {
+                    inicioMetadata = posicao;
+                    metadataInvalido = false;
+                    lerCabecalho();
+                    long camposMetadata = argumento;
+                    metadataVazio = camposMetadata < 0 ? dados[posicao] == PARADA : camposMetadata == 0;
+                    pularItens(camposMetadata, 2, 1);
+                    fimMetadata = camposMetadata < 0 ? posicao - 1 : posicao;
+                } else {
+                    inicioMetadata = -1;
+                    metadataInvalido = true;
+                    pularValor(0);
+                }
+            } else {
+                pularValor(0);
+            }
+        }
+        if (campos < 0) {
+            posicao++;
+        }
+        fimConteudo = posicao;
+    }
+
+    /**
+     * Lê um valor textual, numérico ou booleano do cabeçalho como texto.
+     *
+     * @return O valor lido, ou {@code null} se o valor for nulo.
+     */
+    private String lerValorSimples() {
+        int inicio = posicao;
+        lerCabecalho();
+        switch (tipo) {
+            case TIPO_TEXTO:
+            case TIPO_INTEIRO:
+            case TIPO_NEGATIVO:
+                posicao = inicio;
+                return lerElemento(0).getAsString();
+            case TIPO_SIMPLES:
+                if (informacao == 20 || informacao == 21) {
+                    return String.valueOf(informacao == 21);
+                }
+                if (informacao == 22 || informacao == 23) {
+                    return null;
+                }
+                break;
+            default:
+                break;
+        }
+        throw erro("Esperado um valor simples");
+    }
+
+    /**
+     * Converte o item na posição atual em {@link JsonElement}.
+     */
+    private JsonElement lerElemento(int profundidade) {
+        if (profundidade > PROFUNDIDADE_MAXIMA) {
+            throw erro("Profundidade máxima excedida");
+        }
+        int inicio = posicao;
+        lerCabecalho();
+        switch (tipo) {
+            case TIPO_INTEIRO:
+                return argumento >= 0
+                        ? new JsonPrimitive(argumento)
+                        : new JsonPrimitive(new BigInteger(Long.toUnsignedString(argumento)));
+            case TIPO_NEGATIVO:
+                return argumento >= 0
+                        ? new JsonPrimitive(-1 - argumento)
+                        : new JsonPrimitive(new BigInteger(Long.toUnsignedString(argumento)).not());
+            case TIPO_BYTES:
+                posicao = inicio;
+                return new JsonPrimitive(Base64.getUrlEncoder().withoutPadding().encodeToString(lerCadeia()));
+            case TIPO_TEXTO:
+                posicao = inicio;
+                return new JsonPrimitive(new String(lerCadeia(), StandardCharsets.UTF_8));
+            case TIPO_LISTA: {
+                long itens = argumento;
+                JsonArray lista = new JsonArray();
+                for (long i = 0; itens < 0 ? dados[posicao] != PARADA : i < itens; i++) {
+                    lista.add(lerElemento(profundidade + 1));
+                }
+                if (itens < 0) {
+                    posicao++;
+                }
+                return lista;
+            }
+            case TIPO_MAPA: {
+                long campos = argumento;
+                JsonObject mapa = new JsonObject();
+                for (long i = 0; campos < 0 ? dados[posicao] != PARADA : i < campos; i++) {
+                    if ((dados[posicao] & 0xff) >>> 5 != TIPO_TEXTO) {
+                        throw erro("As chaves dos mapas devem ser textos");
+                    }
+                    String chave = new String(lerCadeia(), StandardCharsets.UTF_8);
+                    mapa.add(chave, lerElemento(profundidade + 1));
+                }
+                if (campos < 0) {
+                    posicao++;
+                }
+                return mapa;
+            }
+            case TIPO_ETIQUETA:
+                return lerElemento(profundidade + 1);
+            default:
+                return lerValorSimplesOuDecimal();
+        }
+    }
+
+    private JsonElement lerValorSimplesOuDecimal() {
+        switch (informacao) {
+            case 20:
+                return new JsonPrimitive(false);
+            case 21:
+                return new JsonPrimitive(true);
+            case 22:
+            case 23:
+                return JsonNull.INSTANCE;
+            case 25:
+                return new JsonPrimitive(meiaPrecisaoParaFloat((int) argumento));
+            case 26:
+                return new JsonPrimitive(Float.intBitsToFloat((int) argumento));
+            case 27:
+                return new JsonPrimitive(Double.longBitsToDouble(argumento));
+            default:
+                throw erro("Valor simples não suportado");
+        }
+    }
+
+    /**
+     * Lê uma cadeia de bytes ou de texto, concatenando os trechos de cadeias de tamanho indefinido.
+     */
+    private byte[] lerCadeia() {
+        lerCabecalho();
+        int tipoDaCadeia = tipo;
+        if (argumento >= 0) {
+            int comprimento = comprimentoDisponivel(argumento);
+            byte[] cadeia = new byte[comprimento];
+            System.arraycopy(dados, posicao, cadeia, 0, comprimento);
+            posicao += comprimento;
+            return cadeia;
+        }
+
+        BufferDeSaida trechos = new BufferDeSaida(64);
+        while (dados[posicao] != PARADA) {
+            lerCabecalho();
+            if (tipo != tipoDaCadeia || argumento < 0) {
+                throw erro("Trecho inválido em cadeia de tamanho indefinido");
+            }
+            int comprimento = comprimentoDisponivel(argumento);
+            trechos.write(dados, posicao, comprimento);
+            posicao += comprimento;
+        }
+        posicao++;
+        return trechos.toByteArray();
+    }
+
+    /**
+     * Avança sobre a chave textual de um mapa.
+     *
+     * @return A posição do primeiro byte do texto. Ao final, a posição atual fica logo após o texto.
+     */
+    private int lerLimitesDeTexto() {
+        lerCabecalho();
+        if (tipo != TIPO_TEXTO || argumento < 0) {
+            throw erro("Esperada uma chave textual");
+        }
+        int inicio = posicao;
+        posicao += comprimentoDisponivel(argumento);
+        return inicio;
+    }
+
+    /**
+     * Avança sobre um item CBOR qualquer a partir da posição atual.
+     */
+    private void pularValor(int profundidade) {
+        if (profundidade > PROFUNDIDADE_MAXIMA) {
+            throw erro("Profundidade máxima excedida");
+        }
+        lerCabecalho();
+        switch (tipo) {
+            case TIPO_BYTES:
+            case TIPO_TEXTO:
+                if (argumento >= 0) {
+                    posicao += comprimentoDisponivel(argumento);
+                } else {
+                    pularItens(-1, 1, profundidade + 1);
+                }
+                break;
+            case TIPO_LISTA:
+                pularItens(argumento, 1, profundidade + 1);
+                break;
+            case TIPO_MAPA:
+                pularItens(argumento, 2, profundidade + 1);
+                break;
+            case TIPO_ETIQUETA:
+                pularValor(profundidade + 1);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Avança sobre os itens de uma lista ou mapa, incluindo o byte de parada dos itens de tamanho indefinido.
+     */
+    private void pularItens(long quantidade, int itensPorEntrada, int profundidade) {
+        if (quantidade < 0) {
+            while (dados[posicao] != PARADA) {
+                pularValor(profundidade);
+            }
+            posicao++;
+            return;
+        }
+        for (long i = 0; i < quantidade * itensPorEntrada; i++) {
+            pularValor(profundidade);
+        }
+    }
+
+    /**
+     * Lê o cabeçalho do item na posição atual, preenchendo o tipo principal, a informação adicional e o argumento. O
+     * argumento é {@code -1} para itens de tamanho indefinido.
+     */
+    private void lerCabecalho() {
+        if (posicao >= fim) {
+            throw erro("Fim inesperado");
+        }
+        int inicial = dados[posicao++] & 0xff;
+        tipo = inicial >>> 5;
+        informacao = inicial & 0x1f;
+        if (informacao < 24) {
+            argumento = informacao;
+        } else if (informacao <= 27) {
+            argumento = lerSemSinal(1 << (informacao - 24));
+        } else if (informacao == INDEFINIDO && tipo >= TIPO_BYTES && tipo <= TIPO_MAPA) {
+            argumento = -1;
+        } else {
+            throw erro("Cabeçalho inválido");
+        }
+    }
+
+    private long lerSemSinal(int bytes) {
+        if (posicao + bytes > fim) {
+            throw erro("Fim inesperado");
+        }
+        long valor = 0;
+        for (int i = 0; i < bytes; i++) {
+            valor = (valor << 8) | (dados[posicao++] & 0xff);
+        }
+        return valor;
+    }
+
+    private int comprimentoDisponivel(long comprimento) {
+        if (comprimento > fim - posicao) {
+            throw erro("Fim inesperado");
+        }
+        return (int) comprimento;
+    }
+
+    private boolean chaveIgual(int inicio, int fimChave, byte[] chave) {
+        if (fimChave - inicio != chave.length) {
+            return false;
+        }
+        for (int i = 0; i < chave.length; i++) {
+            if (dados[inicio + i] != chave[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean ehNulo(byte atual) {
+        return atual == (byte) 0xf6 || atual == (byte) 0xf7;
+    }
+
+    /**
+     * Converte um número de ponto flutuante de meia precisão (IEEE 754 binary16).
+     */
+    private static float meiaPrecisaoParaFloat(int bits) {
+        int sinal = (bits & 0x8000) << 16;
+        int expoente = (bits >>> 10) & 0x1f;
+        int mantissa = bits & 0x3ff;
+        if (expoente == 0) {
+            float valor = mantissa * (1f / (1 << 24));
+            return sinal != 0 ? -valor : valor;
+        }
+        if (expoente == 0x1f) {
+            return Float.intBitsToFloat(sinal | 0x7f800000 | (mantissa << 13));
+        }
+        return Float.intBitsToFloat(sinal | ((expoente + 112) << 23) | (mantissa << 13));
+    }
+
+    private JsonSyntaxException erro(String descricao) {
+        return new JsonSyntaxException(String.format("%s na posição %d da mensagem CBOR.", descricao, posicao));
+    }
+}
@@ -0,0 +1,406 @@
+package br.edu.unifei.modelos.mensagem;
+
+import com.google.gson.JsonSyntaxException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Leitor de mensagens JSON codificadas em UTF-8 que decodifica apenas o cabeçalho da {@link Mensagem} ({@code acao},
+ * {@code origem} e {@code destino}). O {@code conteudo} não é convertido: o leitor apenas localiza os seus limites no
+ * buffer, bem como os limites do objeto {@code metadata} contido nele, para que a mensagem possa ser encaminhada ou
+ * receber novos timestamps sem que uma árvore JSON seja construída.
+ *
+ * <p>
+ *     Apenas um objeto é aceito: qualquer caractere que não seja espaço após o '}' final é um erro. Sequências de
+ *     escape inválidas nas strings do cabeçalho ou nas chaves também são rejeitadas com {@link JsonSyntaxException},
+ *     e as chaves com escapes são comparadas pelo texto decodificado.
+ * </p>
+ */
+final class LeitorDeMensagem {
+
+    private static final byte[] ACAO = "acao".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ORIGEM = "origem".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DESTINO = "destino".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CONTEUDO = "conteudo".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] METADATA = "metadata".getBytes(StandardCharsets.US_ASCII);
+
+    private final byte[] dados;
+    private final int fim;
+    private int posicao;
+
+    String acao;
+    String origem;
+    String destino;
+
+    /**
+     * Posição do '{' inicial do conteúdo, ou {@code -1} se a mensagem não possuir conteúdo.
+     */
+    int inicioConteudo = -1;
+
+    /**
+     * Posição seguinte ao '}' final do conteúdo.
+     */
+    int fimConteudo = -1;
+
+    /**
+     * Indica se o objeto do conteúdo não possui nenhum campo.
+     */
+    boolean conteudoVazio;
+
+    /**
+     * Posição do '{' inicial do campo {@code metadata} do conteúdo, ou {@code -1} se o campo não existir.
+     */
+    int inicioMetadata = -1;
+
+    /**
+     * Posição do '}' final do campo {@code metadata} do conteúdo.
+     */
+    int fimMetadata = -1;
+
+    /**
+     * Indica se o campo {@code metadata} do conteúdo não possui nenhum campo.
+     */
+    boolean metadataVazio;
+
+    /**
+     * Indica se o conteúdo possui um campo {@code metadata} que não é um objeto.
+     */
+    boolean metadataInvalido;
+
+    private LeitorDeMensagem(byte[] dados, int inicio, int fim) {
+        this.dados = dados;
+        this.posicao = inicio;
+        this.fim = fim;
+    }
+
+    /**
+     * Lê o cabeçalho e localiza o conteúdo da mensagem.
+     *
+     * @param dados  O buffer com a mensagem JSON em UTF-8.
+     * @param inicio A posição inicial da mensagem no buffer.
+     * @param fim    A posição seguinte ao último byte da mensagem no buffer.
+     * @return O leitor com os campos do cabeçalho e os limites do conteúdo.
+     * @throws JsonSyntaxException Se a mensagem não for um objeto JSON válido.
+     */
+    static LeitorDeMensagem ler(byte[] dados, int inicio, int fim) {
+        LeitorDeMensagem leitor = new LeitorDeMensagem(dados, inicio, fim);
+        try {
+            leitor.lerMensagem();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new JsonSyntaxException("Mensagem JSON incompleta.", e);
+        }
+        leitor.pularEspacos();
+        if (leitor.posicao < fim) {
+            throw leitor.erro("Conteúdo inesperado após o fim da mensagem");
+        }
+        return leitor;
+    }
+
+    private void lerMensagem() {
+        pularEspacos();
+        esperar('{');
+        pularEspacos();
+        if (dados[posicao] == '}') {
+            posicao++;
+            return;
+        }
+        while (true) {
+            int inicioChave = lerLimitesDeString();
+            int fimChave = posicao - 1;
+            pularEspacos();
+            esperar(':');
+            pularEspacos();
+
+            if (chaveIgual(inicioChave, fimChave, ACAO)) {
+                acao = lerValorSimples();
+            } else if (chaveIgual(inicioChave, fimChave, ORIGEM)) {
+                origem = lerValorSimples();
+            } else if (chaveIgual(inicioChave, fimChave, DESTINO)) {
+                destino = lerValorSimples();
+            } else if (chaveIgual(inicioChave, fimChave, CONTEUDO)) {
+                lerConteudo();
+            } else {
+                pularValor();
+            }
+
+            pularEspacos();
+            if (dados[posicao] == ',') {
+                posicao++;
+                pularEspacos();
+            } else {
+                esperar('}');
+                return;
+            }
+        }
+    }
+
+    /**
+     * Localiza os limites do conteúdo e do seu campo {@code metadata}, sem decodificar os demais campos.
+     */
+    private void lerConteudo() {
+        if (dados[posicao] == 'n') {
+            pularValor();
+            inicioConteudo = -1;
+            return;
+        }
+        if (dados[posicao] != '{') {
+            throw erro("O conteúdo da mensagem deve ser um objeto JSON");
+        }
+
+        inicioConteudo = posicao;
+        inicioMetadata = -1;
+        metadataInvalido = false;
+        posicao++;
+        pularEspacos();
+        conteudoVazio = dados[posicao] == '}';
+        if (conteudoVazio) {
+            posicao++;
+            fimConteudo = posicao;
+            return;
+        }
+
+        while (true) {
+            int inicioChave = lerLimitesDeString();
+            int fimChave = posicao - 1;
+            pularEspacos();
+            esperar(':');
+            pularEspacos();
+
+            if (chaveIgual(inicioChave, fimChave, METADATA)) {
+                if (dados[posicao] == '{') {
+                    inicioMetadata = posicao;
+                    metadataInvalido = false;
+                    posicao++;
+                    pularEspacos();
+                    metadataVazio = dados[posicao] == '}';
+                    posicao = inicioMetadata;
+                    pularValor();
+                    fimMetadata = posicao - 1;
+                } else {
+                    inicioMetadata = -1;
+                    metadataInvalido = true;
+                    pularValor();
+                }
+            } else {
+                pularValor();
+            }
+
+            pularEspacos();
+            if (dados[posicao] == ',') {
+                posicao++;
+                pularEspacos();
+            } else {
+                esperar('}');
+                fimConteudo = posicao;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Lê um valor textual, numérico ou booleano do cabeçalho como texto.
+     *
+     * @return O valor lido, ou {@code null} se o valor for {@code null}.
+     */
+    private String lerValorSimples() {
+        byte atual = dados[posicao];
+        if (atual == '"') {
+            return lerString();
+        }
+        if (atual == '{' || atual == '[') {
+            throw erro("Esperado um valor simples");
+        }
+        int inicio = posicao;
+        pularValor();
+        String literal = new String(dados, inicio, posicao - inicio, StandardCharsets.UTF_8);
+        return "null".equals(literal) ? null : literal;
+    }
+
+    /**
+     * Lê uma string JSON a partir da posição atual, decodificando as sequências de escape.
+     *
+     * @return A string decodificada.
+     */
+    private String lerString() {
+        int inicio = lerLimitesDeString();
+        return decodificar(inicio, posicao - 1);
+    }
+
+    /**
+     * Decodifica o trecho de uma string JSON, entre as aspas, tratando as sequências de escape.
+     *
+     * @param inicio    A posição do primeiro byte da string, após as aspas iniciais.
+     * @param fimString A posição das aspas finais.
+     * @return A string decodificada.
+     * @throws JsonSyntaxException Se a string possuir uma sequência de escape inválida.
+     */
+    private String decodificar(int inicio, int fimString) {
+        if (!possuiEscape(inicio, fimString)) {
+            return new String(dados, inicio, fimString - inicio, StandardCharsets.UTF_8);
+        }
+
+        // Sequências de escape são raras no cabeçalho; decodifica o trecho e trata os escapes em seguida
+        String bruta = new String(dados, inicio, fimString - inicio, StandardCharsets.UTF_8);
+        StringBuilder resultado = new StringBuilder(bruta.length());
+        for (int i = 0; i < bruta.length(); i++) {
+            char c = bruta.charAt(i);
+            if (c != '\\') {
+                resultado.append(c);
+                continue;
+            }
+            char escape = bruta.charAt(++i);
+            switch (escape) {
+                case 'b':
+                    resultado.append('\b');
+                    break;
+                case 'f':
+                    resultado.append('\f');
+                    break;
+                case 'n':
+                    resultado.append('\n');
+                    break;
+                case 'r':
+                    resultado.append('\r');
+                    break;
+                case 't':
+                    resultado.append('\t');
+                    break;
+                case 'u':
+                    resultado.append(lerCodigoUnicode(bruta, i + 1));
+                    i += 4;
+                    break;
+                case '"':
+                case '\\':
+                case '/':
+                    resultado.append(escape);
+                    break;
+                default:
+                    throw erro(String.format("Sequência de escape inválida '\\%c'", escape));
+            }
+        }
+        return resultado.toString();
+    }
+
+    /**
+     * Lê os quatro dígitos hexadecimais de uma sequência de escape Unicode.
+     */
+    private char lerCodigoUnicode(String bruta, int inicio) {
+        if (inicio + 4 > bruta.length()) {
+            throw erro("Sequência de escape \\u incompleta");
+        }
+        int codigo = 0;
+        for (int i = inicio; i < inicio + 4; i++) {
+            int digito = Character.digit(bruta.charAt(i), 16);
+            if (digito < 0) {
+                throw erro(String.format("Dígito hexadecimal inválido '%c' na sequência de escape \\u",
+                        bruta.charAt(i)));
+            }
+            codigo = (codigo << 4) | digito;
+        }
+        return (char) codigo;
+    }
+
+    private boolean possuiEscape(int inicio, int fimString) {
+        for (int i = inicio; i < fimString; i++) {
+            if (dados[i] == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Avança sobre uma string JSON iniciada na posição atual.
+     *
+     * @return A posição do primeiro byte da string, após as aspas iniciais. Ao final, a posição atual fica logo após
+     * as aspas finais.
+     */
+    private int lerLimitesDeString() {
+        esperar('"');
+        int inicio = posicao;
+        while (true) {
+            byte atual = dados[posicao++];
+            if (atual == '\\') {
+                posicao++;
+            } else if (atual == '"') {
+                return inicio;
+            }
+        }
+    }
+
+    /**
+     * Avança sobre um valor JSON qualquer a partir da posição atual.
+     */
+    private void pularValor() {
+        byte atual = dados[posicao];
+        if (atual == '"') {
+            lerLimitesDeString();
+            return;
+        }
+        if (atual == '{' || atual == '[') {
+            int profundidade = 0;
+            do {
+                atual = dados[posicao];
+                if (atual == '"') {
+                    lerLimitesDeString();
+                    continue;
+                }
+                if (atual == '{' || atual == '[') {
+                    profundidade++;
+                } else if (atual == '}' || atual == ']') {
+                    profundidade--;
+                }
+                posicao++;
+            } while (profundidade > 0);
+            return;
+        }
+
+        int inicio = posicao;
+        while (posicao < fim) {
+            atual = dados[posicao];
+            if (atual == ',' || atual == '}' || atual == ']' || ehEspaco(atual)) {
+                break;
+            }
+            posicao++;
+        }
+        if (posicao == inicio) {
+            throw erro("Valor esperado");
+        }
+    }
+
+    private void pularEspacos() {
+        while (posicao < fim && ehEspaco(dados[posicao])) {
+            posicao++;
+        }
+    }
+
+    private void esperar(char caractere) {
+        if (posicao >= fim || dados[posicao] != caractere) {
+            throw erro(String.format("Esperado '%c'", caractere));
+        }
+        posicao++;
+    }
+
+    private boolean chaveIgual(int inicio, int fimChave, byte[] chave) {
+        if (possuiEscape(inicio, fimChave)) {
+            return decodificar(inicio, fimChave).equals(new String(chave, StandardCharsets.US_ASCII));
+        }
+        if (fimChave - inicio != chave.length) {
+            return false;
+        }
+        for (int i = 0; i < chave.length; i++) {
+            if (dados[inicio + i] != chave[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean ehEspaco(byte atual) {
+        return atual == ' ' || atual == '\n' || atual == '\r' || atual == '\t';
+    }
+
+    private JsonSyntaxException erro(String descricao) {
+        return new JsonSyntaxException(String.format("%s na posição %d da mensagem.", descricao, posicao));
+    }
+}
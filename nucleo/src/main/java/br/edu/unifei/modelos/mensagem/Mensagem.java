@@ -1,17 +1,105 @@
 package br.edu.unifei.modelos.mensagem;
 
-import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
 
 /**
  * Classe que representa uma mensagem a ser trocada entre serviços e protocolos. Uma mensagem contém uma ação, o
  * endereço de origem, o endereço de destino e um conteúdo em formato JSON.
+ *
+ * <p>
+ *     Mensagens recebidas pelos protocolos são lidas de forma preguiçosa: apenas a ação, a origem e o destino são
+ *     decodificados, e o conteúdo permanece como os bytes UTF-8 originais até que seja acessado por
+ *     {@link #getConteudo()}. Assim, mensagens que o barramento apenas encaminha são reenviadas sem que o conteúdo
+ *     seja convertido em um {@link JsonObject}. Os timestamps adicionados por {@link #adicionarTimestampAoMetadata}
+ *     enquanto o conteúdo não foi decodificado são inseridos diretamente no campo {@code metadata} durante a
+ *     serialização, realizada pelo {@link CodificadorDeMensagem}.
+ * </p>
+ *
+ * <p>
+ *     A mensagem pode ser recebida e enviada em qualquer {@link FormatoDeMensagem}. O conteúdo não decodificado é
+ *     mantido no formato em que foi recebido e só é convertido quando a mensagem é enviada em outro formato.
+ * </p>
+ *
+ * <p>
+ *     Os bytes produzidos por {@link #toBytes(FormatoDeMensagem)} são guardados na mensagem e compartilhados, somente
+ *     para leitura, por todos os envios no mesmo formato, de modo que a mensagem é codificada uma única vez mesmo
+ *     quando encaminhada a vários destinos ou protocolos. Uma mensagem recebida e não alterada é reenviada no formato
+ *     de recepção com os próprios bytes recebidos. Os bytes guardados são descartados quando a mensagem é alterada
+ *     por {@link #adicionarTimestampAoMetadata} ou quando o conteúdo é obtido por {@link #getConteudo()}, já que o
+ *     {@link JsonObject} retornado pode ser modificado.
+ * </p>
+ *
+ * <p>
+ *     O estado preguiçoso do conteúdo (os bytes recebidos, os timestamps pendentes e o {@link JsonObject} decodificado)
+ *     é lido e alterado apenas sob o monitor da mensagem, de modo que a mensagem pode ser codificada, consultada e
+ *     receber timestamps em threads diferentes. O {@link JsonObject} retornado por {@link #getConteudo()}, por outro
+ *     lado, não é sincronizado: quem o altera deve fazê-lo em uma única thread, antes de entregar a mensagem às demais.
+ * </p>
  */
 public class Mensagem {
+
     private final String acao;
     private final String origem;
     private final String destino;
-    private final JsonObject conteudo;
+    private JsonObject conteudo;
+
+    /**
+     * Formato em que a mensagem foi recebida e em que o conteúdo não decodificado está armazenado.
+     */
+    private FormatoDeMensagem formato = FormatoDeMensagem.JSON;
+
+    /**
+     * Modo de entrega definido para esta mensagem, ou {@code null} para utilizar o modo registrado para o destino.
+     * Nunca serializado.
+     */
+    private ModoDeEntrega modoDeEntrega;
+
+    /**
+     * Nível de QoS MQTT com que a mensagem foi recebida, ou {@code -1} se a mensagem não foi recebida via MQTT. Nunca
+     * serializado.
+     */
+    private int qosDeRecepcao = -1;
+
+    /**
+     * Instante, em {@link System#nanoTime()}, em que a mensagem entrou na fila de recepção, ou {@code 0} se ainda não
+     * entrou. Usado apenas nas métricas de latência e nunca serializado.
+     */
+    private long instanteDeEnfileiramentoNanos;
+
+    /**
+     * Bytes UTF-8 da mensagem recebida enquanto o conteúdo não for decodificado, ou {@code null} se o conteúdo já
+     * estiver disponível como {@link JsonObject}. Este campo, os limites abaixo, {@link #conteudo} e
+     * {@link #metadataPendente} são acessados apenas sob o monitor da mensagem após a construção.
+     */
+    private byte[] conteudoBruto;
+    private int inicioConteudo;
+    private int fimConteudo;
+    private boolean conteudoVazio;
+    private int inicioMetadata;
+    private int fimMetadata;
+    private boolean metadataVazio;
+    private boolean metadataInvalido;
+
+    /**
+     * Timestamps adicionados enquanto o conteúdo não foi decodificado.
+     */
+    private JsonObject metadataPendente;
+
+    /**
+     * Bytes codificados da mensagem em JSON e no {@link FormatoDeMensagem#BINARIO}, compartilhados entre os envios,
+     * ou {@code null} se a mensagem ainda não foi codificada no formato ou foi alterada desde a codificação.
+     */
+    private volatile byte[] bytesJson;
+    private volatile byte[] bytesBinarios;
 
     /**
      * Construtor que inicializa uma mensagem com os parâmetros fornecidos.
@@ -28,6 +116,37 @@ public class Mensagem {
         this.conteudo = conteudo;
     }
 
+    private Mensagem(LeitorDeMensagem leitor, byte[] dados) {
+        this(leitor.acao, leitor.origem, leitor.destino, null);
+        guardarBytes(formato, dados);
+        if (leitor.inicioConteudo >= 0) {
+            this.conteudoBruto = dados;
+            this.inicioConteudo = leitor.inicioConteudo;
+            this.fimConteudo = leitor.fimConteudo;
+            this.conteudoVazio = leitor.conteudoVazio;
+            this.inicioMetadata = leitor.inicioMetadata;
+            this.fimMetadata = leitor.fimMetadata;
+            this.metadataVazio = leitor.metadataVazio;
+            this.metadataInvalido = leitor.metadataInvalido;
+        }
+    }
+
+    private Mensagem(LeitorCbor leitor, byte[] dados) {
+        this(leitor.acao, leitor.origem, leitor.destino, null);
+        this.formato = FormatoDeMensagem.BINARIO;
+        guardarBytes(formato, dados);
+        if (leitor.inicioConteudo >= 0) {
+            this.conteudoBruto = dados;
+            this.inicioConteudo = leitor.inicioConteudo;
+            this.fimConteudo = leitor.fimConteudo;
+            this.conteudoVazio = leitor.conteudoVazio;
+            this.inicioMetadata = leitor.inicioMetadata;
+            this.fimMetadata = leitor.fimMetadata;
+            this.metadataVazio = leitor.metadataVazio;
+            this.metadataInvalido = leitor.metadataInvalido;
+        }
+    }
+
     /**
      * Cria uma instância de {@code Mensagem} a partir de uma string JSON.
      *
@@ -35,8 +154,36 @@ public class Mensagem {
      * @return Uma nova instância de {@code Mensagem} a partir do JSON fornecido.
      */
     public static Mensagem fromJson(String json) {
-        Gson gson = new Gson();
-        return gson.fromJson(json, Mensagem.class);
+        return fromJson(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Cria uma instância de {@code Mensagem} a partir dos bytes UTF-8 de um JSON, decodificando apenas a ação, a
+     * origem e o destino. O conteúdo é decodificado somente quando acessado. O array não deve ser alterado após a
+     * chamada, pois é mantido pela mensagem.
+     *
+     * @param json Os bytes UTF-8 do JSON a ser convertido em uma instância de {@code Mensagem}.
+     * @return Uma nova instância de {@code Mensagem} a partir do JSON fornecido.
+     * @throws com.google.gson.JsonSyntaxException Se os bytes não formarem um objeto JSON válido.
+     */
+    public static Mensagem fromJson(byte[] json) {
+        return new Mensagem(LeitorDeMensagem.ler(json, 0, json.length), json);
+    }
+
+    /**
+     * Cria uma instância de {@code Mensagem} a partir dos bytes recebidos no formato informado, decodificando apenas
+     * a ação, a origem e o destino. O array não deve ser alterado após a chamada, pois é mantido pela mensagem.
+     *
+     * @param dados   Os bytes da mensagem.
+     * @param formato O {@link FormatoDeMensagem} em que os bytes estão codificados.
+     * @return Uma nova instância de {@code Mensagem} a partir dos bytes fornecidos.
+     * @throws com.google.gson.JsonSyntaxException Se os bytes não formarem uma mensagem válida no formato informado.
+     */
+    public static Mensagem fromBytes(byte[] dados, FormatoDeMensagem formato) {
+        if (formato == FormatoDeMensagem.BINARIO) {
+            return new Mensagem(LeitorCbor.ler(dados, 0, dados.length), dados);
+        }
+        return fromJson(dados);
     }
 
     /**
@@ -61,20 +208,187 @@ public class Mensagem {
     }
 
     /**
+     * @return o formato em que a mensagem foi recebida, ou {@link FormatoDeMensagem#JSON} se a mensagem foi criada
+     * pelo barramento.
+     */
+    public FormatoDeMensagem getFormato() {
+        return formato;
+    }
+
+    /**
+     * @return o modo de entrega definido para esta mensagem, ou {@code null} se a mensagem deve utilizar o modo
+     * registrado para o destino.
+     */
+    public ModoDeEntrega getModoDeEntrega() {
+        return modoDeEntrega;
+    }
+
+    /**
+     * @param modoDeEntrega O {@link ModoDeEntrega} desta mensagem, que prevalece sobre o modo registrado para o
+     *                      destino, ou {@code null} para utilizar o modo do destino.
+     */
+    public void setModoDeEntrega(ModoDeEntrega modoDeEntrega) {
+        this.modoDeEntrega = modoDeEntrega;
+    }
+
+    /**
+     * @return o nível de QoS MQTT (0, 1 ou 2) com que a mensagem foi recebida, ou {@code -1} se a mensagem não foi
+     * recebida via MQTT.
+     */
+    public int getQosDeRecepcao() {
+        return qosDeRecepcao;
+    }
+
+    /**
+     * @param qosDeRecepcao O nível de QoS MQTT com que a mensagem foi recebida.
+     */
+    public void setQosDeRecepcao(int qosDeRecepcao) {
+        this.qosDeRecepcao = qosDeRecepcao;
+    }
+
+    /**
+     * @return o instante, em {@link System#nanoTime()}, em que a mensagem entrou na fila de recepção, ou {@code 0} se
+     * ainda não entrou.
+     */
+    public long getInstanteDeEnfileiramentoNanos() {
+        return instanteDeEnfileiramentoNanos;
+    }
+
+    /**
+     * @param instanteDeEnfileiramentoNanos O instante, em {@link System#nanoTime()}, em que a mensagem entrou na fila
+     *                                      de recepção.
+     */
+    public void setInstanteDeEnfileiramentoNanos(long instanteDeEnfileiramentoNanos) {
+        this.instanteDeEnfileiramentoNanos = instanteDeEnfileiramentoNanos;
+    }
+
+    /**
+     * Retorna o conteúdo da mensagem, decodificando-o na primeira chamada caso a mensagem tenha sido lida de forma
+     * preguiçosa. Como o conteúdo retornado pode ser alterado, os bytes codificados guardados são descartados.
+     *
+     * @return o conteúdo da mensagem no formato {@link JsonObject}.
+     */
+    public synchronized JsonObject getConteudo() {
+        if (conteudoBruto != null) {
+            decodificarConteudo();
+        }
+        descartarBytes();
+        return conteudo;
+    }
+
+    /**
+     * Obtém o conteúdo para leitura, decodificando-o se necessário, sem descartar os bytes codificados guardados. O
+     * conteúdo retornado não deve ser alterado.
+     *
      * @return o conteúdo da mensagem no formato {@link JsonObject}.
      */
-    public JsonObject getConteudo() {
+    synchronized JsonObject getConteudoParaLeitura() {
+        if (conteudoBruto != null) {
+            decodificarConteudo();
+        }
         return conteudo;
     }
 
+    /**
+     * Obtém um campo do {@code metadata} da mensagem. Se o conteúdo ainda não foi decodificado, apenas o
+     * {@code metadata} é lido dos bytes recebidos, sem decodificar o restante do conteúdo.
+     *
+     * @param campo O nome do campo (Ex.: "qos").
+     * @return O valor do campo, ou {@code null} se a mensagem não possuir {@code metadata} ou o campo não existir.
+     */
+    public synchronized JsonElement getCampoDoMetadata(String campo) {
+        if (conteudoBruto == null || metadataInvalido) {
+            JsonObject conteudo = getConteudoParaLeitura();
+            JsonElement metadata = conteudo == null ? null : conteudo.get("metadata");
+            return metadata == null || !metadata.isJsonObject() ? null : metadata.getAsJsonObject().get(campo);
+        }
+
+        if (metadataPendente != null && metadataPendente.has(campo)) {
+            return metadataPendente.get(campo);
+        }
+        if (inicioMetadata < 0 || metadataVazio) {
+            return null;
+        }
+        return decodificarMetadata().get(campo);
+    }
+
+    /**
+     * @return {@code true} se o conteúdo já está disponível como {@link JsonObject}, ou {@code false} se ainda está
+     * armazenado como os bytes recebidos.
+     */
+    synchronized boolean isConteudoDecodificado() {
+        return conteudoBruto == null;
+    }
+
+    /**
+     * @param formato O formato de envio.
+     * @return {@code true} se o conteúdo ainda não foi decodificado e está armazenado no formato informado, podendo
+     * ser copiado sem conversão.
+     */
+    synchronized boolean isConteudoBrutoNoFormato(FormatoDeMensagem formato) {
+        return conteudoBruto != null && this.formato == formato;
+    }
+
     /**
      * Converte esta mensagem para uma string JSON.
      *
      * @return a representação JSON desta mensagem.
      */
     public String toJson() {
-        Gson gson = new Gson();
-        return gson.toJson(this);
+        return new String(toBytes(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Converte esta mensagem para os bytes UTF-8 da sua representação JSON. Se o conteúdo não tiver sido
+     * decodificado, os bytes recebidos são copiados sem conversão.
+     *
+     * @return os bytes UTF-8 da representação JSON desta mensagem, compartilhados entre os envios e que não devem ser
+     * alterados.
+     */
+    public byte[] toBytes() {
+        return toBytes(FormatoDeMensagem.JSON);
+    }
+
+    /**
+     * Converte esta mensagem para os bytes da sua representação no formato informado. Os bytes são produzidos na
+     * primeira chamada e reutilizados nas seguintes enquanto a mensagem não for alterada; uma mensagem recebida e não
+     * alterada retorna os próprios bytes recebidos no formato de recepção. O conteúdo não decodificado é copiado sem
+     * conversão se estiver no mesmo formato.
+     *
+     * @param formato O {@link FormatoDeMensagem} de envio.
+     * @return os bytes da representação desta mensagem no formato informado, compartilhados entre os envios e que não
+     * devem ser alterados.
+     */
+    public byte[] toBytes(FormatoDeMensagem formato) {
+        byte[] bytes = formato == FormatoDeMensagem.BINARIO ? bytesBinarios : bytesJson;
+        if (bytes != null) {
+            return bytes;
+        }
+        // A codificação e a guarda ficam sob o monitor para que uma alteração concorrente não seja sobrescrita
+        synchronized (this) {
+            bytes = formato == FormatoDeMensagem.BINARIO ? bytesBinarios : bytesJson;
+            if (bytes == null) {
+                bytes = CodificadorDeMensagem.codificar(this, formato);
+                guardarBytes(formato, bytes);
+            }
+            return bytes;
+        }
+    }
+
+    private void guardarBytes(FormatoDeMensagem formato, byte[] bytes) {
+        if (formato == FormatoDeMensagem.BINARIO) {
+            bytesBinarios = bytes;
+        } else {
+            bytesJson = bytes;
+        }
+    }
+
+    /**
+     * Descarta os bytes codificados, que deixam de corresponder à mensagem após uma alteração.
+     */
+    private void descartarBytes() {
+        bytesJson = null;
+        bytesBinarios = null;
     }
 
     /**
@@ -82,11 +396,128 @@ public class Mensagem {
      *
      * @param campo Nome do campo do timestamp a ser adicionado (Ex.: "timestamp_envio").
      */
-    public void adicionarTimestampAoMetadata(String campo) {
-        JsonObject metadata = this.conteudo.has("metadata")
-                ? this.conteudo.getAsJsonObject("metadata")
+    public synchronized void adicionarTimestampAoMetadata(String campo) {
+        // Um metadata que não é objeto exige a decodificação, que falha como no conteúdo já decodificado
+        if (conteudoBruto != null && !metadataInvalido) {
+            descartarBytes();
+            if (metadataPendente == null) {
+                metadataPendente = new JsonObject();
+            }
+            metadataPendente.addProperty(campo, System.currentTimeMillis());
+            return;
+        }
+
+        JsonObject conteudo = getConteudo();
+        JsonObject metadata = conteudo.has("metadata")
+                ? conteudo.getAsJsonObject("metadata")
                 : new JsonObject();
         metadata.addProperty(campo, System.currentTimeMillis());
-        this.conteudo.add("metadata", metadata);
+        conteudo.add("metadata", metadata);
+    }
+
+    /**
+     * Decodifica os bytes do conteúdo e aplica os timestamps adicionados enquanto o conteúdo não estava disponível.
+     */
+    private void decodificarConteudo() {
+        JsonObject decodificado = formato == FormatoDeMensagem.BINARIO
+                ? LeitorCbor.decodificarObjeto(conteudoBruto, inicioConteudo, fimConteudo)
+                : JsonParser.parseReader(new InputStreamReader(
+                        new ByteArrayInputStream(conteudoBruto, inicioConteudo, fimConteudo - inicioConteudo),
+                        StandardCharsets.UTF_8)).getAsJsonObject();
+
+        if (metadataPendente != null) {
+            JsonObject metadata = decodificado.has("metadata")
+                    ? decodificado.getAsJsonObject("metadata")
+                    : new JsonObject();
+            for (Map.Entry<String, JsonElement> campo : metadataPendente.entrySet()) {
+                metadata.add(campo.getKey(), campo.getValue());
+            }
+            decodificado.add("metadata", metadata);
+        }
+
+        this.conteudo = decodificado;
+        this.conteudoBruto = null;
+        this.metadataPendente = null;
+    }
+
+    /**
+     * Decodifica apenas o {@code metadata} dos bytes do conteúdo ainda não decodificado.
+     */
+    private JsonObject decodificarMetadata() {
+        if (formato == FormatoDeMensagem.BINARIO) {
+            // Em um mapa de tamanho indefinido, o fim do metadata é a posição do byte de parada
+            boolean indefinido = LeitorCbor.lerQuantidade(conteudoBruto, inicioMetadata) < 0;
+            return LeitorCbor.decodificarObjeto(conteudoBruto, inicioMetadata,
+                    indefinido ? fimMetadata + 1 : fimMetadata);
+        }
+        // No JSON, o fim do metadata é a posição do '}' final
+        return JsonParser.parseReader(new InputStreamReader(
+                new ByteArrayInputStream(conteudoBruto, inicioMetadata, fimMetadata + 1 - inicioMetadata),
+                StandardCharsets.UTF_8)).getAsJsonObject();
+    }
+
+    /**
+     * Escreve o conteúdo ainda não decodificado, inserindo os timestamps pendentes no campo {@code metadata}.
+     *
+     * @param saida O destino da escrita.
+     * @throws IOException Se ocorrer um erro de escrita.
+     */
+    synchronized void escreverConteudoBruto(OutputStream saida) throws IOException {
+        if (metadataPendente == null) {
+            saida.write(conteudoBruto, inicioConteudo, fimConteudo - inicioConteudo);
+            return;
+        }
+
+        String camposPendentes = metadataPendente.toString();
+        camposPendentes = camposPendentes.substring(1, camposPendentes.length() - 1);
+        byte[] pendentes = (inicioMetadata >= 0
+                ? (metadataVazio ? "" : ",") + camposPendentes
+                : (conteudoVazio ? "" : ",") + "\"metadata\":{" + camposPendentes + "}")
+                .getBytes(StandardCharsets.UTF_8);
+
+        // Insere os timestamps antes do '}' final do metadata ou, se não houver metadata, do conteúdo
+        int pontoDeInsercao = inicioMetadata >= 0 ? fimMetadata : fimConteudo - 1;
+        saida.write(conteudoBruto, inicioConteudo, pontoDeInsercao - inicioConteudo);
+        saida.write(pendentes);
+        saida.write(conteudoBruto, pontoDeInsercao, fimConteudo - pontoDeInsercao);
+    }
+
+    /**
+     * Escreve o conteúdo ainda não decodificado no formato {@link FormatoDeMensagem#BINARIO}, inserindo os timestamps
+     * pendentes no mapa {@code metadata}. Os cabeçalhos dos mapas de tamanho definido são reescritos com a nova
+     * quantidade de campos.
+     *
+     * @param saida O destino da escrita.
+     */
+    synchronized void escreverConteudoBrutoBinario(BufferDeSaida saida) {
+        if (metadataPendente == null) {
+            saida.write(conteudoBruto, inicioConteudo, fimConteudo - inicioConteudo);
+            return;
+        }
+
+        // O mapa que recebe os novos campos é o metadata ou, se não houver metadata, o próprio conteúdo
+        int inicioDoMapa = inicioMetadata >= 0 ? inicioMetadata : inicioConteudo;
+        long campos = LeitorCbor.lerQuantidade(conteudoBruto, inicioDoMapa);
+        int inicioDosCampos = inicioDoMapa;
+        int pontoDeInsercao = inicioMetadata >= 0 ? fimMetadata : fimConteudo;
+
+        saida.write(conteudoBruto, inicioConteudo, inicioDoMapa - inicioConteudo);
+        if (campos >= 0) {
+            long novosCampos = inicioMetadata >= 0 ? metadataPendente.size() : 1;
+            EscritorCbor.escreverCabecalho(saida, LeitorCbor.TIPO_MAPA, campos + novosCampos);
+            inicioDosCampos += LeitorCbor.tamanhoDoCabecalho(conteudoBruto, inicioDoMapa);
+        } else if (inicioMetadata < 0) {
+            // Mapa de tamanho indefinido: os campos são inseridos antes do byte de parada
+            pontoDeInsercao--;
+        }
+        saida.write(conteudoBruto, inicioDosCampos, pontoDeInsercao - inicioDosCampos);
+
+        if (inicioMetadata >= 0) {
+            EscritorCbor.escreverCampos(saida, metadataPendente);
+        } else {
+            EscritorCbor.escreverTexto(saida, "metadata");
+            EscritorCbor.escreverElemento(saida, metadataPendente);
+        }
+        saida.write(conteudoBruto, pontoDeInsercao, fimConteudo - pontoDeInsercao);
     }
 }
@@ -0,0 +1,47 @@
+package br.edu.unifei.modelos.mensagem;
+
+/**
+ * Garantia de entrega de uma {@link Mensagem} enviada pelo barramento. O modo confirmável é o padrão; o modo não
+ * confirmável é indicado para telemetria de alta frequência, em que a perda eventual de uma leitura é aceitável e o
+ * custo das confirmações e retransmissões não é.
+ */
+public enum ModoDeEntrega {
+
+    /**
+     * A mensagem é confirmada pelo destino e retransmitida em caso de perda (CoAP {@code CON}).
+     */
+    CONFIRMAVEL("confirmavel"),
+
+    /**
+     * A mensagem é enviada uma única vez, sem confirmação nem resposta (CoAP {@code NON}).
+     */
+    NAO_CONFIRMAVEL("nao_confirmavel");
+
+    private final String nome;
+
+    ModoDeEntrega(String nome) {
+        this.nome = nome;
+    }
+
+    /**
+     * @return O nome curto do modo, usado nos parâmetros das mensagens.
+     */
+    public String getNome() {
+        return nome;
+    }
+
+    /**
+     * Obtém o modo de entrega pelo nome curto.
+     *
+     * @param nome O nome do modo (Ex.: "nao_confirmavel"), sem distinção entre maiúsculas e minúsculas.
+     * @return O modo correspondente, ou {@code null} se o nome não for reconhecido.
+     */
+    public static ModoDeEntrega deNome(String nome) {
+        for (ModoDeEntrega modo : values()) {
+            if (modo.nome.equalsIgnoreCase(nome)) {
+                return modo;
+            }
+        }
+        return null;
+    }
+}
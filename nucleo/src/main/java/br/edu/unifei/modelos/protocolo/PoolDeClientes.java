@@ -0,0 +1,228 @@
+package br.edu.unifei.modelos.protocolo;
+
+import br.edu.unifei.utils.LogUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool de clientes de um protocolo indexado pelo endereço de destino. Cada destino possui um único cliente, criado no
+ * primeiro envio e reutilizado pelos envios seguintes, de modo que o envio de uma mensagem custa apenas uma consulta
+ * ao mapa.
+ *
+ * <p>
+ *     Clientes sem uso pelo tempo de ociosidade configurado são fechados por uma thread de limpeza. A quantidade de
+ *     clientes abertos é limitada: ao criar um cliente além do limite, o cliente usado há mais tempo é fechado. Um
+ *     envio que obteve o cliente no mesmo instante em que ele foi removido pode falhar, sendo tratado como qualquer
+ *     outra falha de envio pelo protocolo. Envios concorrentes para um destino ainda sem cliente podem criar mais de
+ *     um cliente, mas apenas o primeiro é mantido e os demais são fechados imediatamente.
+ * </p>
+ *
+ * @param <C> O tipo do cliente.
+ */
+public class PoolDeClientes<C extends Closeable> {
+
+    /**
+     * Tempo padrão, em milissegundos, após o qual um cliente sem uso é fechado.
+     */
+    public static final long TEMPO_OCIOSO_PADRAO_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Quantidade máxima padrão de clientes abertos.
+     */
+    public static final int MAXIMO_DE_CLIENTES_PADRAO = 256;
+
+    /**
+     * Cria o cliente de um destino.
+     *
+     * @param <C> O tipo do cliente.
+     */
+    @FunctionalInterface
+    public interface FabricaDeClientes<C> {
+
+        /**
+         * @param endereco O endereço de destino.
+         * @return Um novo cliente conectado ao destino.
+         * @throws IOException Se o cliente não puder ser criado.
+         */
+        C criar(InetSocketAddress endereco) throws IOException;
+    }
+
+    /**
+     * Cliente do pool e o instante, em {@link System#nanoTime()}, do seu último uso.
+     */
+    private static final class Entrada<C> {
+        private final C cliente;
+        private volatile long ultimoUso;
+
+        private Entrada(C cliente) {
+            this.cliente = cliente;
+            this.ultimoUso = System.nanoTime();
+        }
+    }
+
+    private final String nome;
+    private final FabricaDeClientes<C> fabrica;
+    private final long tempoOciosoNanos;
+    private final int maximoDeClientes;
+    private final Map<InetSocketAddress, Entrada<C>> clientes = new ConcurrentHashMap<>();
+    private final AtomicLong clientesCriados = new AtomicLong();
+    private final ScheduledExecutorService limpeza;
+    private volatile boolean fechado;
+
+    /**
+     * Construtor que cria o pool e agenda a limpeza dos clientes ociosos.
+     *
+     * @param nome              O nome do pool, usado nos logs e no nome da thread de limpeza.
+     * @param fabrica           A {@link FabricaDeClientes} que cria o cliente de cada destino.
+     * @param tempoOciosoMillis O tempo, em milissegundos, após o qual um cliente sem uso é fechado.
+     * @param maximoDeClientes  A quantidade máxima de clientes abertos.
+     */
+    public PoolDeClientes(String nome, FabricaDeClientes<C> fabrica, long tempoOciosoMillis, int maximoDeClientes) {
+        if (tempoOciosoMillis <= 0 || maximoDeClientes <= 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Configuração inválida do pool '%s': tempo ocioso %d ms, máximo de clientes %d.",
+                    nome, tempoOciosoMillis, maximoDeClientes));
+        }
+        this.nome = nome;
+        this.fabrica = fabrica;
+        this.tempoOciosoNanos = TimeUnit.MILLISECONDS.toNanos(tempoOciosoMillis);
+        this.maximoDeClientes = maximoDeClientes;
+
+        this.limpeza = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, String.format("limpeza-%s", nome));
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalo = Math.max(1, tempoOciosoMillis / 2);
+        this.limpeza.scheduleWithFixedDelay(this::fecharClientesOciosos, intervalo, intervalo,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Obtém o cliente do destino, criando-o caso ainda não exista.
+     *
+     * @param endereco O endereço de destino.
+     * @return O cliente do destino.
+     * @throws IOException           Se o cliente não puder ser criado.
+     * @throws IllegalStateException Se o pool já foi fechado.
+     */
+    public C obter(InetSocketAddress endereco) throws IOException {
+        if (fechado) {
+            throw new IllegalStateException(String.format("O pool '%s' já foi fechado.", nome));
+        }
+
+        Entrada<C> entrada = clientes.get(endereco);
+        if (entrada != null) {
+            entrada.ultimoUso = System.nanoTime();
+            return entrada.cliente;
+        }
+
+        // O cliente é criado fora do mapa, para que a criação não bloqueie os demais destinos nem escape do
+        // fechamento do pool. Entre criações concorrentes para o mesmo destino, apenas a primeira é mantida.
+        Entrada<C> nova = new Entrada<>(fabrica.criar(endereco));
+        entrada = clientes.putIfAbsent(endereco, nova);
+        if (entrada != null) {
+            fecharCliente(endereco, nova.cliente);
+            entrada.ultimoUso = System.nanoTime();
+            return entrada.cliente;
+        }
+        if (fechado) {
+            // O pool foi fechado durante a criação, possivelmente sem ver o novo cliente
+            remover(endereco, nova);
+            throw new IllegalStateException(String.format("O pool '%s' já foi fechado.", nome));
+        }
+        entrada = nova;
+        clientesCriados.incrementAndGet();
+        LogUtils.logDebug("Cliente do pool '%s' criado para %s.", nome, endereco);
+
+        if (clientes.size() > maximoDeClientes) {
+            fecharMenosRecentes(endereco);
+        }
+        return entrada.cliente;
+    }
+
+    /**
+     * @return A quantidade de clientes abertos.
+     */
+    public int getQuantidadeDeClientes() {
+        return clientes.size();
+    }
+
+    /**
+     * @return A quantidade de clientes criados desde a criação do pool.
+     */
+    public long getClientesCriados() {
+        return clientesCriados.get();
+    }
+
+    /**
+     * Fecha todos os clientes e encerra a thread de limpeza. Chamadas seguintes a {@link #obter} falham.
+     */
+    public void fechar() {
+        fechado = true;
+        limpeza.shutdownNow();
+        for (InetSocketAddress endereco : clientes.keySet()) {
+            remover(endereco, clientes.get(endereco));
+        }
+    }
+
+    /**
+     * Fecha os clientes usados há mais tempo até que a quantidade de clientes volte ao limite, preservando o cliente
+     * recém-criado.
+     */
+    private void fecharMenosRecentes(InetSocketAddress preservado) {
+        while (clientes.size() > maximoDeClientes) {
+            InetSocketAddress maisAntigo = null;
+            long menorUso = Long.MAX_VALUE;
+            for (Map.Entry<InetSocketAddress, Entrada<C>> entrada : clientes.entrySet()) {
+                long uso = entrada.getValue().ultimoUso;
+                if (!entrada.getKey().equals(preservado) && (maisAntigo == null || uso - menorUso < 0)) {
+                    maisAntigo = entrada.getKey();
+                    menorUso = uso;
+                }
+            }
+            if (maisAntigo == null) {
+                return;
+            }
+            LogUtils.logDebug("Limite de %d clientes do pool '%s' atingido. Fechando o cliente de %s.",
+                    maximoDeClientes, nome, maisAntigo);
+            remover(maisAntigo, clientes.get(maisAntigo));
+        }
+    }
+
+    /**
+     * Fecha os clientes sem uso há mais tempo que o tempo de ociosidade.
+     */
+    private void fecharClientesOciosos() {
+        long agora = System.nanoTime();
+        for (Map.Entry<InetSocketAddress, Entrada<C>> entrada : clientes.entrySet()) {
+            if (agora - entrada.getValue().ultimoUso > tempoOciosoNanos) {
+                LogUtils.logDebug("Fechando o cliente ocioso do pool '%s' para %s.", nome, entrada.getKey());
+                remover(entrada.getKey(), entrada.getValue());
+            }
+        }
+    }
+
+    private void remover(InetSocketAddress endereco, Entrada<C> entrada) {
+        if (entrada == null || !clientes.remove(endereco, entrada)) {
+            return;
+        }
+        fecharCliente(endereco, entrada.cliente);
+    }
+
+    private void fecharCliente(InetSocketAddress endereco, C cliente) {
+        try {
+            cliente.close();
+        } catch (IOException | RuntimeException e) {
+            LogUtils.logError("Erro ao fechar o cliente do pool '%s' para %s: %s", nome, endereco, e.getMessage());
+        }
+    }
+}
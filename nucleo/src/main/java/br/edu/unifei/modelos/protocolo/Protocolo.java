@@ -1,7 +1,14 @@
 package br.edu.unifei.modelos.protocolo;
 
+import br.edu.unifei.barramento.Barramento;
 import br.edu.unifei.barramento.ControladorDoBarramento;
+import br.edu.unifei.barramento.metricas.EstagioDeLatencia;
+import br.edu.unifei.modelos.mensagem.FormatoDeMensagem;
 import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.modelos.mensagem.ModoDeEntrega;
+import br.edu.unifei.utils.LogUtils;
+
+import java.util.List;
 
 /**
  * Classe abstrata que define a estrutura básica de um protocolo de comunicação. Um protocolo é responsável por enviar
@@ -32,6 +39,93 @@ public abstract class Protocolo {
         return this.getClass().getSimpleName();
     }
 
+    /**
+     * Obtém o formato em que as mensagens devem ser enviadas ao destino, conforme registrado no barramento.
+     *
+     * @param destino O endpoint de destino.
+     * @return O {@link FormatoDeMensagem} do destino, ou {@link FormatoDeMensagem#JSON} se o destino não estiver
+     * registrado ou o protocolo não estiver associado a um controlador.
+     */
+    protected FormatoDeMensagem getFormatoDoDestino(String destino) {
+        Barramento barramento = getBarramento();
+        return barramento == null ? FormatoDeMensagem.JSON : barramento.getFormatoDeMensagem(destino);
+    }
+
+    /**
+     * Obtém o modo de entrega de uma mensagem: o modo definido na própria mensagem ou, na sua ausência, o modo
+     * registrado no barramento para o destino.
+     *
+     * @param mensagem A {@link Mensagem} a ser enviada.
+     * @return O {@link ModoDeEntrega} da mensagem, ou {@link ModoDeEntrega#CONFIRMAVEL} se nenhum modo estiver
+     * definido ou o protocolo não estiver associado a um controlador.
+     */
+    protected ModoDeEntrega getModoDeEntrega(Mensagem mensagem) {
+        if (mensagem.getModoDeEntrega() != null) {
+            return mensagem.getModoDeEntrega();
+        }
+        Barramento barramento = getBarramento();
+        return barramento == null ? ModoDeEntrega.CONFIRMAVEL : barramento.getModoDeEntrega(mensagem.getDestino());
+    }
+
+    /**
+     * Obtém o nível de QoS MQTT das mensagens enviadas ao destino, conforme registrado no barramento.
+     *
+     * @param destino O endpoint de destino.
+     * @return O nível de QoS do destino, ou {@code 1} se o protocolo não estiver associado a um controlador.
+     * @see Barramento#getNivelDeQos(String)
+     */
+    protected int getNivelDeQosDoDestino(String destino) {
+        Barramento barramento = getBarramento();
+        return barramento == null ? 1 : barramento.getNivelDeQos(destino);
+    }
+
+    /**
+     * Registra a latência da leitura de uma mensagem recebida pelo protocolo, no estágio
+     * {@link EstagioDeLatencia#RECEPCAO}.
+     *
+     * @param mensagem    A {@link Mensagem} recebida.
+     * @param inicioNanos O instante, em {@link System#nanoTime()}, em que a leitura da mensagem começou.
+     */
+    protected void registrarLatenciaDeRecepcao(Mensagem mensagem, long inicioNanos) {
+        Barramento barramento = getBarramento();
+        if (barramento != null) {
+            barramento.getMetricasDeLatencia().registrar(EstagioDeLatencia.RECEPCAO, getNomeProtocolo(),
+                    mensagem.getAcao(), System.nanoTime() - inicioNanos);
+        }
+    }
+
+    /**
+     * Adiciona o timestamp de recepção ({@code timestamp_bus_msg_recebida}, com o sufixo do tipo de endpoint de
+     * origem) ao campo {@code metadata} da mensagem, caso o barramento esteja com os timestamps na mensagem
+     * habilitados.
+     *
+     * @param mensagem A {@link Mensagem} recebida.
+     */
+    protected void adicionarTimestampDeRecepcao(Mensagem mensagem) {
+        Barramento barramento = getBarramento();
+        if (barramento == null || !barramento.isTimestampsNaMensagem()) {
+            return;
+        }
+
+        String sufixo_timestamp = "";
+        if (mensagem.getOrigem().contains("cliente")) {
+            sufixo_timestamp += "_cliente";
+        } else if (mensagem.getOrigem().contains("servidor")) {
+            sufixo_timestamp += "_servidor";
+        } else if (mensagem.getOrigem().contains("embarcado")) {
+            sufixo_timestamp += "_embarcado";
+        }
+        mensagem.adicionarTimestampAoMetadata(String.format("timestamp_bus_msg_recebida%s", sufixo_timestamp));
+    }
+
+    /**
+     * @return O {@link Barramento} do controlador associado, ou {@code null} se o protocolo não estiver associado a
+     * um controlador.
+     */
+    private Barramento getBarramento() {
+        return controlador == null ? null : controlador.getBarramento();
+    }
+
     /**
      * Método abstrato para enviar uma mensagem. Implementações específicas do protocolo devem fornecer a lógica de
      * envio de mensagem.
@@ -40,6 +134,34 @@ public abstract class Protocolo {
      */
     public abstract void enviarMensagem(Mensagem mensagem);
 
+    /**
+     * Envia um lote de mensagens de uma só vez. Por padrão, envia as mensagens uma a uma através de
+     * {@link #enviarMensagem(Mensagem)}; implementações capazes de agrupar os envios (por exemplo, publicando todas as
+     * mensagens antes de aguardar as confirmações) podem sobrescrever este método. A falha no envio de uma mensagem não
+     * impede o envio das demais.
+     *
+     * @param mensagens As {@link Mensagem}s a serem enviadas, na ordem de envio.
+     */
+    public void enviarMensagens(List<Mensagem> mensagens) {
+        for (Mensagem mensagem : mensagens) {
+            try {
+                enviarMensagem(mensagem);
+            } catch (Exception e) {
+                LogUtils.logError("Falha ao enviar mensagem para '%s' via '%s': '%s'.", mensagem.getDestino(),
+                        getNomeProtocolo(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Notifica o protocolo de que um endpoint foi associado a ele no barramento, permitindo preparar com antecedência
+     * o envio ao endpoint (por exemplo, resolvendo o seu endereço). Por padrão, não faz nada.
+     *
+     * @param endpoint O nome do endpoint cadastrado.
+     */
+    public void endpointCadastrado(String endpoint) {
+    }
+
     /**
      * Método abstrato para desconectar o protocolo. Implementações específicas do protocolo devem fornecer a lógica
      * para encerrar a conexão.
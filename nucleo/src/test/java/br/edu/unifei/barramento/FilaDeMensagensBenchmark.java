@@ -0,0 +1,141 @@
+package br.edu.unifei.barramento;
+
+import br.edu.unifei.barramento.fila.EstrategiaDeEspera;
+import br.edu.unifei.barramento.fila.PoliticaDeFilaCheia;
+import br.edu.unifei.modelos.mensagem.Mensagem;
+import com.google.gson.JsonObject;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Comparação de vazão entre a {@link FilaDeMensagens} baseada em buffer circular e a implementação anterior, baseada
+ * em {@code LinkedList} sincronizada com {@code wait()}/{@code notifyAll()}. Vários produtores, simulando os callbacks
+ * dos protocolos, enviam mensagens para um único consumidor, simulando o worker de processamento.
+ *
+ * <p>
+ *     Execução: {@code java -cp <classpath de testes> br.edu.unifei.barramento.FilaDeMensagensBenchmark
+ *     [produtores] [mensagensPorProdutor]}
+ * </p>
+ */
+@SuppressWarnings("unused")
+public class FilaDeMensagensBenchmark {
+
+    private static final int RODADAS_DE_AQUECIMENTO = 3;
+    private static final int RODADAS_MEDIDAS = 5;
+
+    /**
+     * Abstração mínima para executar o mesmo cenário sobre as duas implementações.
+     */
+    private interface Fila {
+        void adicionar(Mensagem mensagem);
+
+        Mensagem remover();
+    }
+
+    /**
+     * Cópia da implementação anterior da {@link FilaDeMensagens}, mantida apenas como referência de comparação.
+     */
+    private static class FilaSincronizada implements Fila {
+        private final Queue<Mensagem> fila = new LinkedList<>();
+
+        @Override
+        public synchronized void adicionar(Mensagem mensagem) {
+            fila.add(mensagem);
+            notifyAll();
+        }
+
+        @Override
+        public synchronized Mensagem remover() {
+            while (fila.isEmpty()) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return fila.poll();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int produtores = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int mensagensPorProdutor = args.length > 1 ? Integer.parseInt(args[1]) : 500_000;
+
+        JsonObject conteudo = new JsonObject();
+        conteudo.addProperty("chave", "valor");
+        Mensagem mensagem = new Mensagem("ENVIAR_MENSAGEM", "cliente", "servidor", conteudo);
+
+        System.out.printf("Produtores: %d, mensagens por produtor: %d%n", produtores, mensagensPorProdutor);
+        medir("LinkedList sincronizada", FilaSincronizada::new, produtores, mensagensPorProdutor, mensagem);
+        for (EstrategiaDeEspera estrategia : EstrategiaDeEspera.values()) {
+            medir("Buffer circular (" + estrategia + ")", () -> {
+                FilaDeMensagens fila = new FilaDeMensagens(
+                        FilaDeMensagens.CAPACIDADE_PADRAO, estrategia, PoliticaDeFilaCheia.BLOQUEAR);
+                return new Fila() {
+                    @Override
+                    public void adicionar(Mensagem m) {
+                        fila.adicionar(m);
+                    }
+
+                    @Override
+                    public Mensagem remover() {
+                        return fila.remover();
+                    }
+                };
+            }, produtores, mensagensPorProdutor, mensagem);
+        }
+    }
+
+    private static void medir(String nome, java.util.function.Supplier<Fila> fabrica, int produtores,
+                              int mensagensPorProdutor, Mensagem mensagem) throws InterruptedException {
+        for (int i = 0; i < RODADAS_DE_AQUECIMENTO; i++) {
+            executarRodada(fabrica.get(), produtores, mensagensPorProdutor, mensagem);
+        }
+
+        double melhor = 0;
+        double soma = 0;
+        for (int i = 0; i < RODADAS_MEDIDAS; i++) {
+            double vazao = executarRodada(fabrica.get(), produtores, mensagensPorProdutor, mensagem);
+            melhor = Math.max(melhor, vazao);
+            soma += vazao;
+        }
+        System.out.printf("%-32s média: %,12.0f msg/s   melhor: %,12.0f msg/s%n",
+                nome, soma / RODADAS_MEDIDAS, melhor);
+    }
+
+    private static double executarRodada(Fila fila, int produtores, int mensagensPorProdutor, Mensagem mensagem)
+            throws InterruptedException {
+        long total = (long) produtores * mensagensPorProdutor;
+        CountDownLatch largada = new CountDownLatch(1);
+
+        Thread consumidor = new Thread(() -> {
+            for (long i = 0; i < total; i++) {
+                fila.remover();
+            }
+        });
+        consumidor.start();
+
+        for (int p = 0; p < produtores; p++) {
+            new Thread(() -> {
+                try {
+                    largada.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < mensagensPorProdutor; i++) {
+                    fila.adicionar(mensagem);
+                }
+            }).start();
+        }
+
+        long inicio = System.nanoTime();
+        largada.countDown();
+        consumidor.join();
+        long duracao = System.nanoTime() - inicio;
+
+        return total / (duracao / 1_000_000_000.0);
+    }
+}
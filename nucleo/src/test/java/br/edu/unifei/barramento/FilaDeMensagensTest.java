@@ -0,0 +1,142 @@
+package br.edu.unifei.barramento;
+
+import br.edu.unifei.barramento.fila.EstrategiaDeEspera;
+import br.edu.unifei.barramento.fila.PoliticaDeFilaCheia;
+import br.edu.unifei.modelos.mensagem.Mensagem;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class FilaDeMensagensTest {
+
+    private static Mensagem criarMensagem(String origem) {
+        return new Mensagem("ENVIAR_MENSAGEM", origem, "destino", new JsonObject());
+    }
+
+    @Test
+    @DisplayName("Teste de Arredondamento da Capacidade")
+    public void testCapacidadeArredondadaParaPotenciaDeDois() {
+        FilaDeMensagens fila = new FilaDeMensagens(100, EstrategiaDeEspera.PARK, PoliticaDeFilaCheia.REJEITAR);
+        assertEquals(128, fila.getCapacidade());
+        assertThrows(IllegalArgumentException.class,
+                () -> new FilaDeMensagens(0, EstrategiaDeEspera.PARK, PoliticaDeFilaCheia.REJEITAR));
+    }
+
+    @Test
+    @DisplayName("Teste de Ordem FIFO")
+    public void testOrdemDeRemocao() {
+        FilaDeMensagens fila = new FilaDeMensagens();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(fila.adicionar(criarMensagem("origem-" + i)));
+        }
+        assertEquals(10, fila.tamanho());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("origem-" + i, fila.remover().getOrigem());
+        }
+        assertNull(fila.tentarRemover());
+    }
+
+    @Test
+    @DisplayName("Teste da Política de Rejeição")
+    public void testPoliticaRejeitar() {
+        FilaDeMensagens fila = new FilaDeMensagens(2, EstrategiaDeEspera.PARK, PoliticaDeFilaCheia.REJEITAR);
+        assertTrue(fila.adicionar(criarMensagem("a")));
+        assertTrue(fila.adicionar(criarMensagem("b")));
+        assertFalse(fila.adicionar(criarMensagem("c")));
+        assertEquals(1, fila.getMensagensRejeitadas());
+        assertEquals("a", fila.remover().getOrigem());
+    }
+
+    @Test
+    @DisplayName("Teste da Política de Descarte da Mais Antiga")
+    public void testPoliticaDescartarMaisAntiga() {
+        FilaDeMensagens fila = new FilaDeMensagens(
+                2, EstrategiaDeEspera.PARK, PoliticaDeFilaCheia.DESCARTAR_MAIS_ANTIGA);
+        fila.adicionar(criarMensagem("a"));
+        fila.adicionar(criarMensagem("b"));
+        assertTrue(fila.adicionar(criarMensagem("c")));
+        assertEquals(1, fila.getMensagensDescartadas());
+        assertEquals("b", fila.remover().getOrigem());
+        assertEquals("c", fila.remover().getOrigem());
+    }
+
+    @Test
+    @DisplayName("Teste de Bloqueio do Produtor com Fila Cheia")
+    public void testPoliticaBloquear() throws InterruptedException {
+        FilaDeMensagens fila = new FilaDeMensagens(1, EstrategiaDeEspera.PARK, PoliticaDeFilaCheia.BLOQUEAR);
+        assertEquals(2, fila.getCapacidade(), "A fila deve possuir no mínimo duas posições");
+        fila.adicionar(criarMensagem("a"));
+        fila.adicionar(criarMensagem("a2"));
+
+        Thread produtor = new Thread(() -> fila.adicionar(criarMensagem("b")));
+        produtor.start();
+        produtor.join(TimeUnit.MILLISECONDS.toMillis(200));
+        assertTrue(produtor.isAlive(), "O produtor deveria aguardar espaço na fila");
+
+        assertEquals("a", fila.remover().getOrigem());
+        produtor.join(TimeUnit.SECONDS.toMillis(2));
+        assertFalse(produtor.isAlive());
+        assertEquals("a2", fila.remover().getOrigem());
+        assertEquals("b", fila.remover().getOrigem());
+    }
+
+    @Test
+    @DisplayName("Teste de Espera Limitada do Produtor com Fila Cheia")
+    public void testEsperaLimitadaDoProdutor() throws InterruptedException {
+        for (EstrategiaDeEspera estrategia : EstrategiaDeEspera.values()) {
+            FilaDeMensagens fila = new FilaDeMensagens(2, estrategia, PoliticaDeFilaCheia.BLOQUEAR);
+            fila.adicionar(criarMensagem("a"));
+            fila.adicionar(criarMensagem("b"));
+
+            long inicio = System.nanoTime();
+            assertFalse(fila.adicionar(criarMensagem("c"), 50, TimeUnit.MILLISECONDS));
+            long decorrido = System.nanoTime() - inicio;
+            assertTrue(decorrido >= TimeUnit.MILLISECONDS.toNanos(50), "O produtor deve aguardar o tempo máximo");
+            assertTrue(decorrido < TimeUnit.SECONDS.toNanos(2), "O produtor não deve aguardar além do tempo máximo");
+            assertEquals(1, fila.getMensagensRejeitadas());
+
+            Thread consumidor = new Thread(() -> {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                fila.remover();
+            });
+            consumidor.start();
+            assertTrue(fila.adicionar(criarMensagem("c"), 2, TimeUnit.SECONDS),
+                    "O produtor deve ser acordado quando houver espaço, com a estratégia " + estrategia);
+            consumidor.join();
+            assertEquals("b", fila.remover().getOrigem());
+            assertEquals("c", fila.remover().getOrigem());
+        }
+    }
+
+    @Test
+    @DisplayName("Teste de Espera e Interrupção do Consumidor")
+    public void testConsumidorAguardaEInterrompe() throws InterruptedException {
+        FilaDeMensagens fila = new FilaDeMensagens();
+        AtomicReference<Mensagem> recebida = new AtomicReference<>();
+
+        Thread consumidor = new Thread(() -> recebida.set(fila.remover()));
+        consumidor.start();
+        Thread.sleep(100);
+        fila.adicionar(criarMensagem("a"));
+        consumidor.join(TimeUnit.SECONDS.toMillis(2));
+        assertEquals("a", recebida.get().getOrigem());
+
+        Thread interrompido = new Thread(() -> recebida.set(fila.remover()));
+        interrompido.start();
+        Thread.sleep(100);
+        interrompido.interrupt();
+        interrompido.join(TimeUnit.SECONDS.toMillis(2));
+        assertFalse(interrompido.isAlive());
+        assertNull(recebida.get());
+    }
+}
@@ -0,0 +1,264 @@
+package br.edu.unifei.barramento.comandos;
+
+import br.edu.unifei.barramento.Barramento;
+import br.edu.unifei.barramento.gerenciamento.ArmazemDeBytecode;
+import br.edu.unifei.barramento.gerenciamento.GerenciadorDeServicos;
+import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.modelos.protocolo.Protocolo;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class ComandoBuscarServicoTest {
+
+    /**
+     * Protocolo que registra as mensagens enviadas pelo barramento.
+     */
+    private static class ProtocoloDeTeste extends Protocolo {
+        private final List<Mensagem> mensagensEnviadas = new ArrayList<>();
+
+        @Override
+        public void enviarMensagem(Mensagem mensagem) {
+            mensagensEnviadas.add(mensagem);
+        }
+
+        @Override
+        public void desconectar() {
+        }
+    }
+
+    private static Mensagem buscar(String... parametros) {
+        JsonObject conteudo = new JsonObject();
+        for (int i = 0; i < parametros.length; i += 2) {
+            conteudo.addProperty(parametros[i], parametros[i + 1]);
+        }
+        return new Mensagem("BUSCAR_SERVICO", "dispositivo", "barramento", conteudo);
+    }
+
+    /**
+     * Executa a busca e devolve todos os fragmentos na ordem de envio, incluindo o fragmento da resposta.
+     */
+    private static List<Mensagem> executar(Barramento barramento, Mensagem mensagem) {
+        ProtocoloDeTeste protocolo = new ProtocoloDeTeste();
+        Mensagem resposta = barramento.getRegistroDeComandos().buscar("BUSCAR_SERVICO")
+                .executar(mensagem, barramento, protocolo);
+        List<Mensagem> fragmentos = new ArrayList<>(protocolo.mensagensEnviadas);
+        fragmentos.add(resposta);
+        return fragmentos;
+    }
+
+    private static byte[] criarConteudo(int tamanho) {
+        byte[] conteudo = new byte[tamanho];
+        for (int i = 0; i < tamanho; i++) {
+            conteudo[i] = (byte) (i % 7 == 0 ? new Random(i).nextInt() : i % 16);
+        }
+        return conteudo;
+    }
+
+    private static void montar(ByteArrayOutputStream destino, List<Mensagem> fragmentos) {
+        for (Mensagem fragmento : fragmentos) {
+            JsonObject conteudo = fragmento.getConteudo();
+            assertEquals("FRAGMENTO_DE_SERVICO", fragmento.getAcao());
+            assertEquals("dispositivo", fragmento.getDestino());
+            assertEquals(destino.size(), conteudo.get("inicio").getAsInt(), "Os fragmentos devem chegar em ordem");
+            byte[] bytes = Base64.getDecoder().decode(conteudo.get("fragmento").getAsString());
+            destino.write(bytes, 0, bytes.length);
+        }
+    }
+
+    @Test
+    @DisplayName("Teste de Busca Fragmentada")
+    public void testBuscaFragmentada() throws IOException {
+        for (boolean compressao : new boolean[]{false, true}) {
+            Barramento barramento = new Barramento(new GerenciadorDeServicos(new ArmazemDeBytecode(compressao), null));
+            byte[] conteudo = criarConteudo(5000);
+            barramento.getGerenciadorDeServicos().registrarServico("Soma",
+                    Base64.getEncoder().encodeToString(conteudo));
+
+            List<Mensagem> fragmentos = executar(barramento, buscar("servico", "Soma", "fragmentado", "true",
+                    "tamanho_do_fragmento", "1024"));
+            assertEquals(ComandoBuscarServico.QUANTIDADE_PADRAO_DE_FRAGMENTOS, fragmentos.size(),
+                    "Sem a quantidade, cada requisição deve enviar apenas a quantidade padrão de fragmentos");
+            JsonObject ultimo = fragmentos.get(fragmentos.size() - 1).getConteudo();
+            fragmentos.addAll(executar(barramento, buscar("servico", "Soma", "inicio",
+                    ultimo.get("proximo").getAsString(), "tamanho_do_fragmento", "1024")));
+
+            assertEquals(5, fragmentos.size());
+            for (int i = 0; i < fragmentos.size(); i++) {
+                JsonObject fragmento = fragmentos.get(i).getConteudo();
+                assertEquals(i, fragmento.get("indice").getAsInt());
+                assertEquals(5000, fragmento.get("tamanho").getAsInt());
+                assertTrue(fragmento.get("base64").getAsBoolean());
+                assertEquals(i == 4, fragmento.get("final").getAsBoolean());
+            }
+            ByteArrayOutputStream montado = new ByteArrayOutputStream();
+            montar(montado, fragmentos);
+            assertArrayEquals(conteudo, montado.toByteArray(), "Compressão: " + compressao);
+        }
+    }
+
+    @Test
+    @DisplayName("Teste de Retomada da Busca Fragmentada")
+    public void testRetomada() throws IOException {
+        Barramento barramento = new Barramento(new GerenciadorDeServicos(new ArmazemDeBytecode(true), null));
+        byte[] conteudo = criarConteudo(3000);
+        barramento.getGerenciadorDeServicos().registrarServico("Soma", Base64.getEncoder().encodeToString(conteudo));
+
+        ByteArrayOutputStream montado = new ByteArrayOutputStream();
+        List<Mensagem> primeiros = executar(barramento, buscar("servico", "Soma", "fragmentado", "true",
+                "tamanho_do_fragmento", "512", "quantidade", "2"));
+        assertEquals(2, primeiros.size(), "A quantidade de fragmentos por requisição deve ser respeitada");
+        montar(montado, primeiros);
+
+        JsonObject ultimo = primeiros.get(1).getConteudo();
+        assertFalse(ultimo.get("final").getAsBoolean());
+        assertEquals(1024, ultimo.get("proximo").getAsInt());
+
+        List<Mensagem> restantes = executar(barramento, buscar("servico", "Soma", "inicio",
+                ultimo.get("proximo").getAsString(), "tamanho_do_fragmento", "512",
+                "versao", ultimo.get("versao").getAsString()));
+        assertEquals(4, restantes.size());
+        assertEquals(2, restantes.get(0).getConteudo().get("indice").getAsInt());
+        montar(montado, restantes);
+        assertArrayEquals(conteudo, montado.toByteArray());
+    }
+
+    @Test
+    @DisplayName("Teste de Retomada com Outro Tamanho de Fragmento")
+    public void testRetomadaComOutroTamanhoDeFragmento() throws IOException {
+        Barramento barramento = new Barramento(new GerenciadorDeServicos(new ArmazemDeBytecode(true), null));
+        byte[] conteudo = criarConteudo(3000);
+        barramento.getGerenciadorDeServicos().registrarServico("Soma", Base64.getEncoder().encodeToString(conteudo));
+
+        ByteArrayOutputStream montado = new ByteArrayOutputStream();
+        List<Mensagem> primeiros = executar(barramento, buscar("servico", "Soma", "fragmentado", "true",
+                "tamanho_do_fragmento", "512", "quantidade", "2"));
+        montar(montado, primeiros);
+        JsonObject ultimo = primeiros.get(1).getConteudo();
+
+        List<Mensagem> desalinhado = executar(barramento, buscar("servico", "Soma", "inicio",
+                ultimo.get("proximo").getAsString(), "tamanho_do_fragmento", "1000"));
+        assertEquals(1, desalinhado.size());
+        assertTrue(desalinhado.get(0).getConteudo().has("erro"),
+                "Uma posição não múltipla do tamanho do fragmento exige o índice do próximo fragmento");
+
+        List<Mensagem> restantes = executar(barramento, buscar("servico", "Soma", "inicio",
+                ultimo.get("proximo").getAsString(), "tamanho_do_fragmento", "1000",
+                "indice", String.valueOf(ultimo.get("indice").getAsInt() + 1)));
+        assertEquals(2, restantes.size());
+        for (int i = 0; i < restantes.size(); i++) {
+            assertEquals(2 + i, restantes.get(i).getConteudo().get("indice").getAsInt(),
+                    "A numeração deve continuar a sequência recebida");
+        }
+        montar(montado, restantes);
+        assertArrayEquals(conteudo, montado.toByteArray());
+    }
+
+    @Test
+    @DisplayName("Teste de Metadados Copiados em cada Fragmento")
+    public void testMetadadosCopiadosEmCadaFragmento() {
+        Barramento barramento = new Barramento(new GerenciadorDeServicos());
+        barramento.getGerenciadorDeServicos().registrarServico("Soma", Base64.getEncoder().encodeToString(
+                criarConteudo(1000)));
+        Mensagem mensagem = buscar("servico", "Soma", "fragmentado", "true", "tamanho_do_fragmento", "256");
+        JsonObject metadata = new JsonObject();
+        metadata.addProperty("id", "requisicao-1");
+        mensagem.getConteudo().add("metadata", metadata);
+
+        List<Mensagem> fragmentos = executar(barramento, mensagem);
+        assertEquals(4, fragmentos.size());
+        fragmentos.get(0).getConteudo().getAsJsonObject("metadata").addProperty("enviado_em", 1L);
+        for (int i = 1; i < fragmentos.size(); i++) {
+            JsonObject copia = fragmentos.get(i).getConteudo().getAsJsonObject("metadata");
+            assertEquals("requisicao-1", copia.get("id").getAsString());
+            assertFalse(copia.has("enviado_em"), "Os fragmentos não devem compartilhar os metadados");
+        }
+        assertFalse(metadata.has("enviado_em"), "Os metadados da requisição não devem ser alterados");
+    }
+
+    @Test
+    @DisplayName("Teste de Retomada após Alteração do Serviço")
+    public void testRetomadaAposAlteracao() {
+        Barramento barramento = new Barramento(new GerenciadorDeServicos());
+        barramento.getGerenciadorDeServicos().registrarServico("Soma", "bytecode-soma");
+        long versao = barramento.getGerenciadorDeServicos().getVersao();
+        barramento.getGerenciadorDeServicos().registrarServico("Soma", "bytecode-soma-v2");
+
+        List<Mensagem> resposta = executar(barramento, buscar("servico", "Soma", "inicio", "64",
+                "versao", String.valueOf(versao)));
+        assertEquals(1, resposta.size());
+        assertTrue(resposta.get(0).getConteudo().has("erro"));
+        assertEquals(versao + 1, resposta.get(0).getConteudo().get("versao").getAsLong());
+
+        resposta = executar(barramento, buscar("servico", "Soma", "inicio", "100"));
+        assertTrue(resposta.get(0).getConteudo().has("erro"), "Posições além do conteúdo devem ser rejeitadas");
+    }
+
+    @Test
+    @DisplayName("Teste de Busca sem Fragmentação")
+    public void testBuscaSemFragmentacao() {
+        Barramento barramento = new Barramento(new GerenciadorDeServicos());
+        barramento.getGerenciadorDeServicos().registrarServico("Soma", "bytecode-soma");
+
+        List<Mensagem> resposta = executar(barramento, buscar("servico", "Soma"));
+        assertEquals(1, resposta.size());
+        assertEquals("RESULTADO_BUSCA", resposta.get(0).getAcao());
+        assertEquals("bytecode-soma", resposta.get(0).getConteudo().get("bytecode").getAsString());
+    }
+
+    @Test
+    @DisplayName("Teste de Busca em Lote")
+    public void testBuscaEmLote() {
+        Barramento barramento = new Barramento(new GerenciadorDeServicos());
+        barramento.getGerenciadorDeServicos().registrarServico("Soma", "bytecode-soma");
+        barramento.getGerenciadorDeServicos().registrarServico("Produto", "bytecode-produto");
+
+        List<Mensagem> respostas = barramento.getRegistroDeComandos().buscar("BUSCAR_SERVICO").executarLote(
+                Arrays.asList(buscar("servico", "Produto"), buscar("servico", "Divisao"), buscar("servico", "Soma")),
+                barramento, new ProtocoloDeTeste());
+
+        assertEquals(3, respostas.size());
+        assertEquals("bytecode-produto", respostas.get(0).getConteudo().get("bytecode").getAsString());
+        assertTrue(respostas.get(1).getConteudo().has("erro"));
+        assertEquals("bytecode-soma", respostas.get(2).getConteudo().get("bytecode").getAsString());
+        assertEquals(respostas.get(2).getConteudo().get("versao").getAsLong() + 1,
+                respostas.get(0).getConteudo().get("versao").getAsLong());
+    }
+
+    @Test
+    @DisplayName("Teste de Busca Condicional")
+    public void testBuscaCondicional() {
+        Barramento barramento = new Barramento(new GerenciadorDeServicos());
+        barramento.getGerenciadorDeServicos().registrarServico("Soma", "bytecode-soma");
+
+        JsonObject completo = executar(barramento, buscar("servico", "Soma")).get(0).getConteudo();
+        String hash = completo.get("hash").getAsString();
+
+        JsonObject naoModificado = executar(barramento, buscar("servico", "Soma", "if-none-match", hash)).get(0)
+                .getConteudo();
+        assertFalse(naoModificado.get("modificado").getAsBoolean());
+        assertFalse(naoModificado.has("bytecode"), "O bytecode não deve ser reenviado sem modificação");
+        assertEquals(completo.get("versao").getAsLong(), naoModificado.get("versao").getAsLong());
+
+        naoModificado = executar(barramento, buscar("servico", "Soma", "fragmentado", "true",
+                "if-none-match", "\"outro\", \"" + hash + "\"")).get(0).getConteudo();
+        assertFalse(naoModificado.get("modificado").getAsBoolean());
+
+        barramento.getGerenciadorDeServicos().registrarServico("Soma", "bytecode-soma-v2");
+        JsonObject modificado = executar(barramento, buscar("servico", "Soma", "if-none-match", hash)).get(0)
+                .getConteudo();
+        assertEquals("bytecode-soma-v2", modificado.get("bytecode").getAsString());
+        assertNotEquals(hash, modificado.get("hash").getAsString());
+    }
+}
@@ -0,0 +1,84 @@
+package br.edu.unifei.barramento.comandos;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class ComandoEnviarArquivosBaseTest {
+
+    /**
+     * Localiza o diretório dos fontes do pacote {@code br.edu.unifei}, executando a partir da raiz do projeto ou do
+     * módulo.
+     */
+    private static File getDiretorioDosFontes() {
+        for (String caminho : new String[]{"nucleo/src/main/java/br/edu/unifei", "src/main/java/br/edu/unifei"}) {
+            File diretorio = new File(caminho);
+            if (diretorio.isDirectory()) {
+                return diretorio;
+            }
+        }
+        throw new IllegalStateException("Diretório dos fontes não encontrado.");
+    }
+
+    @Test
+    @DisplayName("Teste de Arquivos Base com Todas as Dependências")
+    public void testArquivosBaseIncluemOPacoteDeMensagens() {
+        File diretorio = getDiretorioDosFontes();
+        Set<String> arquivos = new HashSet<>(Arrays.asList(ComandoEnviarArquivosBase.ARQUIVOS_BASE));
+        File[] fontes = new File(diretorio, "modelos/mensagem").listFiles((d, nome) -> nome.endsWith(".java"));
+        assertNotNull(fontes);
+        for (File fonte : fontes) {
+            assertTrue(arquivos.contains("modelos/mensagem/" + fonte.getName()),
+                    "Arquivo ausente dos arquivos base: " + fonte.getName());
+        }
+    }
+
+    @Test
+    @DisplayName("Teste de Compilação dos Arquivos Base apenas com o Gson")
+    public void testArquivosBaseCompilamSozinhos() throws Exception {
+        JavaCompiler compilador = ToolProvider.getSystemJavaCompiler();
+        if (compilador == null) {
+            return;
+        }
+        File diretorio = getDiretorioDosFontes();
+        Path saida = Files.createTempDirectory("arquivos-base");
+        try {
+            String gson = new File(Gson.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+            List<String> argumentos = new ArrayList<>(Arrays.asList(
+                    "-proc:none", "-encoding", "UTF-8", "-classpath", gson, "-d", saida.toString()));
+            for (String arquivo : ComandoEnviarArquivosBase.ARQUIVOS_BASE) {
+                argumentos.add(new File(diretorio, arquivo).getPath());
+            }
+
+            ByteArrayOutputStream erros = new ByteArrayOutputStream();
+            int resultado = compilador.run(null, null, erros, argumentos.toArray(new String[0]));
+            assertEquals(0, resultado, "Os arquivos base devem compilar sem o barramento: " + erros);
+        } finally {
+            apagar(saida);
+        }
+    }
+
+    private static void apagar(Path diretorio) throws IOException {
+        try (Stream<Path> arquivos = Files.walk(diretorio)) {
+            arquivos.sorted(Comparator.reverseOrder()).forEach(arquivo -> arquivo.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package br.edu.unifei.barramento.comandos;
+
+import br.edu.unifei.modelos.mensagem.Mensagem;
+import com.google.gson.JsonObject;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Comparação do custo de despacho entre o {@link RegistroDeComandos} e a implementação anterior, em que o worker de
+ * processamento escolhia a ação em um {@code switch} e instanciava um novo comando por mensagem, extraindo os
+ * parâmetros do conteúdo no construtor. Mede o tempo e os bytes alocados por despacho, sem executar os comandos.
+ *
+ * <p>
+ *     Execução: {@code java -cp <classpath de testes> br.edu.unifei.barramento.comandos.RegistroDeComandosBenchmark
+ *     [despachos]}
+ * </p>
+ */
+public class RegistroDeComandosBenchmark {
+
+    private static final int RODADAS_DE_AQUECIMENTO = 5;
+    private static final int RODADAS_MEDIDAS = 5;
+
+    /**
+     * Evita que o compilador JIT elimine os despachos medidos.
+     */
+    private static volatile Object sumidouro;
+
+    /**
+     * Estratégia de despacho avaliada.
+     */
+    private interface Despachante {
+        Object despachar(Mensagem mensagem);
+    }
+
+    /**
+     * Réplica do comando com estado da implementação anterior, mantida apenas como referência de comparação.
+     */
+    private static class ComandoComParametros {
+        private final String servico;
+        private final String bytecode;
+
+        ComandoComParametros(String servico, String bytecode) {
+            this.servico = servico;
+            this.bytecode = bytecode;
+        }
+    }
+
+    /**
+     * Cópia do {@code switch} anterior do worker de processamento.
+     */
+    private static Object despacharComSwitch(Mensagem mensagem) {
+        JsonObject conteudo = mensagem.getConteudo();
+        switch (mensagem.getAcao()) {
+            case "CADASTRAR_ENDPOINT":
+                return new ComandoComParametros(mensagem.getOrigem(), null);
+            case "REGISTRAR_SERVICO":
+                return new ComandoComParametros(
+                        conteudo.get("servico").getAsString(), conteudo.get("bytecode").getAsString());
+            case "REMOVER_SERVICO":
+            case "BUSCAR_SERVICO":
+                return new ComandoComParametros(conteudo.get("servico").getAsString(), null);
+            case "LISTAR_SERVICOS":
+            case "ENVIAR_ARQUIVOS_BASE":
+                return new ComandoComParametros(null, null);
+            default:
+                return null;
+        }
+    }
+
+    public static void main(String[] args) {
+        int despachos = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+
+        String[] acoes = {"CADASTRAR_ENDPOINT", "REGISTRAR_SERVICO", "REMOVER_SERVICO", "BUSCAR_SERVICO",
+                "LISTAR_SERVICOS", "ENVIAR_ARQUIVOS_BASE", "ENVIAR_MENSAGEM"};
+        Mensagem[] mensagens = new Mensagem[acoes.length];
+        for (int i = 0; i < acoes.length; i++) {
+            JsonObject conteudo = new JsonObject();
+            conteudo.addProperty("servico", "servico_" + i);
+            conteudo.addProperty("bytecode", "AAAA");
+            mensagens[i] = new Mensagem(acoes[i], "cliente", "servidor", conteudo);
+        }
+
+        RegistroDeComandos registro = RegistroDeComandos.padrao();
+
+        System.out.printf("Despachos por rodada: %d%n", despachos);
+        medir("switch + new Comando", RegistroDeComandosBenchmark::despacharComSwitch, mensagens, despachos);
+        medir("RegistroDeComandos", mensagem -> registro.buscar(mensagem.getAcao()), mensagens, despachos);
+    }
+
+    private static void medir(String nome, Despachante despachante, Mensagem[] mensagens, int despachos) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < RODADAS_DE_AQUECIMENTO; i++) {
+            executar(despachante, mensagens, despachos);
+        }
+
+        double melhorTempo = Double.MAX_VALUE;
+        double bytesPorDespacho = 0;
+        for (int i = 0; i < RODADAS_MEDIDAS; i++) {
+            long bytesAntes = threads.getThreadAllocatedBytes(threadId);
+            long inicio = System.nanoTime();
+            executar(despachante, mensagens, despachos);
+            long duracao = System.nanoTime() - inicio;
+            long bytes = threads.getThreadAllocatedBytes(threadId) - bytesAntes;
+
+            melhorTempo = Math.min(melhorTempo, (double) duracao / despachos);
+            bytesPorDespacho = (double) bytes / despachos;
+        }
+        System.out.printf("%-24s %8.2f ns/despacho %8.2f bytes/despacho%n", nome, melhorTempo, bytesPorDespacho);
+    }
+
+    private static void executar(Despachante despachante, Mensagem[] mensagens, int despachos) {
+        Object ultimo = null;
+        for (int i = 0; i < despachos; i++) {
+            ultimo = despachante.despachar(mensagens[i % mensagens.length]);
+        }
+        sumidouro = ultimo;
+    }
+}
@@ -0,0 +1,63 @@
+package br.edu.unifei.barramento.comandos;
+
+import br.edu.unifei.barramento.Barramento;
+import br.edu.unifei.barramento.gerenciamento.GerenciadorDeServicos;
+import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.modelos.protocolo.Protocolo;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class RegistroDeComandosTest {
+
+    @Test
+    @DisplayName("Teste de Comandos Nativos")
+    public void testComandosNativos() {
+        RegistroDeComandos registro = RegistroDeComandos.padrao();
+        assertInstanceOf(ComandoCadastrarEnpoint.class, registro.buscar("CADASTRAR_ENDPOINT"));
+        assertInstanceOf(ComandoRegistrarServico.class, registro.buscar("REGISTRAR_SERVICO"));
+        assertInstanceOf(ComandoRemoverServico.class, registro.buscar("REMOVER_SERVICO"));
+        assertInstanceOf(ComandoBuscarServico.class, registro.buscar("BUSCAR_SERVICO"));
+        assertInstanceOf(ComandoListarServicos.class, registro.buscar("LISTAR_SERVICOS"));
+        assertInstanceOf(ComandoEnviarArquivosBase.class, registro.buscar("ENVIAR_ARQUIVOS_BASE"));
+        assertNull(registro.buscar("ENVIAR_MENSAGEM"), "Ações desconhecidas devem ser encaminhadas ao destino");
+        assertNull(registro.buscar(null));
+    }
+
+    @Test
+    @DisplayName("Teste de Reuso da Instância do Comando")
+    public void testMesmaInstanciaParaTodasAsMensagens() {
+        RegistroDeComandos registro = RegistroDeComandos.padrao();
+        assertSame(registro.buscar("BUSCAR_SERVICO"), registro.buscar("BUSCAR_SERVICO"));
+    }
+
+    @Test
+    @DisplayName("Teste de Registro de Comando Externo")
+    public void testRegistroDeComandoExterno() {
+        Barramento barramento = new Barramento(new GerenciadorDeServicos());
+        Comando eco = (mensagem, b, protocolo) ->
+                new Mensagem("ECO", "barramento", mensagem.getOrigem(), mensagem.getConteudo());
+        barramento.getRegistroDeComandos().registrar("ECO", eco);
+
+        assertSame(eco, barramento.getRegistroDeComandos().buscar("ECO"));
+        assertTrue(barramento.getRegistroDeComandos().getAcoes().contains("ECO"));
+    }
+
+    @Test
+    @DisplayName("Teste de Parâmetro Ausente")
+    public void testParametroAusente() {
+        Barramento barramento = new Barramento(new GerenciadorDeServicos());
+        Mensagem mensagem = new Mensagem("BUSCAR_SERVICO", "cliente", "barramento", new JsonObject());
+
+        Mensagem resposta = barramento.getRegistroDeComandos().buscar("BUSCAR_SERVICO")
+                .executar(mensagem, barramento, Mockito.mock(Protocolo.class));
+
+        assertEquals("ERRO_PARAMETRO", resposta.getAcao());
+        assertEquals("cliente", resposta.getDestino());
+        assertTrue(resposta.getConteudo().has("erro"));
+    }
+}
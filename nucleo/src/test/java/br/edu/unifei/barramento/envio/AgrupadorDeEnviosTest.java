@@ -0,0 +1,268 @@
+package br.edu.unifei.barramento.envio;
+
+import br.edu.unifei.barramento.Barramento;
+import br.edu.unifei.barramento.gerenciamento.GerenciadorDeServicos;
+import br.edu.unifei.modelos.mensagem.EnvelopeDeMensagens;
+import br.edu.unifei.modelos.mensagem.FormatoDeMensagem;
+import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.modelos.mensagem.ModoDeEntrega;
+import br.edu.unifei.modelos.protocolo.Protocolo;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class AgrupadorDeEnviosTest {
+
+    /**
+     * Protocolo que registra as mensagens enviadas pelo barramento.
+     */
+    private static class ProtocoloDeTeste extends Protocolo {
+        private final List<Mensagem> mensagensEnviadas = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void enviarMensagem(Mensagem mensagem) {
+            mensagensEnviadas.add(mensagem);
+        }
+
+        @Override
+        public void desconectar() {
+        }
+    }
+
+    private static Mensagem criarMensagem(int indice) {
+        JsonObject conteudo = new JsonObject();
+        conteudo.addProperty("indice", indice);
+        conteudo.addProperty("leitura", "temperatura");
+        return new Mensagem("LEITURA", "barramento", "sensor", conteudo);
+    }
+
+    private static List<Integer> lerIndices(List<Mensagem> enviadas) {
+        List<Integer> indices = new ArrayList<>();
+        for (Mensagem enviada : enviadas) {
+            List<Mensagem> mensagens = EnvelopeDeMensagens.isEnvelope(enviada)
+                    ? EnvelopeDeMensagens.desempacotar(enviada)
+                    : Collections.singletonList(enviada);
+            for (Mensagem mensagem : mensagens) {
+                indices.add(mensagem.getConteudo().get("indice").getAsInt());
+            }
+        }
+        return indices;
+    }
+
+    private static void aguardar(ProtocoloDeTeste protocolo, int mensagensEsperadas) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (lerIndices(protocolo.mensagensEnviadas).size() < mensagensEsperadas && System.nanoTime() < limite) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    @DisplayName("Teste de Montagem do Envelope")
+    public void testMontagemDoEnvelope() {
+        for (FormatoDeMensagem formato : FormatoDeMensagem.values()) {
+            EnvelopeDeMensagens envelope = new EnvelopeDeMensagens("sensor", formato);
+            List<byte[]> itens = new ArrayList<>();
+            int bytesDosItens = 0;
+            for (int i = 0; i < 30; i++) {
+                byte[] bytes = criarMensagem(i).toBytes(formato);
+                itens.add(bytes);
+                bytesDosItens += bytes.length;
+            }
+
+            Mensagem mensagem = envelope.criar(itens);
+            byte[] bytes = mensagem.toBytes(formato);
+            assertEquals(envelope.tamanho(itens.size(), bytesDosItens), bytes.length,
+                    "O tamanho calculado deve ser o tamanho do envelope montado em " + formato.getNome());
+
+            Mensagem recebida = Mensagem.fromBytes(bytes, formato);
+            assertTrue(EnvelopeDeMensagens.isEnvelope(recebida));
+            assertEquals("sensor", recebida.getDestino());
+            List<Mensagem> mensagens = EnvelopeDeMensagens.desempacotar(recebida);
+            assertEquals(30, mensagens.size());
+            for (int i = 0; i < mensagens.size(); i++) {
+                assertEquals("LEITURA", mensagens.get(i).getAcao());
+                assertEquals(i, mensagens.get(i).getConteudo().get("indice").getAsInt());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Teste de Envio por Tempo de Espera e por Tamanho")
+    public void testEnvioPorTempoDeEsperaEPorTamanho() throws InterruptedException {
+        ProtocoloDeTeste protocolo = new ProtocoloDeTeste();
+        AgrupadorDeEnvios agrupador = new AgrupadorDeEnvios(ConfiguracaoDoAgrupamento.padrao()
+                .tempoDeEsperaEmMillis(50)
+                .tamanhoMaximoDoEnvelope(512), (mensagem, p) -> p.enviarMensagem(mensagem));
+
+        for (int i = 0; i < 20; i++) {
+            agrupador.adicionar(criarMensagem(i), protocolo, FormatoDeMensagem.JSON);
+        }
+        assertFalse(protocolo.mensagensEnviadas.isEmpty(), "Os grupos que excedem o envelope devem ser enviados");
+        assertTrue(agrupador.getMensagensPendentes() > 0, "O último grupo deve aguardar o tempo de espera");
+
+        aguardar(protocolo, 20);
+        assertEquals(0, agrupador.getMensagensPendentes());
+        for (Mensagem enviada : protocolo.mensagensEnviadas) {
+            assertTrue(enviada.toBytes(FormatoDeMensagem.JSON).length <= 512,
+                    "Nenhum envelope deve exceder o tamanho máximo");
+        }
+        assertTrue(protocolo.mensagensEnviadas.size() < 20, "As mensagens devem ser agrupadas");
+        List<Integer> indices = lerIndices(protocolo.mensagensEnviadas);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, indices.get(i).intValue(), "A ordem das mensagens deve ser mantida");
+        }
+        agrupador.encerrar();
+    }
+
+    @Test
+    @DisplayName("Teste de Agrupamento por Endpoint no Barramento")
+    public void testAgrupamentoPorEndpoint() throws InterruptedException {
+        Barramento barramento = new Barramento(new GerenciadorDeServicos());
+        barramento.configurarAgrupamento(ConfiguracaoDoAgrupamento.padrao().tempoDeEsperaEmMillis(1000));
+        ProtocoloDeTeste protocolo = new ProtocoloDeTeste();
+        barramento.cadastrarEndpoint("sensor", protocolo, FormatoDeMensagem.BINARIO);
+        barramento.cadastrarEndpoint("atuador", protocolo);
+        barramento.definirAgrupamento("sensor", true);
+
+        List<Mensagem> mensagens = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            mensagens.add(criarMensagem(i));
+        }
+        mensagens.add(new Mensagem("COMANDO", "barramento", "atuador", new JsonObject()));
+        barramento.enviarMensagens(mensagens, protocolo);
+
+        assertEquals(1, protocolo.mensagensEnviadas.size(), "Apenas o endpoint sem agrupamento deve receber");
+        assertEquals("atuador", protocolo.mensagensEnviadas.get(0).getDestino());
+
+        barramento.enviarMensagensAgrupadas();
+        assertEquals(2, protocolo.mensagensEnviadas.size());
+        Mensagem envelope = protocolo.mensagensEnviadas.get(1);
+        assertTrue(EnvelopeDeMensagens.isEnvelope(envelope));
+        assertEquals(FormatoDeMensagem.BINARIO, envelope.getFormato());
+        assertEquals(5, EnvelopeDeMensagens.desempacotar(envelope).size());
+    }
+
+    @Test
+    @DisplayName("Teste de Envio Lento sem Bloquear o Destino")
+    public void testEnvioLentoSemBloquearODestino() throws InterruptedException {
+        ProtocoloDeTeste protocolo = new ProtocoloDeTeste();
+        CountDownLatch enviando = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        AgrupadorDeEnvios agrupador = new AgrupadorDeEnvios(ConfiguracaoDoAgrupamento.padrao()
+                .tempoDeEsperaEmMillis(10), (mensagem, p) -> {
+            enviando.countDown();
+            try {
+                liberar.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            p.enviarMensagem(mensagem);
+        });
+
+        agrupador.adicionar(criarMensagem(0), protocolo, FormatoDeMensagem.JSON);
+        assertTrue(enviando.await(5, TimeUnit.SECONDS), "O grupo deve ser enviado após o tempo de espera");
+
+        long inicio = System.nanoTime();
+        for (int i = 1; i < 5; i++) {
+            agrupador.adicionar(criarMensagem(i), protocolo, FormatoDeMensagem.JSON);
+        }
+        assertTrue(System.nanoTime() - inicio < TimeUnit.SECONDS.toNanos(2),
+                "Um envio lento não deve bloquear a adição de mensagens ao mesmo destino");
+
+        liberar.countDown();
+        aguardar(protocolo, 5);
+        List<Integer> indices = lerIndices(protocolo.mensagensEnviadas);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, indices.get(i).intValue(), "A ordem das mensagens deve ser mantida");
+        }
+        agrupador.encerrar();
+    }
+
+    @Test
+    @DisplayName("Teste de Remoção dos Grupos sem Mensagens")
+    public void testRemocaoDosGruposSemMensagens() throws InterruptedException {
+        ProtocoloDeTeste protocolo = new ProtocoloDeTeste();
+        AgrupadorDeEnvios agrupador = new AgrupadorDeEnvios(ConfiguracaoDoAgrupamento.padrao()
+                .tempoDeEsperaEmMillis(1000), (mensagem, p) -> p.enviarMensagem(mensagem));
+
+        for (int i = 0; i < 50; i++) {
+            Mensagem mensagem = new Mensagem("LEITURA", "barramento", "sensor-" + i, new JsonObject());
+            agrupador.adicionar(mensagem, protocolo, FormatoDeMensagem.JSON);
+        }
+        assertEquals(50, agrupador.getQuantidadeDeGrupos());
+
+        agrupador.enviarPendentes();
+        assertEquals(50, protocolo.mensagensEnviadas.size());
+        assertEquals(0, agrupador.getQuantidadeDeGrupos(), "Os grupos sem mensagens pendentes devem ser removidos");
+
+        agrupador.adicionar(criarMensagem(0), protocolo, FormatoDeMensagem.JSON);
+        assertEquals(1, agrupador.getMensagensPendentes(), "Um destino removido deve receber um novo grupo");
+        agrupador.encerrar();
+        assertEquals(51, protocolo.mensagensEnviadas.size());
+    }
+
+    @Test
+    @DisplayName("Teste de Agrupamento por Configurações de Entrega")
+    public void testAgrupamentoPorConfiguracoesDeEntrega() {
+        ProtocoloDeTeste protocolo = new ProtocoloDeTeste();
+        AgrupadorDeEnvios agrupador = new AgrupadorDeEnvios(ConfiguracaoDoAgrupamento.padrao()
+                .tempoDeEsperaEmMillis(1000), (mensagem, p) -> p.enviarMensagem(mensagem));
+
+        List<Mensagem> mensagens = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            mensagens.add(criarMensagem(i));
+        }
+        mensagens.get(2).setModoDeEntrega(ModoDeEntrega.NAO_CONFIRMAVEL);
+        mensagens.get(3).setModoDeEntrega(ModoDeEntrega.NAO_CONFIRMAVEL);
+        mensagens.get(4).setQosDeRecepcao(0);
+        mensagens.get(5).getConteudo().add("metadata", new JsonObject());
+        mensagens.get(5).getConteudo().getAsJsonObject("metadata").addProperty(AgrupadorDeEnvios.CAMPO_QOS, 2);
+        for (Mensagem mensagem : mensagens) {
+            agrupador.adicionar(mensagem, protocolo, FormatoDeMensagem.JSON);
+        }
+        agrupador.enviarPendentes();
+
+        List<Mensagem> enviadas = protocolo.mensagensEnviadas;
+        assertEquals(5, enviadas.size(), "Apenas mensagens com as mesmas configurações devem ser agrupadas");
+        assertTrue(EnvelopeDeMensagens.isEnvelope(enviadas.get(0)));
+        assertNull(enviadas.get(0).getModoDeEntrega());
+        assertTrue(EnvelopeDeMensagens.isEnvelope(enviadas.get(1)));
+        assertEquals(ModoDeEntrega.NAO_CONFIRMAVEL, enviadas.get(1).getModoDeEntrega(),
+                "O envelope deve manter o modo de entrega das mensagens");
+        assertSame(mensagens.get(4), enviadas.get(2));
+        assertSame(mensagens.get(5), enviadas.get(3), "Mensagens com QoS no metadata devem ser enviadas sozinhas");
+        assertSame(mensagens.get(6), enviadas.get(4));
+        List<Integer> indices = lerIndices(enviadas);
+        for (int i = 0; i < 7; i++) {
+            assertEquals(i, indices.get(i).intValue(), "A ordem das mensagens deve ser mantida");
+        }
+        agrupador.encerrar();
+    }
+
+    @Test
+    @DisplayName("Teste de Envio após o Encerramento")
+    public void testEnvioAposOEncerramento() {
+        ProtocoloDeTeste protocolo = new ProtocoloDeTeste();
+        AgrupadorDeEnvios agrupador = new AgrupadorDeEnvios(ConfiguracaoDoAgrupamento.padrao()
+                .tempoDeEsperaEmMillis(1000), (mensagem, p) -> p.enviarMensagem(mensagem));
+        agrupador.adicionar(criarMensagem(0), protocolo, FormatoDeMensagem.JSON);
+        agrupador.encerrar();
+        assertEquals(1, protocolo.mensagensEnviadas.size());
+
+        agrupador.adicionar(criarMensagem(1), protocolo, FormatoDeMensagem.JSON);
+        assertEquals(2, protocolo.mensagensEnviadas.size(),
+                "Após o encerramento, as mensagens devem ser enviadas sem aguardar o agrupamento");
+        assertEquals(0, agrupador.getMensagensPendentes());
+        assertEquals(0, agrupador.getQuantidadeDeGrupos());
+    }
+}
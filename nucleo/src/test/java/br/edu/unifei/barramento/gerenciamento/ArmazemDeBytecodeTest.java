@@ -0,0 +1,109 @@
+package br.edu.unifei.barramento.gerenciamento;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class ArmazemDeBytecodeTest {
+
+    private static String criarBytecode(int tamanho, boolean repetitivo) {
+        byte[] conteudo = new byte[tamanho];
+        if (repetitivo) {
+            for (int i = 0; i < tamanho; i++) {
+                conteudo[i] = (byte) (i % 16);
+            }
+        } else {
+            new Random(42).nextBytes(conteudo);
+        }
+        return Base64.getEncoder().encodeToString(conteudo);
+    }
+
+    @Test
+    @DisplayName("Teste de Decodificação e Reprodução do Texto")
+    public void testDecodificacao() {
+        ArmazemDeBytecode armazem = new ArmazemDeBytecode();
+        String base64 = criarBytecode(3000, false);
+        Bytecode bytecode = armazem.armazenar(base64);
+        assertTrue(bytecode.isBase64());
+        assertEquals(3000, bytecode.getTamanho(), "O bytecode deve ser guardado decodificado");
+        assertEquals(3000, armazem.getBytesArmazenados());
+        assertEquals(base64, bytecode.paraTexto());
+
+        for (String texto : new String[]{"bytecode-ç", "QUJD\nREVG", "QUI", "QUI=", ""}) {
+            assertEquals(texto, armazem.armazenar(texto).paraTexto(),
+                    "O texto registrado deve ser reproduzido exatamente: " + texto);
+        }
+    }
+
+    @Test
+    @DisplayName("Teste de Bytecodes Duplicados")
+    public void testDuplicados() {
+        GerenciadorDeServicos gerenciador = new GerenciadorDeServicos();
+        ArmazemDeBytecode armazem = gerenciador.getArmazem();
+        String base64 = criarBytecode(2048, false);
+
+        gerenciador.registrarServico("Soma", base64);
+        gerenciador.registrarServico("SomaV2", base64);
+        assertEquals(1, armazem.getQuantidade(), "Bytecodes iguais devem ser guardados uma única vez");
+        assertSame(gerenciador.buscarRegistro("Soma").getConteudo(),
+                gerenciador.buscarRegistro("SomaV2").getConteudo());
+        assertEquals(base64, gerenciador.buscarServico("SomaV2"));
+
+        gerenciador.removerServico("Soma");
+        assertEquals(1, armazem.getQuantidade(), "O bytecode ainda referenciado deve ser mantido");
+        gerenciador.registrarServico("SomaV2", criarBytecode(1024, true));
+        assertEquals(1, armazem.getQuantidade(), "O bytecode substituído deve ser descartado");
+        gerenciador.removerServico("SomaV2");
+        assertEquals(0, armazem.getQuantidade());
+        assertEquals(0, armazem.getBytesArmazenados());
+    }
+
+    @Test
+    @DisplayName("Teste de Compressão Opcional")
+    public void testCompressao() {
+        ArmazemDeBytecode armazem = new ArmazemDeBytecode(true);
+        String repetitivo = criarBytecode(8192, true);
+        Bytecode comprimido = armazem.armazenar(repetitivo);
+        assertTrue(comprimido.isComprimido());
+        assertTrue(comprimido.getTamanhoArmazenado() < comprimido.getTamanho());
+        assertEquals(repetitivo, comprimido.paraTexto());
+
+        String aleatorio = criarBytecode(4096, false);
+        Bytecode semCompressao = armazem.armazenar(aleatorio);
+        assertFalse(semCompressao.isComprimido(), "Conteúdos que não diminuem devem ser guardados sem compressão");
+        assertEquals(aleatorio, semCompressao.paraTexto());
+    }
+
+    @Test
+    @DisplayName("Teste de Leitura a partir dos Pontos de Reinício")
+    public void testLeituraAPartirDePosicao() throws IOException {
+        ArmazemDeBytecode armazem = new ArmazemDeBytecode(true);
+        byte[] conteudo = Base64.getDecoder().decode(criarBytecode(5 * Bytecode.INTERVALO_DE_REINICIO + 100, true));
+        Bytecode bytecode = armazem.armazenar(Base64.getEncoder().encodeToString(conteudo));
+        assertTrue(bytecode.isComprimido());
+        assertArrayEquals(conteudo, bytecode.getBytes(), "Os pontos de reinício não devem alterar o conteúdo");
+
+        int intervalo = Bytecode.INTERVALO_DE_REINICIO;
+        for (int inicio : new int[]{0, 1, intervalo - 1, intervalo, 2 * intervalo + 7, 5 * intervalo,
+                conteudo.length - 1, conteudo.length}) {
+            try (InputStream entrada = bytecode.abrirLeitura(inicio)) {
+                byte[] lido = new byte[conteudo.length - inicio];
+                int total = 0;
+                for (int n; total < lido.length && (n = entrada.read(lido, total, lido.length - total)) > 0; ) {
+                    total += n;
+                }
+                assertEquals(lido.length, total, "Início: " + inicio);
+                assertArrayEquals(Arrays.copyOfRange(conteudo, inicio, conteudo.length), lido, "Início: " + inicio);
+                assertEquals(-1, entrada.read(), "Início: " + inicio);
+            }
+        }
+    }
+}
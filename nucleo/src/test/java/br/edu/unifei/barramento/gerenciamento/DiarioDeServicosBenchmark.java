@@ -0,0 +1,107 @@
+package br.edu.unifei.barramento.gerenciamento;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Mede o tempo de recuperação do inventário de serviços pelo {@link DiarioDeServicos}, a partir apenas do diário e a
+ * partir de um snapshot compactado, comparado ao novo registro de todos os serviços em memória que os produtores
+ * fariam após um reinício sem persistência.
+ *
+ * <p>
+ *     Execução: {@code java -cp <classpath de testes> br.edu.unifei.barramento.gerenciamento.DiarioDeServicosBenchmark
+ *     [servicos] [bytes do bytecode]}
+ * </p>
+ */
+public class DiarioDeServicosBenchmark {
+
+    private static final int RODADAS_DE_AQUECIMENTO = 3;
+    private static final int RODADAS_MEDIDAS = 5;
+
+    /**
+     * Evita que o compilador JIT elimine as recuperações medidas.
+     */
+    private static volatile Object sumidouro;
+
+    /**
+     * Cenário de recuperação avaliado.
+     */
+    private interface Recuperacao {
+        GerenciadorDeServicos recuperar() throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int servicos = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int bytesDoBytecode = args.length > 1 ? Integer.parseInt(args[1]) : 2048;
+
+        StringBuilder texto = new StringBuilder(bytesDoBytecode);
+        for (int i = 0; i < bytesDoBytecode; i++) {
+            texto.append((char) ('A' + i % 26));
+        }
+        String bytecode = texto.toString();
+
+        Path diretorio = Files.createTempDirectory("diario-de-servicos-benchmark");
+        try {
+            GerenciadorDeServicos gerenciador = new GerenciadorDeServicos(new DiarioDeServicos(diretorio,
+                    ConfiguracaoDoDiario.padrao().alteracoesParaCompactacao(0)));
+            long inicio = System.nanoTime();
+            for (int i = 0; i < servicos; i++) {
+                gerenciador.registrarServico("Servico_" + i, bytecode);
+            }
+            System.out.printf("Serviços: %d de %d bytes, registrados com o diário em %.1f ms (%d bytes no diário)%n",
+                    servicos, bytesDoBytecode, (System.nanoTime() - inicio) / 1e6,
+                    Files.size(diretorio.resolve(DiarioDeServicos.ARQUIVO_DO_DIARIO)));
+            gerenciador.fechar();
+
+            medir("Novo registro em memória", () -> {
+                GerenciadorDeServicos emMemoria = new GerenciadorDeServicos();
+                for (int i = 0; i < servicos; i++) {
+                    emMemoria.registrarServico("Servico_" + i, bytecode);
+                }
+                return emMemoria;
+            }, servicos);
+            medir("Recuperação do diário", () -> new GerenciadorDeServicos(new DiarioDeServicos(diretorio)), servicos);
+
+            gerenciador = new GerenciadorDeServicos(new DiarioDeServicos(diretorio));
+            gerenciador.compactar();
+            gerenciador.fechar();
+            medir("Recuperação do snapshot", () -> new GerenciadorDeServicos(new DiarioDeServicos(diretorio)),
+                    servicos);
+        } finally {
+            try (Stream<Path> arquivos = Files.walk(diretorio)) {
+                arquivos.sorted(Comparator.reverseOrder()).forEach(arquivo -> arquivo.toFile().delete());
+            }
+        }
+    }
+
+    private static void medir(String nome, Recuperacao recuperacao, int servicos) throws IOException {
+        for (int i = 0; i < RODADAS_DE_AQUECIMENTO; i++) {
+            executar(recuperacao, servicos);
+        }
+
+        double melhorTempo = Double.MAX_VALUE;
+        double tempoTotal = 0;
+        for (int i = 0; i < RODADAS_MEDIDAS; i++) {
+            long inicio = System.nanoTime();
+            executar(recuperacao, servicos);
+            double duracao = (System.nanoTime() - inicio) / 1e6;
+            melhorTempo = Math.min(melhorTempo, duracao);
+            tempoTotal += duracao;
+        }
+        System.out.printf("%-26s %9.2f ms (melhor) %9.2f ms (média)%n", nome, melhorTempo,
+                tempoTotal / RODADAS_MEDIDAS);
+    }
+
+    private static void executar(Recuperacao recuperacao, int servicos) throws IOException {
+        GerenciadorDeServicos gerenciador = recuperacao.recuperar();
+        if (gerenciador.getInventario().getQuantidade() != servicos) {
+            throw new IllegalStateException("Inventário recuperado incompleto: "
+                    + gerenciador.getInventario().getQuantidade());
+        }
+        gerenciador.fechar();
+        sumidouro = gerenciador;
+    }
+}
@@ -0,0 +1,172 @@
+package br.edu.unifei.barramento.gerenciamento;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class DiarioDeServicosTest {
+
+    private Path diretorio;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        diretorio = Files.createTempDirectory("diario-de-servicos");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (Stream<Path> arquivos = Files.walk(diretorio)) {
+            arquivos.sorted(Comparator.reverseOrder()).forEach(arquivo -> arquivo.toFile().delete());
+        }
+    }
+
+    private GerenciadorDeServicos abrir(ConfiguracaoDoDiario configuracao) throws IOException {
+        return new GerenciadorDeServicos(new DiarioDeServicos(diretorio, configuracao));
+    }
+
+    @Test
+    @DisplayName("Teste de Recuperação do Diário")
+    public void testRecuperacao() throws IOException {
+        GerenciadorDeServicos gerenciador = abrir(ConfiguracaoDoDiario.padrao().tamanhoDaRegiao(4096));
+        for (int i = 0; i < 200; i++) {
+            gerenciador.registrarServico("Servico-" + i, "bytecode-ç-" + i);
+        }
+        gerenciador.registrarServico("Servico-7", "bytecode-novo");
+        gerenciador.registrarServico("Servico-9", "yv66vgAAADQ=");
+        gerenciador.removerServico("Servico-8");
+        long versao = gerenciador.getVersao();
+        gerenciador.fechar();
+
+        GerenciadorDeServicos recuperado = abrir(ConfiguracaoDoDiario.padrao());
+        assertEquals(versao, recuperado.getVersao());
+        assertEquals(199, recuperado.getInventario().getQuantidade());
+        assertEquals("bytecode-ç-3", recuperado.buscarServico("Servico-3"));
+        assertEquals("bytecode-novo", recuperado.buscarServico("Servico-7"));
+        assertEquals(versao - 2, recuperado.buscarRegistro("Servico-7").getVersao());
+        assertTrue(recuperado.buscarRegistro("Servico-9").getConteudo().isBase64());
+        assertEquals("yv66vgAAADQ=", recuperado.buscarServico("Servico-9"));
+        assertNull(recuperado.buscarServico("Servico-8"));
+
+        recuperado.registrarServico("Servico-8", "bytecode-8");
+        assertEquals(versao + 1, recuperado.getVersao(), "As versões devem continuar após a recuperação");
+        recuperado.fechar();
+    }
+
+    @Test
+    @DisplayName("Teste de Compactação em Snapshot")
+    public void testCompactacao() throws IOException {
+        GerenciadorDeServicos gerenciador = abrir(ConfiguracaoDoDiario.padrao().alteracoesParaCompactacao(50));
+        for (int i = 0; i < 120; i++) {
+            gerenciador.registrarServico("Servico-" + (i % 30), "bytecode-" + i);
+        }
+        assertTrue(Files.exists(diretorio.resolve(DiarioDeServicos.ARQUIVO_DO_SNAPSHOT)));
+        long versao = gerenciador.getVersao();
+        gerenciador.fechar();
+
+        DiarioDeServicos diario = new DiarioDeServicos(diretorio);
+        GerenciadorDeServicos recuperado = new GerenciadorDeServicos(diario);
+        assertEquals(20, diario.getAlteracoesDesdeACompactacao(),
+                "Apenas as alterações posteriores ao snapshot devem ser lidas do diário");
+        assertEquals(versao, recuperado.getVersao());
+        assertEquals(30, recuperado.getInventario().getQuantidade());
+        assertEquals("bytecode-119", recuperado.buscarServico("Servico-29"));
+        assertEquals("bytecode-90", recuperado.buscarServico("Servico-0"));
+        recuperado.fechar();
+    }
+
+    @Test
+    @DisplayName("Teste de Compactação pelo Tamanho do Diário")
+    public void testCompactacaoPorTamanho() throws IOException {
+        DiarioDeServicos diario = new DiarioDeServicos(diretorio, ConfiguracaoDoDiario.padrao()
+                .alteracoesParaCompactacao(0).tamanhoParaCompactacao(8192));
+        GerenciadorDeServicos gerenciador = new GerenciadorDeServicos(diario);
+        StringBuilder bytecode = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            bytecode.append('x');
+        }
+        for (int i = 0; i < 40; i++) {
+            gerenciador.registrarServico("Servico-" + (i % 5), bytecode.toString() + i);
+        }
+        assertTrue(Files.exists(diretorio.resolve(DiarioDeServicos.ARQUIVO_DO_SNAPSHOT)),
+                "O diário deve ser compactado ao atingir o tamanho, mesmo sem limite de alterações");
+        assertTrue(diario.getAlteracoesDesdeACompactacao() < 9);
+        long versao = gerenciador.getVersao();
+        gerenciador.fechar();
+
+        GerenciadorDeServicos recuperado = abrir(ConfiguracaoDoDiario.padrao());
+        assertEquals(versao, recuperado.getVersao());
+        assertEquals(bytecode.toString() + 39, recuperado.buscarServico("Servico-4"));
+        recuperado.fechar();
+    }
+
+    @Test
+    @DisplayName("Teste de Falha e Fechamento do Diário")
+    public void testFalhaEFechamento() throws IOException {
+        DiarioDeServicos diario = new DiarioDeServicos(diretorio);
+        GerenciadorDeServicos gerenciador = new GerenciadorDeServicos(diario);
+        gerenciador.registrarServico("Soma", "bytecode-soma");
+
+        // O diário fechado fora do gerenciador faz as anotações falharem
+        diario.close();
+        assertThrows(UncheckedIOException.class, () -> gerenciador.registrarServico("Produto", "bytecode-produto"));
+        assertThrows(UncheckedIOException.class, () -> gerenciador.removerServico("Soma"));
+        assertEquals(1, gerenciador.getVersao(), "Uma alteração não persistida não deve ser publicada");
+        assertNull(gerenciador.buscarServico("Produto"));
+        assertEquals("bytecode-soma", gerenciador.buscarServico("Soma"));
+
+        // Após o fechamento pelo gerenciador, as alterações são mantidas apenas em memória
+        gerenciador.fechar();
+        gerenciador.registrarServico("Produto", "bytecode-produto");
+        assertTrue(gerenciador.removerServico("Soma"));
+        gerenciador.compactar();
+        assertEquals(3, gerenciador.getVersao());
+
+        GerenciadorDeServicos recuperado = abrir(ConfiguracaoDoDiario.padrao());
+        assertEquals(1, recuperado.getVersao());
+        assertEquals("bytecode-soma", recuperado.buscarServico("Soma"));
+        recuperado.fechar();
+    }
+
+    @Test
+    @DisplayName("Teste de Anotação Corrompida")
+    public void testAnotacaoCorrompida() throws IOException {
+        GerenciadorDeServicos gerenciador = abrir(ConfiguracaoDoDiario.padrao());
+        gerenciador.registrarServico("Soma", "bytecode-soma");
+        gerenciador.registrarServico("Produto", "bytecode-produto");
+        gerenciador.fechar();
+
+        // Altera um byte do bytecode da última anotação, simulando uma escrita interrompida
+        try (RandomAccessFile arquivo = new RandomAccessFile(
+                diretorio.resolve(DiarioDeServicos.ARQUIVO_DO_DIARIO).toFile(), "rw")) {
+            long posicao = 8;
+            arquivo.seek(posicao);
+            posicao += 8 + arquivo.readInt();
+            arquivo.seek(posicao + 8 + 1 + 8 + 4 + "Produto".length() + 1 + 4);
+            arquivo.write('X');
+        }
+
+        GerenciadorDeServicos recuperado = abrir(ConfiguracaoDoDiario.padrao());
+        assertEquals(1, recuperado.getVersao(), "A leitura deve terminar na anotação corrompida");
+        assertEquals("bytecode-soma", recuperado.buscarServico("Soma"));
+        assertNull(recuperado.buscarServico("Produto"));
+
+        recuperado.registrarServico("Divisao", "bytecode-divisao");
+        recuperado.fechar();
+        GerenciadorDeServicos novamente = abrir(ConfiguracaoDoDiario.padrao());
+        assertEquals(2, novamente.getVersao(), "A anotação corrompida deve ser sobrescrita");
+        assertEquals("bytecode-divisao", novamente.buscarServico("Divisao"));
+        novamente.fechar();
+    }
+}
@@ -0,0 +1,153 @@
+package br.edu.unifei.barramento.gerenciamento;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class GerenciadorDeServicosTest {
+
+    @Test
+    @DisplayName("Teste de Versões do Inventário e dos Serviços")
+    public void testVersoes() {
+        GerenciadorDeServicos gerenciador = new GerenciadorDeServicos();
+        assertEquals(0, gerenciador.getVersao());
+
+        ServicoRegistrado primeiro = gerenciador.registrarServico("Soma", "bytecode-1");
+        ServicoRegistrado segundo = gerenciador.registrarServico("Soma", "bytecode-2");
+        assertTrue(segundo.getVersao() > primeiro.getVersao());
+        assertEquals("bytecode-2", gerenciador.buscarServico("Soma"));
+        assertEquals(segundo.getVersao(), gerenciador.buscarRegistro("Soma").getVersao());
+
+        long versaoAntesDaRemocao = gerenciador.getVersao();
+        assertFalse(gerenciador.removerServico("Inexistente"));
+        assertEquals(versaoAntesDaRemocao, gerenciador.getVersao(), "Remover um serviço ausente não altera a versão");
+        assertTrue(gerenciador.removerServico("Soma"));
+        assertNull(gerenciador.buscarServico("Soma"));
+
+        ServicoRegistrado terceiro = gerenciador.registrarServico("Soma", "bytecode-3");
+        assertTrue(terceiro.getVersao() > segundo.getVersao(),
+                "Um novo registro após a remoção deve ter uma versão maior");
+    }
+
+    @Test
+    @DisplayName("Teste de Inventário Imutável e Isolado por Instância")
+    public void testInventarioImutavel() {
+        GerenciadorDeServicos gerenciador = new GerenciadorDeServicos();
+        gerenciador.registrarServico("Soma", "bytecode");
+        InventarioDeServicos inventario = gerenciador.getInventario();
+
+        gerenciador.registrarServico("Produto", "bytecode");
+        gerenciador.removerServico("Soma");
+        assertEquals(1, inventario.getQuantidade(), "O inventário obtido não deve ser afetado pelas alterações");
+        assertNotNull(inventario.buscar("Soma"));
+        assertThrows(UnsupportedOperationException.class, () -> inventario.getNomes().clear());
+
+        assertEquals("Nenhum serviço disponível.", new GerenciadorDeServicos().listarServicos(),
+                "Cada instância deve manter os seus próprios serviços");
+    }
+
+    @Test
+    @DisplayName("Teste de Leituras Concorrentes com Registros")
+    public void testLeiturasConcorrentes() throws Exception {
+        GerenciadorDeServicos gerenciador = new GerenciadorDeServicos();
+        int escritores = 4;
+        int registrosPorEscritor = 2_000;
+        AtomicBoolean ativo = new AtomicBoolean(true);
+        CountDownLatch inicio = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(escritores + 2);
+        List<Future<?>> tarefas = new ArrayList<>();
+
+        for (int e = 0; e < escritores; e++) {
+            int escritor = e;
+            tarefas.add(executor.submit(() -> {
+                inicio.await();
+                for (int i = 0; i < registrosPorEscritor; i++) {
+                    gerenciador.registrarServico("Servico-" + escritor + "-" + (i % 50), "bytecode-" + i);
+                }
+                return null;
+            }));
+        }
+        for (int l = 0; l < 2; l++) {
+            tarefas.add(executor.submit(() -> {
+                inicio.await();
+                long ultimaVersao = 0;
+                while (ativo.get()) {
+                    InventarioDeServicos inventario = gerenciador.getInventario();
+                    assertTrue(inventario.getVersao() >= ultimaVersao, "A versão não deve retroceder");
+                    ultimaVersao = inventario.getVersao();
+                    for (ServicoRegistrado servico : inventario.getServicos()) {
+                        assertTrue(servico.getVersao() <= inventario.getVersao());
+                    }
+                    gerenciador.listarServicos();
+                }
+                return null;
+            }));
+        }
+
+        inicio.countDown();
+        for (int i = 0; i < escritores; i++) {
+            tarefas.get(i).get(30, TimeUnit.SECONDS);
+        }
+        ativo.set(false);
+        for (Future<?> tarefa : tarefas) {
+            tarefa.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals((long) escritores * registrosPorEscritor, gerenciador.getVersao(),
+                "Cada registro deve incrementar a versão uma única vez");
+        assertEquals(escritores * 50, gerenciador.getInventario().getQuantidade());
+    }
+
+    @Test
+    @DisplayName("Teste de Inventário com Muitas Alterações")
+    public void testInventarioComMuitasAlteracoes() {
+        GerenciadorDeServicos gerenciador = new GerenciadorDeServicos();
+        TreeMap<String, String> esperado = new TreeMap<>();
+        List<InventarioDeServicos> anteriores = new ArrayList<>();
+        List<TreeMap<String, String>> esperadosAnteriores = new ArrayList<>();
+        Random aleatorio = new Random(42);
+
+        for (int i = 0; i < 5000; i++) {
+            String nome = "Servico" + aleatorio.nextInt(500);
+            if (aleatorio.nextInt(3) == 0) {
+                assertEquals(esperado.remove(nome) != null, gerenciador.removerServico(nome));
+            } else {
+                gerenciador.registrarServico(nome, "bytecode-" + i);
+                esperado.put(nome, "bytecode-" + i);
+            }
+            if (i % 1000 == 0) {
+                anteriores.add(gerenciador.getInventario());
+                esperadosAnteriores.add(new TreeMap<>(esperado));
+            }
+        }
+        anteriores.add(gerenciador.getInventario());
+        esperadosAnteriores.add(esperado);
+
+        for (int i = 0; i < anteriores.size(); i++) {
+            InventarioDeServicos inventario = anteriores.get(i);
+            TreeMap<String, String> servicos = esperadosAnteriores.get(i);
+            assertEquals(servicos.size(), inventario.getQuantidade());
+            assertEquals(new ArrayList<>(servicos.keySet()), new ArrayList<>(inventario.getNomes()),
+                    "Os nomes devem ser percorridos em ordem alfabética");
+            for (ServicoRegistrado servico : inventario.getServicos()) {
+                assertEquals(servicos.get(servico.getNome()), servico.getBytecode(),
+                        "Um inventário obtido não deve ser afetado pelas alterações seguintes");
+            }
+            assertNull(inventario.buscar("Inexistente"));
+        }
+    }
+}
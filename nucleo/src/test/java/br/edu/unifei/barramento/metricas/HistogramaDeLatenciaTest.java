@@ -0,0 +1,80 @@
+package br.edu.unifei.barramento.metricas;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class HistogramaDeLatenciaTest {
+
+    @Test
+    @DisplayName("Teste de Percentis com Erro Relativo Limitado")
+    public void testPercentis() {
+        HistogramaDeLatencia histograma = new HistogramaDeLatencia();
+        for (int i = 1; i <= 100_000; i++) {
+            histograma.registrar(i * 1_000L);
+        }
+
+        assertEquals(100_000, histograma.getContagem());
+        assertEquals(100_000_000L, histograma.getMaximo());
+        assertEquals(50_000_500.0, histograma.getMedia(), 1);
+        assertEquals(50_000_000, histograma.getP50(), 50_000_000 * 0.04);
+        assertEquals(99_000_000, histograma.getP99(), 99_000_000 * 0.04);
+        assertEquals(99_900_000, histograma.getP999(), 99_900_000 * 0.04);
+        assertTrue(histograma.getPercentil(100) <= histograma.getMaximo());
+    }
+
+    @Test
+    @DisplayName("Teste de Limites das Faixas")
+    public void testLimitesDasFaixas() {
+        Random aleatorio = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long valor = aleatorio.nextLong() >>> (1 + aleatorio.nextInt(63));
+            int indice = HistogramaDeLatencia.indice(valor);
+            assertTrue(HistogramaDeLatencia.limiteSuperior(indice) >= valor);
+            assertTrue(indice == 0 || HistogramaDeLatencia.limiteSuperior(indice - 1) < valor);
+        }
+        assertEquals(0, new HistogramaDeLatencia().getP99());
+    }
+
+    @Test
+    @DisplayName("Teste de Registro Concorrente")
+    public void testRegistroConcorrente() throws InterruptedException {
+        HistogramaDeLatencia histograma = new HistogramaDeLatencia();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 25_000; i++) {
+                    histograma.registrar(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(100_000, histograma.getContagem());
+        assertEquals(24_999, histograma.getMaximo());
+    }
+
+    @Test
+    @DisplayName("Teste de Histogramas por Protocolo e Ação")
+    public void testMetricasPorProtocoloEAcao() {
+        MetricasDeLatencia metricas = new MetricasDeLatencia();
+        metricas.registrar(EstagioDeLatencia.EXECUCAO, "ProtocoloMQTT", "BUSCAR_SERVICO", 1_000);
+        metricas.registrar(EstagioDeLatencia.EXECUCAO, "ProtocoloMQTT", "BUSCAR_SERVICO", 3_000);
+        metricas.registrar(EstagioDeLatencia.EXECUCAO, "ProtocoloCoAP", "BUSCAR_SERVICO", 2_000);
+        metricas.registrar(EstagioDeLatencia.ENVIO, "ProtocoloMQTT", null, 500);
+
+        assertEquals(2, metricas.getHistograma(EstagioDeLatencia.EXECUCAO, "ProtocoloMQTT", "BUSCAR_SERVICO")
+                .getContagem());
+        assertEquals(1, metricas.getHistograma(EstagioDeLatencia.EXECUCAO, "ProtocoloCoAP", "BUSCAR_SERVICO")
+                .getContagem());
+        assertEquals(1, metricas.getHistograma(EstagioDeLatencia.ENVIO, "ProtocoloMQTT", null).getContagem());
+        assertNull(metricas.getHistograma(EstagioDeLatencia.RECEPCAO, "ProtocoloMQTT", "BUSCAR_SERVICO"));
+        assertEquals(3, metricas.getResumo().size());
+    }
+}
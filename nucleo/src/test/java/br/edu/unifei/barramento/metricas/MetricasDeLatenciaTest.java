@@ -0,0 +1,27 @@
+package br.edu.unifei.barramento.metricas;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class MetricasDeLatenciaTest {
+
+    @Test
+    @DisplayName("Teste de Limite de Ações Distintas")
+    public void testLimiteDeAcoes() {
+        MetricasDeLatencia metricas = new MetricasDeLatencia();
+        int quantidade = MetricasDeLatencia.LIMITE_DE_ACOES + 100;
+        for (int i = 0; i < quantidade; i++) {
+            metricas.registrar(EstagioDeLatencia.EXECUCAO, "MQTT", "acao-" + i, 1_000);
+        }
+
+        assertNotNull(metricas.getHistograma(EstagioDeLatencia.EXECUCAO, "MQTT", "acao-0"));
+        assertNull(metricas.getHistograma(EstagioDeLatencia.EXECUCAO, "MQTT", "acao-" + (quantidade - 1)));
+        HistogramaDeLatencia outras =
+                metricas.getHistograma(EstagioDeLatencia.EXECUCAO, "MQTT", MetricasDeLatencia.OUTRAS_ACOES);
+        assertEquals(quantidade - MetricasDeLatencia.LIMITE_DE_ACOES, outras.getContagem());
+        assertEquals(MetricasDeLatencia.LIMITE_DE_ACOES + 1, metricas.getResumo().size());
+    }
+}
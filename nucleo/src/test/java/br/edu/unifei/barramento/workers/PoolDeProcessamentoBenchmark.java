@@ -0,0 +1,110 @@
+package br.edu.unifei.barramento.workers;
+
+import br.edu.unifei.barramento.Barramento;
+import br.edu.unifei.barramento.ConfiguracaoDoControlador;
+import br.edu.unifei.barramento.gerenciamento.GerenciadorDeServicos;
+import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.modelos.protocolo.Protocolo;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.google.gson.JsonObject;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Mede a vazão do {@link PoolDeProcessamento} variando o número de workers de 1 até N. As mensagens são
+ * encaminhamentos para vários destinos e o protocolo simula um envio bloqueante com duração fixa, como a espera pelo
+ * PUBACK do broker MQTT. Quando a JVM suporta threads virtuais, mede também o {@link ModoDeExecucao#VIRTUAL}.
+ *
+ * <p>
+ *     Execução: {@code java -cp <classpath de testes> br.edu.unifei.barramento.workers.PoolDeProcessamentoBenchmark
+ *     [maximoDeWorkers] [mensagens] [destinos] [custoDoEnvioEmMicrossegundos]}
+ * </p>
+ */
+@SuppressWarnings("unused")
+public class PoolDeProcessamentoBenchmark {
+
+    /**
+     * Protocolo que apenas simula o tempo de envio e sinaliza a conclusão.
+     */
+    private static class ProtocoloSimulado extends Protocolo {
+        private final long custoDoEnvioNanos;
+        private volatile CountDownLatch pendentes;
+
+        ProtocoloSimulado(long custoDoEnvioNanos) {
+            this.custoDoEnvioNanos = custoDoEnvioNanos;
+        }
+
+        @Override
+        public void enviarMensagem(Mensagem mensagem) {
+            LockSupport.parkNanos(custoDoEnvioNanos);
+            pendentes.countDown();
+        }
+
+        @Override
+        public void desconectar() {
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int maximoDeWorkers = args.length > 0 ? Integer.parseInt(args[0])
+                : Runtime.getRuntime().availableProcessors();
+        int mensagens = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int destinos = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        long custoDoEnvio = args.length > 3 ? Long.parseLong(args[3]) : 100;
+
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        System.out.printf("Mensagens: %d, destinos: %d, custo do envio: %d µs%n", mensagens, destinos, custoDoEnvio);
+        double vazaoComUmWorker = 0;
+        for (int workers = 1; workers <= maximoDeWorkers; workers *= 2) {
+            double vazao = medir(ConfiguracaoDoControlador.padrao().numeroDeWorkers(workers), mensagens, destinos,
+                    TimeUnit.MICROSECONDS.toNanos(custoDoEnvio));
+            if (workers == 1) {
+                vazaoComUmWorker = vazao;
+            }
+            System.out.printf("%3d worker(s): %,10.0f msg/s (%.2fx)%n", workers, vazao, vazao / vazaoComUmWorker);
+        }
+
+        if (FabricaDeThreads.suportaThreadsVirtuais()) {
+            ConfiguracaoDoControlador virtual = ConfiguracaoDoControlador.padrao()
+                    .numeroDeWorkers(1)
+                    .modoDeExecucao(ModoDeExecucao.VIRTUAL);
+            double vazao = medir(virtual, mensagens, destinos, TimeUnit.MICROSECONDS.toNanos(custoDoEnvio));
+            System.out.printf("Threads virtuais (limite %d): %,10.0f msg/s (%.2fx)%n",
+                    virtual.getLimiteDeConcorrencia(), vazao, vazao / vazaoComUmWorker);
+        }
+    }
+
+    private static double medir(ConfiguracaoDoControlador configuracao, int mensagens, int destinos,
+                                long custoDoEnvioNanos) throws InterruptedException {
+        ProtocoloSimulado protocolo = new ProtocoloSimulado(custoDoEnvioNanos);
+        Barramento barramento = new Barramento(new GerenciadorDeServicos());
+        PoolDeProcessamento pool = new PoolDeProcessamento(protocolo, barramento, configuracao);
+
+        for (int i = 0; i < destinos; i++) {
+            barramento.cadastrarEndpoint("destino-" + i, protocolo);
+        }
+        barramento.cadastrarEndpoint("origem", protocolo);
+
+        Mensagem[] lote = new Mensagem[mensagens];
+        for (int i = 0; i < mensagens; i++) {
+            lote[i] = new Mensagem("ENVIAR_MENSAGEM", "origem", "destino-" + (i % destinos), new JsonObject());
+        }
+
+        protocolo.pendentes = new CountDownLatch(mensagens);
+        pool.iniciar();
+        long inicio = System.nanoTime();
+        for (Mensagem mensagem : lote) {
+            pool.adicionar(mensagem);
+        }
+        protocolo.pendentes.await();
+        long duracao = System.nanoTime() - inicio;
+        pool.parar();
+
+        return mensagens / (duracao / 1_000_000_000.0);
+    }
+}
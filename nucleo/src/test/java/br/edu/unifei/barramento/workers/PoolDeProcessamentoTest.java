@@ -0,0 +1,99 @@
+package br.edu.unifei.barramento.workers;
+
+import br.edu.unifei.barramento.Barramento;
+import br.edu.unifei.barramento.ConfiguracaoDoControlador;
+import br.edu.unifei.barramento.gerenciamento.GerenciadorDeServicos;
+import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.modelos.protocolo.Protocolo;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class PoolDeProcessamentoTest {
+
+    private static PoolDeProcessamento criarPool(int workers, ChaveDeAfinidade chave) {
+        return new PoolDeProcessamento(Mockito.mock(Protocolo.class), new Barramento(new GerenciadorDeServicos()),
+                ConfiguracaoDoControlador.padrao().numeroDeWorkers(workers).chaveDeAfinidade(chave));
+    }
+
+    @Test
+    @DisplayName("Teste de Afinidade por Destino")
+    public void testMesmoDestinoMesmoWorker() {
+        PoolDeProcessamento pool = criarPool(8, ChaveDeAfinidade.DESTINO);
+        Set<Integer> indices = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            indices.add(pool.indiceDoWorker(
+                    new Mensagem("ENVIAR_MENSAGEM", "origem-" + i, "destino", new JsonObject())));
+        }
+        assertEquals(1, indices.size(), "Mensagens para o mesmo destino devem ir para o mesmo worker");
+    }
+
+    @Test
+    @DisplayName("Teste de Afinidade por Origem")
+    public void testMesmaOrigemMesmoWorker() {
+        PoolDeProcessamento pool = criarPool(8, ChaveDeAfinidade.ORIGEM);
+        Set<Integer> indices = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            indices.add(pool.indiceDoWorker(
+                    new Mensagem("ENVIAR_MENSAGEM", "origem", "destino-" + i, new JsonObject())));
+        }
+        assertEquals(1, indices.size(), "Mensagens da mesma origem devem ir para o mesmo worker");
+    }
+
+    @Test
+    @DisplayName("Teste de Distribuição entre Workers")
+    public void testDestinosDiferentesSaoDistribuidos() {
+        PoolDeProcessamento pool = criarPool(4, ChaveDeAfinidade.DESTINO);
+        Set<Integer> indices = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            int indice = pool.indiceDoWorker(
+                    new Mensagem("ENVIAR_MENSAGEM", "origem", "destino-" + i, new JsonObject()));
+            assertTrue(indice >= 0 && indice < 4);
+            indices.add(indice);
+        }
+        assertEquals(4, indices.size(), "Destinos diferentes devem ser distribuídos entre todos os workers");
+    }
+
+    @Test
+    @DisplayName("Teste de Distribuição de Comandos pela Origem")
+    public void testComandosDistribuidosPelaOrigem() {
+        PoolDeProcessamento pool = criarPool(4, ChaveDeAfinidade.DESTINO);
+        Set<Integer> indices = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            indices.add(pool.indiceDoWorker(
+                    new Mensagem("BUSCAR_SERVICO", "origem-" + i, "topico/barramento", new JsonObject())));
+        }
+        assertEquals(4, indices.size(), "Comandos de origens diferentes devem ser distribuídos entre os workers");
+        assertEquals(pool.indiceDoWorker(new Mensagem("BUSCAR_SERVICO", "origem", "topico/barramento",
+                        new JsonObject())),
+                pool.indiceDoWorker(new Mensagem("LISTAR_SERVICOS", "origem", "topico/barramento", new JsonObject())),
+                "Comandos da mesma origem devem ir para o mesmo worker");
+    }
+
+    @Test
+    @DisplayName("Teste de Número de Workers Inválido")
+    public void testNumeroDeWorkersInvalido() {
+        assertThrows(IllegalArgumentException.class, () -> criarPool(0, ChaveDeAfinidade.DESTINO));
+    }
+
+    @Test
+    @DisplayName("Teste de Modo Virtual sem Suporte da JVM")
+    public void testModoVirtualSemSuporte() {
+        ConfiguracaoDoControlador configuracao = ConfiguracaoDoControlador.padrao()
+                .modoDeExecucao(ModoDeExecucao.VIRTUAL);
+        if (FabricaDeThreads.suportaThreadsVirtuais()) {
+            assertEquals(ModoDeExecucao.VIRTUAL, configuracao.getModoDeExecucao());
+        } else {
+            assertEquals(ModoDeExecucao.PLATAFORMA, configuracao.getModoDeExecucao(),
+                    "Sem suporte a threads virtuais, a configuração deve usar threads de plataforma");
+            assertThrows(IllegalStateException.class, () -> FabricaDeThreads.criar("teste", ModoDeExecucao.VIRTUAL));
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package br.edu.unifei.barramento.workers;
+
+import br.edu.unifei.barramento.Barramento;
+import br.edu.unifei.barramento.FilaDeMensagens;
+import br.edu.unifei.barramento.comandos.Comando;
+import br.edu.unifei.barramento.gerenciamento.GerenciadorDeServicos;
+import br.edu.unifei.barramento.metricas.EstagioDeLatencia;
+import br.edu.unifei.barramento.metricas.MetricasDeLatencia;
+import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.modelos.protocolo.Protocolo;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class WorkerDeProcessamentoTest {
+
+    /**
+     * Protocolo que registra os lotes enviados pelo barramento.
+     */
+    private static class ProtocoloDeTeste extends Protocolo {
+        private final List<List<Mensagem>> lotesEnviados = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void enviarMensagem(Mensagem mensagem) {
+            lotesEnviados.add(Collections.singletonList(mensagem));
+        }
+
+        @Override
+        public void enviarMensagens(List<Mensagem> mensagens) {
+            lotesEnviados.add(new ArrayList<>(mensagens));
+        }
+
+        @Override
+        public void desconectar() {
+        }
+    }
+
+    /**
+     * Comando que registra o tamanho de cada lote recebido e responde a cada mensagem com um eco.
+     */
+    private static class ComandoEco implements Comando {
+        private final List<Integer> tamanhosDosLotes = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Mensagem executar(Mensagem mensagem, Barramento barramento, Protocolo protocolo) {
+            return new Mensagem("ECO", "barramento", mensagem.getOrigem(), new JsonObject());
+        }
+
+        @Override
+        public List<Mensagem> executarLote(List<Mensagem> mensagens, Barramento barramento, Protocolo protocolo) {
+            tamanhosDosLotes.add(mensagens.size());
+            return Comando.super.executarLote(mensagens, barramento, protocolo);
+        }
+    }
+
+    private static Mensagem criarMensagem(String acao, int indice) {
+        return new Mensagem(acao, "cliente-" + indice, "barramento", new JsonObject());
+    }
+
+    private static void aguardar(ProtocoloDeTeste protocolo, int mensagensEsperadas) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (contarMensagens(protocolo) < mensagensEsperadas && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static int contarMensagens(ProtocoloDeTeste protocolo) {
+        int total = 0;
+        for (List<Mensagem> lote : protocolo.lotesEnviados) {
+            total += lote.size();
+        }
+        return total;
+    }
+
+    @Test
+    @DisplayName("Teste de Execução em Lote")
+    public void testMensagensComMesmaAcaoSaoExecutadasEmLote() throws InterruptedException {
+        Barramento barramento = new Barramento(new GerenciadorDeServicos());
+        ComandoEco comando = new ComandoEco();
+        barramento.getRegistroDeComandos().registrar("ECO", comando);
+        ProtocoloDeTeste protocolo = new ProtocoloDeTeste();
+
+        FilaDeMensagens fila = new FilaDeMensagens();
+        for (int i = 0; i < 10; i++) {
+            fila.adicionar(criarMensagem("ECO", i));
+        }
+
+        WorkerDeProcessamento worker = new WorkerDeProcessamento(protocolo, barramento, fila, 32, null, null);
+        Thread thread = new Thread(worker);
+        thread.start();
+        aguardar(protocolo, 10);
+        worker.parar();
+        thread.join(1000);
+
+        assertEquals(Collections.singletonList(10), comando.tamanhosDosLotes,
+                "As mensagens disponíveis devem ser entregues ao comando em um único lote");
+        assertEquals(1, protocolo.lotesEnviados.size(), "As respostas devem ser enviadas em conjunto");
+        assertEquals(10, protocolo.lotesEnviados.get(0).size());
+    }
+
+    @Test
+    @DisplayName("Teste de Agrupamento por Ação Preservando a Ordem")
+    public void testAcoesDiferentesFormamGruposConsecutivos() throws InterruptedException {
+        Barramento barramento = new Barramento(new GerenciadorDeServicos());
+        ComandoEco comando = new ComandoEco();
+        barramento.getRegistroDeComandos().registrar("ECO", comando);
+        ProtocoloDeTeste protocolo = new ProtocoloDeTeste();
+
+        FilaDeMensagens fila = new FilaDeMensagens();
+        fila.adicionar(criarMensagem("ECO", 0));
+        fila.adicionar(criarMensagem("ECO", 1));
+        fila.adicionar(criarMensagem("ENVIAR_MENSAGEM", 2));
+        fila.adicionar(criarMensagem("ECO", 3));
+
+        WorkerDeProcessamento worker = new WorkerDeProcessamento(protocolo, barramento, fila, 32, null, null);
+        Thread thread = new Thread(worker);
+        thread.start();
+        aguardar(protocolo, 4);
+        worker.parar();
+        thread.join(1000);
+
+        assertEquals(Arrays.asList(2, 1), comando.tamanhosDosLotes,
+                "Apenas mensagens consecutivas com a mesma ação devem ser agrupadas");
+        assertEquals(3, protocolo.lotesEnviados.size());
+        assertEquals("cliente-2", protocolo.lotesEnviados.get(1).get(0).getOrigem(),
+                "A mensagem sem comando deve ser encaminhada entre os dois grupos");
+    }
+
+    @Test
+    @DisplayName("Teste de Erro no Comando sem Encerrar o Worker")
+    public void testErroNoComandoNaoEncerraOWorker() throws InterruptedException {
+        Barramento barramento = new Barramento(new GerenciadorDeServicos());
+        barramento.getRegistroDeComandos().registrar("FALHA", (mensagem, b, p) -> {
+            throw new IllegalStateException("falha no comando");
+        });
+        barramento.getRegistroDeComandos().registrar("ECO", new ComandoEco());
+        ProtocoloDeTeste protocolo = new ProtocoloDeTeste();
+
+        FilaDeMensagens fila = new FilaDeMensagens();
+        fila.adicionar(criarMensagem("FALHA", 0));
+        fila.adicionar(criarMensagem("ECO", 1));
+
+        WorkerDeProcessamento worker = new WorkerDeProcessamento(protocolo, barramento, fila, 1, null, null);
+        Thread thread = new Thread(worker);
+        thread.start();
+        aguardar(protocolo, 1);
+        fila.adicionar(criarMensagem("ECO", 2));
+        aguardar(protocolo, 2);
+        worker.parar();
+        thread.join(1000);
+
+        assertEquals(2, contarMensagens(protocolo), "O worker deve continuar processando após o erro no comando");
+    }
+
+    @Test
+    @DisplayName("Teste de Tamanho Máximo do Lote")
+    public void testLoteLimitadoAoTamanhoMaximo() throws InterruptedException {
+        Barramento barramento = new Barramento(new GerenciadorDeServicos());
+        ComandoEco comando = new ComandoEco();
+        barramento.getRegistroDeComandos().registrar("ECO", comando);
+        ProtocoloDeTeste protocolo = new ProtocoloDeTeste();
+
+        FilaDeMensagens fila = new FilaDeMensagens();
+        for (int i = 0; i < 10; i++) {
+            fila.adicionar(criarMensagem("ECO", i));
+        }
+
+        WorkerDeProcessamento worker = new WorkerDeProcessamento(protocolo, barramento, fila, 4, null, null);
+        Thread thread = new Thread(worker);
+        thread.start();
+        aguardar(protocolo, 10);
+        worker.parar();
+        thread.join(1000);
+
+        assertEquals(Arrays.asList(4, 4, 2), comando.tamanhosDosLotes);
+    }
+
+    @Test
+    @DisplayName("Teste de Métricas de Latência por Estágio")
+    public void testLatenciasRegistradasSemTimestampsNaMensagem() throws InterruptedException {
+        Barramento barramento = new Barramento(new GerenciadorDeServicos());
+        barramento.getRegistroDeComandos().registrar("ECO", new ComandoEco());
+        ProtocoloDeTeste protocolo = new ProtocoloDeTeste();
+
+        FilaDeMensagens fila = new FilaDeMensagens();
+        for (int i = 0; i < 10; i++) {
+            Mensagem mensagem = criarMensagem("ECO", i);
+            mensagem.setInstanteDeEnfileiramentoNanos(System.nanoTime());
+            fila.adicionar(mensagem);
+        }
+
+        WorkerDeProcessamento worker = new WorkerDeProcessamento(protocolo, barramento, fila, 32, null, null);
+        Thread thread = new Thread(worker);
+        thread.start();
+        aguardar(protocolo, 10);
+        worker.parar();
+        thread.join(1000);
+
+        MetricasDeLatencia metricas = barramento.getMetricasDeLatencia();
+        String nome = protocolo.getNomeProtocolo();
+        assertEquals(10, metricas.getHistograma(EstagioDeLatencia.ESPERA_NA_FILA, nome, "ECO").getContagem());
+        assertEquals(10, metricas.getHistograma(EstagioDeLatencia.EXECUCAO, nome, "ECO").getContagem());
+        assertEquals(10, metricas.getHistograma(EstagioDeLatencia.ENVIO, nome, "ECO").getContagem());
+        assertFalse(protocolo.lotesEnviados.get(0).get(0).getConteudo().has("metadata"),
+                "Os timestamps só devem ser adicionados à mensagem no modo de compatibilidade");
+    }
+
+    @Test
+    @DisplayName("Teste de Timestamps na Mensagem no Modo de Compatibilidade")
+    public void testTimestampsNaMensagemQuandoHabilitados() throws InterruptedException {
+        Barramento barramento = new Barramento(new GerenciadorDeServicos());
+        barramento.setTimestampsNaMensagem(true);
+        barramento.getRegistroDeComandos().registrar("ECO", new ComandoEco());
+        ProtocoloDeTeste protocolo = new ProtocoloDeTeste();
+
+        FilaDeMensagens fila = new FilaDeMensagens();
+        fila.adicionar(criarMensagem("ECO", 0));
+
+        WorkerDeProcessamento worker = new WorkerDeProcessamento(protocolo, barramento, fila, 32, null, null);
+        Thread thread = new Thread(worker);
+        thread.start();
+        aguardar(protocolo, 1);
+        worker.parar();
+        thread.join(1000);
+
+        JsonObject metadata = protocolo.lotesEnviados.get(0).get(0).getConteudo().getAsJsonObject("metadata");
+        assertTrue(metadata.has("timestamp_bus_processamento_fim"));
+        assertTrue(metadata.has("timestamp_bus_msg_enviada_cliente"));
+    }
+}
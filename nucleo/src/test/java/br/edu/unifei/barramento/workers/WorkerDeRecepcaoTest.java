@@ -0,0 +1,53 @@
+package br.edu.unifei.barramento.workers;
+
+import br.edu.unifei.barramento.FilaDeMensagens;
+import br.edu.unifei.barramento.fila.EstrategiaDeEspera;
+import br.edu.unifei.barramento.fila.PoliticaDeFilaCheia;
+import br.edu.unifei.modelos.mensagem.Mensagem;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class WorkerDeRecepcaoTest {
+
+    private static Mensagem criarMensagem(int i) {
+        return new Mensagem("ENVIAR_MENSAGEM", "origem-" + i, "destino", new JsonObject());
+    }
+
+    @Test
+    @DisplayName("Teste de Transferência das Mensagens Restantes ao Parar")
+    public void testTransferenciaAoParar() throws InterruptedException {
+        FilaDeMensagens fila = new FilaDeMensagens();
+        WorkerDeRecepcao worker = new WorkerDeRecepcao(fila);
+        for (int i = 0; i < 10; i++) {
+            worker.adicionarMensagemAFila(criarMensagem(i));
+        }
+        worker.parar();
+        Thread thread = new Thread(worker);
+        thread.start();
+        thread.join(5000);
+
+        assertFalse(thread.isAlive());
+        assertTrue(worker.aguardarEncerramento(0));
+        assertEquals(10, fila.tamanho(), "As mensagens da fila de entrada devem ser transferidas antes de encerrar");
+    }
+
+    @Test
+    @DisplayName("Teste de Contagem das Mensagens Recusadas")
+    public void testMensagensRecusadas() {
+        FilaDeMensagens fila = new FilaDeMensagens(4, EstrategiaDeEspera.PARK, PoliticaDeFilaCheia.REJEITAR);
+        WorkerDeRecepcao worker = new WorkerDeRecepcao(fila, WorkerDeRecepcao.TAMANHO_MAXIMO_DO_LOTE_PADRAO);
+        for (int i = 0; i < 10; i++) {
+            worker.adicionarMensagemAFila(criarMensagem(i));
+        }
+        worker.parar();
+        worker.run();
+
+        assertEquals(4, fila.tamanho());
+        assertEquals(6, worker.getMetricas().getMensagensRejeitadas(),
+                "As mensagens recusadas pela fila de processamento devem ser contadas");
+    }
+}
@@ -0,0 +1,117 @@
+package br.edu.unifei.modelos.mensagem;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+/**
+ * Comparação do caminho de envio entre o {@link CodificadorDeMensagem} e a implementação anterior, em que cada envio
+ * criava uma nova instância do {@link Gson}, montava uma {@link String} com {@code toJson} e a convertia em bytes para
+ * o transporte. As mensagens medidas são respostas montadas pelos comandos, com o conteúdo já decodificado.
+ *
+ * <p>
+ *     Execução: {@code java -cp <classpath de testes> br.edu.unifei.modelos.mensagem.CodificadorDeMensagemBenchmark
+ *     [mensagens]}
+ * </p>
+ */
+public class CodificadorDeMensagemBenchmark {
+
+    private static final int RODADAS_DE_AQUECIMENTO = 5;
+    private static final int RODADAS_MEDIDAS = 5;
+
+    /**
+     * Evita que o compilador JIT elimine as codificações medidas.
+     */
+    private static volatile Object sumidouro;
+
+    /**
+     * Cópia da serialização anterior da {@link Mensagem}, mantida apenas como referência de comparação.
+     */
+    @SuppressWarnings("unused")
+    private static class MensagemAnterior {
+        private final String acao;
+        private final String origem;
+        private final String destino;
+        private final JsonObject conteudo;
+
+        MensagemAnterior(Mensagem mensagem) {
+            this.acao = mensagem.getAcao();
+            this.origem = mensagem.getOrigem();
+            this.destino = mensagem.getDestino();
+            this.conteudo = mensagem.getConteudo();
+        }
+
+        String toJson() {
+            Gson gson = new Gson();
+            return gson.toJson(this);
+        }
+    }
+
+    public static void main(String[] args) {
+        int mensagens = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+
+        JsonObject resultado = new JsonObject();
+        resultado.addProperty("resultado", "Endpoint registrado com sucesso.");
+        JsonObject metadata = new JsonObject();
+        metadata.addProperty("timestamp_envio", System.currentTimeMillis());
+        metadata.addProperty("timestamp_bus_processamento_inicio", System.currentTimeMillis());
+        resultado.add("metadata", metadata);
+        Mensagem pequena = new Mensagem("CADASTRAR_ENDPOINT", "barramento", "cliente-42", resultado);
+
+        StringBuilder bytecode = new StringBuilder();
+        for (int i = 0; i < 16_384; i++) {
+            bytecode.append((char) ('A' + i % 26));
+        }
+        JsonObject servico = new JsonObject();
+        servico.addProperty("nome", "Calculadora");
+        servico.addProperty("bytecode", bytecode.toString());
+        servico.add("metadata", metadata);
+        Mensagem grande = new Mensagem("BUSCAR_SERVICO", "barramento", "cliente-42", servico);
+
+        System.out.printf("Mensagens por rodada: %,d%n", mensagens);
+        for (Mensagem mensagem : new Mensagem[]{pequena, grande}) {
+            MensagemAnterior anterior = new MensagemAnterior(mensagem);
+            System.out.printf("%s (%,d bytes)%n", mensagem.getAcao(), mensagem.toBytes().length);
+            medir("Gson + String (anterior)", m -> anterior.toJson().getBytes(StandardCharsets.UTF_8),
+                    mensagem, mensagens);
+            medir("CodificadorDeMensagem", CodificadorDeMensagem::codificar, mensagem, mensagens);
+        }
+    }
+
+    private static void medir(String nome, Function<Mensagem, byte[]> codificar, Mensagem mensagem,
+                              int mensagens) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < RODADAS_DE_AQUECIMENTO; i++) {
+            executar(codificar, mensagem, mensagens);
+        }
+
+        double melhorTempo = Double.MAX_VALUE;
+        double bytesPorMensagem = 0;
+        for (int i = 0; i < RODADAS_MEDIDAS; i++) {
+            long bytesAntes = threads.getThreadAllocatedBytes(threadId);
+            long inicio = System.nanoTime();
+            executar(codificar, mensagem, mensagens);
+            long duracao = System.nanoTime() - inicio;
+            long bytes = threads.getThreadAllocatedBytes(threadId) - bytesAntes;
+
+            melhorTempo = Math.min(melhorTempo, (double) duracao / mensagens);
+            bytesPorMensagem = (double) bytes / mensagens;
+        }
+        System.out.printf("  %-26s %,12.0f msg/s %,12.0f bytes alocados/msg%n",
+                nome, 1_000_000_000.0 / melhorTempo, bytesPorMensagem);
+    }
+
+    private static void executar(Function<Mensagem, byte[]> codificar, Mensagem mensagem, int mensagens) {
+        byte[] ultimo = null;
+        for (int i = 0; i < mensagens; i++) {
+            ultimo = codificar.apply(mensagem);
+        }
+        sumidouro = ultimo;
+    }
+}
@@ -0,0 +1,87 @@
+package br.edu.unifei.modelos.mensagem;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class CodificadorDeMensagemTest {
+
+    @Test
+    @DisplayName("Teste de Codificação UTF-8")
+    public void testCaracteresMultibyte() {
+        JsonObject conteudo = new JsonObject();
+        conteudo.addProperty("texto", "ação – 温度 🚀  ");
+        Mensagem mensagem = new Mensagem("ACAO", "origem", "destino", conteudo);
+
+        byte[] bytes = CodificadorDeMensagem.codificar(mensagem);
+        String esperado = "{\"acao\":\"ACAO\",\"origem\":\"origem\",\"destino\":\"destino\",\"conteudo\":"
+                + new Gson().toJson(conteudo) + "}";
+        assertArrayEquals(esperado.getBytes(StandardCharsets.UTF_8), bytes);
+        assertEquals(conteudo, Mensagem.fromJson(bytes).getConteudo());
+    }
+
+    @Test
+    @DisplayName("Teste de Mensagem Maior que o Buffer")
+    public void testMensagemMaiorQueOBuffer() {
+        StringBuilder bytecode = new StringBuilder();
+        for (int i = 0; i < CodificadorDeMensagem.CAPACIDADE_INICIAL_DO_BUFFER * 4; i++) {
+            bytecode.append((char) ('A' + i % 26));
+        }
+        JsonObject conteudo = new JsonObject();
+        conteudo.addProperty("bytecode", bytecode.toString());
+        Mensagem mensagem = new Mensagem("BUSCAR_SERVICO", "barramento", "cliente", conteudo);
+
+        Mensagem decodificada = Mensagem.fromJson(CodificadorDeMensagem.codificar(mensagem));
+        assertEquals(bytecode.toString(), decodificada.getConteudo().get("bytecode").getAsString());
+    }
+
+    @Test
+    @DisplayName("Teste de Escrita em Fluxo")
+    public void testCodificarEmFluxo() throws IOException {
+        Mensagem mensagem = Mensagem.fromJson("{\"acao\":\"A\",\"conteudo\":{\"x\":[1,2]}}");
+        mensagem.adicionarTimestampAoMetadata("t");
+
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        CodificadorDeMensagem.codificar(mensagem, saida);
+        assertArrayEquals(mensagem.toBytes(), saida.toByteArray());
+        assertTrue(JsonParser.parseString(saida.toString("UTF-8")).getAsJsonObject()
+                .getAsJsonObject("conteudo").getAsJsonObject("metadata").has("t"));
+    }
+
+    @Test
+    @DisplayName("Teste de Conteúdo sem Cabeçalho")
+    public void testConteudoBrutoSemCabecalho() {
+        Mensagem mensagem = Mensagem.fromJson("{\"conteudo\":{\"x\":1}}");
+        assertEquals("{\"conteudo\":{\"x\":1}}", mensagem.toJson());
+    }
+
+    @Test
+    @DisplayName("Teste do TypeAdapter Registrado no Gson")
+    public void testAdaptadorRegistradoNoGson() {
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapter(Mensagem.class, CodificadorDeMensagem.getAdaptador())
+                .create();
+        JsonObject conteudo = new JsonObject();
+        conteudo.addProperty("servico", "Calculadora");
+        Mensagem mensagem = new Mensagem("BUSCAR_SERVICO", "cliente", "barramento", conteudo);
+
+        String json = gson.toJson(mensagem);
+        assertEquals(mensagem.toJson(), json);
+
+        Mensagem lida = gson.fromJson(json, Mensagem.class);
+        assertEquals("BUSCAR_SERVICO", lida.getAcao());
+        assertEquals("cliente", lida.getOrigem());
+        assertEquals("barramento", lida.getDestino());
+        assertEquals(conteudo, lida.getConteudo());
+    }
+}
@@ -0,0 +1,148 @@
+package br.edu.unifei.modelos.mensagem;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class FormatoBinarioTest {
+
+    private static JsonObject criarConteudo() {
+        JsonObject conteudo = new JsonObject();
+        conteudo.addProperty("texto", "ação <citada> 😀");
+        conteudo.addProperty("inteiro", -1_700_000_000_000L);
+        conteudo.addProperty("decimal", 1.5);
+        conteudo.addProperty("preciso", 0.1);
+        conteudo.addProperty("ativo", true);
+        conteudo.add("nulo", null);
+        JsonArray leituras = new JsonArray();
+        leituras.add(1);
+        leituras.add("dois");
+        leituras.add(new JsonObject());
+        conteudo.add("leituras", leituras);
+        JsonObject metadata = new JsonObject();
+        metadata.addProperty("timestamp_envio", 1_700_000_000_000L);
+        conteudo.add("metadata", metadata);
+        return conteudo;
+    }
+
+    @Test
+    @DisplayName("Teste de Codificação e Leitura no Formato Binário")
+    public void testIdaEVolta() {
+        Mensagem mensagem = new Mensagem("ENVIAR_MENSAGEM", "embarcado-1", "servidor", criarConteudo());
+        byte[] binario = mensagem.toBytes(FormatoDeMensagem.BINARIO);
+
+        Mensagem lida = Mensagem.fromBytes(binario, FormatoDeMensagem.BINARIO);
+        assertEquals(FormatoDeMensagem.BINARIO, lida.getFormato());
+        assertEquals("ENVIAR_MENSAGEM", lida.getAcao());
+        assertEquals("embarcado-1", lida.getOrigem());
+        assertEquals("servidor", lida.getDestino());
+        assertFalse(lida.isConteudoDecodificado(), "O conteúdo não deve ser decodificado na leitura");
+        assertEquals(JsonParser.parseString(mensagem.toJson()), JsonParser.parseString(lida.toJson()));
+        assertTrue(binario.length < mensagem.toBytes().length, "O formato binário deve ser menor que o JSON");
+    }
+
+    @Test
+    @DisplayName("Teste de Encaminhamento Binário sem Conversão")
+    public void testEncaminhamentoSemConversao() {
+        byte[] recebida = new Mensagem("ENVIAR_MENSAGEM", "embarcado-1", "embarcado-2", criarConteudo())
+                .toBytes(FormatoDeMensagem.BINARIO);
+        Mensagem mensagem = Mensagem.fromBytes(recebida, FormatoDeMensagem.BINARIO);
+        mensagem.adicionarTimestampAoMetadata("timestamp_bus_msg_recebida");
+        mensagem.adicionarTimestampAoMetadata("timestamp_bus_msg_enviada");
+
+        byte[] enviada = mensagem.toBytes(FormatoDeMensagem.BINARIO);
+        assertFalse(mensagem.isConteudoDecodificado(), "O encaminhamento não deve decodificar o conteúdo");
+
+        JsonObject metadata = Mensagem.fromBytes(enviada, FormatoDeMensagem.BINARIO).getConteudo()
+                .getAsJsonObject("metadata");
+        assertEquals(1_700_000_000_000L, metadata.get("timestamp_envio").getAsLong());
+        assertTrue(metadata.has("timestamp_bus_msg_recebida"));
+        assertTrue(metadata.has("timestamp_bus_msg_enviada"));
+    }
+
+    @Test
+    @DisplayName("Teste de Conversão entre Formatos")
+    public void testConversaoEntreFormatos() {
+        Mensagem original = new Mensagem("ENVIAR_MENSAGEM", "cliente", "embarcado-1", criarConteudo());
+
+        Mensagem json = Mensagem.fromJson(original.toBytes());
+        json.adicionarTimestampAoMetadata("timestamp_bus_msg_recebida");
+        Mensagem convertida = Mensagem.fromBytes(json.toBytes(FormatoDeMensagem.BINARIO), FormatoDeMensagem.BINARIO);
+        assertTrue(convertida.getConteudo().getAsJsonObject("metadata").has("timestamp_bus_msg_recebida"));
+
+        Mensagem binaria = Mensagem.fromBytes(original.toBytes(FormatoDeMensagem.BINARIO),
+                FormatoDeMensagem.BINARIO);
+        String texto = new String(binaria.toBytes(FormatoDeMensagem.JSON), StandardCharsets.UTF_8);
+        assertEquals(JsonParser.parseString(original.toJson()), JsonParser.parseString(texto));
+    }
+
+    @Test
+    @DisplayName("Teste de Mapas de Tamanho Indefinido")
+    public void testMapasDeTamanhoIndefinido() {
+        // {_ "acao": "A", "conteudo": {_ "x": 1}} e {_ "acao": "A", "conteudo": {_ "metadata": {_ "t0": 0}}}
+        ByteArrayOutputStream semMetadata = new ByteArrayOutputStream();
+        semMetadata.write(0xbf);
+        escreverTexto(semMetadata, "acao");
+        escreverTexto(semMetadata, "A");
+        escreverTexto(semMetadata, "conteudo");
+        semMetadata.write(0xbf);
+        escreverTexto(semMetadata, "x");
+        semMetadata.write(0x01);
+        semMetadata.write(0xff);
+        semMetadata.write(0xff);
+
+        Mensagem mensagem = Mensagem.fromBytes(semMetadata.toByteArray(), FormatoDeMensagem.BINARIO);
+        mensagem.adicionarTimestampAoMetadata("t");
+        JsonObject conteudo = Mensagem.fromBytes(mensagem.toBytes(FormatoDeMensagem.BINARIO),
+                FormatoDeMensagem.BINARIO).getConteudo();
+        assertEquals(1, conteudo.get("x").getAsInt());
+        assertTrue(conteudo.getAsJsonObject("metadata").has("t"));
+
+        ByteArrayOutputStream comMetadata = new ByteArrayOutputStream();
+        comMetadata.write(0xbf);
+        escreverTexto(comMetadata, "acao");
+        escreverTexto(comMetadata, "A");
+        escreverTexto(comMetadata, "conteudo");
+        comMetadata.write(0xbf);
+        escreverTexto(comMetadata, "metadata");
+        comMetadata.write(0xbf);
+        escreverTexto(comMetadata, "t0");
+        comMetadata.write(0x00);
+        comMetadata.write(0xff);
+        comMetadata.write(0xff);
+        comMetadata.write(0xff);
+
+        mensagem = Mensagem.fromBytes(comMetadata.toByteArray(), FormatoDeMensagem.BINARIO);
+        mensagem.adicionarTimestampAoMetadata("t");
+        JsonObject metadata = Mensagem.fromBytes(mensagem.toBytes(FormatoDeMensagem.BINARIO),
+                FormatoDeMensagem.BINARIO).getConteudo().getAsJsonObject("metadata");
+        assertEquals(0, metadata.get("t0").getAsInt());
+        assertTrue(metadata.has("t"));
+    }
+
+    @Test
+    @DisplayName("Teste de Mensagem Binária Inválida")
+    public void testMensagemBinariaInvalida() {
+        assertThrows(JsonSyntaxException.class,
+                () -> Mensagem.fromBytes(new byte[]{(byte) 0xa2, 0x64, 'a', 'c'}, FormatoDeMensagem.BINARIO));
+        assertThrows(JsonSyntaxException.class,
+                () -> Mensagem.fromBytes(new byte[]{(byte) 0x83, 0x01, 0x02, 0x03}, FormatoDeMensagem.BINARIO));
+        assertEquals(FormatoDeMensagem.BINARIO, FormatoDeMensagem.deFormatoDeConteudoCoAP((short) 60));
+        assertEquals(FormatoDeMensagem.JSON, FormatoDeMensagem.deFormatoDeConteudoCoAP(null));
+    }
+
+    private static void escreverTexto(ByteArrayOutputStream saida, String texto) {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        saida.write(0x60 | bytes.length);
+        saida.write(bytes, 0, bytes.length);
+    }
+}
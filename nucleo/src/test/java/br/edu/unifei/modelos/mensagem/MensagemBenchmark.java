@@ -0,0 +1,186 @@
+package br.edu.unifei.modelos.mensagem;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Comparação entre a leitura preguiçosa da {@link Mensagem} e a implementação anterior, que convertia a mensagem
+ * inteira com o {@link Gson} a cada recepção e envio. O cenário simula o encaminhamento de um
+ * {@code ENVIAR_MENSAGEM}: a mensagem é lida dos bytes recebidos, recebe os timestamps de recepção e de envio e é
+ * serializada novamente. O último cenário encaminha a mensagem sem timestamps a três destinos, reutilizando os bytes
+ * recebidos. São medidos o tempo e os bytes alocados por mensagem, além da memória retida por mensagem
+ * enquanto aguarda na fila.
+ *
+ * <p>
+ *     Execução: {@code java -cp <classpath de testes> br.edu.unifei.modelos.mensagem.MensagemBenchmark
+ *     [tamanhoDoPayloadEmBytes] [mensagens]}
+ * </p>
+ */
+public class MensagemBenchmark {
+
+    private static final int RODADAS_DE_AQUECIMENTO = 5;
+    private static final int RODADAS_MEDIDAS = 5;
+    private static final int MENSAGENS_RETIDAS = 2_000;
+
+    /**
+     * Evita que o compilador JIT elimine as operações medidas.
+     */
+    private static volatile Object sumidouro;
+
+    /**
+     * Cópia da implementação anterior da {@link Mensagem}, mantida apenas como referência de comparação.
+     */
+    @SuppressWarnings("unused")
+    private static class MensagemAnterior {
+        private final String acao;
+        private final String origem;
+        private final String destino;
+        private final JsonObject conteudo;
+
+        MensagemAnterior(String acao, String origem, String destino, JsonObject conteudo) {
+            this.acao = acao;
+            this.origem = origem;
+            this.destino = destino;
+            this.conteudo = conteudo;
+        }
+
+        static MensagemAnterior fromJson(String json) {
+            Gson gson = new Gson();
+            return gson.fromJson(json, MensagemAnterior.class);
+        }
+
+        String toJson() {
+            Gson gson = new Gson();
+            return gson.toJson(this);
+        }
+
+        void adicionarTimestampAoMetadata(String campo) {
+            JsonObject metadata = this.conteudo.has("metadata")
+                    ? this.conteudo.getAsJsonObject("metadata")
+                    : new JsonObject();
+            metadata.addProperty(campo, System.currentTimeMillis());
+            this.conteudo.add("metadata", metadata);
+        }
+    }
+
+    public static void main(String[] args) {
+        int tamanhoDoPayload = args.length > 0 ? Integer.parseInt(args[0]) : 16_384;
+        int mensagens = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+        byte[] recebida = criarMensagem(tamanhoDoPayload);
+        System.out.printf("Mensagem de %,d bytes, %,d mensagens por rodada%n", recebida.length, mensagens);
+
+        medir("Gson (anterior)", dados -> {
+            MensagemAnterior mensagem = MensagemAnterior.fromJson(new String(dados, StandardCharsets.UTF_8));
+            mensagem.adicionarTimestampAoMetadata("timestamp_bus_msg_recebida_cliente");
+            mensagem.adicionarTimestampAoMetadata("timestamp_bus_msg_enviada_servidor");
+            return mensagem.toJson().getBytes(StandardCharsets.UTF_8);
+        }, dados -> MensagemAnterior.fromJson(new String(dados, StandardCharsets.UTF_8)), recebida, mensagens);
+
+        medir("Leitura preguiçosa", dados -> {
+            Mensagem mensagem = Mensagem.fromJson(dados);
+            mensagem.adicionarTimestampAoMetadata("timestamp_bus_msg_recebida_cliente");
+            mensagem.adicionarTimestampAoMetadata("timestamp_bus_msg_enviada_servidor");
+            return mensagem.toBytes();
+        }, Mensagem::fromJson, recebida, mensagens);
+
+        medir("Sem timestamps", dados -> {
+            // Encaminhamento a três destinos sem alterações: os bytes recebidos são reenviados
+            Mensagem mensagem = Mensagem.fromJson(dados);
+            mensagem.toBytes();
+            mensagem.toBytes();
+            return mensagem.toBytes();
+        }, Mensagem::fromJson, recebida, mensagens);
+    }
+
+    /**
+     * Monta uma mensagem com um bytecode em base64 e um payload de aplicação com campos variados.
+     */
+    private static byte[] criarMensagem(int tamanhoDoPayload) {
+        char[] base64 = new char[tamanhoDoPayload];
+        String alfabeto = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < base64.length; i++) {
+            base64[i] = alfabeto.charAt((i * 31) % alfabeto.length());
+        }
+
+        JsonObject conteudo = new JsonObject();
+        conteudo.addProperty("bytecode", new String(base64));
+        JsonArray leituras = new JsonArray();
+        for (int i = 0; i < 32; i++) {
+            JsonObject leitura = new JsonObject();
+            leitura.addProperty("sensor", "sensor-" + i);
+            leitura.addProperty("valor", i * 1.5);
+            leituras.add(leitura);
+        }
+        conteudo.add("leituras", leituras);
+        JsonObject metadata = new JsonObject();
+        metadata.addProperty("timestamp_envio", System.currentTimeMillis());
+        conteudo.add("metadata", metadata);
+
+        return new Mensagem("ENVIAR_MENSAGEM", "cliente", "servidor", conteudo).toBytes();
+    }
+
+    private static void medir(String nome, Function<byte[], byte[]> encaminhar, Function<byte[], Object> ler,
+                              byte[] recebida, int mensagens) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < RODADAS_DE_AQUECIMENTO; i++) {
+            executar(encaminhar, recebida, mensagens);
+        }
+
+        double melhorTempo = Double.MAX_VALUE;
+        double bytesPorMensagem = 0;
+        for (int i = 0; i < RODADAS_MEDIDAS; i++) {
+            long bytesAntes = threads.getThreadAllocatedBytes(threadId);
+            long inicio = System.nanoTime();
+            executar(encaminhar, recebida, mensagens);
+            long duracao = System.nanoTime() - inicio;
+            long bytes = threads.getThreadAllocatedBytes(threadId) - bytesAntes;
+
+            melhorTempo = Math.min(melhorTempo, (double) duracao / mensagens);
+            bytesPorMensagem = (double) bytes / mensagens;
+        }
+
+        System.out.printf("%-20s %,12.0f msg/s %,12.0f bytes alocados/msg %,12.0f bytes retidos/msg%n",
+                nome, 1_000_000_000.0 / melhorTempo, bytesPorMensagem, medirRetencao(ler, recebida));
+    }
+
+    private static void executar(Function<byte[], byte[]> encaminhar, byte[] recebida, int mensagens) {
+        byte[] ultimo = null;
+        for (int i = 0; i < mensagens; i++) {
+            // Cada recepção entrega um novo array, como os callbacks dos protocolos
+            ultimo = encaminhar.apply(Arrays.copyOf(recebida, recebida.length));
+        }
+        sumidouro = ultimo;
+    }
+
+    /**
+     * Mede a memória retida por mensagem lida e ainda não processada, como as mensagens aguardando na fila.
+     */
+    private static double medirRetencao(Function<byte[], Object> ler, byte[] recebida) {
+        Object[] retidas = new Object[MENSAGENS_RETIDAS];
+        long antes = memoriaUsada();
+        for (int i = 0; i < retidas.length; i++) {
+            retidas[i] = ler.apply(Arrays.copyOf(recebida, recebida.length));
+        }
+        long depois = memoriaUsada();
+        sumidouro = retidas;
+        return (double) (depois - antes) / retidas.length;
+    }
+
+    private static long memoriaUsada() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
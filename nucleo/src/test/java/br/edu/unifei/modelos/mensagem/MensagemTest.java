@@ -0,0 +1,181 @@
+package br.edu.unifei.modelos.mensagem;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class MensagemTest {
+
+    private static final String JSON = "{\"acao\":\"ENVIAR_MENSAGEM\",\"origem\":\"cliente\",\"destino\":\"servidor\","
+            + "\"conteudo\":{\"dados\":[1,{\"a\":\"}\"}],\"texto\":\"ação \\\"citada\\\"\","
+            + "\"metadata\":{\"timestamp_envio\":1}}}";
+
+    @Test
+    @DisplayName("Teste de Leitura Apenas do Cabeçalho")
+    public void testLeituraDoCabecalho() {
+        Mensagem mensagem = Mensagem.fromJson(JSON);
+        assertEquals("ENVIAR_MENSAGEM", mensagem.getAcao());
+        assertEquals("cliente", mensagem.getOrigem());
+        assertEquals("servidor", mensagem.getDestino());
+        assertFalse(mensagem.isConteudoDecodificado(), "O conteúdo não deve ser decodificado na leitura");
+    }
+
+    @Test
+    @DisplayName("Teste de Reenvio sem Decodificar o Conteúdo")
+    public void testReenvioPreservaConteudo() {
+        Mensagem mensagem = Mensagem.fromJson(JSON.getBytes(StandardCharsets.UTF_8));
+        assertEquals(JsonParser.parseString(JSON), JsonParser.parseString(mensagem.toJson()));
+        assertFalse(mensagem.isConteudoDecodificado());
+    }
+
+    @Test
+    @DisplayName("Teste de Timestamps sem Decodificar o Conteúdo")
+    public void testTimestampsInseridosNoMetadata() {
+        Mensagem mensagem = Mensagem.fromJson(JSON);
+        mensagem.adicionarTimestampAoMetadata("timestamp_bus_msg_recebida");
+        mensagem.adicionarTimestampAoMetadata("timestamp_bus_msg_enviada");
+        assertFalse(mensagem.isConteudoDecodificado());
+
+        JsonObject metadata = JsonParser.parseString(new String(mensagem.toBytes(), StandardCharsets.UTF_8))
+                .getAsJsonObject().getAsJsonObject("conteudo").getAsJsonObject("metadata");
+        assertEquals(1, metadata.get("timestamp_envio").getAsLong());
+        assertTrue(metadata.has("timestamp_bus_msg_recebida"));
+        assertTrue(metadata.has("timestamp_bus_msg_enviada"));
+    }
+
+    @Test
+    @DisplayName("Teste de Timestamps em Conteúdo sem Metadata")
+    public void testTimestampsCriamMetadata() {
+        Mensagem vazio = Mensagem.fromJson("{\"acao\":\"A\",\"origem\":\"o\",\"destino\":\"d\",\"conteudo\":{}}");
+        vazio.adicionarTimestampAoMetadata("t");
+        assertTrue(JsonParser.parseString(vazio.toJson()).getAsJsonObject()
+                .getAsJsonObject("conteudo").getAsJsonObject("metadata").has("t"));
+
+        Mensagem semMetadata = Mensagem.fromJson(
+                "{\"acao\":\"A\",\"origem\":\"o\",\"destino\":\"d\",\"conteudo\":{\"x\":1}}");
+        semMetadata.adicionarTimestampAoMetadata("t");
+        JsonObject conteudo = JsonParser.parseString(semMetadata.toJson()).getAsJsonObject()
+                .getAsJsonObject("conteudo");
+        assertEquals(1, conteudo.get("x").getAsInt());
+        assertTrue(conteudo.getAsJsonObject("metadata").has("t"));
+    }
+
+    @Test
+    @DisplayName("Teste de Decodificação Sob Demanda")
+    public void testDecodificacaoAplicaTimestampsPendentes() {
+        Mensagem mensagem = Mensagem.fromJson(JSON);
+        mensagem.adicionarTimestampAoMetadata("timestamp_bus_msg_recebida");
+
+        JsonObject conteudo = mensagem.getConteudo();
+        assertTrue(mensagem.isConteudoDecodificado());
+        assertEquals("ação \"citada\"", conteudo.get("texto").getAsString());
+        assertTrue(conteudo.getAsJsonObject("metadata").has("timestamp_envio"));
+        assertTrue(conteudo.getAsJsonObject("metadata").has("timestamp_bus_msg_recebida"));
+    }
+
+    @Test
+    @DisplayName("Teste de Compatibilidade com o Gson")
+    public void testSerializacaoCompativelComGson() {
+        JsonObject conteudo = new JsonObject();
+        conteudo.addProperty("html", "<a href='x'>&</a>");
+        Mensagem mensagem = new Mensagem("ACAO", "origem", null, conteudo);
+
+        // Mesmo formato gerado anteriormente por Gson#toJson: campos nulos omitidos e caracteres HTML escapados
+        assertEquals("{\"acao\":\"ACAO\",\"origem\":\"origem\",\"conteudo\":{\"html\":"
+                + "\"\\u003ca href\\u003d\\u0027x\\u0027\\u003e\\u0026\\u003c/a\\u003e\"}}", mensagem.toJson());
+        assertNull(Mensagem.fromJson(mensagem.toJson()).getDestino());
+        assertEquals(conteudo, Mensagem.fromJson(mensagem.toBytes()).getConteudo());
+    }
+
+    @Test
+    @DisplayName("Teste de Mensagem Inválida")
+    public void testMensagemInvalida() {
+        assertThrows(JsonSyntaxException.class, () -> Mensagem.fromJson("{\"acao\":\"A\""));
+        assertThrows(JsonSyntaxException.class, () -> Mensagem.fromJson("{\"conteudo\":[1]}"));
+        assertNull(Mensagem.fromJson("{\"acao\":\"A\",\"conteudo\":null}").getConteudo());
+        assertThrows(JsonSyntaxException.class, () -> Mensagem.fromJson("{\"acao\":\"A\"} x"),
+                "Caracteres após o fim da mensagem devem ser rejeitados");
+        assertThrows(JsonSyntaxException.class, () -> Mensagem.fromJson("{\"acao\":\"A\"}{}"));
+        assertEquals("A", Mensagem.fromJson("{\"acao\":\"A\"} \n").getAcao());
+    }
+
+    @Test
+    @DisplayName("Teste de Sequências de Escape no Cabeçalho")
+    public void testSequenciasDeEscape() {
+        Mensagem mensagem = Mensagem.fromJson(
+                "{\"a\\u0063ao\":\"A\\u00e7\\u00C3o\",\"orig\\u0065m\":\"o\\\"\\\\\\/\"}");
+        assertEquals("A\u00e7\u00c3o", mensagem.getAcao());
+        assertEquals("o\"\\/", mensagem.getOrigem(), "As chaves com escapes devem ser reconhecidas");
+
+        for (String invalida : new String[]{"\\u12", "\\u12G4", "\\u+123", "\\x"}) {
+            assertThrows(JsonSyntaxException.class, () -> Mensagem.fromJson("{\"acao\":\"" + invalida + "\"}"),
+                    "Escape inválido: " + invalida);
+        }
+    }
+
+    @Test
+    @DisplayName("Teste de Leitura de Campo do Metadata")
+    public void testCampoDoMetadata() {
+        Mensagem json = Mensagem.fromJson("{\"acao\":\"A\",\"conteudo\":{\"valor\":[1,2],"
+                + "\"metadata\":{\"qos\":0, \"origem\":{\"id\":3}}}}");
+        assertEquals(0, json.getCampoDoMetadata("qos").getAsInt());
+        assertEquals(3, json.getCampoDoMetadata("origem").getAsJsonObject().get("id").getAsInt());
+        assertNull(json.getCampoDoMetadata("ausente"));
+        assertFalse(json.isConteudoDecodificado(), "Apenas o metadata deve ser decodificado");
+
+        json.adicionarTimestampAoMetadata("timestamp_teste");
+        assertNotNull(json.getCampoDoMetadata("timestamp_teste"));
+
+        Mensagem binaria = Mensagem.fromBytes(json.toBytes(FormatoDeMensagem.BINARIO), FormatoDeMensagem.BINARIO);
+        assertEquals(0, binaria.getCampoDoMetadata("qos").getAsInt());
+        assertNotNull(binaria.getCampoDoMetadata("timestamp_teste"));
+        assertFalse(binaria.isConteudoDecodificado());
+
+        // {"acao":"A","conteudo":{"metadata":{_ "qos":2}}}, com o metadata de tamanho indefinido
+        byte[] indefinido = {(byte) 0xa2, 0x64, 'a', 'c', 'a', 'o', 0x61, 'A', 0x68, 'c', 'o', 'n', 't', 'e', 'u',
+                'd', 'o', (byte) 0xa1, 0x68, 'm', 'e', 't', 'a', 'd', 'a', 't', 'a', (byte) 0xbf, 0x63, 'q', 'o', 's',
+                0x02, (byte) 0xff};
+        assertEquals(2, Mensagem.fromBytes(indefinido, FormatoDeMensagem.BINARIO).getCampoDoMetadata("qos")
+                .getAsInt());
+
+        assertNull(Mensagem.fromJson("{\"acao\":\"A\",\"conteudo\":{\"valor\":1}}").getCampoDoMetadata("qos"));
+        assertNull(Mensagem.fromJson("{\"acao\":\"A\",\"conteudo\":{\"metadata\":{}}}").getCampoDoMetadata("qos"));
+        assertNull(Mensagem.fromJson("{\"acao\":\"A\",\"conteudo\":{\"metadata\":1}}").getCampoDoMetadata("qos"));
+        assertNull(Mensagem.fromJson("{\"acao\":\"A\"}").getCampoDoMetadata("qos"));
+        assertNull(new Mensagem("A", "origem", "destino", new JsonObject()).getCampoDoMetadata("qos"));
+    }
+
+    @Test
+    @DisplayName("Teste de Codificação Única da Mensagem")
+    public void testCodificacaoUnica() {
+        byte[] recebida = (" {\"acao\": \"ENVIAR_MENSAGEM\", \"origem\": \"cliente\", \"destino\": \"servidor\","
+                + " \"conteudo\": {\"valor\": 1}}").getBytes(StandardCharsets.UTF_8);
+        Mensagem mensagem = Mensagem.fromJson(recebida);
+        assertSame(recebida, mensagem.toBytes(), "A mensagem inalterada deve ser reenviada com os bytes recebidos");
+        assertEquals(new String(recebida, StandardCharsets.UTF_8), mensagem.toJson());
+
+        byte[] binaria = mensagem.toBytes(FormatoDeMensagem.BINARIO);
+        assertSame(binaria, mensagem.toBytes(FormatoDeMensagem.BINARIO), "A mensagem deve ser codificada uma vez");
+        assertNull(mensagem.getCampoDoMetadata("qos"));
+        assertSame(recebida, mensagem.toBytes(), "A leitura do metadata não deve descartar os bytes");
+
+        mensagem.adicionarTimestampAoMetadata("timestamp_bus_msg_enviada");
+        byte[] comTimestamp = mensagem.toBytes();
+        assertNotSame(recebida, comTimestamp);
+        assertTrue(Mensagem.fromJson(comTimestamp).getConteudo().getAsJsonObject("metadata")
+                .has("timestamp_bus_msg_enviada"));
+        assertTrue(Mensagem.fromBytes(mensagem.toBytes(FormatoDeMensagem.BINARIO), FormatoDeMensagem.BINARIO)
+                .getConteudo().getAsJsonObject("metadata").has("timestamp_bus_msg_enviada"));
+
+        mensagem.getConteudo().addProperty("alterado", true);
+        assertTrue(Mensagem.fromJson(mensagem.toBytes()).getConteudo().has("alterado"),
+                "Os bytes devem ser descartados quando o conteúdo é obtido para alteração");
+    }
+}
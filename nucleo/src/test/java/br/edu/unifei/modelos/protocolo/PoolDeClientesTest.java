@@ -0,0 +1,125 @@
+package br.edu.unifei.modelos.protocolo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class PoolDeClientesTest {
+
+    /**
+     * Cliente que apenas registra se foi fechado.
+     */
+    private static class ClienteDeTeste implements Closeable {
+        private final InetSocketAddress endereco;
+        private volatile boolean fechado;
+
+        ClienteDeTeste(InetSocketAddress endereco) {
+            this.endereco = endereco;
+        }
+
+        @Override
+        public void close() {
+            fechado = true;
+        }
+    }
+
+    private static InetSocketAddress endereco(int porta) {
+        return InetSocketAddress.createUnresolved("localhost", porta);
+    }
+
+    @Test
+    @DisplayName("Teste de Reutilização do Cliente por Destino")
+    public void testClienteReutilizadoPorDestino() throws IOException {
+        PoolDeClientes<ClienteDeTeste> pool = new PoolDeClientes<>("teste", ClienteDeTeste::new,
+                PoolDeClientes.TEMPO_OCIOSO_PADRAO_MILLIS, PoolDeClientes.MAXIMO_DE_CLIENTES_PADRAO);
+        try {
+            ClienteDeTeste primeiro = pool.obter(endereco(5683));
+            for (int i = 0; i < 1_000; i++) {
+                assertSame(primeiro, pool.obter(endereco(5683)));
+            }
+            assertNotSame(primeiro, pool.obter(endereco(5684)));
+            assertEquals(2, pool.getClientesCriados());
+            assertEquals(2, pool.getQuantidadeDeClientes());
+        } finally {
+            pool.fechar();
+        }
+    }
+
+    @Test
+    @DisplayName("Teste de Limite de Clientes Abertos")
+    public void testLimiteFechaClienteMenosRecente() throws IOException {
+        PoolDeClientes<ClienteDeTeste> pool = new PoolDeClientes<>("teste", ClienteDeTeste::new,
+                PoolDeClientes.TEMPO_OCIOSO_PADRAO_MILLIS, 2);
+        try {
+            ClienteDeTeste primeiro = pool.obter(endereco(1));
+            ClienteDeTeste segundo = pool.obter(endereco(2));
+            pool.obter(endereco(1));
+            ClienteDeTeste terceiro = pool.obter(endereco(3));
+
+            assertEquals(2, pool.getQuantidadeDeClientes());
+            assertTrue(segundo.fechado, "O cliente usado há mais tempo deve ser fechado");
+            assertFalse(primeiro.fechado);
+            assertFalse(terceiro.fechado);
+        } finally {
+            pool.fechar();
+        }
+    }
+
+    @Test
+    @DisplayName("Teste de Fechamento de Clientes Ociosos")
+    public void testClientesOciososSaoFechados() throws Exception {
+        PoolDeClientes<ClienteDeTeste> pool = new PoolDeClientes<>("teste", ClienteDeTeste::new, 50, 16);
+        try {
+            ClienteDeTeste cliente = pool.obter(endereco(5683));
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!cliente.fechado && System.nanoTime() < limite) {
+                Thread.sleep(10);
+            }
+            assertTrue(cliente.fechado, "O cliente ocioso deve ser fechado");
+            assertEquals(0, pool.getQuantidadeDeClientes());
+            assertNotSame(cliente, pool.obter(endereco(5683)), "Um novo cliente deve ser criado após a remoção");
+        } finally {
+            pool.fechar();
+        }
+    }
+
+    @Test
+    @DisplayName("Teste de Fechamento do Pool")
+    public void testFecharPool() throws IOException {
+        PoolDeClientes<ClienteDeTeste> pool = new PoolDeClientes<>("teste", ClienteDeTeste::new,
+                PoolDeClientes.TEMPO_OCIOSO_PADRAO_MILLIS, PoolDeClientes.MAXIMO_DE_CLIENTES_PADRAO);
+        ClienteDeTeste cliente = pool.obter(endereco(5683));
+        pool.fechar();
+
+        assertTrue(cliente.fechado);
+        assertThrows(IllegalStateException.class, () -> pool.obter(endereco(5683)));
+        assertThrows(IOException.class, () -> new PoolDeClientes<ClienteDeTeste>("falha", e -> {
+            throw new IOException("porta indisponível");
+        }, 1_000, 1).obter(endereco(1)));
+    }
+
+    @Test
+    @DisplayName("Teste de Fechamento do Pool Durante a Criação de um Cliente")
+    public void testFecharPoolDuranteCriacao() {
+        AtomicReference<PoolDeClientes<ClienteDeTeste>> referencia = new AtomicReference<>();
+        AtomicReference<ClienteDeTeste> criado = new AtomicReference<>();
+        PoolDeClientes<ClienteDeTeste> pool = new PoolDeClientes<>("teste", e -> {
+            referencia.get().fechar();
+            criado.set(new ClienteDeTeste(e));
+            return criado.get();
+        }, PoolDeClientes.TEMPO_OCIOSO_PADRAO_MILLIS, PoolDeClientes.MAXIMO_DE_CLIENTES_PADRAO);
+        referencia.set(pool);
+
+        assertThrows(IllegalStateException.class, () -> pool.obter(endereco(5683)));
+        assertTrue(criado.get().fechado, "O cliente criado durante o fechamento deve ser fechado");
+        assertEquals(0, pool.getQuantidadeDeClientes());
+    }
+}
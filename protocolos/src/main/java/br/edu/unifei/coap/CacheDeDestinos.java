@@ -0,0 +1,247 @@
+package br.edu.unifei.coap;
+
+import br.edu.unifei.utils.LogUtils;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache limitado dos destinos CoAP já analisados e resolvidos. Cada endereço no formato {@code host:porta/caminho} é
+ * dividido e resolvido apenas no primeiro uso; os envios seguintes obtêm o {@link Destino} com uma consulta ao mapa.
+ *
+ * <p>
+ *     Os endereços resolvidos são revalidados após o tempo de validade, para acompanhar mudanças de DNS. Se a
+ *     revalidação falhar, o último endereço resolvido continua sendo usado e uma nova tentativa é feita após o tempo
+ *     de validade dos destinos inválidos, de modo que uma falha temporária do DNS não interrompe os envios a um
+ *     destino que estava funcionando. Endereços malformados ou que nunca puderam ser resolvidos também são mantidos,
+ *     por um tempo de validade menor, para que os envios seguintes falhem imediatamente, sem repetir a análise e a
+ *     resolução. Ao atingir o limite de entradas, as entradas expiradas e, se necessário, as mais antigas são
+ *     descartadas.
+ * </p>
+ */
+public class CacheDeDestinos {
+
+    /**
+     * Quantidade máxima padrão de destinos mantidos.
+     */
+    public static final int MAXIMO_DE_DESTINOS_PADRAO = 4096;
+
+    /**
+     * Tempo padrão, em milissegundos, após o qual um destino resolvido é resolvido novamente.
+     */
+    public static final long VALIDADE_PADRAO_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Tempo padrão, em milissegundos, durante o qual um destino inválido é mantido.
+     */
+    public static final long VALIDADE_NEGATIVA_PADRAO_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Destino CoAP analisado: o endereço resolvido e o caminho do recurso, ou o motivo pelo qual o destino é inválido.
+     */
+    public static final class Destino {
+        private final String host;
+        private final int porta;
+        private final String caminho;
+        private final InetSocketAddress endereco;
+        private final String erro;
+        private final long expiraEmNanos;
+
+        private Destino(String host, int porta, String caminho, InetSocketAddress endereco, String erro,
+                        long expiraEmNanos) {
+            this.host = host;
+            this.porta = porta;
+            this.caminho = caminho;
+            this.endereco = endereco;
+            this.erro = erro;
+            this.expiraEmNanos = expiraEmNanos;
+        }
+
+        /**
+         * @return {@code true} se o destino foi analisado e resolvido com sucesso.
+         */
+        public boolean isValido() {
+            return erro == null;
+        }
+
+        /**
+         * @return O endereço resolvido do destino, ou {@code null} se o destino for inválido.
+         */
+        public InetSocketAddress getEndereco() {
+            return endereco;
+        }
+
+        /**
+         * @return O caminho do recurso, iniciado por '/', ou {@code null} se o destino for malformado.
+         */
+        public String getCaminho() {
+            return caminho;
+        }
+
+        /**
+         * @return O motivo pelo qual o destino é inválido, ou {@code null} se o destino for válido.
+         */
+        public String getErro() {
+            return erro;
+        }
+    }
+
+    private final Map<String, Destino> destinos = new ConcurrentHashMap<>();
+    private final int maximoDeDestinos;
+    private final long validadeNanos;
+    private final long validadeNegativaNanos;
+    private final LongSupplier relogio;
+    private final BiFunction<String, Integer, InetSocketAddress> resolvedor;
+
+    /**
+     * Construtor que utiliza o limite e os tempos de validade padrão.
+     */
+    public CacheDeDestinos() {
+        this(MAXIMO_DE_DESTINOS_PADRAO, VALIDADE_PADRAO_MILLIS, VALIDADE_NEGATIVA_PADRAO_MILLIS);
+    }
+
+    /**
+     * Construtor que utiliza o limite e os tempos de validade informados.
+     *
+     * @param maximoDeDestinos       A quantidade máxima de destinos mantidos.
+     * @param validadeMillis         O tempo, em milissegundos, após o qual um destino resolvido é resolvido
+     *                               novamente.
+     * @param validadeNegativaMillis O tempo, em milissegundos, durante o qual um destino inválido é mantido.
+     */
+    public CacheDeDestinos(int maximoDeDestinos, long validadeMillis, long validadeNegativaMillis) {
+        this(maximoDeDestinos, validadeMillis, validadeNegativaMillis, System::nanoTime, InetSocketAddress::new);
+    }
+
+    CacheDeDestinos(int maximoDeDestinos, long validadeMillis, long validadeNegativaMillis, LongSupplier relogio,
+                    BiFunction<String, Integer, InetSocketAddress> resolvedor) {
+        if (maximoDeDestinos <= 0) {
+            throw new IllegalArgumentException("Quantidade máxima de destinos inválida: " + maximoDeDestinos);
+        }
+        this.maximoDeDestinos = maximoDeDestinos;
+        this.validadeNanos = TimeUnit.MILLISECONDS.toNanos(validadeMillis);
+        this.validadeNegativaNanos = TimeUnit.MILLISECONDS.toNanos(validadeNegativaMillis);
+        this.relogio = relogio;
+        this.resolvedor = resolvedor;
+    }
+
+    /**
+     * Obtém o destino analisado e resolvido, analisando-o e resolvendo-o apenas se não estiver no cache ou se a
+     * entrada tiver expirado.
+     *
+     * @param destino O endereço no formato {@code host:porta/caminho}.
+     * @return O {@link Destino} correspondente, que pode ser inválido. Nunca retorna {@code null}.
+     */
+    public Destino resolver(String destino) {
+        String chave = destino == null ? "" : destino;
+        long agora = relogio.getAsLong();
+        Destino atual = destinos.get(chave);
+        if (atual != null && agora - atual.expiraEmNanos < 0) {
+            return atual;
+        }
+
+        Destino novo = atual != null && atual.caminho != null
+                ? resolverEndereco(atual.host, atual.porta, atual.caminho, agora)
+                : analisar(chave, agora);
+        if (!novo.isValido() && atual != null && atual.isValido()) {
+            LogUtils.logWarn("Falha ao revalidar o destino CoAP '%s' (%s). Mantendo o endereço %s.", chave,
+                    novo.erro, atual.endereco);
+            novo = new Destino(atual.host, atual.porta, atual.caminho, atual.endereco, null,
+                    agora + validadeNegativaNanos);
+        }
+        if (atual == null && destinos.size() >= maximoDeDestinos) {
+            liberarEspaco(agora);
+        }
+        destinos.put(chave, novo);
+        if (!novo.isValido()) {
+            LogUtils.logWarn("Destino CoAP '%s' inválido: %s", chave, novo.erro);
+        }
+        return novo;
+    }
+
+    /**
+     * Remove um destino do cache, forçando uma nova análise e resolução no próximo uso.
+     *
+     * @param destino O endereço no formato {@code host:porta/caminho}.
+     */
+    public void invalidar(String destino) {
+        if (destino != null) {
+            destinos.remove(destino);
+        }
+    }
+
+    /**
+     * @return A quantidade de destinos mantidos no cache.
+     */
+    public int getQuantidadeDeDestinos() {
+        return destinos.size();
+    }
+
+    /**
+     * Divide o endereço em host, porta e caminho e resolve o host.
+     */
+    private Destino analisar(String destino, long agora) {
+        // Divide o endereço em duas partes: "host:porta" e "path"
+        String[] partes = destino.split("/", 2);
+        String[] hostEPorta = partes[0].split(":", 2);
+        if (hostEPorta.length < 2 || hostEPorta[0].isEmpty()) {
+            return invalido(null, "o endereço deve estar no formato host:porta/caminho", agora);
+        }
+
+        int porta;
+        try {
+            porta = Integer.parseInt(hostEPorta[1]);
+        } catch (NumberFormatException e) {
+            return invalido(null, String.format("porta '%s' inválida", hostEPorta[1]), agora);
+        }
+        if (porta <= 0 || porta > 0xffff) {
+            return invalido(null, String.format("porta %d fora do intervalo válido", porta), agora);
+        }
+
+        // Salva o path adicionando novamente o '/' usado no split
+        String caminho = "/" + (partes.length > 1 ? partes[1] : "");
+        return resolverEndereco(hostEPorta[0], porta, caminho, agora);
+    }
+
+    private Destino resolverEndereco(String host, int porta, String caminho, long agora) {
+        InetSocketAddress endereco;
+        try {
+            endereco = resolvedor.apply(host, porta);
+        } catch (RuntimeException e) {
+            endereco = null;
+        }
+        if (endereco == null || endereco.isUnresolved()) {
+            return new Destino(host, porta, caminho, null,
+                    String.format("não foi possível resolver o host '%s'", host), agora + validadeNegativaNanos);
+        }
+        return new Destino(host, porta, caminho, endereco, null, agora + validadeNanos);
+    }
+
+    private Destino invalido(String caminho, String erro, long agora) {
+        return new Destino(null, 0, caminho, null, erro, agora + validadeNegativaNanos);
+    }
+
+    /**
+     * Descarta as entradas expiradas e, se o cache continuar cheio, a entrada que expira primeiro.
+     */
+    private void liberarEspaco(long agora) {
+        destinos.values().removeIf(destino -> agora - destino.expiraEmNanos >= 0);
+        while (destinos.size() >= maximoDeDestinos) {
+            String maisAntigo = null;
+            long menorExpiracao = 0;
+            for (Map.Entry<String, Destino> entrada : destinos.entrySet()) {
+                if (maisAntigo == null || entrada.getValue().expiraEmNanos - menorExpiracao < 0) {
+                    maisAntigo = entrada.getKey();
+                    menorExpiracao = entrada.getValue().expiraEmNanos;
+                }
+            }
+            if (maisAntigo == null) {
+                return;
+            }
+            destinos.remove(maisAntigo);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package br.edu.unifei.coap;
+
+import com.mbed.coap.transport.CoapTransport;
+import com.mbed.coap.transport.udp.DatagramSocketTransport;
+
+/**
+ * Agrupa as configurações do transporte UDP do servidor CoAP. Por padrão, o servidor utiliza o
+ * {@link DatagramSocketTransport} da biblioteca, com um único socket e uma única thread de recepção; com
+ * {@link #usarDatagramChannel(boolean)} habilitado, utiliza o {@link TransporteDatagramChannel}, que recebe e
+ * decodifica as mensagens em várias threads. Os métodos de configuração retornam a própria instância para permitir o
+ * encadeamento das chamadas.
+ *
+ * <pre>{@code
+ * ConfiguracaoDoTransporteCoAP configuracao = ConfiguracaoDoTransporteCoAP.padrao()
+ *         .usarDatagramChannel(true)
+ *         .threadsDeRecepcao(4)
+ *         .tamanhoDoBufferDeRecepcao(4 * 1024 * 1024);
+ * }</pre>
+ */
+public class ConfiguracaoDoTransporteCoAP {
+
+    /**
+     * Quantidade máxima padrão de pacotes recebidos aguardando o servidor CoAP.
+     */
+    public static final int CAPACIDADE_DA_FILA_DE_RECEPCAO_PADRAO = 16384;
+
+    private boolean usarDatagramChannel = false;
+    private int threadsDeRecepcao = Runtime.getRuntime().availableProcessors();
+    private boolean reutilizarPorta = true;
+    private int tamanhoDoBufferDeRecepcao = 0;
+    private int tamanhoDoBufferDeEnvio = 0;
+    private int capacidadeDaFilaDeRecepcao = CAPACIDADE_DA_FILA_DE_RECEPCAO_PADRAO;
+
+    /**
+     * @return Uma nova configuração com os valores padrão.
+     */
+    public static ConfiguracaoDoTransporteCoAP padrao() {
+        return new ConfiguracaoDoTransporteCoAP();
+    }
+
+    /**
+     * @param usarDatagramChannel {@code true} para utilizar o {@link TransporteDatagramChannel} no lugar do
+     *                            {@link DatagramSocketTransport}.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoTransporteCoAP usarDatagramChannel(boolean usarDatagramChannel) {
+        this.usarDatagramChannel = usarDatagramChannel;
+        return this;
+    }
+
+    /**
+     * @param threadsDeRecepcao Quantidade de threads que recebem os datagramas, quando a porta pode ser compartilhada,
+     *                          e que decodificam e enfileiram as mensagens recebidas.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoTransporteCoAP threadsDeRecepcao(int threadsDeRecepcao) {
+        this.threadsDeRecepcao = threadsDeRecepcao;
+        return this;
+    }
+
+    /**
+     * @param reutilizarPorta {@code true} para abrir um socket por thread de recepção na mesma porta, com
+     *                        {@code SO_REUSEPORT}, quando o sistema operacional oferecer suporte. Caso contrário, um
+     *                        único socket é lido por uma thread e a decodificação é distribuída entre as demais.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoTransporteCoAP reutilizarPorta(boolean reutilizarPorta) {
+        this.reutilizarPorta = reutilizarPorta;
+        return this;
+    }
+
+    /**
+     * @param tamanhoDoBufferDeRecepcao Tamanho, em bytes, do buffer de recepção ({@code SO_RCVBUF}) de cada socket, ou
+     *                                  {@code 0} para manter o padrão do sistema operacional.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoTransporteCoAP tamanhoDoBufferDeRecepcao(int tamanhoDoBufferDeRecepcao) {
+        this.tamanhoDoBufferDeRecepcao = tamanhoDoBufferDeRecepcao;
+        return this;
+    }
+
+    /**
+     * @param tamanhoDoBufferDeEnvio Tamanho, em bytes, do buffer de envio ({@code SO_SNDBUF}) de cada socket, ou
+     *                               {@code 0} para manter o padrão do sistema operacional.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoTransporteCoAP tamanhoDoBufferDeEnvio(int tamanhoDoBufferDeEnvio) {
+        this.tamanhoDoBufferDeEnvio = tamanhoDoBufferDeEnvio;
+        return this;
+    }
+
+    /**
+     * @param capacidadeDaFilaDeRecepcao Quantidade máxima de pacotes recebidos aguardando o servidor CoAP. Os pacotes
+     *                                   recebidos com a fila cheia são descartados, como aconteceria no buffer do
+     *                                   socket.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoTransporteCoAP capacidadeDaFilaDeRecepcao(int capacidadeDaFilaDeRecepcao) {
+        this.capacidadeDaFilaDeRecepcao = capacidadeDaFilaDeRecepcao;
+        return this;
+    }
+
+    /**
+     * Cria o transporte configurado para a porta informada.
+     *
+     * @param porta A porta UDP do servidor.
+     * @return O {@link CoapTransport} criado, ainda não iniciado.
+     */
+    public CoapTransport criarTransporte(int porta) {
+        if (!usarDatagramChannel) {
+            return new DatagramSocketTransport(porta);
+        }
+        return new TransporteDatagramChannel(porta, this);
+    }
+
+    /**
+     * @return {@code true} se o {@link TransporteDatagramChannel} deve ser utilizado.
+     */
+    public boolean isUsarDatagramChannel() {
+        return usarDatagramChannel;
+    }
+
+    /**
+     * @return A quantidade de threads de recepção e decodificação, no mínimo 1.
+     */
+    public int getThreadsDeRecepcao() {
+        return Math.max(1, threadsDeRecepcao);
+    }
+
+    /**
+     * @return {@code true} se a porta deve ser compartilhada entre vários sockets quando houver suporte.
+     */
+    public boolean isReutilizarPorta() {
+        return reutilizarPorta;
+    }
+
+    /**
+     * @return O tamanho do buffer de recepção de cada socket, ou {@code 0} para o padrão do sistema operacional.
+     */
+    public int getTamanhoDoBufferDeRecepcao() {
+        return tamanhoDoBufferDeRecepcao;
+    }
+
+    /**
+     * @return O tamanho do buffer de envio de cada socket, ou {@code 0} para o padrão do sistema operacional.
+     */
+    public int getTamanhoDoBufferDeEnvio() {
+        return tamanhoDoBufferDeEnvio;
+    }
+
+    /**
+     * @return A quantidade máxima de pacotes recebidos aguardando o servidor CoAP.
+     */
+    public int getCapacidadeDaFilaDeRecepcao() {
+        return capacidadeDaFilaDeRecepcao;
+    }
+}
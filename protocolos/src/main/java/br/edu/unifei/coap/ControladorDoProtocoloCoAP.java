@@ -2,8 +2,10 @@ package br.edu.unifei.coap;
 
 import br.edu.unifei.barramento.Barramento;
 import br.edu.unifei.barramento.ControladorDoBarramento;
-import br.edu.unifei.barramento.workers.WorkerDeProcessamento;
+import br.edu.unifei.barramento.ConfiguracaoDoControlador;
+import br.edu.unifei.barramento.workers.PoolDeProcessamento;
 import br.edu.unifei.barramento.workers.WorkerDeRecepcao;
+import br.edu.unifei.modelos.protocolo.PoolDeClientes;
 
 import java.io.IOException;
 
@@ -22,27 +24,47 @@ public class ControladorDoProtocoloCoAP extends ControladorDoBarramento {
      * @throws IOException Se ocorrer um erro durante a configuração do protocolo CoAP.
      */
     public ControladorDoProtocoloCoAP(Barramento barramento) throws IOException {
-        super(barramento);
-        this.protocoloCoAP = new ProtocoloCoAP();
+        this(barramento, ConfiguracaoDoControlador.padrao());
+    }
+
+    /**
+     * Construtor que inicializa o controlador CoAP com a configuração informada.
+     *
+     * @param barramento   O {@link Barramento} associado ao controlador.
+     * @param configuracao A {@link ConfiguracaoDoControlador} com as configurações das filas e dos workers.
+     * @throws IOException Se ocorrer um erro durante a configuração do protocolo CoAP.
+     */
+    public ControladorDoProtocoloCoAP(Barramento barramento, ConfiguracaoDoControlador configuracao)
+            throws IOException {
+        this(barramento, configuracao, ConfiguracaoDoTransporteCoAP.padrao());
+    }
+
+    /**
+     * Construtor que inicializa o controlador CoAP com a configuração do controlador e do transporte informadas.
+     *
+     * @param barramento               O {@link Barramento} associado ao controlador.
+     * @param configuracao             A {@link ConfiguracaoDoControlador} com as configurações das filas e dos
+     *                                 workers.
+     * @param configuracaoDoTransporte A {@link ConfiguracaoDoTransporteCoAP} com as configurações do transporte UDP do
+     *                                 servidor CoAP.
+     * @throws IOException Se ocorrer um erro durante a configuração do protocolo CoAP.
+     */
+    public ControladorDoProtocoloCoAP(Barramento barramento, ConfiguracaoDoControlador configuracao,
+                                      ConfiguracaoDoTransporteCoAP configuracaoDoTransporte) throws IOException {
+        super(barramento, configuracao);
+        this.protocoloCoAP = new ProtocoloCoAP(PoolDeClientes.TEMPO_OCIOSO_PADRAO_MILLIS,
+                PoolDeClientes.MAXIMO_DE_CLIENTES_PADRAO, configuracaoDoTransporte);
         this.protocoloCoAP.setControlador(this);
     }
 
     /**
-     * Inicializa os wokers responsáveis pelo recebimento ({@link WorkerDeRecepcao}) e processamento
-     * ({@link WorkerDeProcessamento}) de mensagens CoAP.
+     * Inicializa os workers responsáveis pelo recebimento ({@link WorkerDeRecepcao}) e processamento
+     * ({@link PoolDeProcessamento}) de mensagens CoAP.
      * Cada worker é executado em uma thread separada.
      */
     @Override
     protected void iniciarWorkers() {
-        workerDeRecepcao = new WorkerDeRecepcao(filaDeMensagens);
-        workerDeProcessamento = new WorkerDeProcessamento(
-                protocoloCoAP,
-                barramento,
-                filaDeMensagens
-        );
-
-        new Thread(workerDeRecepcao).start();
-        new Thread(workerDeProcessamento).start();
+        iniciarWorkersPadrao(protocoloCoAP);
     }
 
     /**
@@ -52,7 +74,6 @@ public class ControladorDoProtocoloCoAP extends ControladorDoBarramento {
     @Override
     protected void pararWorkers() {
         protocoloCoAP.desconectar();
-        workerDeRecepcao.parar();
-        workerDeProcessamento.parar();
+        pararWorkersPadrao();
     }
 }
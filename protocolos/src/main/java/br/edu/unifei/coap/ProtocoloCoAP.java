@@ -1,6 +1,9 @@
 package br.edu.unifei.coap;
 
+import br.edu.unifei.modelos.mensagem.FormatoDeMensagem;
 import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.modelos.mensagem.ModoDeEntrega;
+import br.edu.unifei.modelos.protocolo.PoolDeClientes;
 import br.edu.unifei.modelos.protocolo.Protocolo;
 import br.edu.unifei.utils.LogUtils;
 import com.google.gson.JsonObject;
@@ -12,36 +15,143 @@ import com.mbed.coap.transport.udp.DatagramSocketTransport;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.mbed.coap.packet.CoapResponse.coapResponse;
 
 /**
  * Classe responsável por configurar e gerenciar a comunicação CoAP, permitindo ao barramento o envio e recebimento de
  * mensagens através deste protocolo.
+ *
+ * <p>
+ *     O formato das mensagens é negociado pela opção Content-Format: requisições com {@code application/cbor} (60) são
+ *     lidas no {@link FormatoDeMensagem#BINARIO} e as demais em JSON. As mensagens enviadas usam o formato registrado
+ *     para o endpoint de destino, informado na mesma opção.
+ * </p>
+ *
+ * <p>
+ *     Os envios utilizam um {@link PoolDeClientes} com um cliente por endereço de destino, reutilizado entre as
+ *     mensagens e fechado após o tempo de ociosidade configurado. Os endereços de destino são analisados e resolvidos
+ *     uma única vez pelo {@link CacheDeDestinos}, no primeiro envio ou no cadastro do endpoint; mensagens para destinos
+ *     inválidos são descartadas sem nova análise.
+ * </p>
+ *
+ * <p>
+ *     O transporte do servidor é definido pela {@link ConfiguracaoDoTransporteCoAP}. Com o
+ *     {@link TransporteDatagramChannel}, as requisições recebidas são decodificadas e enfileiradas por um pool de
+ *     threads de recepção, de modo que a vazão de recepção acompanhe a quantidade de núcleos. Nesse modo, mensagens
+ *     enviadas em sequência por um mesmo cliente podem ser enfileiradas fora de ordem.
+ * </p>
+ *
+ * <p>
+ *     O {@link ModoDeEntrega} de cada envio é o definido na mensagem ou registrado para o endpoint de destino. No modo
+ *     não confirmável, a requisição é enviada como um único datagrama {@code NON} com a opção No-Response, sem aguardar
+ *     confirmação ou resposta; payloads que exigem transferência em blocos continuam sendo enviados como confirmáveis.
+ *     O {@link TransporteDatagramChannel} também aceita requisições {@code NON} recebidas sem enviar resposta.
+ * </p>
  */
 public class ProtocoloCoAP extends Protocolo {
 
     private static final String SERVER_HOST = "localhost"; // IPv4 da máquina atual
     private static final int SERVER_PORT = 5683;
-    private CoapClient cliente;
+    private final PoolDeClientes<CoapClient> clientes;
+    private final CacheDeDestinos destinos = new CacheDeDestinos();
+    private final ConfiguracaoDoTransporteCoAP configuracaoDoTransporte;
+    private final ExecutorService decodificadores;
+    private final DatagramChannel canalNaoConfirmavel;
+    private final AtomicInteger idDaMensagemNaoConfirmavel = new AtomicInteger((int) System.nanoTime());
     private CoapServer servidor;
 
     /**
-     * Construtor que configura o servidor e o cliente CoAP.
+     * Construtor que configura o servidor e o pool de clientes CoAP com o tempo de ociosidade e o limite de clientes
+     * padrão.
      *
      * @throws IOException Se ocorrer um erro ao configurar o servidor ou cliente CoAP.
      */
     public ProtocoloCoAP() throws IOException {
-        configurarServidorCoAP();
+        this(PoolDeClientes.TEMPO_OCIOSO_PADRAO_MILLIS, PoolDeClientes.MAXIMO_DE_CLIENTES_PADRAO);
     }
 
     /**
-     * @return O {@link CoapClient} associado a classe.
+     * Construtor que configura o servidor e o pool de clientes CoAP.
+     *
+     * @param tempoOciosoMillis O tempo, em milissegundos, após o qual o cliente de um destino sem envios é fechado.
+     * @param maximoDeClientes  A quantidade máxima de clientes, e portanto de sockets, abertos simultaneamente.
+     * @throws IOException Se ocorrer um erro ao configurar o servidor ou cliente CoAP.
+     */
+    public ProtocoloCoAP(long tempoOciosoMillis, int maximoDeClientes) throws IOException {
+        this(tempoOciosoMillis, maximoDeClientes, ConfiguracaoDoTransporteCoAP.padrao());
+    }
+
+    /**
+     * Construtor que configura o servidor, com o transporte informado, e o pool de clientes CoAP.
+     *
+     * @param tempoOciosoMillis        O tempo, em milissegundos, após o qual o cliente de um destino sem envios é
+     *                                 fechado.
+     * @param maximoDeClientes         A quantidade máxima de clientes, e portanto de sockets, abertos simultaneamente.
+     * @param configuracaoDoTransporte A {@link ConfiguracaoDoTransporteCoAP} do servidor.
+     * @throws IOException Se ocorrer um erro ao configurar o servidor ou cliente CoAP.
+     */
+    public ProtocoloCoAP(long tempoOciosoMillis, int maximoDeClientes,
+                         ConfiguracaoDoTransporteCoAP configuracaoDoTransporte) throws IOException {
+        this.configuracaoDoTransporte = configuracaoDoTransporte;
+        this.clientes = new PoolDeClientes<>("clientes-coap", ProtocoloCoAP::criarCliente, tempoOciosoMillis,
+                maximoDeClientes);
+        try {
+            this.decodificadores = configuracaoDoTransporte.isUsarDatagramChannel()
+                    ? criarDecodificadores(configuracaoDoTransporte.getThreadsDeRecepcao())
+                    : null;
+            this.canalNaoConfirmavel = DatagramChannel.open();
+            configurarServidorCoAP();
+        } catch (IOException | RuntimeException e) {
+            // Como a porta do servidor já pode estar em uso, os recursos criados até aqui não devem vazar
+            liberarRecursos();
+            throw e;
+        }
+    }
+
+    /**
+     * Cria o pool de threads que decodificam e enfileiram as requisições recebidas.
+     *
+     * @param quantidade A quantidade de threads.
+     * @return O {@link ExecutorService} criado.
+     */
+    private static ExecutorService criarDecodificadores(int quantidade) {
+        AtomicInteger contador = new AtomicInteger();
+        return Executors.newFixedThreadPool(quantidade, runnable -> {
+            Thread thread = new Thread(runnable, String.format("coap-decodificacao-%d", contador.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return O {@link CoapClient} do pool para o servidor CoAP do próprio barramento.
+     * @throws IOException Se o cliente não puder ser criado.
      */
-    protected CoapClient getCliente() {
-        return cliente;
+    protected CoapClient getCliente() throws IOException {
+        return clientes.obter(new InetSocketAddress(SERVER_HOST, SERVER_PORT));
+    }
+
+    /**
+     * Cria um cliente CoAP para o destino informado, com um socket UDP próprio.
+     *
+     * @param endereco O endereço do destino.
+     * @return O {@link CoapClient} criado.
+     * @throws IOException Se ocorrer um erro ao abrir o socket do cliente.
+     */
+    private static CoapClient criarCliente(InetSocketAddress endereco) throws IOException {
+        return CoapServer.builder()
+                .transport(DatagramSocketTransport.udp())
+                .blockSize(BlockSize.S_1024) // Define o tamanho do bloco para 1024 bytes
+                .maxIncomingBlockTransferSize(16384) // Transferência de até 16 KB
+                .buildClient(endereco);
     }
 
     /**
@@ -51,52 +161,58 @@ public class ProtocoloCoAP extends Protocolo {
      */
     private void configurarServidorCoAP() throws IOException {
         servidor = CoapServer.builder()
-                .transport(new DatagramSocketTransport(SERVER_PORT))
+                .transport(configuracaoDoTransporte.criarTransporte(SERVER_PORT))
                 .blockSize(BlockSize.S_1024) // Define o tamanho do bloco para 1024 bytes
                 .maxIncomingBlockTransferSize(16384) // Transferência de até 16 KB
                 .route(RouterService.builder()
-                        .post("/coap/barramento", req -> {
-                            try {
-                                String payload = new String(req.getPayload().getBytes(), StandardCharsets.UTF_8);
-
-                                LogUtils.logInfo("Mensagem recebida via CoAP: %s", payload);
-
-                                Mensagem mensagemRecebida = Mensagem.fromJson(payload);
-                                
-                                String acao = mensagemRecebida.getAcao();
-                                String destino = mensagemRecebida.getDestino();
-
-                                String sufixo_timestamp = "";
-                                if (mensagemRecebida.getOrigem().contains("cliente")) {
-                                    sufixo_timestamp += "_cliente";
-                                } else if (mensagemRecebida.getOrigem().contains("servidor")) {
-                                    sufixo_timestamp += "_servidor";
-                                } else if (mensagemRecebida.getOrigem().contains("embarcado")) {
-                                    sufixo_timestamp += "_embarcado";
-                                }
-                                mensagemRecebida.adicionarTimestampAoMetadata(
-                                        String.format("timestamp_bus_msg_recebida%s", sufixo_timestamp));
-                                
-                                if (acao.equals("ENVIAR_MENSAGEM") && destino.isEmpty()) {
-                                    Mensagem mensagemErro = getMensagemErro(mensagemRecebida);
-                                    this.enviarMensagem(mensagemErro);
-                                    return coapResponse(Code.C400_BAD_REQUEST).toFuture();
-                                }
-
-                                ControladorDoProtocoloCoAP controlador = (ControladorDoProtocoloCoAP) getControlador();
-                                controlador.adicionarMensagemAFila(mensagemRecebida);
-                                return coapResponse(Code.C204_CHANGED).toFuture();
-                            } catch (Exception e) {
-                                LogUtils.logError("Erro ao processar mensagem recebida: %s", e.getMessage());
-                                return coapResponse(Code.C500_INTERNAL_SERVER_ERROR).toFuture();
-                            }
-                        })
+                        .post("/coap/barramento", req -> decodificadores == null
+                                ? processarRequisicao(req)
+                                : CompletableFuture.supplyAsync(() -> processarRequisicao(req), decodificadores)
+                                        .thenCompose(resposta -> resposta))
                 )
                 .build();
         servidor.start();
         LogUtils.logInfo("Servidor CoAP iniciado no endereço %s:%d", SERVER_HOST, SERVER_PORT);
     }
 
+    /**
+     * Decodifica a mensagem de uma requisição recebida e a adiciona à fila de processamento.
+     *
+     * @param req A requisição CoAP recebida.
+     * @return A resposta CoAP à requisição.
+     */
+    private CompletableFuture<CoapResponse> processarRequisicao(CoapRequest req) {
+        try {
+            long inicio = System.nanoTime();
+            byte[] payload = req.getPayload().getBytes();
+            FormatoDeMensagem formato = FormatoDeMensagem.deFormatoDeConteudoCoAP(req.options().getContentFormat());
+            Mensagem mensagemRecebida = Mensagem.fromBytes(payload, formato);
+            registrarLatenciaDeRecepcao(mensagemRecebida, inicio);
+
+            LogUtils.logInfo("Mensagem recebida via CoAP de '%s' para '%s' com a ação %s (%d bytes, %s).",
+                    mensagemRecebida.getOrigem(), mensagemRecebida.getDestino(), mensagemRecebida.getAcao(),
+                    payload.length, formato.getNome());
+
+            String acao = mensagemRecebida.getAcao();
+            String destino = mensagemRecebida.getDestino();
+
+            adicionarTimestampDeRecepcao(mensagemRecebida);
+
+            if (acao.equals("ENVIAR_MENSAGEM") && destino.isEmpty()) {
+                Mensagem mensagemErro = getMensagemErro(mensagemRecebida);
+                this.enviarMensagem(mensagemErro, formato);
+                return coapResponse(Code.C400_BAD_REQUEST).toFuture();
+            }
+
+            ControladorDoProtocoloCoAP controlador = (ControladorDoProtocoloCoAP) getControlador();
+            controlador.adicionarMensagemAFila(mensagemRecebida);
+            return coapResponse(Code.C204_CHANGED).toFuture();
+        } catch (Exception e) {
+            LogUtils.logError("Erro ao processar mensagem recebida: %s", e.getMessage());
+            return coapResponse(Code.C500_INTERNAL_SERVER_ERROR).toFuture();
+        }
+    }
+
     /**
      * Gera uma mensagem de erro informando a falta de um destino na mensagem recebida.
      *
@@ -116,52 +232,51 @@ public class ProtocoloCoAP extends Protocolo {
     }
 
     /**
-     * Envia uma mensagem via protocolo CoAP.
+     * Envia uma mensagem via protocolo CoAP, no formato registrado para o endpoint de destino.
      *
      * @param mensagem A {@link Mensagem} a ser enviada.
      */
     public void enviarMensagem(Mensagem mensagem) {
-        String destino = mensagem.getDestino();
-
-        // Extrai o host, a porta e o path
-        String hostDestino = "";
-        int portaDestino = 0;
-        String pathDestino = "";
-
-        try {
-            // Divide o endereço em duas partes: "host:porta" e "path"
-            String[] partes = destino.split("/", 2);
-            String hostEPorta = partes[0];
-
-            // Divide o host e a porta
-            String[] hostEPortaPartes = hostEPorta.split(":", 2);
-            hostDestino = hostEPortaPartes[0];
-            portaDestino = Integer.parseInt(hostEPortaPartes[1]);
+        enviarMensagem(mensagem, getFormatoDoDestino(mensagem.getDestino()));
+    }
 
-            // Salva o path adicionando novamente o '/' usado no split
-            pathDestino = "/" + (partes.length > 1 ? partes[1] : "");
-        } catch (Exception e) {
-            LogUtils.logError("Erro ao analisar a URL de destino '%s': %s", destino, e.getMessage());
+    /**
+     * Envia uma mensagem via protocolo CoAP no formato informado.
+     *
+     * @param mensagem A {@link Mensagem} a ser enviada.
+     * @param formato  O {@link FormatoDeMensagem} do payload.
+     */
+    private void enviarMensagem(Mensagem mensagem, FormatoDeMensagem formato) {
+        String destino = mensagem.getDestino();
+        CacheDeDestinos.Destino destinoResolvido = destinos.resolver(destino);
+        if (!destinoResolvido.isValido()) {
+            LogUtils.logError("Mensagem para '%s' descartada: %s", destino, destinoResolvido.getErro());
+            return;
         }
-        
-        try {
-            cliente = CoapServer.builder()
-                    .transport(DatagramSocketTransport.udp())
-                    .blockSize(BlockSize.S_1024) // Define o tamanho do bloco para 1024 bytes
-                    .maxIncomingBlockTransferSize(16384) // Transferência de até 16 KB
-                    .buildClient(new InetSocketAddress(hostDestino, portaDestino));
 
+        try {
+            byte[] payload = mensagem.toBytes(formato);
+            if (getModoDeEntrega(mensagem) == ModoDeEntrega.NAO_CONFIRMAVEL) {
+                if (payload.length <= RequisicaoNaoConfirmavel.TAMANHO_MAXIMO_DO_PAYLOAD) {
+                    enviarNaoConfirmavel(destinoResolvido, payload, formato);
+                    return;
+                }
+                LogUtils.logDebug("Payload de %d bytes para '%s' excede um datagrama. Enviando como confirmável.",
+                        payload.length, destino);
+            }
 
-            String mensagemJson = mensagem.toJson();
-            LogUtils.logDebug("Iniciando envio da mensagem. Destino: %s, Mensagem: %s", destino, mensagemJson);
+            CoapClient cliente = clientes.obter(destinoResolvido.getEndereco());
+            LogUtils.logDebug("Iniciando envio da mensagem. Destino: %s, Tamanho: %d bytes, Formato: %s", destino,
+                    payload.length, formato.getNome());
             CompletableFuture<CoapResponse> responseFuture = cliente.send(
-                    CoapRequest.post(pathDestino).payload(mensagemJson, MediaTypes.CT_APPLICATION_JSON)
+                    CoapRequest.post(destinoResolvido.getCaminho())
+                            .payload(Opaque.of(payload), formato.getFormatoDeConteudoCoAP())
             );
 
             responseFuture.thenAccept(response -> {
-                String payload = new String(response.getPayload().getBytes(), StandardCharsets.UTF_8);
+                String corpo = new String(response.getPayload().getBytes(), StandardCharsets.UTF_8);
                 LogUtils.logInfo("Resposta recebida do servidor CoAP: Código: %s, Payload: %s",
-                        response.getCode(), payload);
+                        response.getCode(), corpo);
             }
             ).exceptionally(e -> {
                 LogUtils.logError("Erro ao enviar mensagem CoAP: %s", e.getMessage());
@@ -173,15 +288,61 @@ public class ProtocoloCoAP extends Protocolo {
     }
 
     /**
-     * Desconecta o cliente e o servidor CoAP, liberando os recursos utilizados.
+     * Envia o payload em um único datagrama {@code NON}, sem aguardar confirmação ou resposta.
+     *
+     * @param destino O {@link CacheDeDestinos.Destino} resolvido.
+     * @param payload O payload codificado.
+     * @param formato O {@link FormatoDeMensagem} do payload.
+     * @throws IOException Se ocorrer um erro no envio do datagrama.
+     */
+    private void enviarNaoConfirmavel(CacheDeDestinos.Destino destino, byte[] payload, FormatoDeMensagem formato)
+            throws IOException {
+        byte[] datagrama = RequisicaoNaoConfirmavel.codificar(idDaMensagemNaoConfirmavel.incrementAndGet(),
+                destino.getCaminho(), formato.getFormatoDeConteudoCoAP(), payload);
+        canalNaoConfirmavel.send(ByteBuffer.wrap(datagrama), destino.getEndereco());
+        LogUtils.logDebug("Mensagem não confirmável enviada para %s%s (%d bytes, %s).", destino.getEndereco(),
+                destino.getCaminho(), payload.length, formato.getNome());
+    }
+
+    /**
+     * Analisa e resolve o endereço do endpoint cadastrado, para que o primeiro envio não aguarde a resolução.
+     *
+     * @param endpoint O endereço do endpoint no formato {@code host:porta/caminho}.
+     */
+    @Override
+    public void endpointCadastrado(String endpoint) {
+        destinos.resolver(endpoint);
+    }
+
+    /**
+     * Desconecta os clientes e o servidor CoAP, liberando os recursos utilizados.
      */
     public void desconectar() {
         try {
             servidor.stop();
-            cliente.close();
             LogUtils.logInfo("Cliente e servidor CoAP desconectados.");
         } catch (Exception e) {
             LogUtils.logError("Erro ao desconectar o servidor CoAP: %s", e.getMessage());
+        } finally {
+            liberarRecursos();
+        }
+    }
+
+    /**
+     * Fecha o pool de clientes, o canal dos envios não confirmáveis e as threads de decodificação. Também é chamado
+     * pelo construtor quando o servidor não pode ser iniciado, antes de todos os recursos serem criados.
+     */
+    private void liberarRecursos() {
+        clientes.fechar();
+        if (canalNaoConfirmavel != null) {
+            try {
+                canalNaoConfirmavel.close();
+            } catch (IOException e) {
+                LogUtils.logError("Erro ao fechar o canal CoAP não confirmável: %s", e.getMessage());
+            }
+        }
+        if (decodificadores != null) {
+            decodificadores.shutdownNow();
         }
     }
 }
@@ -0,0 +1,110 @@
+package br.edu.unifei.coap;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codifica requisições CoAP POST não confirmáveis ({@code NON}, RFC 7252) para o envio direto por um socket UDP, sem
+ * o estado de transação, confirmação e retransmissão mantido pelo cliente CoAP. As requisições incluem a opção
+ * No-Response (RFC 7967) suprimindo todas as respostas, de modo que o destino também não gere tráfego de retorno.
+ */
+final class RequisicaoNaoConfirmavel {
+
+    /**
+     * Tamanho máximo do payload enviado em um único datagrama não confirmável. Payloads maiores exigem a transferência
+     * em blocos, que depende de confirmações, e são enviados como requisições confirmáveis.
+     */
+    static final int TAMANHO_MAXIMO_DO_PAYLOAD = 1024;
+
+    private static final int VERSAO_E_TIPO_NON = 0x50; // Versão 1, tipo NON, sem token
+    private static final int CODIGO_POST = 0x02;
+    private static final int OPCAO_URI_PATH = 11;
+    private static final int OPCAO_CONTENT_FORMAT = 12;
+    private static final int OPCAO_NO_RESPONSE = 258;
+    private static final int SUPRIMIR_TODAS_AS_RESPOSTAS = 0x02 | 0x08 | 0x10; // 2.xx, 4.xx e 5.xx
+    private static final int MARCADOR_DE_PAYLOAD = 0xff;
+
+    private RequisicaoNaoConfirmavel() {
+    }
+
+    /**
+     * Codifica uma requisição POST não confirmável.
+     *
+     * @param idDaMensagem      O identificador da mensagem CoAP (16 bits).
+     * @param caminho           O caminho do recurso (Ex.: "/coap/barramento").
+     * @param formatoDeConteudo O valor da opção Content-Format.
+     * @param payload           O payload da requisição.
+     * @return O datagrama codificado.
+     */
+    static byte[] codificar(int idDaMensagem, String caminho, int formatoDeConteudo, byte[] payload) {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream(payload.length + caminho.length() + 16);
+        saida.write(VERSAO_E_TIPO_NON);
+        saida.write(CODIGO_POST);
+        saida.write(idDaMensagem >> 8);
+        saida.write(idDaMensagem);
+
+        int opcaoAnterior = 0;
+        for (String segmento : caminho.split("/")) {
+            if (!segmento.isEmpty()) {
+                escreverOpcao(saida, OPCAO_URI_PATH - opcaoAnterior, segmento.getBytes(StandardCharsets.UTF_8));
+                opcaoAnterior = OPCAO_URI_PATH;
+            }
+        }
+        escreverOpcao(saida, OPCAO_CONTENT_FORMAT - opcaoAnterior, inteiroSemSinal(formatoDeConteudo));
+        escreverOpcao(saida, OPCAO_NO_RESPONSE - OPCAO_CONTENT_FORMAT,
+                inteiroSemSinal(SUPRIMIR_TODAS_AS_RESPOSTAS));
+
+        if (payload.length > 0) {
+            saida.write(MARCADOR_DE_PAYLOAD);
+            saida.write(payload, 0, payload.length);
+        }
+        return saida.toByteArray();
+    }
+
+    /**
+     * Verifica se um datagrama CoAP é uma resposta não confirmável, enviada pelo servidor a uma requisição
+     * {@code NON}.
+     *
+     * @param datagrama O datagrama codificado.
+     * @return {@code true} se o datagrama for do tipo {@code NON} com um código de resposta (classe 2 a 5).
+     */
+    static boolean isRespostaNaoConfirmavel(byte[] datagrama) {
+        return datagrama.length >= 4
+                && (datagrama[0] & 0x30) == 0x10
+                && (datagrama[1] & 0xff) >> 5 >= 2;
+    }
+
+    private static void escreverOpcao(ByteArrayOutputStream saida, int delta, byte[] valor) {
+        saida.write(nibble(delta) << 4 | nibble(valor.length));
+        escreverExtensao(saida, delta);
+        escreverExtensao(saida, valor.length);
+        saida.write(valor, 0, valor.length);
+    }
+
+    /**
+     * @return O valor de 4 bits do delta ou do tamanho da opção: o próprio valor, ou 13 e 14 quando o valor é escrito
+     * em uma extensão de 1 ou 2 bytes.
+     */
+    private static int nibble(int valor) {
+        return valor < 13 ? valor : valor < 269 ? 13 : 14;
+    }
+
+    private static void escreverExtensao(ByteArrayOutputStream saida, int valor) {
+        if (valor >= 269) {
+            saida.write((valor - 269) >> 8);
+            saida.write(valor - 269);
+        } else if (valor >= 13) {
+            saida.write(valor - 13);
+        }
+    }
+
+    private static byte[] inteiroSemSinal(int valor) {
+        if (valor == 0) {
+            return new byte[0];
+        }
+        if (valor < 0x100) {
+            return new byte[]{(byte) valor};
+        }
+        return new byte[]{(byte) (valor >> 8), (byte) valor};
+    }
+}
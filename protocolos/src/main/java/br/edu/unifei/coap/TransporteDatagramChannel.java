@@ -0,0 +1,280 @@
+package br.edu.unifei.coap;
+
+import br.edu.unifei.utils.LogUtils;
+import com.mbed.coap.packet.CoapPacket;
+import com.mbed.coap.transport.CoapTransport;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transporte UDP do servidor CoAP baseado em {@link DatagramChannel}, com várias threads de recepção.
+ *
+ * <p>
+ *     Quando o sistema operacional oferece suporte a {@code SO_REUSEPORT}, o transporte abre um socket por thread de
+ *     recepção na mesma porta e o kernel distribui os datagramas entre eles; caso contrário, um único socket é lido por
+ *     uma thread. Em ambos os casos os pacotes CoAP são decodificados na thread que os recebeu e entregues ao servidor
+ *     por uma fila limitada, descartando os pacotes que chegam com a fila cheia, como o próprio buffer do socket faria.
+ *     As respostas são enviadas alternando entre os sockets abertos. Requisições não confirmáveis ({@code NON}) são
+ *     aceitas sem resposta: as respostas {@code NON} geradas pelo servidor para elas são descartadas.
+ * </p>
+ */
+public class TransporteDatagramChannel implements CoapTransport {
+
+    /**
+     * Tamanho máximo de um datagrama UDP.
+     */
+    private static final int TAMANHO_MAXIMO_DO_DATAGRAMA = 65_535;
+
+    private final int porta;
+    private final ConfiguracaoDoTransporteCoAP configuracao;
+    private volatile DatagramChannel[] canais = new DatagramChannel[0];
+    private final List<Thread> leitores = new ArrayList<>();
+    private final ArrayDeque<CoapPacket> recebidos = new ArrayDeque<>();
+    private final ArrayDeque<CompletableFuture<CoapPacket>> aguardando = new ArrayDeque<>();
+    private final AtomicInteger proximoCanalDeEnvio = new AtomicInteger();
+    private final AtomicLong pacotesDescartados = new AtomicLong();
+    private volatile InetSocketAddress enderecoLocal;
+    private volatile boolean ativo;
+
+    /**
+     * Construtor que configura o transporte sem abrir os sockets.
+     *
+     * @param porta        A porta UDP do servidor.
+     * @param configuracao A {@link ConfiguracaoDoTransporteCoAP} com a quantidade de threads e os tamanhos dos buffers.
+     */
+    public TransporteDatagramChannel(int porta, ConfiguracaoDoTransporteCoAP configuracao) {
+        this.porta = porta;
+        this.configuracao = configuracao;
+    }
+
+    /**
+     * Abre os sockets e inicia as threads de recepção.
+     *
+     * @throws IOException Se algum socket não puder ser aberto ou associado à porta.
+     */
+    @Override
+    public synchronized void start() throws IOException {
+        DatagramChannel primeiro = abrirCanal(configuracao.isReutilizarPorta());
+        boolean reutilizarPorta = configuracao.isReutilizarPorta()
+                && primeiro.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        DatagramChannel[] abertos = new DatagramChannel[reutilizarPorta ? configuracao.getThreadsDeRecepcao() : 1];
+        abertos[0] = primeiro;
+        canais = abertos;
+        try {
+            for (int i = 1; i < abertos.length; i++) {
+                abertos[i] = abrirCanal(true);
+            }
+        } catch (IOException e) {
+            fecharCanais();
+            throw e;
+        }
+        enderecoLocal = (InetSocketAddress) primeiro.getLocalAddress();
+        ativo = true;
+
+        for (int i = 0; i < abertos.length; i++) {
+            DatagramChannel canal = abertos[i];
+            Thread leitor = new Thread(() -> ler(canal), String.format("coap-recepcao-%d", i + 1));
+            leitor.setDaemon(true);
+            leitores.add(leitor);
+            leitor.start();
+        }
+        LogUtils.logInfo("Transporte CoAP iniciado em %s com %d socket(s) de recepção.", enderecoLocal,
+                abertos.length);
+    }
+
+    /**
+     * Fecha os sockets, encerrando as threads de recepção, e falha as recepções pendentes.
+     */
+    @Override
+    public synchronized void stop() {
+        ativo = false;
+        fecharCanais();
+        for (Thread leitor : leitores) {
+            try {
+                leitor.join(1_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        leitores.clear();
+
+        List<CompletableFuture<CoapPacket>> pendentes;
+        synchronized (recebidos) {
+            pendentes = new ArrayList<>(aguardando);
+            aguardando.clear();
+            recebidos.clear();
+        }
+        for (CompletableFuture<CoapPacket> pendente : pendentes) {
+            pendente.completeExceptionally(new ClosedChannelException());
+        }
+        if (pacotesDescartados.get() > 0) {
+            LogUtils.logWarn("Transporte CoAP encerrado. %d pacote(s) descartado(s) com a fila de recepção cheia.",
+                    pacotesDescartados.get());
+        }
+    }
+
+    /**
+     * Envia o pacote por um dos sockets do transporte, exceto respostas a requisições não confirmáveis, que são
+     * descartadas.
+     *
+     * @param pacote O {@link CoapPacket} a ser enviado, com o endereço de destino.
+     * @return Um {@link CompletableFuture} concluído após o envio, ou com a falha ocorrida.
+     */
+    @Override
+    public CompletableFuture<Boolean> sendPacket(CoapPacket pacote) {
+        CompletableFuture<Boolean> resultado = new CompletableFuture<>();
+        DatagramChannel[] abertos = canais;
+        try {
+            if (abertos.length == 0) {
+                throw new ClosedChannelException();
+            }
+            byte[] datagrama = pacote.toByteArray();
+            if (!RequisicaoNaoConfirmavel.isRespostaNaoConfirmavel(datagrama)) {
+                DatagramChannel canal = abertos[Math.floorMod(proximoCanalDeEnvio.getAndIncrement(), abertos.length)];
+                canal.send(ByteBuffer.wrap(datagrama), pacote.getRemoteAddress());
+            }
+            resultado.complete(true);
+        } catch (IOException | RuntimeException e) {
+            resultado.completeExceptionally(e);
+        }
+        return resultado;
+    }
+
+    /**
+     * Obtém o próximo pacote recebido. Se já houver um pacote na fila, o futuro retornado já está concluído; caso
+     * contrário, é concluído pela thread de recepção que receber o próximo pacote.
+     *
+     * @return Um {@link CompletableFuture} com o próximo {@link CoapPacket} recebido.
+     */
+    @Override
+    public CompletableFuture<CoapPacket> receive() {
+        CompletableFuture<CoapPacket> futuro;
+        synchronized (recebidos) {
+            CoapPacket pacote = recebidos.poll();
+            if (pacote != null) {
+                return CompletableFuture.completedFuture(pacote);
+            }
+            futuro = new CompletableFuture<>();
+            if (ativo) {
+                aguardando.add(futuro);
+                return futuro;
+            }
+        }
+        futuro.completeExceptionally(new ClosedChannelException());
+        return futuro;
+    }
+
+    /**
+     * @return O endereço local do socket do servidor, ou {@code null} se o transporte ainda não foi iniciado.
+     */
+    @Override
+    public InetSocketAddress getLocalSocketAddress() {
+        return enderecoLocal;
+    }
+
+    /**
+     * @return A quantidade de sockets abertos para a recepção.
+     */
+    public int getQuantidadeDeSockets() {
+        return canais.length;
+    }
+
+    /**
+     * @return A quantidade de pacotes descartados por terem chegado com a fila de recepção cheia.
+     */
+    public long getPacotesDescartados() {
+        return pacotesDescartados.get();
+    }
+
+    private DatagramChannel abrirCanal(boolean reutilizarPorta) throws IOException {
+        DatagramChannel canal = DatagramChannel.open();
+        try {
+            if (reutilizarPorta && canal.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                canal.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            definirTamanho(canal, StandardSocketOptions.SO_RCVBUF, configuracao.getTamanhoDoBufferDeRecepcao());
+            definirTamanho(canal, StandardSocketOptions.SO_SNDBUF, configuracao.getTamanhoDoBufferDeEnvio());
+            canal.bind(new InetSocketAddress(porta));
+            return canal;
+        } catch (IOException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    private static void definirTamanho(DatagramChannel canal, SocketOption<Integer> opcao, int tamanho)
+            throws IOException {
+        if (tamanho > 0) {
+            canal.setOption(opcao, tamanho);
+        }
+    }
+
+    /**
+     * Laço de uma thread de recepção: recebe os datagramas do socket, decodifica-os e entrega-os ao servidor até que o
+     * socket seja fechado.
+     */
+    private void ler(DatagramChannel canal) {
+        ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_MAXIMO_DO_DATAGRAMA);
+        while (ativo) {
+            try {
+                buffer.clear();
+                InetSocketAddress origem = (InetSocketAddress) canal.receive(buffer);
+                byte[] dados = Arrays.copyOf(buffer.array(), buffer.position());
+                entregar(CoapPacket.read(origem, dados, dados.length));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (ativo) {
+                    LogUtils.logError("Erro ao receber datagrama CoAP: %s", e.getMessage());
+                }
+            } catch (Exception e) {
+                LogUtils.logDebug("Datagrama CoAP inválido descartado: %s", e.getMessage());
+            }
+        }
+    }
+
+    private void entregar(CoapPacket pacote) {
+        CompletableFuture<CoapPacket> futuro;
+        synchronized (recebidos) {
+            futuro = aguardando.poll();
+            if (futuro == null) {
+                if (recebidos.size() >= configuracao.getCapacidadeDaFilaDeRecepcao()) {
+                    pacotesDescartados.incrementAndGet();
+                    return;
+                }
+                recebidos.add(pacote);
+                return;
+            }
+        }
+        futuro.complete(pacote);
+    }
+
+    private void fecharCanais() {
+        DatagramChannel[] abertos = canais;
+        canais = new DatagramChannel[0];
+        for (DatagramChannel canal : abertos) {
+            if (canal == null) {
+                continue;
+            }
+            try {
+                canal.close();
+            } catch (IOException e) {
+                LogUtils.logError("Erro ao fechar o socket CoAP: %s", e.getMessage());
+            }
+        }
+    }
+}
@@ -13,8 +13,19 @@ import java.nio.file.StandardCopyOption;
 public class BrokerMQTT {
 
     private final EmbeddedHiveMQ hiveMQ;
+    private final ExtensaoDoBarramento extensao;
 
     public BrokerMQTT() {
+        this(null);
+    }
+
+    /**
+     * Configura o broker embarcado com a extensão que conecta o barramento diretamente ao broker.
+     *
+     * @param extensao A {@link ExtensaoDoBarramento} a ser registrada no broker, ou {@code null} para nenhuma.
+     */
+    public BrokerMQTT(ExtensaoDoBarramento extensao) {
+        this.extensao = extensao;
         try {
             Path tempDir = Files.createTempDirectory("hivemq_conf_");
 
@@ -27,6 +38,9 @@ public class BrokerMQTT {
 
             EmbeddedHiveMQBuilder builder = EmbeddedHiveMQ.builder()
                     .withConfigurationFolder(tempDir);
+            if (extensao != null) {
+                builder.withEmbeddedExtension(extensao.criarExtensaoEmbarcada());
+            }
 
             hiveMQ = builder.build();
 
@@ -36,6 +50,13 @@ public class BrokerMQTT {
         }
     }
 
+    /**
+     * @return A {@link ExtensaoDoBarramento} registrada no broker, ou {@code null} se o broker foi criado sem ela.
+     */
+    public ExtensaoDoBarramento getExtensao() {
+        return extensao;
+    }
+
     public void startBroker() {
         try  {
             hiveMQ.start().join();
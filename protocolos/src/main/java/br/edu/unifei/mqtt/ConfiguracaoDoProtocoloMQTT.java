@@ -0,0 +1,169 @@
+package br.edu.unifei.mqtt;
+
+import java.util.UUID;
+
+/**
+ * Agrupa as configurações do cliente MQTT do barramento. Os métodos de configuração retornam a própria instância para
+ * permitir o encadeamento das chamadas.
+ *
+ * <p>
+ *     No modo cluster, habilitado por {@link #grupoCompartilhado(String)}, várias instâncias do barramento se conectam
+ *     ao mesmo broker, cada uma com um identificador de cliente próprio, e assinam os tópicos do barramento como uma
+ *     assinatura compartilhada ({@code $share/<grupo>/topico/barramento}). O broker entrega cada mensagem recebida a
+ *     apenas uma das instâncias do grupo, distribuindo a carga entre elas. Os cadastros de endpoints e serviços são
+ *     mantidos por cada instância; por isso, a instância que recebe uma requisição de cadastro ou de registro ou
+ *     remoção de serviço a replica para as demais por um tópico não compartilhado, como descrito em
+ *     {@link ProtocoloMQTT}. As instâncias que não executam o broker se conectam a ele pela URL configurada em
+ *     {@link #urlDoBroker(String)}.
+ * </p>
+ *
+ * <p>
+ *     No modo embarcado, habilitado por {@link #extensaoEmbarcada(ExtensaoDoBarramento)}, o barramento troca as
+ *     mensagens diretamente com o broker embarcado na mesma JVM, pela {@link ExtensaoDoBarramento}, sem o cliente MQTT.
+ *     Como a extensão recebe todas as publicações nos tópicos do barramento, esse modo não é combinado com o modo
+ *     cluster.
+ * </p>
+ *
+ * <pre>{@code
+ * ConfiguracaoDoProtocoloMQTT configuracao = ConfiguracaoDoProtocoloMQTT.padrao()
+ *         .maximoDeMensagensEmVoo(256)
+ *         .grupoCompartilhado("barramento");
+ * }</pre>
+ */
+public class ConfiguracaoDoProtocoloMQTT {
+
+    /**
+     * Quantidade máxima padrão de publicações aguardando a confirmação do broker.
+     */
+    public static final int MAXIMO_DE_MENSAGENS_EM_VOO_PADRAO = 64;
+
+    /**
+     * Identificador de cliente padrão de uma instância fora do modo cluster.
+     */
+    public static final String IDENTIFICADOR_DO_CLIENTE_PADRAO = "barramento_mqtt";
+
+    /**
+     * URL padrão do broker MQTT, executado na mesma máquina.
+     */
+    public static final String URL_DO_BROKER_PADRAO = "tcp://localhost:1883";
+
+    private int maximoDeMensagensEmVoo = MAXIMO_DE_MENSAGENS_EM_VOO_PADRAO;
+    private String grupoCompartilhado;
+    private String identificadorDoCliente;
+    private String urlDoBroker = URL_DO_BROKER_PADRAO;
+    private ExtensaoDoBarramento extensaoEmbarcada;
+
+    /**
+     * @return Uma nova configuração com os valores padrão.
+     */
+    public static ConfiguracaoDoProtocoloMQTT padrao() {
+        return new ConfiguracaoDoProtocoloMQTT();
+    }
+
+    /**
+     * @param maximoDeMensagensEmVoo Quantidade máxima de publicações aguardando a confirmação do broker. Ao atingir o
+     *                               limite, o envio seguinte aguarda a confirmação de uma publicação anterior.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoProtocoloMQTT maximoDeMensagensEmVoo(int maximoDeMensagensEmVoo) {
+        this.maximoDeMensagensEmVoo = maximoDeMensagensEmVoo;
+        return this;
+    }
+
+    /**
+     * @param grupoCompartilhado O nome do grupo de assinatura compartilhada das instâncias do cluster, ou {@code null}
+     *                           para assinar os tópicos do barramento diretamente.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoProtocoloMQTT grupoCompartilhado(String grupoCompartilhado) {
+        this.grupoCompartilhado = grupoCompartilhado;
+        return this;
+    }
+
+    /**
+     * @param identificadorDoCliente O identificador do cliente MQTT, único entre as instâncias conectadas ao broker,
+     *                               ou {@code null} para utilizar o identificador padrão.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoProtocoloMQTT identificadorDoCliente(String identificadorDoCliente) {
+        this.identificadorDoCliente = identificadorDoCliente;
+        return this;
+    }
+
+    /**
+     * @param urlDoBroker A URL do broker MQTT (Ex.: {@code tcp://broker:1883}), ou {@code null} para utilizar
+     *                    {@value #URL_DO_BROKER_PADRAO}.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoProtocoloMQTT urlDoBroker(String urlDoBroker) {
+        this.urlDoBroker = urlDoBroker != null ? urlDoBroker : URL_DO_BROKER_PADRAO;
+        return this;
+    }
+
+    /**
+     * @param extensaoEmbarcada A {@link ExtensaoDoBarramento} registrada no broker embarcado, pela qual as mensagens
+     *                          são trocadas sem o cliente MQTT, ou {@code null} para conectar ao broker por TCP.
+     * @return Esta configuração.
+     */
+    public ConfiguracaoDoProtocoloMQTT extensaoEmbarcada(ExtensaoDoBarramento extensaoEmbarcada) {
+        this.extensaoEmbarcada = extensaoEmbarcada;
+        return this;
+    }
+
+    /**
+     * @return {@code true} se a instância faz parte de um cluster com assinatura compartilhada.
+     */
+    public boolean isModoCluster() {
+        return grupoCompartilhado != null && !grupoCompartilhado.isEmpty();
+    }
+
+    /**
+     * @return O nome do grupo de assinatura compartilhada, ou {@code null} fora do modo cluster.
+     */
+    public String getGrupoCompartilhado() {
+        return isModoCluster() ? grupoCompartilhado : null;
+    }
+
+    /**
+     * Obtém o identificador do cliente MQTT. Se nenhum identificador foi configurado, utiliza
+     * {@value #IDENTIFICADOR_DO_CLIENTE_PADRAO} ou, no modo cluster, gera um identificador único para que as
+     * instâncias não desconectem umas às outras do broker.
+     *
+     * @return O identificador do cliente MQTT.
+     */
+    public synchronized String getIdentificadorDoCliente() {
+        if (identificadorDoCliente == null && isModoCluster()) {
+            identificadorDoCliente = String.format("%s_%s", IDENTIFICADOR_DO_CLIENTE_PADRAO,
+                    UUID.randomUUID().toString().substring(0, 8));
+        }
+        return identificadorDoCliente != null ? identificadorDoCliente : IDENTIFICADOR_DO_CLIENTE_PADRAO;
+    }
+
+    /**
+     * @return A URL do broker MQTT ao qual o cliente se conecta.
+     */
+    public String getUrlDoBroker() {
+        return urlDoBroker;
+    }
+
+    /**
+     * @return {@code true} se as mensagens são trocadas diretamente com o broker embarcado.
+     */
+    public boolean isModoEmbarcado() {
+        return extensaoEmbarcada != null;
+    }
+
+    /**
+     * @return A {@link ExtensaoDoBarramento} do broker embarcado, ou {@code null} fora do modo embarcado.
+     */
+    public ExtensaoDoBarramento getExtensaoEmbarcada() {
+        return extensaoEmbarcada;
+    }
+
+    /**
+     * @return A quantidade máxima de publicações aguardando a confirmação do broker, no mínimo 1.
+     */
+    public int getMaximoDeMensagensEmVoo() {
+        return Math.max(1, maximoDeMensagensEmVoo);
+    }
+}
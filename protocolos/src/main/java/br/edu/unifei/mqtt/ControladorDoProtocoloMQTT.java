@@ -2,7 +2,8 @@ package br.edu.unifei.mqtt;
 
 import br.edu.unifei.barramento.Barramento;
 import br.edu.unifei.barramento.ControladorDoBarramento;
-import br.edu.unifei.barramento.workers.WorkerDeProcessamento;
+import br.edu.unifei.barramento.ConfiguracaoDoControlador;
+import br.edu.unifei.barramento.workers.PoolDeProcessamento;
 import br.edu.unifei.barramento.workers.WorkerDeRecepcao;
 
 /**
@@ -18,27 +19,41 @@ public class ControladorDoProtocoloMQTT extends ControladorDoBarramento {
      * Construtor que inicializa o controlador MQTT e configura o protocolo MQTT.
      */
     public ControladorDoProtocoloMQTT(Barramento barramento) {
-        super(barramento);
-        this.protocoloMQTT = new ProtocoloMQTT();
+        this(barramento, ConfiguracaoDoControlador.padrao());
+    }
+
+    /**
+     * Construtor que inicializa o controlador MQTT com a configuração informada.
+     *
+     * @param barramento   O {@link Barramento} associado ao controlador.
+     * @param configuracao A {@link ConfiguracaoDoControlador} com as configurações das filas e dos workers.
+     */
+    public ControladorDoProtocoloMQTT(Barramento barramento, ConfiguracaoDoControlador configuracao) {
+        this(barramento, configuracao, ConfiguracaoDoProtocoloMQTT.padrao());
+    }
+
+    /**
+     * Construtor que inicializa o controlador MQTT com a configuração do controlador e do cliente MQTT informadas.
+     *
+     * @param barramento            O {@link Barramento} associado ao controlador.
+     * @param configuracao          A {@link ConfiguracaoDoControlador} com as configurações das filas e dos workers.
+     * @param configuracaoDoCliente A {@link ConfiguracaoDoProtocoloMQTT} com as configurações do cliente MQTT.
+     */
+    public ControladorDoProtocoloMQTT(Barramento barramento, ConfiguracaoDoControlador configuracao,
+                                      ConfiguracaoDoProtocoloMQTT configuracaoDoCliente) {
+        super(barramento, configuracao);
+        this.protocoloMQTT = new ProtocoloMQTT(configuracaoDoCliente);
         this.protocoloMQTT.setControlador(this);
     }
 
     /**
      * Inicializa os workers responsáveis pelo recebimento ({@link WorkerDeRecepcao}) e processamento
-     * ({@link WorkerDeProcessamento}) de mensagens MQTT.
+     * ({@link PoolDeProcessamento}) de mensagens MQTT.
      * Cada worker é executado em uma thread separada.
      */
     @Override
     protected void iniciarWorkers() {
-        workerDeRecepcao = new WorkerDeRecepcao(filaDeMensagens);
-        workerDeProcessamento = new WorkerDeProcessamento(
-                protocoloMQTT,
-                barramento,
-                filaDeMensagens
-        );
-
-        new Thread(workerDeRecepcao).start();
-        new Thread(workerDeProcessamento).start();
+        iniciarWorkersPadrao(protocoloMQTT);
     }
 
     /**
@@ -48,7 +63,6 @@ public class ControladorDoProtocoloMQTT extends ControladorDoBarramento {
     @Override
     protected void pararWorkers() {
         protocoloMQTT.desconectar();
-        workerDeRecepcao.parar();
-        workerDeProcessamento.parar();
+        pararWorkersPadrao();
     }
 }
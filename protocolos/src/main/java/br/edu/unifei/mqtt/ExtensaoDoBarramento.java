@@ -0,0 +1,175 @@
+package br.edu.unifei.mqtt;
+
+import br.edu.unifei.utils.LogUtils;
+import com.hivemq.embedded.EmbeddedExtension;
+import com.hivemq.extension.sdk.api.ExtensionMain;
+import com.hivemq.extension.sdk.api.interceptor.publish.PublishInboundInterceptor;
+import com.hivemq.extension.sdk.api.packets.general.Qos;
+import com.hivemq.extension.sdk.api.packets.publish.PublishPacket;
+import com.hivemq.extension.sdk.api.parameter.ExtensionStartInput;
+import com.hivemq.extension.sdk.api.parameter.ExtensionStartOutput;
+import com.hivemq.extension.sdk.api.parameter.ExtensionStopInput;
+import com.hivemq.extension.sdk.api.parameter.ExtensionStopOutput;
+import com.hivemq.extension.sdk.api.services.Services;
+import com.hivemq.extension.sdk.api.services.builder.Builders;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Extensão do broker HiveMQ embarcado que conecta o barramento diretamente ao broker, na mesma JVM, sem o cliente MQTT
+ * e a conexão TCP de loopback.
+ *
+ * <p>
+ *     As publicações dos dispositivos nos tópicos do barramento são interceptadas na entrada do broker e entregues ao
+ *     barramento com o payload recebido, sem serem roteadas aos assinantes. As mensagens enviadas pelo barramento são
+ *     injetadas no broker pelo {@code PublishService} da extensão e entregues aos assinantes dos tópicos de destino
+ *     como qualquer outra publicação. Assim, cada mensagem deixa de ser codificada em MQTT, enviada pelo kernel e
+ *     decodificada novamente pelo broker e pelo cliente.
+ * </p>
+ *
+ * <p>
+ *     A extensão deve ser registrada no broker antes da sua inicialização
+ *     ({@link BrokerMQTT#BrokerMQTT(ExtensaoDoBarramento)}) e informada ao protocolo por
+ *     {@link ConfiguracaoDoProtocoloMQTT#extensaoEmbarcada(ExtensaoDoBarramento)}.
+ * </p>
+ */
+public class ExtensaoDoBarramento implements ExtensionMain {
+
+    private static final String ID = "barramento-de-servicos";
+    private static final String NOME = "Barramento de Serviços";
+    private static final String VERSAO = "1.0";
+
+    /**
+     * Recebe as publicações interceptadas nos tópicos do barramento.
+     */
+    @FunctionalInterface
+    public interface ReceptorDePublicacoes {
+
+        /**
+         * Chamado na thread do broker que recebeu a publicação, que deve ser liberada rapidamente: o receptor não deve
+         * aguardar sem limite, descartando a publicação se não puder tratá-la a tempo.
+         *
+         * @param topico  O tópico da publicação.
+         * @param payload O payload da publicação.
+         * @param qos     O nível de QoS da publicação.
+         */
+        void receber(String topico, byte[] payload, int qos);
+    }
+
+    private volatile Set<String> topicos = Collections.emptySet();
+    private volatile ReceptorDePublicacoes receptor;
+    private volatile boolean iniciada;
+
+    /**
+     * Intercepta as publicações recebidas de todos os clientes, desviando para o receptor as publicadas nos tópicos do
+     * barramento.
+     */
+    private final PublishInboundInterceptor interceptador = (entrada, saida) -> {
+        ReceptorDePublicacoes atual = receptor;
+        PublishPacket publicacao = entrada.getPublishPacket();
+        if (atual == null || !topicos.contains(publicacao.getTopic())) {
+            return;
+        }
+
+        byte[] payload = publicacao.getPayload()
+                .map(ExtensaoDoBarramento::copiar)
+                .orElse(new byte[0]);
+        // A publicação é confirmada ao dispositivo, mas não é roteada aos assinantes
+        saida.preventPublishDelivery();
+        try {
+            atual.receber(publicacao.getTopic(), payload, publicacao.getQos().getQosNumber());
+        } catch (Exception e) {
+            LogUtils.logError("Erro ao entregar a publicação de '%s' ao barramento: %s",
+                    entrada.getClientInformation().getClientId(), e.getMessage());
+        }
+    };
+
+    /**
+     * @return A descrição da extensão para o registro no broker embarcado.
+     */
+    EmbeddedExtension criarExtensaoEmbarcada() {
+        return EmbeddedExtension.builder()
+                .withId(ID)
+                .withName(NOME)
+                .withVersion(VERSAO)
+                .withPriority(0)
+                .withStartPriority(1000)
+                .withExtensionMain(this)
+                .build();
+    }
+
+    /**
+     * Registra o interceptador de publicações para todos os clientes que se conectarem ao broker.
+     */
+    @Override
+    public void extensionStart(ExtensionStartInput entrada, ExtensionStartOutput saida) {
+        Services.initializerRegistry().setClientInitializer(
+                (inicializacao, cliente) -> cliente.addPublishInboundInterceptor(interceptador));
+        iniciada = true;
+        LogUtils.logInfo("Extensão '%s' do barramento iniciada no broker MQTT.", ID);
+    }
+
+    @Override
+    public void extensionStop(ExtensionStopInput entrada, ExtensionStopOutput saida) {
+        iniciada = false;
+        LogUtils.logInfo("Extensão '%s' do barramento encerrada.", ID);
+    }
+
+    /**
+     * Passa a desviar para o receptor as publicações nos tópicos informados.
+     *
+     * @param topicos  Os tópicos do barramento.
+     * @param receptor O {@link ReceptorDePublicacoes} que recebe as publicações.
+     */
+    public void conectar(Collection<String> topicos, ReceptorDePublicacoes receptor) {
+        this.topicos = Collections.unmodifiableSet(new HashSet<>(topicos));
+        this.receptor = receptor;
+    }
+
+    /**
+     * Deixa de desviar as publicações, que voltam a ser roteadas normalmente pelo broker.
+     */
+    public void desconectar() {
+        this.receptor = null;
+        this.topicos = Collections.emptySet();
+    }
+
+    /**
+     * @return {@code true} se a extensão foi iniciada pelo broker e pode publicar mensagens.
+     */
+    public boolean isIniciada() {
+        return iniciada;
+    }
+
+    /**
+     * Injeta uma publicação no broker, entregue aos assinantes do tópico.
+     *
+     * @param topico  O tópico de destino.
+     * @param payload O payload da publicação.
+     * @param qos     O nível de QoS da publicação (0, 1 ou 2).
+     * @return Um {@link CompletableFuture} concluído quando o broker aceitar a publicação, ou com a falha ocorrida.
+     */
+    public CompletableFuture<Void> publicar(String topico, byte[] payload, int qos) {
+        if (!iniciada) {
+            CompletableFuture<Void> falha = new CompletableFuture<>();
+            falha.completeExceptionally(new IllegalStateException("A extensão do barramento não foi iniciada."));
+            return falha;
+        }
+        return Services.publishService().publish(Builders.publish()
+                .topic(topico)
+                .qos(Qos.valueOf(qos))
+                .payload(ByteBuffer.wrap(payload))
+                .build());
+    }
+
+    private static byte[] copiar(ByteBuffer buffer) {
+        byte[] dados = new byte[buffer.remaining()];
+        buffer.duplicate().get(dados);
+        return dados;
+    }
+}
@@ -1,49 +1,185 @@
 package br.edu.unifei.mqtt;
 
+import br.edu.unifei.barramento.Barramento;
+import br.edu.unifei.barramento.comandos.Comando;
+import br.edu.unifei.modelos.mensagem.FormatoDeMensagem;
 import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.modelos.mensagem.ModoDeEntrega;
 import br.edu.unifei.modelos.protocolo.Protocolo;
 import br.edu.unifei.utils.LogUtils;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import org.eclipse.paho.client.mqttv3.*;
 
-import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Classe responsável por configurar e gerenciar a comunicação MQTT, permitindo o envio, recebimento e tratamento de
  * mensagens, além de gerenciar a reconexão com o broker MQTT em caso de falhas.
+ *
+ * <p>
+ *     O formato das mensagens recebidas é definido pelo tópico: mensagens publicadas em {@code topico/barramento} são
+ *     lidas em JSON e as publicadas em {@code topico/barramento/cbor} no {@link FormatoDeMensagem#BINARIO}. As
+ *     mensagens enviadas usam o formato registrado para o endpoint de destino.
+ * </p>
+ *
+ * <p>
+ *     As publicações são assíncronas: o envio entrega a mensagem ao {@link MqttAsyncClient} e retorna sem aguardar o
+ *     PUBACK, cuja chegada é tratada por um callback. A quantidade de publicações aguardando confirmação é limitada
+ *     pela janela configurada em {@link ConfiguracaoDoProtocoloMQTT#maximoDeMensagensEmVoo(int)}; com a janela cheia,
+ *     o worker que envia aguarda no máximo {@value #ESPERA_MAXIMA_DA_JANELA_MS} ms pela confirmação de uma publicação
+ *     anterior e descarta a mensagem se a janela continuar cheia.
+ * </p>
+ *
+ * <p>
+ *     O cliente MQTT usa uma única thread tanto para entregar as publicações recebidas quanto para executar os
+ *     callbacks de confirmação que liberam a janela de envio. Por isso, nessa thread, e na thread do broker no modo
+ *     embarcado, nenhuma espera é ilimitada: a publicação recebida aguarda no máximo
+ *     {@value #ESPERA_MAXIMA_NO_CALLBACK_MS} ms por espaço na fila de recepção e as respostas de erro aguardam no
+ *     máximo o mesmo tempo pela janela de envio; em ambos os casos, a mensagem é descartada com um aviso no log.
+ * </p>
+ *
+ * <p>
+ *     O nível de QoS de cada publicação é escolhido por {@link #getNivelDeQos(Mensagem)}: o campo {@code qos} do
+ *     {@code metadata} da mensagem, quando informado, ou o nível registrado no barramento para o destino, limitado ao
+ *     nível com que a mensagem foi recebida, como faz o próprio broker ao entregar uma publicação a um assinante.
+ *     Assim, leituras publicadas com QoS 0 são encaminhadas sem persistência nem PUBACK.
+ * </p>
+ *
+ * <p>
+ *     No modo cluster ({@link ConfiguracaoDoProtocoloMQTT#grupoCompartilhado(String)}), os tópicos do barramento são
+ *     assinados como {@code $share/<grupo>/<tópico>} com um identificador de cliente único por instância. As ações que
+ *     alteram os cadastros de endpoints e serviços, mantidos por cada instância, são replicadas: a instância que as
+ *     recebe as processa normalmente e republica o payload em
+ *     {@code topico/barramento/replicacao/<formato>/<identificador>}, tópico assinado sem compartilhamento por todas
+ *     as instâncias. As demais instâncias aplicam a alteração diretamente, sem responder ao dispositivo. A replicação
+ *     não é ordenada entre instâncias nem recupera as alterações anteriores à conexão de uma instância.
+ * </p>
+ *
+ * <p>
+ *     No modo embarcado ({@link ConfiguracaoDoProtocoloMQTT#extensaoEmbarcada(ExtensaoDoBarramento)}), o cliente MQTT
+ *     não é criado: as publicações nos tópicos do barramento são recebidas da {@link ExtensaoDoBarramento} registrada
+ *     no broker embarcado e as mensagens são publicadas por ela, na mesma JVM, sem a conexão TCP de loopback.
+ * </p>
  */
 public class ProtocoloMQTT extends Protocolo implements MqttCallback {
 
-    private static final String BROKER_URL = "tcp://localhost:1883";
-    private static final String CLIENT_ID = "barramento_mqtt";
     private static final String TOPICO = "topico/barramento";
+    private static final String TOPICO_BINARIO = TOPICO + "/" + FormatoDeMensagem.BINARIO.getNome();
+    private static final String TOPICO_REPLICACAO = TOPICO + "/replicacao";
+
+    /**
+     * Ações replicadas entre as instâncias do cluster, por alterarem os cadastros mantidos por cada instância.
+     */
+    private static final Set<String> ACOES_REPLICADAS = new HashSet<>(Arrays.asList(
+            "CADASTRAR_ENDPOINT", "REGISTRAR_SERVICO", "REMOVER_SERVICO"));
     private static final int MAX_RETRIES = 5; // Máximo de tentativas
     private static final long RETRY_DELAY_MS = 5000; // Tempo de espera entre tentativas (5 segundos)
+    private static final String CAMPO_QOS = "qos";
 
-    MqttClient cliente;
+    /**
+     * Tempo máximo de espera na thread de recepção, por espaço na fila de recepção ou por uma posição na janela de
+     * envio. O cliente MQTT executa os callbacks de confirmação, que liberam a janela, na mesma thread do callback de
+     * recepção; aguardar sem limite nessa thread impediria a liberação da janela.
+     */
+    private static final long ESPERA_MAXIMA_NO_CALLBACK_MS = 100;
 
     /**
-     * Construtor que configura o cliente MQTT e gerencia tentativas de conexão ao broker MQTT.
+     * Tempo máximo de espera dos workers por uma posição na janela de envio. Limita o bloqueio dos workers caso a
+     * thread de callback, a única que libera a janela, esteja ocupada.
+     */
+    private static final long ESPERA_MAXIMA_DA_JANELA_MS = RETRY_DELAY_MS;
+
+    private final int maximoDeMensagensEmVoo;
+    private final Semaphore janelaDeEnvio;
+    private final ExtensaoDoBarramento extensao;
+    private final boolean modoCluster;
+    private final String identificador;
+
+    /**
+     * Libera a posição da janela de envio ocupada por uma publicação quando o broker a confirma ou quando ela falha.
+     */
+    private final IMqttActionListener confirmacaoDeEnvio = new IMqttActionListener() {
+        @Override
+        public void onSuccess(IMqttToken token) {
+            janelaDeEnvio.release();
+        }
+
+        @Override
+        public void onFailure(IMqttToken token, Throwable e) {
+            janelaDeEnvio.release();
+            registrarFalhaDeEnvio(token.getUserContext(), e);
+        }
+    };
+
+    MqttAsyncClient cliente;
+
+    /**
+     * Construtor que configura o cliente MQTT com a configuração padrão e gerencia tentativas de conexão ao broker
+     * MQTT.
      */
     public ProtocoloMQTT() {
+        this(ConfiguracaoDoProtocoloMQTT.padrao());
+    }
+
+    /**
+     * Construtor que configura o cliente MQTT e gerencia tentativas de conexão ao broker MQTT.
+     *
+     * @param configuracao A {@link ConfiguracaoDoProtocoloMQTT} do cliente.
+     */
+    public ProtocoloMQTT(ConfiguracaoDoProtocoloMQTT configuracao) {
+        this.maximoDeMensagensEmVoo = configuracao.getMaximoDeMensagensEmVoo();
+        this.janelaDeEnvio = new Semaphore(maximoDeMensagensEmVoo);
+        this.extensao = configuracao.getExtensaoEmbarcada();
+        this.modoCluster = extensao == null && configuracao.isModoCluster();
+        this.identificador = configuracao.getIdentificadorDoCliente();
+        if (extensao != null) {
+            if (configuracao.isModoCluster()) {
+                LogUtils.logWarn("O grupo compartilhado '%s' é ignorado no modo embarcado.",
+                        configuracao.getGrupoCompartilhado());
+            }
+            extensao.conectar(Arrays.asList(TOPICO, TOPICO_BINARIO), this::receberPublicacao);
+            LogUtils.logInfo("Barramento conectado diretamente ao broker MQTT embarcado.");
+            return;
+        }
+
+        String prefixo = configuracao.isModoCluster()
+                ? String.format("$share/%s/", configuracao.getGrupoCompartilhado())
+                : "";
         boolean connected = false;
         int tentativas = 0;
 
         while (!connected && tentativas < MAX_RETRIES) {
             try {
-                cliente = new MqttClient(BROKER_URL, CLIENT_ID);
+                cliente = new MqttAsyncClient(configuracao.getUrlDoBroker(), identificador);
                 MqttConnectOptions options = new MqttConnectOptions();
                 options.setCleanSession(true);
+                options.setMaxInflight(maximoDeMensagensEmVoo);
 
                 // Define a classe ProtocoloMQTT como callback
                 cliente.setCallback(this);
 
-                cliente.connect(options);
+                cliente.connect(options).waitForCompletion();
 
-                cliente.subscribe(TOPICO);
+                // Assina com QoS 2 para que as mensagens sejam recebidas com o nível em que foram publicadas
+                cliente.subscribe(new String[]{prefixo + TOPICO, prefixo + TOPICO_BINARIO}, new int[]{2, 2})
+                        .waitForCompletion();
+                if (modoCluster) {
+                    cliente.subscribe(TOPICO_REPLICACAO + "/#", 1).waitForCompletion();
+                }
 
                 connected = true;
-                LogUtils.logInfo("Cliente MQTT conectado ao broker com sucesso.");
+                LogUtils.logInfo("Cliente MQTT '%s' conectado ao broker com sucesso%s.", identificador,
+                        configuracao.isModoCluster()
+                                ? String.format(" no grupo '%s'", configuracao.getGrupoCompartilhado())
+                                : "");
 
             } catch (MqttException e) {
                 tentativas++;
@@ -64,34 +200,214 @@ public class ProtocoloMQTT extends Protocolo implements MqttCallback {
     }
 
     /**
-     * Envia uma mensagem via protocolo MQTT.
+     * Envia uma mensagem via protocolo MQTT, no formato registrado para o endpoint de destino.
      *
      * @param mensagem A {@link Mensagem} a ser enviada.
      */
     public void enviarMensagem(Mensagem mensagem) {
+        enviarMensagem(mensagem, getFormatoDoDestino(mensagem.getDestino()));
+    }
+
+    /**
+     * Publica um lote de mensagens em uma única passagem: o formato de cada destino é resolvido uma vez por lote e as
+     * publicações são entregues ao cliente sem aguardar as confirmações, com um único registro no log para o lote.
+     * A falha na publicação de uma mensagem não impede a publicação das demais.
+     *
+     * @param mensagens As {@link Mensagem}s a serem enviadas, na ordem de envio.
+     */
+    @Override
+    public void enviarMensagens(List<Mensagem> mensagens) {
+        Map<String, FormatoDeMensagem> formatos = new HashMap<>();
+        int publicadas = 0;
+        int descartadas = 0;
+        long bytes = 0;
+        for (Mensagem mensagem : mensagens) {
+            String destino = mensagem.getDestino();
+            try {
+                byte[] payload = mensagem.toBytes(formatos.computeIfAbsent(destino, this::getFormatoDoDestino));
+                if (!publicar(destino, payload, getNivelDeQos(mensagem), ESPERA_MAXIMA_DA_JANELA_MS)) {
+                    descartadas++;
+                    continue;
+                }
+                publicadas++;
+                bytes += payload.length;
+            } catch (MqttException | RuntimeException e) {
+                LogUtils.logError("Erro ao enviar mensagem via MQTT para '%s': %s", destino, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LogUtils.logError("Envio do lote via MQTT interrompido após %d de %d mensagem(ns).",
+                        publicadas, mensagens.size());
+                return;
+            }
+        }
+        if (descartadas > 0) {
+            LogUtils.logWarn("Janela de envio MQTT cheia. %d mensagem(ns) do lote descartada(s).", descartadas);
+        }
+        LogUtils.logInfo("Lote de %d mensagem(ns) enviado via MQTT (%d bytes).", publicadas, bytes);
+    }
+
+    /**
+     * Envia uma mensagem via protocolo MQTT no formato informado, aguardando no máximo
+     * {@value #ESPERA_MAXIMA_DA_JANELA_MS} ms por uma posição na janela de envio.
+     *
+     * @param mensagem A {@link Mensagem} a ser enviada.
+     * @param formato  O {@link FormatoDeMensagem} do payload.
+     */
+    private void enviarMensagem(Mensagem mensagem, FormatoDeMensagem formato) {
+        enviarMensagem(mensagem, formato, ESPERA_MAXIMA_DA_JANELA_MS);
+    }
+
+    /**
+     * Envia uma mensagem via protocolo MQTT no formato informado.
+     *
+     * @param mensagem             A {@link Mensagem} a ser enviada.
+     * @param formato              O {@link FormatoDeMensagem} do payload.
+     * @param esperaMaximaEmMillis Tempo máximo de espera por uma posição na janela de envio. A mensagem é descartada
+     *                             se a janela continuar cheia.
+     */
+    private void enviarMensagem(Mensagem mensagem, FormatoDeMensagem formato, long esperaMaximaEmMillis) {
+        String destino = mensagem.getDestino();
         try {
-            String mensagemJson = mensagem.toJson();
-            MqttMessage mqttMessage = new MqttMessage(mensagemJson.getBytes(StandardCharsets.UTF_8));
-            mqttMessage.setQos(1);
-            cliente.publish(mensagem.getDestino(), mqttMessage);
-            LogUtils.logInfo("Mensagem enviada via MQTT: %s", mensagemJson);
+            byte[] payload = mensagem.toBytes(formato);
+            int qos = getNivelDeQos(mensagem);
+            if (!publicar(destino, payload, qos, esperaMaximaEmMillis)) {
+                LogUtils.logWarn("Janela de envio MQTT cheia. Mensagem com a ação %s para '%s' descartada.",
+                        mensagem.getAcao(), destino);
+                return;
+            }
+            LogUtils.logInfo("Mensagem enviada via MQTT para '%s' (%d bytes, %s, QoS %d).", destino,
+                    payload.length, formato.getNome(), qos);
         } catch (MqttException e) {
             LogUtils.logError("Erro ao enviar mensagem via MQTT: %s", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LogUtils.logError("Envio da mensagem via MQTT para '%s' interrompido.", destino);
         }
     }
 
     /**
-     * Desconecta o cliente MQTT e libera os recursos utilizados.
+     * Ocupa uma posição da janela de envio e entrega a publicação ao cliente MQTT ou à {@link ExtensaoDoBarramento},
+     * sem aguardar a confirmação. A posição é liberada pelo callback quando a publicação for concluída.
+     *
+     * @param destino              O tópico de destino.
+     * @param payload              O payload da publicação.
+     * @param qos                  O nível de QoS da publicação.
+     * @param esperaMaximaEmMillis Tempo máximo de espera por uma posição na janela de envio.
+     * @return {@code false} se a janela continuou cheia durante o tempo máximo de espera e a publicação não foi feita.
+     * @throws MqttException        Se o cliente MQTT recusar a publicação.
+     * @throws InterruptedException Se a thread for interrompida enquanto aguarda uma posição na janela.
+     */
+    private boolean publicar(String destino, byte[] payload, int qos, long esperaMaximaEmMillis)
+            throws MqttException, InterruptedException {
+        if (!janelaDeEnvio.tryAcquire(esperaMaximaEmMillis, TimeUnit.MILLISECONDS)) {
+            return false;
+        }
+        try {
+            if (extensao != null) {
+                extensao.publicar(destino, payload, qos).whenComplete((resultado, e) -> {
+                    janelaDeEnvio.release();
+                    if (e != null) {
+                        registrarFalhaDeEnvio(destino, e);
+                    }
+                });
+            } else {
+                MqttMessage mqttMessage = new MqttMessage(payload);
+                mqttMessage.setQos(qos);
+                cliente.publish(destino, mqttMessage, destino, confirmacaoDeEnvio);
+            }
+        } catch (MqttException | RuntimeException e) {
+            janelaDeEnvio.release();
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Escolhe o nível de QoS da publicação de uma mensagem. O campo {@code qos} do {@code metadata} da mensagem
+     * prevalece quando informado; caso contrário, é usado o nível registrado no barramento para o destino, ou
+     * {@code 0} se a própria mensagem estiver no modo {@link ModoDeEntrega#NAO_CONFIRMAVEL}. Mensagens recebidas via
+     * MQTT não são encaminhadas com um nível maior que o da sua recepção.
+     *
+     * @param mensagem A {@link Mensagem} a ser enviada.
+     * @return O nível de QoS (0, 1 ou 2).
+     */
+    int getNivelDeQos(Mensagem mensagem) {
+        int nivel = lerNivelDeQosDoMetadata(mensagem);
+        if (nivel >= 0) {
+            return nivel;
+        }
+
+        nivel = mensagem.getModoDeEntrega() == ModoDeEntrega.NAO_CONFIRMAVEL
+                ? 0
+                : getNivelDeQosDoDestino(mensagem.getDestino());
+        return mensagem.getQosDeRecepcao() >= 0 ? Math.min(nivel, mensagem.getQosDeRecepcao()) : nivel;
+    }
+
+    /**
+     * @return O nível de QoS do campo {@code qos} do {@code metadata}, ou {@code -1} se o campo estiver ausente ou não
+     * for 0, 1 ou 2.
+     */
+    private static int lerNivelDeQosDoMetadata(Mensagem mensagem) {
+        try {
+            JsonElement valor = mensagem.getCampoDoMetadata(CAMPO_QOS);
+            if (valor != null && valor.isJsonPrimitive() && valor.getAsJsonPrimitive().isNumber()) {
+                int nivel = valor.getAsInt();
+                if (nivel >= 0 && nivel <= 2) {
+                    return nivel;
+                }
+            }
+        } catch (RuntimeException e) {
+            LogUtils.logDebug("Campo '%s' do metadata ignorado: %s", CAMPO_QOS, e.getMessage());
+        }
+        return -1;
+    }
+
+    private static void registrarFalhaDeEnvio(Object destino, Throwable e) {
+        LogUtils.logError("Falha na entrega da mensagem via MQTT para '%s': %s", destino,
+                e == null ? "desconhecida" : e.getMessage());
+    }
+
+    /**
+     * @return A quantidade de publicações aguardando a confirmação do broker.
+     */
+    public int getMensagensEmVoo() {
+        return maximoDeMensagensEmVoo - janelaDeEnvio.availablePermits();
+    }
+
+    /**
+     * Desconecta o cliente MQTT e libera os recursos utilizados, aguardando a confirmação das publicações em voo.
      */
     public void desconectar() {
+        if (extensao != null) {
+            extensao.desconectar();
+            aguardarPublicacoesEmVoo();
+            LogUtils.logInfo("Barramento desconectado do broker MQTT embarcado.");
+            return;
+        }
         try {
-            cliente.disconnect();
+            cliente.disconnect().waitForCompletion();
+            cliente.close();
             LogUtils.logInfo("Cliente MQTT desconectado.");
         } catch (MqttException e) {
             LogUtils.logError("Erro ao desconectar o client MQTT: %s", e.getMessage());
         }
     }
 
+    /**
+     * Aguarda, por até {@value #RETRY_DELAY_MS} ms, a conclusão das publicações em voo.
+     */
+    private void aguardarPublicacoesEmVoo() {
+        try {
+            if (janelaDeEnvio.tryAcquire(maximoDeMensagensEmVoo, RETRY_DELAY_MS, TimeUnit.MILLISECONDS)) {
+                janelaDeEnvio.release(maximoDeMensagensEmVoo);
+            } else {
+                LogUtils.logWarn("%d publicação(ões) MQTT ainda em voo no encerramento.", getMensagensEmVoo());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /**
      * Método chamado quando uma mensagem é recebida via MQTT.
      *
@@ -100,24 +416,40 @@ public class ProtocoloMQTT extends Protocolo implements MqttCallback {
      */
     @Override
     public void messageArrived(String topico, MqttMessage message) {
+        receberPublicacao(topico, message.getPayload(), message.getQos());
+    }
+
+    /**
+     * Trata uma publicação recebida em um dos tópicos do barramento, pelo cliente MQTT ou pela
+     * {@link ExtensaoDoBarramento}, e a adiciona à fila do controlador. Executado na thread de callback do cliente ou
+     * na thread do broker embarcado, aguarda no máximo {@value #ESPERA_MAXIMA_NO_CALLBACK_MS} ms por espaço na fila
+     * de recepção e descarta a publicação se a fila continuar cheia.
+     *
+     * @param topico  O tópico no qual a publicação foi recebida.
+     * @param payload O payload da publicação.
+     * @param qos     O nível de QoS da publicação.
+     */
+    private void receberPublicacao(String topico, byte[] payload, int qos) {
+        if (topico.startsWith(TOPICO_REPLICACAO + "/")) {
+            aplicarReplica(topico, payload);
+            return;
+        }
         try {
-            String payload = new String(message.getPayload());
-            LogUtils.logInfo("Mensagem recebida via MQTT: %s", payload);
-            Mensagem mensagemRecebida = Mensagem.fromJson(payload);
+            long inicio = System.nanoTime();
+            FormatoDeMensagem formato = TOPICO_BINARIO.equals(topico)
+                    ? FormatoDeMensagem.BINARIO
+                    : FormatoDeMensagem.JSON;
+            Mensagem mensagemRecebida = Mensagem.fromBytes(payload, formato);
+            mensagemRecebida.setQosDeRecepcao(qos);
+            registrarLatenciaDeRecepcao(mensagemRecebida, inicio);
+            LogUtils.logInfo("Mensagem recebida via MQTT de '%s' para '%s' com a ação %s (%d bytes, %s).",
+                    mensagemRecebida.getOrigem(), mensagemRecebida.getDestino(), mensagemRecebida.getAcao(),
+                    payload.length, formato.getNome());
 
             String acao = mensagemRecebida.getAcao();
             String destino = mensagemRecebida.getDestino();
 
-            String sufixo_timestamp = "";
-            if (mensagemRecebida.getOrigem().contains("cliente")) {
-                sufixo_timestamp += "_cliente";
-            } else if (mensagemRecebida.getOrigem().contains("servidor")) {
-                sufixo_timestamp += "_servidor";
-            } else if (mensagemRecebida.getOrigem().contains("embarcado")) {
-                sufixo_timestamp += "_embarcado";
-            }
-            mensagemRecebida.adicionarTimestampAoMetadata(
-                    String.format("timestamp_bus_msg_recebida%s", sufixo_timestamp));
+            adicionarTimestampDeRecepcao(mensagemRecebida);
 
             if (acao.equals("ENVIAR_MENSAGEM") && destino.isEmpty()) {
                 JsonObject conteudoErro = new JsonObject();
@@ -130,17 +462,78 @@ public class ProtocoloMQTT extends Protocolo implements MqttCallback {
                         conteudoErro
                 );
 
-                this.enviarMensagem(mensagemErro);
+                // Executado na thread de callback do cliente: não aguarda sem limite pela janela de envio
+                this.enviarMensagem(mensagemErro, formato, ESPERA_MAXIMA_NO_CALLBACK_MS);
                 return;
             }
 
+            if (modoCluster && ACOES_REPLICADAS.contains(acao)) {
+                replicar(payload, formato, acao);
+            }
+
             ControladorDoProtocoloMQTT controlador = (ControladorDoProtocoloMQTT) getControlador();
-            controlador.adicionarMensagemAFila(mensagemRecebida);
+            if (!controlador.adicionarMensagemAFila(mensagemRecebida, ESPERA_MAXIMA_NO_CALLBACK_MS)) {
+                LogUtils.logWarn("Fila de recepção cheia. Publicação de '%s' com a ação %s descartada.",
+                        mensagemRecebida.getOrigem(), acao);
+            }
         } catch (Exception e) {
             LogUtils.logError("Erro ao processar mensagem recebida: %s", e.getMessage());
         }
     }
 
+    /**
+     * Republica uma ação que altera os cadastros da instância no tópico de replicação, para que as demais instâncias
+     * do cluster a apliquem. Executado na thread de callback, aguarda no máximo {@value #ESPERA_MAXIMA_NO_CALLBACK_MS}
+     * ms pela janela de envio.
+     *
+     * @param payload O payload original da publicação.
+     * @param formato O {@link FormatoDeMensagem} do payload.
+     * @param acao    A ação da mensagem.
+     */
+    private void replicar(byte[] payload, FormatoDeMensagem formato, String acao) {
+        String topico = String.format("%s/%s/%s", TOPICO_REPLICACAO, formato.getNome(), identificador);
+        try {
+            if (!publicar(topico, payload, 1, ESPERA_MAXIMA_NO_CALLBACK_MS)) {
+                LogUtils.logWarn("Janela de envio MQTT cheia. Replicação da ação %s descartada.", acao);
+            }
+        } catch (MqttException | RuntimeException e) {
+            LogUtils.logError("Erro ao replicar a ação %s: %s", acao, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LogUtils.logError("Replicação da ação %s interrompida.", acao);
+        }
+    }
+
+    /**
+     * Aplica uma ação replicada por outra instância do cluster, executando o comando diretamente e descartando a
+     * resposta, que já foi enviada ao dispositivo pela instância que recebeu a requisição. As publicações da própria
+     * instância são ignoradas.
+     *
+     * @param topico  O tópico de replicação, no formato {@code topico/barramento/replicacao/<formato>/<identificador>}.
+     * @param payload O payload da ação replicada.
+     */
+    private void aplicarReplica(String topico, byte[] payload) {
+        String[] partes = topico.substring(TOPICO_REPLICACAO.length() + 1).split("/", 2);
+        if (partes.length < 2 || partes[1].equals(identificador)) {
+            return;
+        }
+        try {
+            FormatoDeMensagem formato = FormatoDeMensagem.deNome(partes[0]);
+            Mensagem mensagem = Mensagem.fromBytes(payload, formato != null ? formato : FormatoDeMensagem.JSON);
+            Barramento barramento = getControlador().getBarramento();
+            Comando comando = barramento.getRegistroDeComandos().buscar(mensagem.getAcao());
+            if (!ACOES_REPLICADAS.contains(mensagem.getAcao()) || comando == null) {
+                LogUtils.logWarn("Ação replicada %s ignorada.", mensagem.getAcao());
+                return;
+            }
+            comando.executar(mensagem, barramento, this);
+            LogUtils.logInfo("Ação %s de '%s' replicada pela instância '%s'.", mensagem.getAcao(),
+                    mensagem.getOrigem(), partes[1]);
+        } catch (Exception e) {
+            LogUtils.logError("Erro ao aplicar a ação replicada pela instância '%s': %s", partes[1], e.getMessage());
+        }
+    }
+
     /**
      * Método chamado quando a conexão MQTT é perdida.
      *
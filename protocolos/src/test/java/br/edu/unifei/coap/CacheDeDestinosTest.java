@@ -0,0 +1,144 @@
+package br.edu.unifei.coap;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class CacheDeDestinosTest {
+
+    private final AtomicLong relogio = new AtomicLong();
+    private final AtomicInteger resolucoes = new AtomicInteger();
+    private final AtomicBoolean dnsIndisponivel = new AtomicBoolean();
+
+    /**
+     * Resolve qualquer host para o loopback, exceto os terminados em ".invalido" ou com o DNS indisponível, contando
+     * as resoluções.
+     */
+    private final BiFunction<String, Integer, InetSocketAddress> resolvedor = (host, porta) -> {
+        resolucoes.incrementAndGet();
+        return host.endsWith(".invalido") || dnsIndisponivel.get()
+                ? InetSocketAddress.createUnresolved(host, porta)
+                : new InetSocketAddress("127.0.0.1", porta);
+    };
+
+    private CacheDeDestinos criarCache(int maximoDeDestinos) {
+        return new CacheDeDestinos(maximoDeDestinos, 1_000, 100, relogio::get, resolvedor);
+    }
+
+    private void avancar(long millis) {
+        relogio.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    @DisplayName("Teste de Análise e Reutilização do Destino")
+    public void testDestinoReutilizado() {
+        CacheDeDestinos cache = criarCache(CacheDeDestinos.MAXIMO_DE_DESTINOS_PADRAO);
+        CacheDeDestinos.Destino destino = cache.resolver("servidor:5684/coap/barramento");
+
+        assertTrue(destino.isValido());
+        assertEquals(5684, destino.getEndereco().getPort());
+        assertEquals("/coap/barramento", destino.getCaminho());
+        assertEquals("/", cache.resolver("servidor:5684").getCaminho());
+        for (int i = 0; i < 1_000; i++) {
+            assertSame(destino, cache.resolver("servidor:5684/coap/barramento"));
+        }
+        assertEquals(2, resolucoes.get());
+    }
+
+    @Test
+    @DisplayName("Teste de Nova Resolução Após a Validade")
+    public void testNovaResolucaoAposValidade() {
+        CacheDeDestinos cache = criarCache(CacheDeDestinos.MAXIMO_DE_DESTINOS_PADRAO);
+        CacheDeDestinos.Destino destino = cache.resolver("servidor:5683/coap/barramento");
+        avancar(999);
+        assertSame(destino, cache.resolver("servidor:5683/coap/barramento"));
+        avancar(1);
+
+        CacheDeDestinos.Destino renovado = cache.resolver("servidor:5683/coap/barramento");
+        assertNotSame(destino, renovado);
+        assertEquals(destino.getCaminho(), renovado.getCaminho());
+        assertEquals(2, resolucoes.get());
+    }
+
+    @Test
+    @DisplayName("Teste de Endereço Mantido em Falha na Revalidação")
+    public void testEnderecoMantidoEmFalhaNaRevalidacao() {
+        CacheDeDestinos cache = criarCache(CacheDeDestinos.MAXIMO_DE_DESTINOS_PADRAO);
+        CacheDeDestinos.Destino destino = cache.resolver("servidor:5683/coap/barramento");
+        dnsIndisponivel.set(true);
+        avancar(1_000);
+
+        CacheDeDestinos.Destino mantido = cache.resolver("servidor:5683/coap/barramento");
+        assertTrue(mantido.isValido(), "Uma falha temporária não deve invalidar o destino");
+        assertEquals(destino.getEndereco(), mantido.getEndereco());
+        assertSame(mantido, cache.resolver("servidor:5683/coap/barramento"));
+        assertEquals(2, resolucoes.get());
+
+        avancar(100);
+        assertTrue(cache.resolver("servidor:5683/coap/barramento").isValido());
+        assertEquals(3, resolucoes.get(), "A resolução deve ser repetida após a validade negativa");
+
+        dnsIndisponivel.set(false);
+        avancar(100);
+        CacheDeDestinos.Destino renovado = cache.resolver("servidor:5683/coap/barramento");
+        assertTrue(renovado.isValido());
+        assertSame(renovado, cache.resolver("servidor:5683/coap/barramento"));
+        avancar(999);
+        assertSame(renovado, cache.resolver("servidor:5683/coap/barramento"),
+                "Após a recuperação, o destino deve voltar à validade normal");
+    }
+
+    @Test
+    @DisplayName("Teste de Destinos Inválidos Mantidos no Cache")
+    public void testDestinosInvalidos() {
+        CacheDeDestinos cache = criarCache(CacheDeDestinos.MAXIMO_DE_DESTINOS_PADRAO);
+        String[] invalidos = {"", "sem-porta/coap", ":5683/coap", "servidor:porta/coap", "servidor:0/coap",
+                "servidor:70000/coap"};
+        for (String invalido : invalidos) {
+            CacheDeDestinos.Destino destino = cache.resolver(invalido);
+            assertFalse(destino.isValido(), invalido);
+            assertNotNull(destino.getErro());
+            assertNull(destino.getEndereco());
+            assertSame(destino, cache.resolver(invalido));
+        }
+        assertFalse(cache.resolver(null).isValido());
+        assertEquals(0, resolucoes.get(), "Destinos malformados não devem ser resolvidos");
+
+        CacheDeDestinos.Destino naoResolvido = cache.resolver("host.invalido:5683/coap");
+        assertFalse(naoResolvido.isValido());
+        assertSame(naoResolvido, cache.resolver("host.invalido:5683/coap"));
+        assertEquals(1, resolucoes.get());
+
+        avancar(100);
+        assertNotSame(naoResolvido, cache.resolver("host.invalido:5683/coap"));
+        assertEquals(2, resolucoes.get());
+    }
+
+    @Test
+    @DisplayName("Teste de Limite de Destinos")
+    public void testLimiteDeDestinos() {
+        CacheDeDestinos cache = criarCache(2);
+        CacheDeDestinos.Destino primeiro = cache.resolver("servidor:1/coap");
+        avancar(10);
+        CacheDeDestinos.Destino segundo = cache.resolver("servidor:2/coap");
+        avancar(10);
+        cache.resolver("servidor:3/coap");
+
+        assertEquals(2, cache.getQuantidadeDeDestinos());
+        assertSame(segundo, cache.resolver("servidor:2/coap"));
+        assertNotSame(primeiro, cache.resolver("servidor:1/coap"), "O destino mais antigo deve ser descartado");
+
+        cache.invalidar("servidor:2/coap");
+        assertNotSame(segundo, cache.resolver("servidor:2/coap"));
+        assertThrows(IllegalArgumentException.class, () -> new CacheDeDestinos(0, 1_000, 100));
+    }
+}
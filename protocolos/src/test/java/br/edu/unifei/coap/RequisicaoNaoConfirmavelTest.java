@@ -0,0 +1,65 @@
+package br.edu.unifei.coap;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class RequisicaoNaoConfirmavelTest {
+
+    @Test
+    @DisplayName("Teste de Codificação da Requisição NON")
+    public void testCodificacao() {
+        byte[] datagrama = RequisicaoNaoConfirmavel.codificar(0x1234, "/coap/barramento", 60, new byte[]{1, 2});
+
+        ByteArrayOutputStream esperado = new ByteArrayOutputStream();
+        esperado.write(0x50); // Versão 1, NON, sem token
+        esperado.write(0x02); // POST
+        esperado.write(0x12);
+        esperado.write(0x34);
+        esperado.write(0xb4); // Uri-Path "coap"
+        esperado.write("coap".getBytes(StandardCharsets.UTF_8), 0, 4);
+        esperado.write(0x0a); // Uri-Path "barramento"
+        esperado.write("barramento".getBytes(StandardCharsets.UTF_8), 0, 10);
+        esperado.write(0x11); // Content-Format 60
+        esperado.write(60);
+        esperado.write(0xd1); // No-Response, delta estendido 246
+        esperado.write(246 - 13);
+        esperado.write(0x1a);
+        esperado.write(0xff);
+        esperado.write(1);
+        esperado.write(2);
+
+        assertArrayEquals(esperado.toByteArray(), datagrama);
+        assertFalse(RequisicaoNaoConfirmavel.isRespostaNaoConfirmavel(datagrama), "Uma requisição não é resposta");
+    }
+
+    @Test
+    @DisplayName("Teste de Opções com Extensão de Dois Bytes")
+    public void testOpcaoLonga() {
+        StringBuilder segmento = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            segmento.append('a');
+        }
+        byte[] datagrama = RequisicaoNaoConfirmavel.codificar(1, "/" + segmento, 50, new byte[0]);
+
+        assertEquals((byte) 0xbe, datagrama[4]); // Delta 11, tamanho em extensão de 2 bytes
+        assertEquals(0, datagrama[5]);
+        assertEquals(300 - 269, datagrama[6]);
+        assertEquals(4 + 3 + 300 + 2 + 3, datagrama.length, "Sem payload, o marcador não deve ser escrito");
+    }
+
+    @Test
+    @DisplayName("Teste de Identificação de Respostas NON")
+    public void testRespostaNaoConfirmavel() {
+        assertTrue(RequisicaoNaoConfirmavel.isRespostaNaoConfirmavel(new byte[]{0x50, 0x44, 0, 1})); // NON 2.04
+        assertFalse(RequisicaoNaoConfirmavel.isRespostaNaoConfirmavel(new byte[]{0x60, 0x44, 0, 1})); // ACK 2.04
+        assertFalse(RequisicaoNaoConfirmavel.isRespostaNaoConfirmavel(new byte[]{0x40, 0x44, 0, 1})); // CON 2.04
+        assertFalse(RequisicaoNaoConfirmavel.isRespostaNaoConfirmavel(new byte[]{0x50, 0x02, 0, 1})); // NON POST
+        assertFalse(RequisicaoNaoConfirmavel.isRespostaNaoConfirmavel(new byte[]{0x50}));
+    }
+}
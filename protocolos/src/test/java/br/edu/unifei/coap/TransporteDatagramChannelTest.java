@@ -0,0 +1,128 @@
+package br.edu.unifei.coap;
+
+import com.mbed.coap.packet.CoapPacket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedChannelException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class TransporteDatagramChannelTest {
+
+    private static final int PORTA = 5783;
+
+    private TransporteDatagramChannel transporte;
+
+    @AfterEach
+    public void tearDown() {
+        if (transporte != null) {
+            transporte.stop();
+            transporte = null;
+        }
+    }
+
+    /**
+     * Cria um POST CoAP confirmável, sem token e sem opções, com o identificador informado.
+     */
+    private static byte[] requisicao(int identificador) {
+        return new byte[]{0x40, 0x02, (byte) (identificador >> 8), (byte) identificador};
+    }
+
+    private static ConfiguracaoDoTransporteCoAP configuracao(int threads) {
+        return ConfiguracaoDoTransporteCoAP.padrao()
+                .usarDatagramChannel(true)
+                .threadsDeRecepcao(threads)
+                .tamanhoDoBufferDeRecepcao(4 * 1024 * 1024);
+    }
+
+    @Test
+    @DisplayName("Teste de Recepção com Várias Threads")
+    public void testRecepcaoComVariasThreads() throws Exception {
+        transporte = new TransporteDatagramChannel(PORTA, configuracao(4));
+        transporte.start();
+        assertTrue(transporte.getQuantidadeDeSockets() >= 1);
+
+        int quantidade = 1_000;
+        try (DatagramSocket cliente = new DatagramSocket()) {
+            for (int i = 0; i < quantidade; i++) {
+                byte[] dados = requisicao(i);
+                cliente.send(new DatagramPacket(dados, dados.length, InetAddress.getLoopbackAddress(), PORTA));
+            }
+        }
+
+        Set<Integer> identificadores = new HashSet<>();
+        for (int i = 0; i < quantidade; i++) {
+            CoapPacket pacote = transporte.receive().get(5, TimeUnit.SECONDS);
+            identificadores.add(pacote.getMessageId());
+        }
+        assertEquals(quantidade, identificadores.size(), "Todos os pacotes devem ser entregues uma única vez");
+        assertEquals(0, transporte.getPacotesDescartados());
+    }
+
+    @Test
+    @DisplayName("Teste de Envio da Resposta ao Remetente")
+    public void testEnvioAoRemetente() throws Exception {
+        transporte = new TransporteDatagramChannel(PORTA, configuracao(2).reutilizarPorta(false));
+        transporte.start();
+        assertEquals(1, transporte.getQuantidadeDeSockets());
+
+        try (DatagramSocket cliente = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            cliente.setSoTimeout(5_000);
+            byte[] dados = requisicao(0x1234);
+            cliente.send(new DatagramPacket(dados, dados.length, InetAddress.getLoopbackAddress(), PORTA));
+
+            CoapPacket pacote = transporte.receive().get(5, TimeUnit.SECONDS);
+            assertEquals(0x1234, pacote.getMessageId());
+            assertEquals(cliente.getLocalSocketAddress(), pacote.getRemoteAddress());
+            assertTrue(transporte.sendPacket(pacote).get(5, TimeUnit.SECONDS));
+
+            DatagramPacket resposta = new DatagramPacket(new byte[64], 64);
+            cliente.receive(resposta);
+            assertEquals(dados.length, resposta.getLength());
+            assertEquals(PORTA, resposta.getPort());
+        }
+    }
+
+    @Test
+    @DisplayName("Teste de Descarte das Respostas a Requisições NON")
+    public void testRespostaNaoConfirmavelDescartada() throws Exception {
+        transporte = new TransporteDatagramChannel(PORTA, configuracao(1));
+        transporte.start();
+
+        try (DatagramSocket cliente = new DatagramSocket(0, InetAddress.getLoopbackAddress())) {
+            cliente.setSoTimeout(500);
+            byte[] respostaNon = {0x50, 0x44, 0x00, 0x01};
+            cliente.send(new DatagramPacket(respostaNon, respostaNon.length, InetAddress.getLoopbackAddress(), PORTA));
+
+            CoapPacket pacote = transporte.receive().get(5, TimeUnit.SECONDS);
+            assertTrue(transporte.sendPacket(pacote).get(5, TimeUnit.SECONDS));
+            assertThrows(SocketTimeoutException.class, () -> cliente.receive(new DatagramPacket(new byte[64], 64)),
+                    "A resposta NON não deve ser enviada");
+        }
+    }
+
+    @Test
+    @DisplayName("Teste de Encerramento do Transporte")
+    public void testEncerramento() throws Exception {
+        transporte = new TransporteDatagramChannel(PORTA, configuracao(2));
+        transporte.start();
+        CompletableFuture<CoapPacket> pendente = transporte.receive();
+        transporte.stop();
+
+        ExecutionException erro = assertThrows(ExecutionException.class, () -> pendente.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ClosedChannelException.class, erro.getCause());
+        assertTrue(transporte.receive().isCompletedExceptionally());
+    }
+}
@@ -0,0 +1,205 @@
+package br.edu.unifei.mqtt;
+
+import br.edu.unifei.barramento.Barramento;
+import br.edu.unifei.barramento.ConfiguracaoDoControlador;
+import br.edu.unifei.barramento.gerenciamento.GerenciadorDeServicos;
+import br.edu.unifei.modelos.mensagem.Mensagem;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.google.gson.JsonObject;
+import org.eclipse.paho.client.mqttv3.IMqttActionListener;
+import org.eclipse.paho.client.mqttv3.IMqttToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede a vazão do barramento em modo cluster variando a quantidade de instâncias de 1 até N. Cada instância é um
+ * processo separado conectado ao broker embarcado com uma assinatura compartilhada; o processo principal publica as
+ * mensagens no tópico do barramento e aguarda as respostas. Cada instância processa as mensagens com um único worker
+ * e um custo fixo por mensagem, de modo que a vazão deve crescer com a quantidade de instâncias enquanto houver
+ * núcleos disponíveis.
+ *
+ * <p>
+ *     Execução: {@code java -cp <classpath de testes> br.edu.unifei.mqtt.ClusterMQTTBenchmark [maximoDeInstancias]
+ *     [mensagens] [custoPorMensagemEmMicrossegundos]}. Com {@code -D}{@value #PROPRIEDADE_URL}{@code =<url>}, o broker
+ *     embarcado não é iniciado e o processo principal e as instâncias se conectam ao broker informado.
+ * </p>
+ */
+@SuppressWarnings("unused")
+public class ClusterMQTTBenchmark {
+
+    private static final String ACAO = "PROCESSAR_BENCHMARK";
+    private static final String GRUPO = "benchmark";
+    private static final String TOPICO_DO_BARRAMENTO = "topico/barramento";
+    private static final String TOPICO_DE_RESPOSTAS = "benchmark/cluster/respostas";
+    private static final String PRONTO = "PRONTO";
+    private static final String PROPRIEDADE_URL = "barramento.mqtt.url";
+    private static final String URL = System.getProperty(PROPRIEDADE_URL,
+            ConfiguracaoDoProtocoloMQTT.URL_DO_BROKER_PADRAO);
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("instancia")) {
+            executarInstancia(Long.parseLong(args[1]));
+            return;
+        }
+
+        int maximoDeInstancias = args.length > 0 ? Integer.parseInt(args[0])
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int mensagens = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        long custo = args.length > 2 ? Long.parseLong(args[2]) : 200;
+
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        BrokerMQTT broker = System.getProperty(PROPRIEDADE_URL) == null ? new BrokerMQTT() : null;
+        if (broker != null) {
+            broker.startBroker();
+        }
+        try {
+            System.out.printf("Mensagens: %d, custo por mensagem: %d µs%n", mensagens, custo);
+            double vazaoComUmaInstancia = 0;
+            for (int instancias = 1; instancias <= maximoDeInstancias; instancias *= 2) {
+                double vazao = medir(instancias, mensagens, custo);
+                if (instancias == 1) {
+                    vazaoComUmaInstancia = vazao;
+                }
+                System.out.printf("%3d instância(s): %,10.0f msg/s (%.2fx)%n", instancias, vazao,
+                        vazao / vazaoComUmaInstancia);
+            }
+        } finally {
+            if (broker != null) {
+                broker.stopBroker();
+            }
+        }
+    }
+
+    /**
+     * Inicia as instâncias, publica as mensagens e retorna a vazão em mensagens por segundo, medida até a chegada da
+     * última resposta.
+     */
+    private static double medir(int instancias, int mensagens, long custo) throws Exception {
+        List<Process> processos = new ArrayList<>();
+        MqttAsyncClient publicador = null;
+        try {
+            for (int i = 0; i < instancias; i++) {
+                processos.add(iniciarInstancia(custo));
+            }
+
+            CountDownLatch respostas = new CountDownLatch(mensagens);
+            publicador = new MqttAsyncClient(URL, "cluster_benchmark", new MemoryPersistence());
+            MqttConnectOptions opcoes = new MqttConnectOptions();
+            opcoes.setCleanSession(true);
+            opcoes.setMaxInflight(1024);
+            publicador.connect(opcoes).waitForCompletion();
+            publicador.subscribe(TOPICO_DE_RESPOSTAS, 1, (topico, mensagem) -> respostas.countDown())
+                    .waitForCompletion();
+
+            Semaphore janela = new Semaphore(1024);
+            IMqttActionListener confirmacao = new IMqttActionListener() {
+                @Override
+                public void onSuccess(IMqttToken token) {
+                    janela.release();
+                }
+
+                @Override
+                public void onFailure(IMqttToken token, Throwable e) {
+                    janela.release();
+                }
+            };
+
+            JsonObject conteudo = new JsonObject();
+            conteudo.addProperty("leitura", 42);
+            byte[] payload = new Mensagem(ACAO, TOPICO_DE_RESPOSTAS, "", conteudo).toBytes();
+
+            long inicio = System.nanoTime();
+            for (int i = 0; i < mensagens; i++) {
+                janela.acquire();
+                MqttMessage mensagem = new MqttMessage(payload);
+                mensagem.setQos(1);
+                publicador.publish(TOPICO_DO_BARRAMENTO, mensagem, null, confirmacao);
+            }
+            if (!respostas.await(5, TimeUnit.MINUTES)) {
+                throw new IllegalStateException(String.format("Apenas %d de %d respostas recebidas.",
+                        mensagens - respostas.getCount(), mensagens));
+            }
+            return mensagens / ((System.nanoTime() - inicio) / 1e9);
+        } finally {
+            if (publicador != null && publicador.isConnected()) {
+                publicador.disconnect().waitForCompletion();
+                publicador.close();
+            }
+            for (Process processo : processos) {
+                processo.destroy();
+                processo.waitFor(10, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    /**
+     * Inicia um processo de instância e aguarda que ele sinalize que está conectado ao broker.
+     */
+    private static Process iniciarInstancia(long custo) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process processo = new ProcessBuilder(java, "-D" + PROPRIEDADE_URL + "=" + URL,
+                "-cp", System.getProperty("java.class.path"),
+                ClusterMQTTBenchmark.class.getName(), "instancia", Long.toString(custo))
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+
+        BufferedReader saida = new BufferedReader(new InputStreamReader(processo.getInputStream(),
+                StandardCharsets.UTF_8));
+        String linha;
+        while ((linha = saida.readLine()) != null) {
+            if (linha.equals(PRONTO)) {
+                // Continua lendo a saída da instância para que ela não bloqueie ao escrever no log
+                Thread leitor = new Thread(() -> saida.lines().forEach(System.out::println));
+                leitor.setDaemon(true);
+                leitor.start();
+                return processo;
+            }
+        }
+        throw new IOException("A instância foi encerrada antes de se conectar ao broker.");
+    }
+
+    /**
+     * Executa uma instância do barramento em modo cluster com um comando que simula o custo de processamento.
+     */
+    private static void executarInstancia(long custo) throws InterruptedException {
+        ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        long custoNanos = TimeUnit.MICROSECONDS.toNanos(custo);
+
+        Barramento barramento = new Barramento(new GerenciadorDeServicos());
+        barramento.getRegistroDeComandos().registrar(ACAO, (mensagem, b, protocolo) -> {
+            long fim = System.nanoTime() + custoNanos;
+            while (System.nanoTime() < fim) {
+                // Espera ativa, ocupando o processador como um comando com esse custo
+            }
+            JsonObject resultado = new JsonObject();
+            resultado.addProperty("resultado", "processado");
+            return new Mensagem("RESULTADO_BENCHMARK", "barramento", mensagem.getOrigem(), resultado);
+        });
+
+        ControladorDoProtocoloMQTT controlador = new ControladorDoProtocoloMQTT(barramento,
+                ConfiguracaoDoControlador.padrao().numeroDeWorkers(1),
+                ConfiguracaoDoProtocoloMQTT.padrao().grupoCompartilhado(GRUPO).urlDoBroker(URL));
+        controlador.iniciar();
+        System.out.println(PRONTO);
+        System.out.flush();
+
+        Runtime.getRuntime().addShutdownHook(new Thread(controlador::parar));
+        Thread.currentThread().join();
+    }
+}
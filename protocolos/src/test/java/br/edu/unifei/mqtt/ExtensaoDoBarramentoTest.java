@@ -0,0 +1,91 @@
+package br.edu.unifei.mqtt;
+
+import br.edu.unifei.barramento.Barramento;
+import br.edu.unifei.barramento.ConfiguracaoDoControlador;
+import br.edu.unifei.barramento.gerenciamento.GerenciadorDeServicos;
+import br.edu.unifei.modelos.mensagem.Mensagem;
+import com.google.gson.JsonObject;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("unused")
+public class ExtensaoDoBarramentoTest {
+
+    private static final String TOPICO_DO_BARRAMENTO = "topico/barramento";
+    private static final String TOPICO_DO_DISPOSITIVO = "dispositivo/teste";
+
+    private BrokerMQTT broker;
+    private ControladorDoProtocoloMQTT controlador;
+    private MqttAsyncClient dispositivo;
+
+    @BeforeEach
+    public void setUp() throws MqttException {
+        ExtensaoDoBarramento extensao = new ExtensaoDoBarramento();
+        broker = new BrokerMQTT(extensao);
+        broker.startBroker();
+        assertTrue(extensao.isIniciada());
+
+        Barramento barramento = new Barramento(new GerenciadorDeServicos());
+        barramento.getRegistroDeComandos().registrar("ECO", (mensagem, b, protocolo) -> {
+            JsonObject resultado = new JsonObject();
+            resultado.addProperty("eco", mensagem.getConteudo().get("valor").getAsInt());
+            return new Mensagem("RESULTADO_ECO", "barramento", mensagem.getOrigem(), resultado);
+        });
+        controlador = new ControladorDoProtocoloMQTT(barramento, ConfiguracaoDoControlador.padrao(),
+                ConfiguracaoDoProtocoloMQTT.padrao().extensaoEmbarcada(extensao));
+        controlador.iniciar();
+
+        dispositivo = new MqttAsyncClient("tcp://localhost:1883", "dispositivo_teste", new MemoryPersistence());
+        MqttConnectOptions opcoes = new MqttConnectOptions();
+        opcoes.setCleanSession(true);
+        dispositivo.connect(opcoes).waitForCompletion();
+    }
+
+    @AfterEach
+    public void tearDown() throws MqttException {
+        dispositivo.disconnect().waitForCompletion();
+        dispositivo.close();
+        controlador.parar();
+        broker.stopBroker();
+    }
+
+    @Test
+    @DisplayName("Teste de Troca de Mensagens pela Extensão do Broker")
+    public void testTrocaDeMensagensPelaExtensao() throws Exception {
+        BlockingQueue<MqttMessage> respostas = new LinkedBlockingQueue<>();
+        AtomicInteger entreguesAoTopicoDoBarramento = new AtomicInteger();
+        dispositivo.subscribe(TOPICO_DO_DISPOSITIVO, 1, (topico, mensagem) -> respostas.add(mensagem))
+                .waitForCompletion();
+        dispositivo.subscribe(TOPICO_DO_BARRAMENTO, 1,
+                (topico, mensagem) -> entreguesAoTopicoDoBarramento.incrementAndGet()).waitForCompletion();
+
+        JsonObject conteudo = new JsonObject();
+        conteudo.addProperty("valor", 42);
+        MqttMessage requisicao = new MqttMessage(new Mensagem("ECO", TOPICO_DO_DISPOSITIVO, "", conteudo).toBytes());
+        requisicao.setQos(1);
+        dispositivo.publish(TOPICO_DO_BARRAMENTO, requisicao).waitForCompletion();
+
+        MqttMessage resposta = respostas.poll(5, TimeUnit.SECONDS);
+        assertNotNull(resposta, "A resposta deve ser publicada no tópico do dispositivo");
+        Mensagem mensagem = Mensagem.fromJson(resposta.getPayload());
+        assertEquals("RESULTADO_ECO", mensagem.getAcao());
+        assertEquals(42, mensagem.getConteudo().get("eco").getAsInt());
+        assertEquals(1, resposta.getQos(), "A resposta deve ser publicada com o nível de QoS padrão do destino");
+        assertEquals(0, entreguesAoTopicoDoBarramento.get(),
+                "As publicações no tópico do barramento não devem ser roteadas aos assinantes");
+    }
+}
@@ -1,14 +1,23 @@
 package br.edu.unifei.mqtt;
 
+import br.edu.unifei.barramento.Barramento;
+import br.edu.unifei.barramento.ConfiguracaoDoControlador;
+import br.edu.unifei.barramento.gerenciamento.GerenciadorDeServicos;
 import br.edu.unifei.modelos.mensagem.Mensagem;
+import br.edu.unifei.modelos.mensagem.ModoDeEntrega;
 import com.google.gson.JsonObject;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @SuppressWarnings("unused")
 public class ProtocoloMQTTTest {
@@ -46,19 +55,112 @@ public class ProtocoloMQTTTest {
         Thread.sleep(2000);
 
         // Verifica se a mensagem foi recebida corretamente (simula a chegada)
-        protocoloMQTT.cliente.subscribe(TEST_TOPIC, (topico, mensagemRecebida) -> {
+        protocoloMQTT.cliente.subscribe(TEST_TOPIC, 1, (topico, mensagemRecebida) -> {
             String payload = new String(mensagemRecebida.getPayload());
             Mensagem mensagemProcessada = Mensagem.fromJson(payload);
             assertEquals(TEST_ORIGEM, mensagemProcessada.getOrigem());
             assertEquals(TEST_ACAO, mensagemProcessada.getAcao());
             assertEquals(TEST_DESTINO, mensagemProcessada.getDestino());
             assertEquals(TEST_CONTEUDO.toString(), mensagemProcessada.getConteudo().toString());
-        });
+        }).waitForCompletion();
 
         // Tempo para processar a mensagem recebida
         Thread.sleep(2000);
     }
 
+    @Test
+    public void testJanelaDeEnvio() throws InterruptedException {
+        protocoloMQTT.desconectar();
+        protocoloMQTT = new ProtocoloMQTT(ConfiguracaoDoProtocoloMQTT.padrao().maximoDeMensagensEmVoo(8));
+
+        Mensagem mensagem = new Mensagem(TEST_ACAO, TEST_ORIGEM, TEST_DESTINO, TEST_CONTEUDO);
+        for (int i = 0; i < 1_000; i++) {
+            protocoloMQTT.enviarMensagem(mensagem);
+            assertTrue(protocoloMQTT.getMensagensEmVoo() <= 8, "A janela de envio não deve ser excedida");
+        }
+
+        // Aguarda as confirmações das últimas publicações
+        long limite = System.currentTimeMillis() + 5000;
+        while (protocoloMQTT.getMensagensEmVoo() > 0 && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, protocoloMQTT.getMensagensEmVoo());
+    }
+
+    @Test
+    public void testEnviarLote() throws InterruptedException {
+        protocoloMQTT.desconectar();
+        protocoloMQTT = new ProtocoloMQTT(ConfiguracaoDoProtocoloMQTT.padrao().maximoDeMensagensEmVoo(8));
+
+        List<Mensagem> lote = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            lote.add(new Mensagem(TEST_ACAO, TEST_ORIGEM + "-" + i, TEST_DESTINO, TEST_CONTEUDO));
+        }
+        assertDoesNotThrow(() -> protocoloMQTT.enviarMensagens(lote));
+        assertTrue(protocoloMQTT.getMensagensEmVoo() <= 8, "A janela de envio não deve ser excedida");
+
+        long limite = System.currentTimeMillis() + 5000;
+        while (protocoloMQTT.getMensagensEmVoo() > 0 && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, protocoloMQTT.getMensagensEmVoo());
+    }
+
+    @Test
+    public void testNivelDeQos() {
+        Mensagem mensagem = new Mensagem(TEST_ACAO, TEST_ORIGEM, TEST_DESTINO, TEST_CONTEUDO);
+        assertEquals(1, protocoloMQTT.getNivelDeQos(mensagem));
+
+        mensagem.setQosDeRecepcao(0);
+        assertEquals(0, protocoloMQTT.getNivelDeQos(mensagem), "O nível de recepção deve limitar o encaminhamento");
+
+        mensagem.setQosDeRecepcao(2);
+        mensagem.setModoDeEntrega(ModoDeEntrega.NAO_CONFIRMAVEL);
+        assertEquals(0, protocoloMQTT.getNivelDeQos(mensagem));
+
+        Mensagem comMetadata = Mensagem.fromJson(
+                "{\"acao\":\"TESTE\",\"destino\":\"d\",\"conteudo\":{\"metadata\":{\"qos\":2}}}");
+        assertEquals(2, protocoloMQTT.getNivelDeQos(comMetadata));
+        assertDoesNotThrow(() -> protocoloMQTT.enviarMensagem(comMetadata));
+    }
+
+    @Test
+    public void testReplicacaoNoModoCluster() throws InterruptedException {
+        List<Barramento> barramentos = new ArrayList<>();
+        List<ControladorDoProtocoloMQTT> controladores = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Barramento barramento = new Barramento(new GerenciadorDeServicos());
+            ControladorDoProtocoloMQTT controlador = new ControladorDoProtocoloMQTT(barramento,
+                    ConfiguracaoDoControlador.padrao(),
+                    ConfiguracaoDoProtocoloMQTT.padrao().grupoCompartilhado("teste-replicacao"));
+            controlador.iniciar();
+            barramentos.add(barramento);
+            controladores.add(controlador);
+        }
+
+        try {
+            JsonObject conteudo = new JsonObject();
+            conteudo.addProperty("servico", "Soma");
+            conteudo.addProperty("bytecode", "bytecode-soma");
+            protocoloMQTT.enviarMensagem(new Mensagem("REGISTRAR_SERVICO", TEST_ORIGEM, TEST_TOPIC, conteudo));
+
+            // A assinatura compartilhada entrega o registro a uma única instância, que o replica para as demais
+            long limite = System.currentTimeMillis() + 5000;
+            for (Barramento barramento : barramentos) {
+                while (barramento.getGerenciadorDeServicos().buscarServico("Soma") == null
+                        && System.currentTimeMillis() < limite) {
+                    Thread.sleep(10);
+                }
+                assertNotNull(barramento.getGerenciadorDeServicos().buscarServico("Soma"),
+                        "O serviço deve ser registrado em todas as instâncias do cluster");
+            }
+        } finally {
+            for (ControladorDoProtocoloMQTT controlador : controladores) {
+                controlador.parar();
+            }
+        }
+    }
+
     @Test
     public void testConexaoPerdida() {
         protocoloMQTT.connectionLost(new Exception("Simulação de perda de conexão"));